@@ -0,0 +1,107 @@
+package com.netflix.discovery.converters;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import com.netflix.discovery.converters.wrappers.CodecWrapper;
+import com.netflix.discovery.converters.wrappers.CodecWrappers;
+import com.netflix.discovery.shared.Applications;
+import com.netflix.discovery.util.InstanceInfoGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Encoding and decoding of the full registry and of a delta with each of the {@link CodecWrappers}. Run it with the
+ * gc profiler for the allocation rates; the payload sizes are printed when a trial starts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CodecBenchmark {
+
+    // Instances per application, and instances per delta
+    private static final int APPLICATION_SIZE = 20;
+    private static final int DELTA_SIZE = 100;
+
+    @Param({
+            "JacksonJson", "JacksonJsonMini", "LegacyJacksonJson", "XStreamJson",
+            "JacksonXml", "JacksonXmlMini", "XStreamXml"
+    })
+    public String codecName;
+
+    @Param({"1000", "10000", "100000"})
+    public int instanceCount;
+
+    private CodecWrapper codec;
+    private Applications applications;
+    private Applications delta;
+    private byte[] encodedApplications;
+    private byte[] encodedDelta;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        codec = CodecWrappers.getCodec(codecName);
+
+        InstanceInfoGenerator generator = InstanceInfoGenerator
+                .newBuilder(instanceCount, Math.max(1, instanceCount / APPLICATION_SIZE))
+                .withMetaData(true)
+                .build();
+        applications = generator.toApplications();
+        applications.setAppsHashCode(applications.getReconcileHashCode());
+        delta = InstanceInfoGenerator
+                .newBuilder(DELTA_SIZE, Math.max(1, DELTA_SIZE / APPLICATION_SIZE))
+                .withMetaData(true)
+                .build()
+                .takeDelta(DELTA_SIZE);
+
+        encodedApplications = encode(applications);
+        encodedDelta = encode(delta);
+        System.out.printf("%s: full registry of %d instances %d bytes (%d bytes gzipped), delta of %d instances %d bytes%n",
+                codecName, instanceCount, encodedApplications.length, gzippedSize(encodedApplications),
+                DELTA_SIZE, encodedDelta.length);
+    }
+
+    private byte[] encode(Applications apps) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        codec.encode(apps, out);
+        return out.toByteArray();
+    }
+
+    private static int gzippedSize(byte[] payload) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(payload);
+        }
+        return out.size();
+    }
+
+    @Benchmark
+    public byte[] encodeApplications() throws IOException {
+        return encode(applications);
+    }
+
+    @Benchmark
+    public Applications decodeApplications() throws IOException {
+        return codec.decode(new ByteArrayInputStream(encodedApplications), Applications.class);
+    }
+
+    @Benchmark
+    public byte[] encodeDelta() throws IOException {
+        return encode(delta);
+    }
+
+    @Benchmark
+    public Applications decodeDelta() throws IOException {
+        return codec.decode(new ByteArrayInputStream(encodedDelta), Applications.class);
+    }
+}
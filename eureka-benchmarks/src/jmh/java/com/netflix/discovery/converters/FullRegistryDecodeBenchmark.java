@@ -0,0 +1,75 @@
+package com.netflix.discovery.converters;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.converters.wrappers.CodecWrapper;
+import com.netflix.discovery.converters.wrappers.CodecWrappers;
+import com.netflix.discovery.converters.wrappers.CodecWrappers.LegacyJacksonJson;
+import com.netflix.discovery.shared.Applications;
+import com.netflix.discovery.util.InstanceInfoGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Time from the full registry payload to the first virtual host name lookup, with the registry decoded whole and
+ * then shuffled as {@code DiscoveryClient} does by default, or filtered and indexed as it is read. Run it with the gc
+ * profiler for the bytes allocated per fetch; the peak heap is best compared with -Xmx set just above the size of
+ * the registry stored.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class FullRegistryDecodeBenchmark {
+
+    private static final int APPLICATION_SIZE = 20;
+
+    @Param({"10000", "100000"})
+    public int instanceCount;
+
+    private CodecWrapper codec;
+    private byte[] encodedApplications;
+    private String vipAddress;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        codec = CodecWrappers.getCodec(LegacyJacksonJson.class);
+
+        InstanceInfoGenerator generator = InstanceInfoGenerator
+                .newBuilder(instanceCount, Math.max(1, instanceCount / APPLICATION_SIZE))
+                .withMetaData(true)
+                .build();
+        Applications applications = generator.toApplications();
+        applications.setAppsHashCode(applications.getReconcileHashCode());
+        vipAddress = generator.first().getVIPAddress();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        codec.encode(applications, out);
+        encodedApplications = out.toByteArray();
+    }
+
+    @Benchmark
+    public List<InstanceInfo> decodeAndShuffle() throws IOException {
+        Applications applications = codec.decode(new ByteArrayInputStream(encodedApplications), Applications.class);
+        applications.shuffleInstances(true);
+        return applications.getInstancesByVirtualHostName(vipAddress);
+    }
+
+    @Benchmark
+    public List<InstanceInfo> streamAndIndex() throws IOException {
+        Applications.IndexingBuilder builder = new Applications.IndexingBuilder(true, null);
+        codec.decodeInstances(new ByteArrayInputStream(encodedApplications), builder);
+        return builder.build().getInstancesByVirtualHostName(vipAddress);
+    }
+}
@@ -0,0 +1,80 @@
+package com.netflix.discovery.shared;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.util.InstanceInfoGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Throughput of the selections of an instance of a virtual host name by 64 threads, with the single round-robin
+ * index used by {@code DiscoveryClient.getNextServerFromEureka} and with each of the
+ * {@link InstanceSelectionStrategy selection strategies}. Run it with the gc profiler for the allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(64)
+public class InstanceSelectionBenchmark {
+
+    private static final int INSTANCE_COUNT = 10000;
+    // The zone of the generated instances
+    private static final String ZONE = "us-east-1c";
+
+    // Instances per virtual host name
+    @Param({"10", "100"})
+    public int vipSize;
+
+    private Applications applications;
+    private String vipAddress;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        applications = InstanceInfoGenerator
+                .newBuilder(INSTANCE_COUNT, INSTANCE_COUNT / vipSize)
+                .withMetaData(true)
+                .build()
+                .toApplications();
+        applications.shuffleInstances(true);
+        InstanceInfo instance = applications.getRegisteredApplications().get(0).getInstances().get(0);
+        vipAddress = instance.getVIPAddress().toUpperCase(Locale.ROOT);
+    }
+
+    @Benchmark
+    public InstanceInfo sharedIndex() {
+        List<InstanceInfo> instances = applications.getInstancesByVirtualHostName(vipAddress);
+        int index = (int) (applications.getNextIndex(vipAddress, false).incrementAndGet() % instances.size());
+        return instances.get(index);
+    }
+
+    @Benchmark
+    public InstanceInfo roundRobin() {
+        return applications.selectInstance(vipAddress, false, InstanceSelectionStrategy.ROUND_ROBIN, null);
+    }
+
+    @Benchmark
+    public InstanceInfo random() {
+        return applications.selectInstance(vipAddress, false, InstanceSelectionStrategy.RANDOM, null);
+    }
+
+    @Benchmark
+    public InstanceInfo zonePreferring() {
+        return applications.selectInstance(vipAddress, false, InstanceSelectionStrategy.ZONE_PREFERRING, ZONE);
+    }
+
+    @Benchmark
+    public InstanceInfo weighted() {
+        return applications.selectInstance(vipAddress, false, InstanceSelectionStrategy.WEIGHTED, null);
+    }
+}
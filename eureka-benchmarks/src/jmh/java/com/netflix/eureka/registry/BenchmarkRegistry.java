@@ -0,0 +1,86 @@
+package com.netflix.eureka.registry;
+
+import java.util.List;
+
+import com.netflix.appinfo.ApplicationInfoManager;
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.appinfo.MyDataCenterInstanceConfig;
+import com.netflix.config.ConfigurationManager;
+import com.netflix.discovery.DefaultEurekaClientConfig;
+import com.netflix.discovery.EurekaClientConfig;
+import com.netflix.discovery.util.InstanceInfoGenerator;
+import com.netflix.eureka.DefaultEurekaServerConfig;
+import com.netflix.eureka.EurekaServerConfig;
+import com.netflix.eureka.cluster.PeerEurekaNodes;
+import com.netflix.eureka.resources.DefaultServerCodecs;
+import com.netflix.eureka.resources.ServerCodecs;
+
+/**
+ * A standalone registry for the benchmarks, with no peer and no remote region, populated with generated instances.
+ * The leases do not expire during a benchmark run, and the responses are always served from the read-write
+ * response cache, so that a cache miss is just an invalidation away.
+ *
+ * @see InstanceInfoGenerator
+ */
+class BenchmarkRegistry extends PeerAwareInstanceRegistryImpl {
+
+    static final int LEASE_DURATION_IN_SECS = 3600;
+
+    // Instances per application, in the generated registries
+    private static final int APPLICATION_SIZE = 20;
+
+    private final List<InstanceInfo> instances;
+
+    private BenchmarkRegistry(EurekaServerConfig serverConfig,
+                              EurekaClientConfig clientConfig,
+                              ServerCodecs serverCodecs,
+                              ApplicationInfoManager applicationInfoManager,
+                              List<InstanceInfo> instances) {
+        super(serverConfig, clientConfig, serverCodecs, null);
+        this.instances = instances;
+        // Never started, so there is no peer to replicate to
+        this.peerEurekaNodes = new PeerEurekaNodes(this, serverConfig, clientConfig, serverCodecs, applicationInfoManager);
+        initializedResponseCache();
+        for (InstanceInfo instance : instances) {
+            register(instance, LEASE_DURATION_IN_SECS, false);
+        }
+    }
+
+    /**
+     * @return a registry holding the given number of generated instances
+     */
+    static BenchmarkRegistry create(int instanceCount) {
+        ConfigurationManager.getConfigInstance().setProperty("eureka.enableSelfPreservation", "false");
+        ConfigurationManager.getConfigInstance().setProperty("eureka.shouldUseReadOnlyResponseCache", "false");
+        ConfigurationManager.getConfigInstance().setProperty("eureka.remoteRegion.disable.transparent.fallback", "true");
+
+        // The server monitors need the data center of the current instance
+        ApplicationInfoManager applicationInfoManager =
+                new ApplicationInfoManager(new MyDataCenterInstanceConfig(), InstanceInfoGenerator.takeOne());
+        EurekaServerConfig serverConfig = new DefaultEurekaServerConfig();
+        ServerCodecs serverCodecs = new DefaultServerCodecs(serverConfig);
+        List<InstanceInfo> instances = InstanceInfoGenerator
+                .newBuilder(instanceCount, Math.max(1, instanceCount / APPLICATION_SIZE))
+                .build()
+                .toInstanceList();
+        return new BenchmarkRegistry(serverConfig, new DefaultEurekaClientConfig(), serverCodecs,
+                applicationInfoManager, instances);
+    }
+
+    /**
+     * @return instances that are not part of the registry, for registrations of new instances
+     */
+    static List<InstanceInfo> newInstances(int instanceCount) {
+        return InstanceInfoGenerator.newBuilder(instanceCount, "benchmarkApp")
+                .withTaggedId(true)
+                .build()
+                .toInstanceList();
+    }
+
+    /**
+     * @return the instances registered in this registry
+     */
+    List<InstanceInfo> getInstances() {
+        return instances;
+    }
+}
@@ -0,0 +1,129 @@
+package com.netflix.eureka.registry;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.shared.Applications;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Throughput of the registry operations driven by the clients: renewals, registrations, cancellations and
+ * evictions, plus the delta computation they feed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RegistryBenchmark {
+
+    // Changes made to the registry right before the delta benchmarks, a typical delta size
+    private static final int DELTA_SIZE = 100;
+
+    @Param({"1000", "10000", "100000"})
+    public int instanceCount;
+
+    private BenchmarkRegistry registry;
+    private List<InstanceInfo> instances;
+    private List<InstanceInfo> newInstances;
+    private long deltaVersion;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        registry = BenchmarkRegistry.create(instanceCount);
+        instances = registry.getInstances();
+        newInstances = BenchmarkRegistry.newInstances(1024);
+
+        deltaVersion = registry.getRegistryVersion();
+        for (int i = 0; i < DELTA_SIZE && i < instances.size(); i++) {
+            InstanceInfo instance = instances.get(i);
+            registry.statusUpdate(instance.getAppName(), instance.getId(), InstanceInfo.InstanceStatus.OUT_OF_SERVICE,
+                    Long.toString(instance.getLastDirtyTimestamp()), false);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        registry.shutdown();
+    }
+
+    /**
+     * The instance each benchmark thread works on next.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        InstanceInfo next(List<InstanceInfo> instances) {
+            InstanceInfo instance = instances.get(next);
+            next = next + 1 == instances.size() ? 0 : next + 1;
+            return instance;
+        }
+    }
+
+    @Benchmark
+    public boolean renew(Cursor cursor) {
+        InstanceInfo instance = cursor.next(instances);
+        return registry.renew(instance.getAppName(), instance.getId(), false);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public boolean renewContended(Cursor cursor) {
+        InstanceInfo instance = cursor.next(instances);
+        return registry.renew(instance.getAppName(), instance.getId(), false);
+    }
+
+    /**
+     * A registration of an already registered instance, as sent by the clients when their information changes.
+     */
+    @Benchmark
+    public void registerExisting(Cursor cursor) {
+        registry.register(cursor.next(instances), false);
+    }
+
+    /**
+     * A registration of a new instance, cancelled right away to keep the registry size stable.
+     */
+    @Benchmark
+    @Threads(1)
+    public boolean registerAndCancel(Cursor cursor) {
+        InstanceInfo instance = cursor.next(newInstances);
+        registry.register(instance, false);
+        return registry.cancel(instance.getAppName(), instance.getId(), false);
+    }
+
+    /**
+     * An eviction run with no expired lease, the common case.
+     */
+    @Benchmark
+    @Threads(1)
+    public void evict() {
+        registry.evict();
+    }
+
+    /**
+     * The delta served to the clients, which holds all the changes of the retention period.
+     */
+    @Benchmark
+    public Applications getApplicationDeltas() {
+        return registry.getApplicationDeltas();
+    }
+
+    /**
+     * The delta served to the clients watching the registry, which holds the changes since a registry version.
+     */
+    @Benchmark
+    public Applications getApplicationDeltasSince() {
+        return registry.getApplicationDeltasSince(deltaVersion);
+    }
+}
@@ -0,0 +1,91 @@
+package com.netflix.eureka.registry;
+
+import java.util.concurrent.TimeUnit;
+
+import com.netflix.appinfo.EurekaAccept;
+import com.netflix.eureka.Version;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Latency of the full registry responses, served from the response cache or generated again after an invalidation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ResponseCacheBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int instanceCount;
+
+    @Param({"JSON", "XML"})
+    public Key.KeyType keyType;
+
+    private BenchmarkRegistry registry;
+    private ResponseCacheImpl responseCache;
+    private Key key;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        registry = BenchmarkRegistry.create(instanceCount);
+        responseCache = (ResponseCacheImpl) registry.getResponseCache();
+        key = newKey();
+        responseCache.getGZIP(key);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        registry.shutdown();
+    }
+
+    private Key newKey() {
+        return new Key(Key.EntityType.Application, ResponseCacheImpl.ALL_APPS, keyType, Version.V2, EurekaAccept.full);
+    }
+
+    /**
+     * The key built by the resources for each request.
+     */
+    @Benchmark
+    public Key keyConstruction() {
+        return newKey();
+    }
+
+    @Benchmark
+    public String getHit() {
+        return responseCache.get(newKey());
+    }
+
+    @Benchmark
+    public byte[] getGZIPHit() {
+        return responseCache.getGZIP(newKey());
+    }
+
+    /**
+     * A request following a registry change, which encodes the payload again.
+     */
+    @Benchmark
+    @Threads(1)
+    public String getMiss() {
+        responseCache.invalidate(key);
+        return responseCache.get(newKey());
+    }
+
+    /**
+     * A compressed request following a registry change, which encodes and compresses the payload again.
+     */
+    @Benchmark
+    @Threads(1)
+    public byte[] getGZIPMiss() {
+        responseCache.invalidate(key);
+        return responseCache.getGZIP(newKey());
+    }
+}
@@ -0,0 +1,90 @@
+package com.netflix.eureka.util.batcher;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Throughput of the task submissions to a batching dispatcher configured as for the peer replication, with the
+ * acceptor thread or the lock free acceptor. The processed task count is printed at the end of a trial, as the
+ * submissions are only sustainable if the workers keep up with them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TaskDispatcherBenchmark {
+
+    // Distinct task ids, as many as the instances replicated
+    static final int TASK_ID_COUNT = 100000;
+
+    static final int MAX_BUFFER_SIZE = 10000;
+    static final int BATCH_SIZE = 250;
+    static final int WORKER_COUNT = 20;
+    static final long MAX_BATCHING_DELAY_MS = 500;
+
+    @Param({"false", "true"})
+    public boolean lockFree;
+
+    private CountingProcessor processor;
+    private TaskDispatcher<Integer, Object> dispatcher;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        processor = new CountingProcessor();
+        dispatcher = TaskDispatchers.createBatchingTaskDispatcher("benchmark", MAX_BUFFER_SIZE, BATCH_SIZE,
+                WORKER_COUNT, MAX_BATCHING_DELAY_MS, 1000, 100, processor, lockFree);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dispatcher.shutdown();
+        System.out.printf("lockFree=%s: %d tasks processed%n", lockFree, processor.processedTasks.get());
+    }
+
+    /**
+     * The task id each benchmark thread submits next.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        int next() {
+            next = next + 1 == TASK_ID_COUNT ? 0 : next + 1;
+            return next;
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void process(Cursor cursor) {
+        dispatcher.process(cursor.next(), Boolean.TRUE, System.currentTimeMillis() + 30 * 1000);
+    }
+
+    static class CountingProcessor implements TaskProcessor<Object> {
+        final AtomicLong processedTasks = new AtomicLong();
+
+        @Override
+        public ProcessingResult process(Object task) {
+            processedTasks.incrementAndGet();
+            return ProcessingResult.Success;
+        }
+
+        @Override
+        public ProcessingResult process(List<Object> tasks) {
+            processedTasks.addAndGet(tasks.size());
+            return ProcessingResult.Success;
+        }
+    }
+}
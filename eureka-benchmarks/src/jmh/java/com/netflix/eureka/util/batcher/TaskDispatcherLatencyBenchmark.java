@@ -0,0 +1,103 @@
+package com.netflix.eureka.util.batcher;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Time from the submission of a task to its processing, with a background load of other tasks submitted at a
+ * steady rate. There is no batching delay, so that the measure is the dispatching overhead only.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(1)
+public class TaskDispatcherLatencyBenchmark {
+
+    // The background tasks are submitted every millisecond, in chunks
+    private static final long LOAD_PERIOD_NS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Param({"false", "true"})
+    public boolean lockFree;
+
+    @Param({"0", "100000"})
+    public int tasksPerSecond;
+
+    private TaskDispatcher<Integer, Object> dispatcher;
+    private final AtomicBoolean loading = new AtomicBoolean();
+    private Thread loader;
+    private int probeId = -1;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dispatcher = TaskDispatchers.createBatchingTaskDispatcher("benchmark", TaskDispatcherBenchmark.MAX_BUFFER_SIZE,
+                TaskDispatcherBenchmark.BATCH_SIZE, TaskDispatcherBenchmark.WORKER_COUNT, 0, 1000, 100,
+                new ProbeProcessor(), lockFree);
+        loading.set(true);
+        loader = new Thread(this::load, "TaskDispatcherLoader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        loading.set(false);
+        loader.join();
+        dispatcher.shutdown();
+    }
+
+    private void load() {
+        int tasksPerPeriod = tasksPerSecond / 1000;
+        int next = 0;
+        long nextPeriod = System.nanoTime();
+        while (loading.get()) {
+            for (int i = 0; i < tasksPerPeriod; i++) {
+                dispatcher.process(next, Boolean.TRUE, System.currentTimeMillis() + 30 * 1000);
+                next = next + 1 == TaskDispatcherBenchmark.TASK_ID_COUNT ? 0 : next + 1;
+            }
+            nextPeriod += LOAD_PERIOD_NS;
+            LockSupport.parkNanos(nextPeriod - System.nanoTime());
+        }
+    }
+
+    @Benchmark
+    public void roundTrip() throws InterruptedException {
+        CountDownLatch processed = new CountDownLatch(1);
+        // Negative ids, distinct from the background task ones
+        dispatcher.process(probeId--, processed, System.currentTimeMillis() + 30 * 1000);
+        processed.await();
+    }
+
+    static class ProbeProcessor implements TaskProcessor<Object> {
+
+        @Override
+        public ProcessingResult process(Object task) {
+            if (task instanceof CountDownLatch) {
+                ((CountDownLatch) task).countDown();
+            }
+            return ProcessingResult.Success;
+        }
+
+        @Override
+        public ProcessingResult process(List<Object> tasks) {
+            for (Object task : tasks) {
+                process(task);
+            }
+            return ProcessingResult.Success;
+        }
+    }
+}
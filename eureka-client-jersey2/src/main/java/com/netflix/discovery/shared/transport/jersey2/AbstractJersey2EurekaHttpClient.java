@@ -20,6 +20,7 @@ import javax.ws.rs.client.Client;
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.client.Invocation.Builder;
 import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.core.Response;
@@ -29,6 +30,7 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -206,22 +208,40 @@ public abstract class AbstractJersey2EurekaHttpClient implements EurekaHttpClien
 
     @Override
     public EurekaHttpResponse<Applications> getApplications(String... regions) {
-        return getApplicationsInternal("apps/", regions);
+        return getApplicationsInternal("apps/", null, null, regions);
     }
 
     @Override
     public EurekaHttpResponse<Applications> getDelta(String... regions) {
-        return getApplicationsInternal("apps/delta", regions);
+        return getApplicationsInternal("apps/delta", null, null, regions);
+    }
+
+    @Override
+    public EurekaHttpResponse<Applications> getApplicationsIfNoneMatch(String eTag, String... regions) {
+        return getApplicationsInternal("apps/", eTag, null, regions);
+    }
+
+    @Override
+    public EurekaHttpResponse<Applications> getDeltaIfNoneMatch(String eTag, String... regions) {
+        return getApplicationsInternal("apps/delta", eTag, null, regions);
+    }
+
+    @Override
+    public EurekaHttpResponse<Applications> watchDelta(long sinceVersion, int timeoutSeconds, String... regions) {
+        Map<String, String> watchParams = new LinkedHashMap<>();
+        watchParams.put("since", Long.toString(sinceVersion));
+        watchParams.put("timeoutSeconds", Integer.toString(timeoutSeconds));
+        return getApplicationsInternal("apps/watch", null, watchParams, regions);
     }
 
     @Override
     public EurekaHttpResponse<Applications> getVip(String vipAddress, String... regions) {
-        return getApplicationsInternal("vips/" + vipAddress, regions);
+        return getApplicationsInternal("vips/" + vipAddress, null, null, regions);
     }
 
     @Override
     public EurekaHttpResponse<Applications> getSecureVip(String secureVipAddress, String... regions) {
-        return getApplicationsInternal("svips/" + secureVipAddress, regions);
+        return getApplicationsInternal("svips/" + secureVipAddress, null, null, regions);
     }
 
     @Override
@@ -249,16 +269,25 @@ public abstract class AbstractJersey2EurekaHttpClient implements EurekaHttpClien
         }
     }
 
-    private EurekaHttpResponse<Applications> getApplicationsInternal(String urlPath, String[] regions) {
+    private EurekaHttpResponse<Applications> getApplicationsInternal(String urlPath, String eTag,
+                                                                     Map<String, String> queryParams, String[] regions) {
         Response response = null;
         try {
             WebTarget webTarget = jerseyClient.target(serviceUrl).path(urlPath);
             if (regions != null && regions.length > 0) {
                 webTarget = webTarget.queryParam("regions", StringUtil.join(regions));
             }
+            if (queryParams != null) {
+                for (Entry<String, String> entry : queryParams.entrySet()) {
+                    webTarget = webTarget.queryParam(entry.getKey(), entry.getValue());
+                }
+            }
             Builder requestBuilder = webTarget.request();
             addExtraProperties(requestBuilder);
             addExtraHeaders(requestBuilder);
+            if (eTag != null) {
+                requestBuilder.header(HttpHeaders.IF_NONE_MATCH, eTag);
+            }
             response = requestBuilder.accept(MediaType.APPLICATION_JSON_TYPE).get();
 
             Applications applications = null;
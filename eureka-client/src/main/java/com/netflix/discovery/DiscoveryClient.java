@@ -23,7 +23,9 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
@@ -41,6 +43,7 @@ import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
 import javax.annotation.Nullable;
 import javax.annotation.PreDestroy;
@@ -48,6 +51,7 @@ import javax.inject.Provider;
 import javax.inject.Singleton;
 import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.SSLContext;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response.Status;
 
 import com.netflix.discovery.shared.resolver.EndpointRandomizer;
@@ -70,6 +74,8 @@ import com.netflix.appinfo.InstanceInfo.InstanceStatus;
 import com.netflix.discovery.endpoint.EndpointUtils;
 import com.netflix.discovery.shared.Application;
 import com.netflix.discovery.shared.Applications;
+import com.netflix.discovery.shared.InstanceSelectionStrategy;
+import com.netflix.discovery.shared.Pair;
 import com.netflix.discovery.shared.resolver.ClosableResolver;
 import com.netflix.discovery.shared.resolver.aws.ApplicationsResolver;
 import com.netflix.discovery.shared.transport.EurekaHttpClient;
@@ -130,6 +136,9 @@ public class DiscoveryClient implements EurekaClient {
 
     // Timers
     private static final String PREFIX = "DiscoveryClient_";
+
+    // Bounds the VIP addresses remembered in upper case for the instance selections
+    private static final int MAX_VIP_ADDRESS_KEYS = 1000;
     private final Counter RECONCILE_HASH_CODES_MISMATCH = Monitors.newCounter(PREFIX + "ReconcileHashCodeMismatch");
     private final com.netflix.servo.monitor.Timer FETCH_REGISTRY_TIMER = Monitors
             .newTimer(PREFIX + "FetchRegistry");
@@ -157,6 +166,12 @@ public class DiscoveryClient implements EurekaClient {
     private final Lock fetchRegistryUpdateLock = new ReentrantLock();
     // monotonically increasing generation counter to ensure stale threads do not reset registry to an older version
     private final AtomicLong fetchRegistryGeneration;
+    // entity tag of the last applied delta, and of the last stored full registry together with the applications
+    // it was stored as, so that the server can answer with 304 if nothing changed since
+    private final AtomicReference<String> lastDeltaETag = new AtomicReference<>();
+    private volatile Pair<String, Applications> lastFullRegistryETag;
+    // server registry version the local copy is known to be up to date with, when watching the registry; -1 if unknown
+    private volatile long lastRegistryVersion = -1;
     private final ApplicationInfoManager applicationInfoManager;
     private final InstanceInfo instanceInfo;
     private final AtomicReference<String> remoteRegionsToFetch;
@@ -170,6 +185,8 @@ public class DiscoveryClient implements EurekaClient {
 
     private final AtomicReference<HealthCheckHandler> healthCheckHandlerRef = new AtomicReference<>();
     private volatile Map<String, Applications> remoteRegionVsApps = new ConcurrentHashMap<>();
+    // The upper case keys of the VIP addresses selected from, so that the selections do not convert them each time
+    private final Map<String, String> vipAddressKeys = new ConcurrentHashMap<>();
     private volatile InstanceInfo.InstanceStatus lastRemoteInstanceStatus = InstanceInfo.InstanceStatus.UNKNOWN;
     private final CopyOnWriteArraySet<EurekaEventListener> eventListeners = new CopyOnWriteArraySet<>();
 
@@ -840,6 +857,22 @@ public class DiscoveryClient implements EurekaClient {
         return instanceInfoList.get(index);
     }
 
+    @Override
+    public InstanceInfo selectInstance(String vipAddress, boolean secure, InstanceSelectionStrategy strategy) {
+        if (vipAddress == null) {
+            throw new IllegalArgumentException("Supplied VIP Address cannot be null");
+        }
+        String vipAddressKey = vipAddressKeys.get(vipAddress);
+        if (vipAddressKey == null) {
+            vipAddressKey = vipAddress.toUpperCase(Locale.ROOT);
+            if (vipAddressKeys.size() < MAX_VIP_ADDRESS_KEYS) {
+                vipAddressKeys.put(vipAddress, vipAddressKey);
+            }
+        }
+        return localRegionApps.get().selectInstance(vipAddressKey, secure, strategy,
+                InstanceInfo.getZone(null, instanceInfo));
+    }
+
     /**
      * Get all applications registered with a specific eureka service.
      *
@@ -1011,10 +1044,11 @@ public class DiscoveryClient implements EurekaClient {
                 logger.info("Registered Applications size is zero : {}",
                         (applications.getRegisteredApplications().size() == 0));
                 logger.info("Application version is -1: {}", (applications.getVersion() == -1));
-                getAndStoreFullRegistry();
+                getAndStoreFullRegistry(clientConfig.shouldDisableDelta() && !forceFullRegistryFetch);
             } else {
-                getAndUpdateDelta(applications);
+                getAndUpdateDelta();
             }
+            applications = getApplications();
             applications.setAppsHashCode(applications.getReconcileHashCode());
             logTotalInstances();
         } catch (Throwable e) {
@@ -1087,19 +1121,41 @@ public class DiscoveryClient implements EurekaClient {
      *   atomically set the registry to the new registry
      * fi
      *
+     * @param conditional if true, the server is asked to not send the registry again if it did not change since it
+     *                    was last stored, provided the local copy was not modified since
      * @return the full registry information.
      * @throws Throwable
      *             on error.
      */
-    private void getAndStoreFullRegistry() throws Throwable {
+    private void getAndStoreFullRegistry(boolean conditional) throws Throwable {
         long currentUpdateGeneration = fetchRegistryGeneration.get();
 
         logger.info("Getting all instance registry info from the eureka server");
 
+        String eTag = null;
+        Pair<String, Applications> lastFetched = lastFullRegistryETag;
+        if (conditional && lastFetched != null && lastFetched.second() == localRegionApps.get()) {
+            eTag = lastFetched.first();
+        }
+        if (clientConfig.getRegistryRefreshSingleVipAddress() == null && isFullRegistryStreamingEnabled()
+                && getAndStreamFullRegistry(currentUpdateGeneration, eTag)) {
+            return;
+        }
+
         Applications apps = null;
-        EurekaHttpResponse<Applications> httpResponse = clientConfig.getRegistryRefreshSingleVipAddress() == null
-                ? eurekaTransport.queryClient.getApplications(remoteRegionsRef.get())
-                : eurekaTransport.queryClient.getVip(clientConfig.getRegistryRefreshSingleVipAddress(), remoteRegionsRef.get());
+        EurekaHttpResponse<Applications> httpResponse;
+        if (clientConfig.getRegistryRefreshSingleVipAddress() != null) {
+            httpResponse = eurekaTransport.queryClient.getVip(clientConfig.getRegistryRefreshSingleVipAddress(), remoteRegionsRef.get());
+        } else if (eTag != null) {
+            httpResponse = eurekaTransport.queryClient.getApplicationsIfNoneMatch(eTag, remoteRegionsRef.get());
+        } else {
+            httpResponse = eurekaTransport.queryClient.getApplications(remoteRegionsRef.get());
+        }
+        if (httpResponse.getStatusCode() == Status.NOT_MODIFIED.getStatusCode()) {
+            logger.info("The registry did not change since it was last fetched");
+            lastRegistryVersion = getRegistryVersion(httpResponse);
+            return;
+        }
         if (httpResponse.getStatusCode() == Status.OK.getStatusCode()) {
             apps = httpResponse.getEntity();
         }
@@ -1108,11 +1164,60 @@ public class DiscoveryClient implements EurekaClient {
         if (apps == null) {
             logger.error("The application is null for some reason. Not storing this information");
         } else if (fetchRegistryGeneration.compareAndSet(currentUpdateGeneration, currentUpdateGeneration + 1)) {
-            localRegionApps.set(this.filterAndShuffle(apps));
+            storeFullRegistry(this.filterAndShuffle(apps), httpResponse);
+            logger.debug("Got full registry with apps hashcode {}", apps.getAppsHashCode());
+        } else {
+            logger.warn("Not updating applications as another thread is updating it already");
+        }
+    }
+
+    /**
+     * Same as {@link #getAndStoreFullRegistry(boolean)}, except that the registry is filtered and indexed as it is
+     * read rather than once it is decoded whole.
+     *
+     * @return false if the registry was read more than once, as when the request is retried after a failure, for it
+     *         to be fetched again and decoded whole
+     */
+    private boolean getAndStreamFullRegistry(long currentUpdateGeneration, String eTag) {
+        boolean fetchingRemoteRegions = isFetchingRemoteRegionRegistries();
+        Applications.IndexingBuilder builder = new Applications.IndexingBuilder(
+                clientConfig.shouldFilterOnlyUpInstances(), fetchingRemoteRegions ? instanceRegionChecker : null);
+        EurekaHttpResponse<Applications> httpResponse =
+                eurekaTransport.queryClient.streamApplications(eTag, builder, remoteRegionsRef.get());
+        if (httpResponse.getStatusCode() == Status.NOT_MODIFIED.getStatusCode()) {
+            logger.info("The registry did not change since it was last fetched");
+            lastRegistryVersion = getRegistryVersion(httpResponse);
+            return true;
+        }
+        logger.info("The response status is {}", httpResponse.getStatusCode());
+
+        Applications apps = httpResponse.getStatusCode() == Status.OK.getStatusCode() ? httpResponse.getEntity() : null;
+        if (apps == null) {
+            logger.error("The application is null for some reason. Not storing this information");
+        } else if (builder.isDuplicated()) {
+            logger.warn("The registry was read more than once; fetching it again");
+            return false;
+        } else if (fetchRegistryGeneration.compareAndSet(currentUpdateGeneration, currentUpdateGeneration + 1)) {
+            Applications filteredApps = builder.build();
+            filteredApps.setVersion(apps.getVersion());
+            filteredApps.setAppsHashCode(apps.getAppsHashCode());
+            if (fetchingRemoteRegions) {
+                this.remoteRegionVsApps = builder.getRemoteRegionsRegistry();
+            }
+            storeFullRegistry(filteredApps, httpResponse);
             logger.debug("Got full registry with apps hashcode {}", apps.getAppsHashCode());
         } else {
             logger.warn("Not updating applications as another thread is updating it already");
         }
+        return true;
+    }
+
+    private void storeFullRegistry(Applications filteredApps, EurekaHttpResponse<Applications> httpResponse) {
+        localRegionApps.set(filteredApps);
+        String responseETag = getETag(httpResponse);
+        lastFullRegistryETag = responseETag == null ? null : new Pair<>(responseETag, filteredApps);
+        lastDeltaETag.set(null);
+        lastRegistryVersion = getRegistryVersion(httpResponse);
     }
 
     /**
@@ -1128,11 +1233,39 @@ public class DiscoveryClient implements EurekaClient {
      * @return the client response
      * @throws Throwable on error
      */
-    private void getAndUpdateDelta(Applications applications) throws Throwable {
+    private void getAndUpdateDelta() throws Throwable {
         long currentUpdateGeneration = fetchRegistryGeneration.get();
 
         Applications delta = null;
-        EurekaHttpResponse<Applications> httpResponse = eurekaTransport.queryClient.getDelta(remoteRegionsRef.get());
+        EurekaHttpResponse<Applications> httpResponse = null;
+        long sinceVersion = lastRegistryVersion;
+        if (sinceVersion >= 0 && isRegistryWatchEnabled()) {
+            httpResponse = eurekaTransport.queryClient.watchDelta(
+                    sinceVersion, getRegistryWatchTimeoutSeconds(), remoteRegionsRef.get());
+            if (httpResponse.getStatusCode() == Status.NOT_MODIFIED.getStatusCode()) {
+                logger.debug("The registry did not change since version {}", sinceVersion);
+                return;
+            }
+            if (httpResponse.getStatusCode() != Status.OK.getStatusCode()) {
+                logger.info("Cannot watch the registry (status {}); fetching the delta instead", httpResponse.getStatusCode());
+                lastRegistryVersion = -1;
+                httpResponse = null;
+            }
+        }
+        if (httpResponse == null && isDeltaStreamingEnabled()) {
+            getAndStreamDelta(currentUpdateGeneration);
+            return;
+        }
+        if (httpResponse == null) {
+            String eTag = lastDeltaETag.get();
+            httpResponse = eTag == null
+                    ? eurekaTransport.queryClient.getDelta(remoteRegionsRef.get())
+                    : eurekaTransport.queryClient.getDeltaIfNoneMatch(eTag, remoteRegionsRef.get());
+        }
+        if (httpResponse.getStatusCode() == Status.NOT_MODIFIED.getStatusCode()) {
+            logger.debug("The registry delta did not change since it was last applied");
+            return;
+        }
         if (httpResponse.getStatusCode() == Status.OK.getStatusCode()) {
             delta = httpResponse.getEntity();
         }
@@ -1140,14 +1273,18 @@ public class DiscoveryClient implements EurekaClient {
         if (delta == null) {
             logger.warn("The server does not allow the delta revision to be applied because it is not safe. "
                     + "Hence got the full registry.");
-            getAndStoreFullRegistry();
+            getAndStoreFullRegistry(false);
         } else if (fetchRegistryGeneration.compareAndSet(currentUpdateGeneration, currentUpdateGeneration + 1)) {
             logger.debug("Got delta update with apps hashcode {}", delta.getAppsHashCode());
             String reconcileHashCode = "";
             if (fetchRegistryUpdateLock.tryLock()) {
                 try {
                     updateDelta(delta);
-                    reconcileHashCode = getReconcileHashCode(applications);
+                    reconcileHashCode = getReconcileHashCode(getApplications());
+                    // The local copy no longer matches the last full registry fetched
+                    lastFullRegistryETag = null;
+                    lastDeltaETag.set(getETag(httpResponse));
+                    lastRegistryVersion = getRegistryVersion(httpResponse);
                 } finally {
                     fetchRegistryUpdateLock.unlock();
                 }
@@ -1164,6 +1301,122 @@ public class DiscoveryClient implements EurekaClient {
         }
     }
 
+    /**
+     * Same as {@link #getAndUpdateDelta()}, except that the instances of the delta are applied to copies of the
+     * registries as they are read, rather than once the whole delta is decoded. The update lock is only held to
+     * publish the copies, which happens only if the whole delta was applied and no other update was published since
+     * the copies were made.
+     */
+    private void getAndStreamDelta(long currentUpdateGeneration) throws Throwable {
+        DeltaApplier applier = new DeltaApplier();
+        EurekaHttpResponse<Applications> httpResponse =
+                eurekaTransport.queryClient.streamDelta(lastDeltaETag.get(), applier, remoteRegionsRef.get());
+        if (httpResponse.getStatusCode() == Status.NOT_MODIFIED.getStatusCode()) {
+            logger.debug("The registry delta did not change since it was last applied");
+            return;
+        }
+        Applications delta = null;
+        if (httpResponse.getStatusCode() == Status.OK.getStatusCode()) {
+            delta = httpResponse.getEntity();
+        }
+
+        if (delta == null) {
+            logger.warn("The server does not allow the delta revision to be applied because it is not safe. "
+                    + "Hence got the full registry.");
+            getAndStoreFullRegistry(false);
+        } else if (fetchRegistryGeneration.compareAndSet(currentUpdateGeneration, currentUpdateGeneration + 1)) {
+            logger.debug("Got delta update with apps hashcode {}", delta.getAppsHashCode());
+            applier.prepare(delta.getVersion());
+            String reconcileHashCode = "";
+            if (fetchRegistryUpdateLock.tryLock()) {
+                try {
+                    if (!applier.publish()) {
+                        logger.warn("Not updating application delta as the registry was updated while it was read");
+                        return;
+                    }
+                    reconcileHashCode = getReconcileHashCode(getApplications());
+                    // The local copy no longer matches the last full registry fetched
+                    lastFullRegistryETag = null;
+                    lastDeltaETag.set(getETag(httpResponse));
+                    lastRegistryVersion = getRegistryVersion(httpResponse);
+                } finally {
+                    fetchRegistryUpdateLock.unlock();
+                }
+            } else {
+                logger.warn("Cannot acquire update lock, aborting getAndStreamDelta");
+            }
+            if (!reconcileHashCode.equals(delta.getAppsHashCode()) || clientConfig.shouldLogDeltaDiff()) {
+                reconcileAndLogDifference(delta, reconcileHashCode);  // this makes a remoteCall
+            }
+        } else {
+            logger.warn("Not updating application delta as another thread is updating it already");
+            logger.debug("Ignoring delta update with apps hashcode {}, as another thread is updating it already", delta.getAppsHashCode());
+        }
+    }
+
+    private static String getETag(EurekaHttpResponse<?> httpResponse) {
+        for (Map.Entry<String, String> header : httpResponse.getHeaders().entrySet()) {
+            if (HttpHeaders.ETAG.equalsIgnoreCase(header.getKey())) {
+                return header.getValue();
+            }
+        }
+        return null;
+    }
+
+    private static long getRegistryVersion(EurekaHttpResponse<?> httpResponse) {
+        for (Map.Entry<String, String> header : httpResponse.getHeaders().entrySet()) {
+            if (EurekaHttpResponse.HEADER_REGISTRY_VERSION.equalsIgnoreCase(header.getKey())) {
+                try {
+                    return Long.parseLong(header.getValue());
+                } catch (NumberFormatException e) {
+                    logger.warn("Invalid registry version {}", header.getValue());
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Registry watching is experimental: instead of polling the delta at a fixed interval, the client waits on the
+     * server for the next registry change, so that changes are seen as soon as they happen.
+     */
+    private boolean isRegistryWatchEnabled() {
+        return "true".equals(clientConfig.getExperimental("registryWatch.enabled"));
+    }
+
+    /**
+     * Delta streaming is experimental: the instances of a delta are applied as they are read, so that a large delta
+     * is never held in memory whole.
+     */
+    private boolean isDeltaStreamingEnabled() {
+        return "true".equals(clientConfig.getExperimental("registryDelta.streaming"));
+    }
+
+    /**
+     * Full registry streaming is experimental: the registry is filtered and indexed as it is read, so that the
+     * decoded registry is never held in memory besides the registry stored.
+     */
+    private boolean isFullRegistryStreamingEnabled() {
+        return "true".equals(clientConfig.getExperimental("registryFetch.streaming"));
+    }
+
+    /**
+     * The time a watch request waits for a change on the server side, kept below the read timeout so that an
+     * unchanged registry is not mistaken for an unresponsive server.
+     */
+    private int getRegistryWatchTimeoutSeconds() {
+        int timeoutSeconds = 30;
+        String configured = clientConfig.getExperimental("registryWatch.timeoutSeconds");
+        if (configured != null) {
+            try {
+                timeoutSeconds = Integer.parseInt(configured.trim());
+            } catch (NumberFormatException e) {
+                logger.warn("Invalid registry watch timeout {}; using {} seconds instead", configured, timeoutSeconds);
+            }
+        }
+        return Math.max(1, Math.min(timeoutSeconds, clientConfig.getEurekaServerReadTimeoutSeconds() - 2));
+    }
+
     /**
      * Logs the total number of non-filtered instances stored locally.
      */
@@ -1215,8 +1468,9 @@ public class DiscoveryClient implements EurekaClient {
         }
 
         if (fetchRegistryGeneration.compareAndSet(currentUpdateGeneration, currentUpdateGeneration + 1)) {
-            localRegionApps.set(this.filterAndShuffle(serverApps));
-            getApplications().setVersion(delta.getVersion());
+            Applications applications = this.filterAndShuffle(serverApps);
+            applications.setVersion(delta.getVersion());
+            localRegionApps.set(applications);
             logger.debug(
                     "The Reconcile hashcodes after complete sync up, client : {}, server : {}.",
                     getApplications().getReconcileHashCode(),
@@ -1235,61 +1489,113 @@ public class DiscoveryClient implements EurekaClient {
      *            poll cycle.
      */
     private void updateDelta(Applications delta) {
-        int deltaCount = 0;
+        DeltaApplier applier = new DeltaApplier();
         for (Application app : delta.getRegisteredApplications()) {
             for (InstanceInfo instance : app.getInstances()) {
-                Applications applications = getApplications();
-                String instanceRegion = instanceRegionChecker.getInstanceRegion(instance);
-                if (!instanceRegionChecker.isLocalRegion(instanceRegion)) {
-                    Applications remoteApps = remoteRegionVsApps.get(instanceRegion);
-                    if (null == remoteApps) {
-                        remoteApps = new Applications();
-                        remoteRegionVsApps.put(instanceRegion, remoteApps);
-                    }
-                    applications = remoteApps;
+                applier.accept(instance);
+            }
+        }
+        applier.prepare(delta.getVersion());
+        applier.publish();
+    }
+
+    /**
+     * Applies the instances of a delta, one at a time, to copies of the registries, published once the delta is
+     * applied so that the lookups never see it half-applied. The copies share the applications the delta does not
+     * change.
+     */
+    private final class DeltaApplier implements Consumer<InstanceInfo> {
+
+        private final Applications publishedApps = getApplications();
+        private final Applications localApps = publishedApps.copy();
+        private final Map<String, Applications> remoteRegionVsApps = new ConcurrentHashMap<>();
+        // The names of the applications the delta changed in each region, to shuffle only those
+        private final Map<Applications, Set<String>> changedAppNames = new IdentityHashMap<>();
+        private int deltaCount;
+
+        DeltaApplier() {
+            for (Map.Entry<String, Applications> entry : DiscoveryClient.this.remoteRegionVsApps.entrySet()) {
+                remoteRegionVsApps.put(entry.getKey(), entry.getValue().copy());
+            }
+        }
+
+        @Override
+        public void accept(InstanceInfo instance) {
+            Applications applications = localApps;
+            String instanceRegion = instanceRegionChecker.getInstanceRegion(instance);
+            if (!instanceRegionChecker.isLocalRegion(instanceRegion)) {
+                Applications remoteApps = remoteRegionVsApps.get(instanceRegion);
+                if (null == remoteApps) {
+                    remoteApps = new Applications();
+                    remoteRegionVsApps.put(instanceRegion, remoteApps);
                 }
+                applications = remoteApps;
+            }
 
-                ++deltaCount;
-                if (ActionType.ADDED.equals(instance.getActionType())) {
-                    Application existingApp = applications.getRegisteredApplications(instance.getAppName());
-                    if (existingApp == null) {
-                        applications.addApplication(app);
-                    }
-                    logger.debug("Added instance {} to the existing apps in region {}", instance.getId(), instanceRegion);
-                    applications.getRegisteredApplications(instance.getAppName()).addInstance(instance);
-                } else if (ActionType.MODIFIED.equals(instance.getActionType())) {
-                    Application existingApp = applications.getRegisteredApplications(instance.getAppName());
-                    if (existingApp == null) {
-                        applications.addApplication(app);
-                    }
-                    logger.debug("Modified instance {} to the existing apps ", instance.getId());
-
-                    applications.getRegisteredApplications(instance.getAppName()).addInstance(instance);
-
-                } else if (ActionType.DELETED.equals(instance.getActionType())) {
-                    Application existingApp = applications.getRegisteredApplications(instance.getAppName());
-                    if (existingApp != null) {
-                        logger.debug("Deleted instance {} to the existing apps ", instance.getId());
-                        existingApp.removeInstance(instance);
-                        /*
-                         * We find all instance list from application(The status of instance status is not only the status is UP but also other status)
-                         * if instance list is empty, we remove the application.
-                         */
-                        if (existingApp.getInstancesAsIsFromEureka().isEmpty()) {
-                            applications.removeApplication(existingApp);
-                        }
+            ++deltaCount;
+            if (changedAppNames.computeIfAbsent(applications, k -> new HashSet<>()).add(instance.getAppName())) {
+                // The application is still shared with the published registry
+                applications.copyRegisteredApplication(instance.getAppName());
+            }
+            if (ActionType.ADDED.equals(instance.getActionType())) {
+                Application existingApp = applications.getRegisteredApplications(instance.getAppName());
+                if (existingApp == null) {
+                    applications.addApplication(new Application(instance.getAppName()));
+                }
+                logger.debug("Added instance {} to the existing apps in region {}", instance.getId(), instanceRegion);
+                applications.getRegisteredApplications(instance.getAppName()).addInstance(instance);
+            } else if (ActionType.MODIFIED.equals(instance.getActionType())) {
+                Application existingApp = applications.getRegisteredApplications(instance.getAppName());
+                if (existingApp == null) {
+                    applications.addApplication(new Application(instance.getAppName()));
+                }
+                logger.debug("Modified instance {} to the existing apps ", instance.getId());
+
+                applications.getRegisteredApplications(instance.getAppName()).addInstance(instance);
+
+            } else if (ActionType.DELETED.equals(instance.getActionType())) {
+                Application existingApp = applications.getRegisteredApplications(instance.getAppName());
+                if (existingApp != null) {
+                    logger.debug("Deleted instance {} to the existing apps ", instance.getId());
+                    existingApp.removeInstance(instance);
+                    /*
+                     * We find all instance list from application(The status of instance status is not only the status is UP but also other status)
+                     * if instance list is empty, we remove the application.
+                     */
+                    if (existingApp.getInstancesAsIsFromEureka().isEmpty()) {
+                        applications.removeApplication(existingApp);
                     }
                 }
             }
         }
-        logger.debug("The total number of instances fetched by the delta processor : {}", deltaCount);
 
-        getApplications().setVersion(delta.getVersion());
-        getApplications().shuffleInstances(clientConfig.shouldFilterOnlyUpInstances());
+        /**
+         * Sets the version of the copies and shuffles the applications the delta changed, without the update lock.
+         */
+        void prepare(Long version) {
+            logger.debug("The total number of instances fetched by the delta processor : {}", deltaCount);
+
+            localApps.setVersion(version);
+            for (Applications applications : remoteRegionVsApps.values()) {
+                applications.setVersion(version);
+            }
 
-        for (Applications applications : remoteRegionVsApps.values()) {
-            applications.setVersion(delta.getVersion());
-            applications.shuffleInstances(clientConfig.shouldFilterOnlyUpInstances());
+            for (Map.Entry<Applications, Set<String>> entry : changedAppNames.entrySet()) {
+                entry.getKey().shuffleInstances(entry.getValue(), clientConfig.shouldFilterOnlyUpInstances());
+            }
+        }
+
+        /**
+         * Publishes the copies, to be called with the update lock held.
+         *
+         * @return false if another update was published since the copies were made, in which case they are dropped
+         */
+        boolean publish() {
+            if (!localRegionApps.compareAndSet(publishedApps, localApps)) {
+                return false;
+            }
+            DiscoveryClient.this.remoteRegionVsApps = remoteRegionVsApps;
+            return true;
         }
     }
 
@@ -1301,18 +1607,23 @@ public class DiscoveryClient implements EurekaClient {
             // registry cache refresh timer
             int registryFetchIntervalSeconds = clientConfig.getRegistryFetchIntervalSeconds();
             int expBackOffBound = clientConfig.getCacheRefreshExecutorExponentialBackOffBound();
-            cacheRefreshTask = new TimedSupervisorTask(
-                    "cacheRefresh",
-                    scheduler,
-                    cacheRefreshExecutor,
-                    registryFetchIntervalSeconds,
-                    TimeUnit.SECONDS,
-                    expBackOffBound,
-                    new CacheRefreshThread()
-            );
-            scheduler.schedule(
-                    cacheRefreshTask,
-                    registryFetchIntervalSeconds, TimeUnit.SECONDS);
+            if (isRegistryWatchEnabled()) {
+                logger.info("Watching the registry for changes");
+                cacheRefreshExecutor.execute(new RegistryWatchThread());
+            } else {
+                cacheRefreshTask = new TimedSupervisorTask(
+                        "cacheRefresh",
+                        scheduler,
+                        cacheRefreshExecutor,
+                        registryFetchIntervalSeconds,
+                        TimeUnit.SECONDS,
+                        expBackOffBound,
+                        new CacheRefreshThread()
+                );
+                scheduler.schedule(
+                        cacheRefreshTask,
+                        registryFetchIntervalSeconds, TimeUnit.SECONDS);
+            }
         }
 
         if (clientConfig.shouldRegisterWithEureka()) {
@@ -1499,8 +1810,34 @@ public class DiscoveryClient implements EurekaClient {
         }
     }
 
+    /**
+     * The task that keeps the registry information up to date by watching the server for changes. It falls back to
+     * fetching the registry at the specified intervals whenever the server does not support watching, or the
+     * fetches fail.
+     */
+    class RegistryWatchThread implements Runnable {
+        public void run() {
+            boolean polling = lastRegistryVersion < 0;
+            while (!Thread.currentThread().isInterrupted()) {
+                if (polling) {
+                    try {
+                        TimeUnit.SECONDS.sleep(clientConfig.getRegistryFetchIntervalSeconds());
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+                boolean success = refreshRegistry();
+                // Only the delta fetches can wait for a change
+                polling = !success || lastRegistryVersion < 0 || !isRegistryWatchEnabled()
+                        || clientConfig.shouldDisableDelta();
+            }
+            logger.info("Registry watch stopped");
+        }
+    }
+
     @VisibleForTesting
-    void refreshRegistry() {
+    boolean refreshRegistry() {
         try {
             boolean isFetchingRemoteRegionRegistries = isFetchingRemoteRegionRegistries();
 
@@ -1549,8 +1886,10 @@ public class DiscoveryClient implements EurekaClient {
                 logger.debug("Completed cache refresh task for discovery. All Apps hash code is {} ",
                         allAppsHashCodes);
             }
+            return success;
         } catch (Throwable e) {
             logger.error("Cannot fetch registry from server", e);
+            return false;
         }
     }
 
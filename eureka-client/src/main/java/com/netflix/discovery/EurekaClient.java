@@ -2,6 +2,7 @@ package com.netflix.discovery;
 
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
 
 import javax.annotation.Nullable;
 
@@ -11,6 +12,7 @@ import com.netflix.appinfo.HealthCheckCallback;
 import com.netflix.appinfo.HealthCheckHandler;
 import com.netflix.appinfo.InstanceInfo;
 import com.netflix.discovery.shared.Applications;
+import com.netflix.discovery.shared.InstanceSelectionStrategy;
 import com.netflix.discovery.shared.LookupService;
 
 /**
@@ -81,6 +83,27 @@ public interface EurekaClient extends LookupService {
      */
     public List<InstanceInfo> getInstancesByVipAddressAndAppName(String vipAddress, String appName, boolean secure);
 
+    /**
+     * Selects one of the instances matching the given VIP Address in the local region. The selection keeps its state
+     * per VIP address and does not allocate, so it can be made for every request.
+     * <p>
+     * By default, the instance is picked at random from {@link #getInstancesByVipAddress(String, boolean)}, whatever
+     * the strategy, since there is no state to select the instances in turn with.
+     *
+     * @param vipAddress The VIP address to match the instances for.
+     * @param secure true if it is a secure vip address, false otherwise.
+     * @param strategy the way to select the instance, {@link InstanceSelectionStrategy#ZONE_PREFERRING} preferring
+     *                 the zone of this client.
+     * @return the selected instance, or null if no instance matches the VIP address.
+     */
+    public default InstanceInfo selectInstance(String vipAddress, boolean secure, InstanceSelectionStrategy strategy) {
+        List<InstanceInfo> instances = getInstancesByVipAddress(vipAddress, secure);
+        if (instances == null || instances.isEmpty()) {
+            return null;
+        }
+        return instances.get(ThreadLocalRandom.current().nextInt(instances.size()));
+    }
+
     // ==========================
     // getters for local metadata
     // ==========================
@@ -16,6 +16,7 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
@@ -229,6 +230,71 @@ public class EurekaJacksonCodec {
         }
     }
 
+    /**
+     * Reads a registry or a registry delta, passing each of its instances to the handler as soon as it is read
+     * rather than collecting them into applications, so that the decoded payload is never held in memory whole.
+     *
+     * @return the version and the apps hash code of the registry, without any application
+     */
+    public Applications readInstances(InputStream entityStream, Consumer<InstanceInfo> instanceHandler) throws IOException {
+        ObjectReader instanceReader = DeserializerStringCache.init(mapper.readerFor(InstanceInfo.class));
+        long version = -1;
+        String appsHashCode = null;
+        try (JsonParser jp = mapper.getFactory().createParser(entityStream)) {
+            if (jp.nextToken() != JsonToken.START_OBJECT || jp.nextToken() != JsonToken.FIELD_NAME
+                    || jp.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(jp, "expected applications");
+            }
+            JsonToken jsonToken;
+            while ((jsonToken = jp.nextToken()) != JsonToken.END_OBJECT) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new JsonParseException(jp, "processing aborted");
+                }
+                if (JsonToken.FIELD_NAME == jsonToken) {
+                    String fieldName = jp.getCurrentName();
+                    jsonToken = jp.nextToken();
+                    if (versionDeltaKey.equals(fieldName)) {
+                        version = jp.getValueAsLong();
+                    } else if (appHashCodeKey.equals(fieldName)) {
+                        appsHashCode = jp.getValueAsString();
+                    } else if (NODE_APP.equals(fieldName) && jsonToken == JsonToken.START_ARRAY) {
+                        while (jp.nextToken() != JsonToken.END_ARRAY) {
+                            readApplicationInstances(jp, instanceReader, instanceHandler);
+                        }
+                    } else if (NODE_APP.equals(fieldName) && jsonToken == JsonToken.START_OBJECT) {
+                        readApplicationInstances(jp, instanceReader, instanceHandler);
+                    } else {
+                        jp.skipChildren();
+                    }
+                }
+            }
+        } finally {
+            DeserializerStringCache.clear(instanceReader, CacheScope.GLOBAL_SCOPE);
+        }
+        return new Applications(appsHashCode, version, Collections.<Application>emptyList());
+    }
+
+    private static void readApplicationInstances(JsonParser jp, ObjectReader instanceReader,
+                                             Consumer<InstanceInfo> instanceHandler) throws IOException {
+        JsonToken jsonToken;
+        while ((jsonToken = jp.nextToken()) != JsonToken.END_OBJECT) {
+            if (JsonToken.FIELD_NAME == jsonToken) {
+                String fieldName = jp.getCurrentName();
+                jsonToken = jp.nextToken();
+                if (ELEM_INSTANCE.equals(fieldName) && jsonToken == JsonToken.START_ARRAY) {
+                    while (jp.nextToken() != JsonToken.END_ARRAY) {
+                        instanceHandler.accept(instanceReader.readValue(jp));
+                    }
+                } else if (ELEM_INSTANCE.equals(fieldName) && jsonToken == JsonToken.START_OBJECT) {
+                    instanceHandler.accept(instanceReader.readValue(jp));
+                } else {
+                    jp.skipChildren();
+                }
+            }
+        }
+        DeserializerStringCache.clear(instanceReader, CacheScope.APPLICATION_SCOPE);
+    }
+
     public <T> void writeTo(T object, OutputStream entityStream) throws IOException {
         ObjectWriter writer = objectWriterByClass.get(object.getClass());
         if (writer == null) {
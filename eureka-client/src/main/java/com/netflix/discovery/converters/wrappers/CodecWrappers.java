@@ -6,14 +6,17 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 import com.netflix.appinfo.EurekaAccept;
+import com.netflix.appinfo.InstanceInfo;
 import com.netflix.discovery.converters.EurekaJacksonCodec;
 import com.netflix.discovery.converters.JsonXStream;
 import com.netflix.discovery.converters.KeyFormatter;
 import com.netflix.discovery.converters.XmlXStream;
 import com.netflix.discovery.converters.jackson.EurekaJsonJacksonCodec;
 import com.netflix.discovery.converters.jackson.EurekaXmlJacksonCodec;
+import com.netflix.discovery.shared.Applications;
 import com.netflix.discovery.shared.transport.jersey.EurekaJerseyClientImpl;
 
 /**
@@ -313,6 +316,11 @@ public final class CodecWrappers {
         public <T> T decode(InputStream inputStream, Class<T> type) throws IOException {
             return codec.readValue(type, inputStream);
         }
+
+        @Override
+        public Applications decodeInstances(InputStream inputStream, Consumer<InstanceInfo> instanceHandler) throws IOException {
+            return codec.readInstances(inputStream, instanceHandler);
+        }
     }
 
     public static class XStreamJson implements CodecWrapper {
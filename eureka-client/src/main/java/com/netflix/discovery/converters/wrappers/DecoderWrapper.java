@@ -2,6 +2,11 @@ package com.netflix.discovery.converters.wrappers;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.function.Consumer;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.shared.Applications;
+import com.netflix.discovery.util.EurekaEntityFunctions;
 
 /**
  * @author David Liu
@@ -11,4 +16,14 @@ public interface DecoderWrapper extends CodecWrapperBase {
     <T> T decode(String textValue, Class<T> type) throws IOException;
 
     <T> T decode(InputStream inputStream, Class<T> type) throws IOException;
+
+    /**
+     * Decodes a registry or a registry delta, passing each of its instances to the handler. The codecs that cannot
+     * read a registry instance by instance decode it whole first.
+     *
+     * @return the version and the apps hash code of the registry, without any application
+     */
+    default Applications decodeInstances(InputStream inputStream, Consumer<InstanceInfo> instanceHandler) throws IOException {
+        return EurekaEntityFunctions.replayInstances(decode(inputStream, Applications.class), instanceHandler);
+    }
 }
@@ -31,11 +31,14 @@ import java.io.OutputStream;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Type;
 import java.util.Map;
+import java.util.function.Consumer;
 
+import com.netflix.appinfo.InstanceInfo;
 import com.netflix.discovery.converters.wrappers.CodecWrappers;
 import com.netflix.discovery.converters.wrappers.CodecWrappers.LegacyJacksonJson;
 import com.netflix.discovery.converters.wrappers.DecoderWrapper;
 import com.netflix.discovery.converters.wrappers.EncoderWrapper;
+import com.netflix.discovery.shared.Applications;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -90,15 +93,7 @@ public class DiscoveryJerseyProvider implements MessageBodyWriter<Object>, Messa
     public Object readFrom(Class serializableClass, Type type,
                            Annotation[] annotations, MediaType mediaType,
                            MultivaluedMap headers, InputStream inputStream) throws IOException {
-        DecoderWrapper decoder;
-        if (MediaType.MEDIA_TYPE_WILDCARD.equals(mediaType.getSubtype())) {
-            decoder = xmlDecoder;
-        } else if ("json".equalsIgnoreCase(mediaType.getSubtype())) {
-            decoder = jsonDecoder;
-        } else {
-            decoder = xmlDecoder; // default
-        }
-
+        DecoderWrapper decoder = getDecoder(mediaType);
         try {
             return decoder.decode(inputStream, serializableClass);
         } catch (Throwable e) {
@@ -111,6 +106,25 @@ public class DiscoveryJerseyProvider implements MessageBodyWriter<Object>, Messa
         }
     }
 
+    /**
+     * Reads a registry or a registry delta of the given media type, passing each of its instances to the handler as it is read.
+     *
+     * @see DecoderWrapper#decodeInstances(InputStream, Consumer)
+     */
+    public Applications readInstances(MediaType mediaType, InputStream inputStream,
+                                  Consumer<InstanceInfo> instanceHandler) throws IOException {
+        return getDecoder(mediaType).decodeInstances(inputStream, instanceHandler);
+    }
+
+    private DecoderWrapper getDecoder(MediaType mediaType) {
+        if (MediaType.MEDIA_TYPE_WILDCARD.equals(mediaType.getSubtype())) {
+            return xmlDecoder;
+        } else if ("json".equalsIgnoreCase(mediaType.getSubtype())) {
+            return jsonDecoder;
+        }
+        return xmlDecoder; // default
+    }
+
     @Override
     public long getSize(Object serializableObject, Class serializableClass, Type type, Annotation[] annotations, MediaType mediaType) {
         return -1;
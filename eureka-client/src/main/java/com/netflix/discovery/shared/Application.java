@@ -87,6 +87,24 @@ public class Application {
         this.name = StringCache.intern(name);
     }
 
+    /**
+     * Creates a copy of the given application, which can be changed without
+     * affecting the application it was copied from. The instances themselves
+     * are shared.
+     *
+     * @param application
+     *            the application to copy.
+     */
+    public Application(Application application) {
+        this(application.getName());
+        synchronized (application.instances) {
+            instances.addAll(application.instances);
+        }
+        instancesMap.putAll(application.instancesMap);
+        shuffledInstances.set(application.shuffledInstances.get());
+        isDirty = application.isDirty;
+    }
+
     @JsonCreator
     public Application(
             @JsonProperty("name") String name,
@@ -252,6 +270,15 @@ public class Application {
         this.shuffledInstances.set(instanceInfoList);
     }
 
+    /**
+     * Shuffles the given instances, already filtered, and stores them as the
+     * instances returned by {@link #getInstances()}.
+     */
+    void storeShuffledInstances(List<InstanceInfo> instanceInfoList) {
+        Collections.shuffle(instanceInfoList, shuffleRandom);
+        this.shuffledInstances.set(instanceInfoList);
+    }
+
     private void removeInstance(InstanceInfo i, boolean markAsDirty) {
         instancesMap.remove(i.getId());
         synchronized (instances) {
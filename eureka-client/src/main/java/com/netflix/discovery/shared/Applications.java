@@ -19,20 +19,24 @@ package com.netflix.discovery.shared;
 import javax.annotation.Nullable;
 import java.util.AbstractQueue;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Random;
+import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonIgnore;
@@ -65,9 +69,32 @@ import com.thoughtworks.xstream.annotations.XStreamImplicit;
 @JsonRootName("applications")
 public class Applications {
     private static class VipIndexSupport {
-        final AbstractQueue<InstanceInfo> instances = new ConcurrentLinkedQueue<>();
+        // The applications allowed to change the index, the copies of the applications sharing it until they change it
+        final Applications owner;
+        // The instances of each application in the virtual host name, by application name
+        final Map<String, List<InstanceInfo>> appInstances = new ConcurrentHashMap<>();
         final AtomicLong roundRobinIndex = new AtomicLong(0);
         final AtomicReference<List<InstanceInfo>> vipList = new AtomicReference<>(Collections.emptyList());
+        // Created on the first selection, as most of the virtual host names are never selected from
+        volatile InstanceSelector selector;
+
+        VipIndexSupport(Applications owner) {
+            this.owner = owner;
+        }
+
+        InstanceSelector getSelector() {
+            InstanceSelector current = selector;
+            if (current == null) {
+                synchronized (this) {
+                    current = selector;
+                    if (current == null) {
+                        current = new InstanceSelector();
+                        selector = current;
+                    }
+                }
+            }
+            return current;
+        }
 
         public AtomicLong getRoundRobinIndex() {
             return roundRobinIndex;
@@ -87,6 +114,10 @@ public class Applications {
     private final Map<String, Application> appNameApplicationMap;
     private final Map<String, VipIndexSupport> virtualHostNameAppMap;
     private final Map<String, VipIndexSupport> secureVirtualHostNameAppMap;
+    // The virtual host names of each application, by application name, to update only the virtual host names of the
+    // applications a delta changed
+    private final Map<String, Set<String>> appVirtualHostNames;
+    private final Map<String, Set<String>> appSecureVirtualHostNames;
 
     /**
      * Create a new, empty Eureka application list.
@@ -107,6 +138,8 @@ public class Applications {
         this.appNameApplicationMap = new ConcurrentHashMap<String, Application>();
         this.virtualHostNameAppMap = new ConcurrentHashMap<String, VipIndexSupport>();
         this.secureVirtualHostNameAppMap = new ConcurrentHashMap<String, VipIndexSupport>();
+        this.appVirtualHostNames = new ConcurrentHashMap<String, Set<String>>();
+        this.appSecureVirtualHostNames = new ConcurrentHashMap<String, Set<String>>();
         this.appsHashCode = appsHashCode;
         this.versionDelta = versionDelta;
 
@@ -122,11 +155,59 @@ public class Applications {
      *            the <em>application</em> to be added.
      */
     public void addApplication(Application app) {
-        appNameApplicationMap.put(app.getName().toUpperCase(Locale.ROOT), app);
-        addInstancesToVIPMaps(app, this.virtualHostNameAppMap, this.secureVirtualHostNameAppMap);
+        String appName = app.getName().toUpperCase(Locale.ROOT);
+        appNameApplicationMap.put(appName, app);
+        // The virtual host names are given the instances when they are shuffled
+        Set<String> changedVips = new HashSet<>();
+        addInstancesToVIPMap(appName, app, false, this.virtualHostNameAppMap, this.appVirtualHostNames, changedVips);
+        addInstancesToVIPMap(appName, app, true, this.secureVirtualHostNameAppMap, this.appSecureVirtualHostNames,
+                changedVips);
         applications.add(app);
     }
 
+    /**
+     * Creates a copy of these <em>applications</em>, to change while these are
+     * being read. The copy shares the applications and the virtual host name
+     * indexes with these: an application must be replaced by a copy with
+     * {@link #copyRegisteredApplication(String)} before it is changed, and the
+     * virtual host name indexes are copied when they are first updated.
+     *
+     * @return the copy of these applications.
+     */
+    public Applications copy() {
+        Applications copy = new Applications(appsHashCode, versionDelta, Collections.emptyList());
+        copy.applications.addAll(applications);
+        copy.appNameApplicationMap.putAll(appNameApplicationMap);
+        copy.virtualHostNameAppMap.putAll(virtualHostNameAppMap);
+        copy.secureVirtualHostNameAppMap.putAll(secureVirtualHostNameAppMap);
+        copy.appVirtualHostNames.putAll(appVirtualHostNames);
+        copy.appSecureVirtualHostNames.putAll(appSecureVirtualHostNames);
+        return copy;
+    }
+
+    /**
+     * Replaces the registered <em>application</em> of the given name by a
+     * copy, to change it without affecting the applications these were
+     * {@link #copy() copied} from.
+     *
+     * @param appName
+     *            the name of the application to copy.
+     * @return the copy of the application, or null if no application is
+     *         registered with the name.
+     */
+    public Application copyRegisteredApplication(String appName) {
+        String key = appName.toUpperCase(Locale.ROOT);
+        Application app = appNameApplicationMap.get(key);
+        if (app == null) {
+            return null;
+        }
+        Application copy = new Application(app);
+        appNameApplicationMap.put(key, copy);
+        applications.remove(app);
+        applications.add(copy);
+        return copy;
+    }
+
     /**
      * Gets the list of all registered <em>applications</em> from eureka.
      *
@@ -181,6 +262,33 @@ public class Applications {
                 .orElseGet(Collections::emptyList);        
     }
 
+    /**
+     * Selects an instance of a virtual host name with the given strategy,
+     * without copying the instances of the virtual host name. The selection
+     * does not allocate if the virtual host name is given in upper case.
+     *
+     * @param virtualHostName
+     *            the virtual host name to select an instance of.
+     * @param secure
+     *            whether the virtual host name is a secure one.
+     * @param strategy
+     *            the way to select the instance.
+     * @param zone
+     *            the zone to prefer the instances of, with
+     *            {@link InstanceSelectionStrategy#ZONE_PREFERRING}.
+     * @return the selected instance, or null if the virtual host name has no
+     *         instances.
+     */
+    public InstanceInfo selectInstance(String virtualHostName, boolean secure, InstanceSelectionStrategy strategy,
+            @Nullable String zone) {
+        Map<String, VipIndexSupport> index = secure ? secureVirtualHostNameAppMap : virtualHostNameAppMap;
+        VipIndexSupport vipIndexSupport = index.get(virtualHostName.toUpperCase(Locale.ROOT));
+        if (vipIndexSupport == null) {
+            return null;
+        }
+        return vipIndexSupport.getSelector().select(vipIndexSupport.vipList.get(), strategy, zone);
+    }
+
     /**
      * @return a weakly consistent size of the number of instances in all the
      *         applications
@@ -300,6 +408,37 @@ public class Applications {
                 instanceRegionChecker);
     }
 
+    /**
+     * Shuffles the instances of the given applications only, and updates the
+     * virtual host names their instances belong to, or belonged to before. The
+     * other virtual host names keep their instances and round-robin indexes,
+     * so that applying a delta costs in proportion to the applications it
+     * changed rather than to the whole registry.
+     *
+     * @param appNames
+     *            the names of the applications that were added, modified or
+     *            removed since the last shuffle
+     * @param filterUpInstances
+     *            whether to return only UP instances
+     */
+    public void shuffleInstances(Collection<String> appNames, boolean filterUpInstances) {
+        Set<String> changedVips = new HashSet<>();
+        Set<String> changedSecureVips = new HashSet<>();
+        for (String appName : appNames) {
+            String key = appName.toUpperCase(Locale.ROOT);
+            Application application = appNameApplicationMap.get(key);
+            if (application != null) {
+                application.shuffleAndStoreInstances(filterUpInstances);
+            }
+            addInstancesToVIPMap(key, application, false, virtualHostNameAppMap, appVirtualHostNames, changedVips);
+            addInstancesToVIPMap(key, application, true, secureVirtualHostNameAppMap, appSecureVirtualHostNames,
+                    changedSecureVips);
+        }
+        Random shuffleRandom = new Random();
+        shuffleAndFilterInstances(virtualHostNameAppMap, changedVips, filterUpInstances, shuffleRandom);
+        shuffleAndFilterInstances(secureVirtualHostNameAppMap, changedSecureVips, filterUpInstances, shuffleRandom);
+    }
+
     private void shuffleInstances(boolean filterUpInstances, 
             boolean indexByRemoteRegions,
             @Nullable Map<String, Applications> remoteRegionsRegistry, 
@@ -307,26 +446,39 @@ public class Applications {
             @Nullable InstanceRegionChecker instanceRegionChecker) {
         Map<String, VipIndexSupport> secureVirtualHostNameAppMap = new HashMap<>();
         Map<String, VipIndexSupport> virtualHostNameAppMap = new HashMap<>();
-        for (Application application : appNameApplicationMap.values()) {
+        Map<String, Set<String>> appSecureVirtualHostNames = new HashMap<>();
+        Map<String, Set<String>> appVirtualHostNames = new HashMap<>();
+        Set<String> changedSecureVips = new HashSet<>();
+        Set<String> changedVips = new HashSet<>();
+        for (Map.Entry<String, Application> entry : appNameApplicationMap.entrySet()) {
+            Application application = entry.getValue();
             if (indexByRemoteRegions) {
                 application.shuffleAndStoreInstances(remoteRegionsRegistry, clientConfig, instanceRegionChecker);
             } else {
                 application.shuffleAndStoreInstances(filterUpInstances);
             }
-            this.addInstancesToVIPMaps(application, virtualHostNameAppMap, secureVirtualHostNameAppMap);
+            addInstancesToVIPMap(entry.getKey(), application, false, virtualHostNameAppMap, appVirtualHostNames,
+                    changedVips);
+            addInstancesToVIPMap(entry.getKey(), application, true, secureVirtualHostNameAppMap,
+                    appSecureVirtualHostNames, changedSecureVips);
         }
-        shuffleAndFilterInstances(virtualHostNameAppMap, filterUpInstances);
-        shuffleAndFilterInstances(secureVirtualHostNameAppMap, filterUpInstances);
+        Random shuffleRandom = new Random();
+        shuffleAndFilterInstances(virtualHostNameAppMap, changedVips, filterUpInstances, shuffleRandom);
+        shuffleAndFilterInstances(secureVirtualHostNameAppMap, changedSecureVips, filterUpInstances, shuffleRandom);
 
         this.virtualHostNameAppMap.putAll(virtualHostNameAppMap);
         this.virtualHostNameAppMap.keySet().retainAll(virtualHostNameAppMap.keySet());
         this.secureVirtualHostNameAppMap.putAll(secureVirtualHostNameAppMap);
         this.secureVirtualHostNameAppMap.keySet().retainAll(secureVirtualHostNameAppMap.keySet());
+        this.appVirtualHostNames.putAll(appVirtualHostNames);
+        this.appVirtualHostNames.keySet().retainAll(appVirtualHostNames.keySet());
+        this.appSecureVirtualHostNames.putAll(appSecureVirtualHostNames);
+        this.appSecureVirtualHostNames.keySet().retainAll(appSecureVirtualHostNames.keySet());
     }
 
     /**
      * Gets the next round-robin index for the given virtual host name. This
-     * index is reset after every registry fetch cycle.
+     * index is reset whenever the instances of the virtual host name change.
      *
      * @param virtualHostname
      *            the virtual host name.
@@ -343,22 +495,30 @@ public class Applications {
     }
 
     /**
-     * Shuffle the instances and filter for only {@link InstanceStatus#UP} if
-     * required.
+     * Shuffle the instances of the given virtual host names and filter for
+     * only {@link InstanceStatus#UP} if required. The virtual host names left
+     * without any instances are removed.
      *
      */
-    private void shuffleAndFilterInstances(Map<String, VipIndexSupport> srcMap, boolean filterUpInstances) {
-
-        Random shuffleRandom = new Random();
-        for (Map.Entry<String, VipIndexSupport> entries : srcMap.entrySet()) {
-            VipIndexSupport vipIndexSupport = entries.getValue();
-            AbstractQueue<InstanceInfo> vipInstances = vipIndexSupport.instances;
-            final List<InstanceInfo> filteredInstances;
-            if (filterUpInstances) {
-                filteredInstances = vipInstances.stream().filter(ii -> ii.getStatus() == InstanceStatus.UP)
-                        .collect(Collectors.toCollection(() -> new ArrayList<>(vipInstances.size())));
-            } else {
-                filteredInstances = new ArrayList<InstanceInfo>(vipInstances);
+    private void shuffleAndFilterInstances(Map<String, VipIndexSupport> vipMap, Set<String> vipAddresses,
+            boolean filterUpInstances, Random shuffleRandom) {
+        for (String vipAddress : vipAddresses) {
+            VipIndexSupport vipIndexSupport = vipMap.get(vipAddress);
+            if (vipIndexSupport == null) {
+                continue;
+            }
+            if (vipIndexSupport.appInstances.isEmpty()) {
+                vipMap.remove(vipAddress);
+                continue;
+            }
+            vipIndexSupport = getOwnVipIndexSupport(vipMap, vipAddress);
+            final List<InstanceInfo> filteredInstances = new ArrayList<>();
+            for (List<InstanceInfo> appInstances : vipIndexSupport.appInstances.values()) {
+                for (InstanceInfo info : appInstances) {
+                    if (!filterUpInstances || info.getStatus() == InstanceStatus.UP) {
+                        filteredInstances.add(info);
+                    }
+                }
             }
             Collections.shuffle(filteredInstances, shuffleRandom);
             vipIndexSupport.vipList.set(filteredInstances);
@@ -367,42 +527,69 @@ public class Applications {
     }
 
     /**
-     * Add the instance to the given map based if the vip address matches with
-     * that of the instance. Note that an instance can be mapped to multiple vip
-     * addresses.
+     * Replaces the instances of the application in the given vip address map.
+     * Note that an instance can be mapped to multiple vip addresses. The vip
+     * addresses the application is added to or removed from are added to
+     * <em>changedVips</em>.
      *
+     * @param appName
+     *            - the upper case name of the application.
+     * @param app
+     *            - the application, or null to remove the application from the
+     *            map.
      */
-    private void addInstanceToMap(InstanceInfo info, String vipAddresses, Map<String, VipIndexSupport> vipMap) {
-        if (vipAddresses != null) {
-            String[] vipAddressArray = vipAddresses.toUpperCase(Locale.ROOT).split(",");
-            for (String vipAddress : vipAddressArray) {
-                VipIndexSupport vis = vipMap.computeIfAbsent(vipAddress, k -> new VipIndexSupport());
-                vis.instances.add(info);
+    private void addInstancesToVIPMap(String appName, @Nullable Application app, boolean secure,
+            Map<String, VipIndexSupport> vipMap, Map<String, Set<String>> appVipAddresses, Set<String> changedVips) {
+        Map<String, List<InstanceInfo>> instancesByVip = new HashMap<>();
+        if (app != null) {
+            for (InstanceInfo info : app.getInstances()) {
+                String vipAddresses = secure ? info.getSecureVipAddress() : info.getVIPAddress();
+                if (vipAddresses != null) {
+                    for (String vipAddress : vipAddresses.toUpperCase(Locale.ROOT).split(",")) {
+                        instancesByVip.computeIfAbsent(vipAddress, k -> new ArrayList<>()).add(info);
+                    }
+                }
             }
         }
+
+        Set<String> previousVips = appVipAddresses.remove(appName);
+        if (previousVips != null) {
+            for (String vipAddress : previousVips) {
+                if (!instancesByVip.containsKey(vipAddress)) {
+                    if (vipMap.containsKey(vipAddress)) {
+                        getOwnVipIndexSupport(vipMap, vipAddress).appInstances.remove(appName);
+                    }
+                    changedVips.add(vipAddress);
+                }
+            }
+        }
+        for (Map.Entry<String, List<InstanceInfo>> entry : instancesByVip.entrySet()) {
+            getOwnVipIndexSupport(vipMap, entry.getKey()).appInstances.put(appName, entry.getValue());
+            changedVips.add(entry.getKey());
+        }
+        if (!instancesByVip.isEmpty()) {
+            appVipAddresses.put(appName, instancesByVip.keySet());
+        }
     }
 
     /**
-     * Adds the instances to the internal vip address map.
-     * 
-     * @param app
-     *            - the applications for which the instances need to be added.
+     * Gets the index of the vip address to change it, copying the index shared
+     * with the applications these were copied from first.
      */
-    private void addInstancesToVIPMaps(Application app, Map<String, VipIndexSupport> virtualHostNameAppMap,
-            Map<String, VipIndexSupport> secureVirtualHostNameAppMap) {
-        // Check and add the instances to the their respective virtual host name
-        // mappings
-        for (InstanceInfo info : app.getInstances()) {
-            String vipAddresses = info.getVIPAddress();
-            if (vipAddresses != null) {
-                addInstanceToMap(info, vipAddresses, virtualHostNameAppMap);
-            }
-
-            String secureVipAddresses = info.getSecureVipAddress();
-            if (secureVipAddresses != null) {
-                addInstanceToMap(info, secureVipAddresses, secureVirtualHostNameAppMap);
+    private VipIndexSupport getOwnVipIndexSupport(Map<String, VipIndexSupport> vipMap, String vipAddress) {
+        VipIndexSupport vis = vipMap.get(vipAddress);
+        if (vis == null || vis.owner != this) {
+            VipIndexSupport own = new VipIndexSupport(this);
+            if (vis != null) {
+                own.appInstances.putAll(vis.appInstances);
+                own.roundRobinIndex.set(vis.roundRobinIndex.get());
+                own.vipList.set(vis.vipList.get());
+                own.selector = vis.selector;
             }
+            vipMap.put(vipAddress, own);
+            vis = own;
         }
+        return vis;
     }
 
     /**
@@ -414,4 +601,126 @@ public class Applications {
         this.appNameApplicationMap.remove(app.getName().toUpperCase(Locale.ROOT));
         this.applications.remove(app);
     }
+
+    /**
+     * Builds shuffled and indexed applications from instances passed one at a
+     * time as a registry is read, so that the registry is filtered and indexed
+     * while it is read rather than in a pass over it once it is read whole.
+     * The result is the same as that of {@link #shuffleInstances(boolean)}, or
+     * of {@link #shuffleAndIndexInstances(Map, EurekaClientConfig, InstanceRegionChecker)}
+     * if given an instance region checker.
+     */
+    public static class IndexingBuilder implements Consumer<InstanceInfo> {
+
+        private final boolean filterUpInstances;
+        @Nullable
+        private final InstanceRegionChecker instanceRegionChecker;
+        private final Applications applications = new Applications();
+        private final Map<String, Applications> remoteRegionsRegistry = new ConcurrentHashMap<>();
+        // The instances of each application and virtual host name to shuffle, filtered as they are added
+        private final Map<Application, List<InstanceInfo>> appShuffledInstances = new IdentityHashMap<>();
+        private final Map<VipIndexSupport, List<InstanceInfo>> vipShuffledInstances = new IdentityHashMap<>();
+        private boolean duplicated;
+
+        /**
+         * @param filterUpInstances
+         *            whether to return only UP instances
+         * @param instanceRegionChecker
+         *            the instance region checker, or null to keep the
+         *            instances of all the regions in the same applications
+         */
+        public IndexingBuilder(boolean filterUpInstances, @Nullable InstanceRegionChecker instanceRegionChecker) {
+            this.filterUpInstances = filterUpInstances;
+            this.instanceRegionChecker = instanceRegionChecker;
+        }
+
+        @Override
+        public void accept(InstanceInfo instance) {
+            Applications apps = applications;
+            if (instanceRegionChecker != null) {
+                String instanceRegion = instanceRegionChecker.getInstanceRegion(instance);
+                if (!instanceRegionChecker.isLocalRegion(instanceRegion)) {
+                    apps = remoteRegionsRegistry.computeIfAbsent(instanceRegion, k -> new Applications());
+                }
+            }
+
+            String appName = instance.getAppName().toUpperCase(Locale.ROOT);
+            Application app = apps.appNameApplicationMap.get(appName);
+            if (app == null) {
+                app = new Application(instance.getAppName());
+                apps.appNameApplicationMap.put(appName, app);
+                apps.applications.add(app);
+            } else if (app.getByInstanceId(instance.getId()) != null) {
+                duplicated = true;
+            }
+            app.addInstance(instance);
+
+            boolean listed = !filterUpInstances || instance.getStatus() == InstanceStatus.UP;
+            List<InstanceInfo> shuffledInstances = appShuffledInstances.computeIfAbsent(app, k -> new ArrayList<>());
+            if (listed) {
+                shuffledInstances.add(instance);
+            }
+            index(apps, appName, instance, instance.getVIPAddress(), apps.virtualHostNameAppMap,
+                    apps.appVirtualHostNames, listed);
+            index(apps, appName, instance, instance.getSecureVipAddress(), apps.secureVirtualHostNameAppMap,
+                    apps.appSecureVirtualHostNames, listed);
+        }
+
+        private void index(Applications apps, String appName, InstanceInfo instance, @Nullable String vipAddresses,
+                Map<String, VipIndexSupport> vipMap, Map<String, Set<String>> appVipAddresses, boolean listed) {
+            if (vipAddresses == null) {
+                return;
+            }
+            for (String vipAddress : vipAddresses.toUpperCase(Locale.ROOT).split(",")) {
+                VipIndexSupport vipIndexSupport = vipMap.computeIfAbsent(vipAddress, k -> new VipIndexSupport(apps));
+                vipIndexSupport.appInstances.computeIfAbsent(appName, k -> new ArrayList<>()).add(instance);
+                appVipAddresses.computeIfAbsent(appName, k -> new HashSet<>()).add(vipAddress);
+                List<InstanceInfo> shuffledInstances =
+                        vipShuffledInstances.computeIfAbsent(vipIndexSupport, k -> new ArrayList<>());
+                if (listed) {
+                    shuffledInstances.add(instance);
+                }
+            }
+        }
+
+        /**
+         * @return whether an instance was passed more than once, as when a
+         *         registry is read again after a failure; the applications
+         *         built are then indexed over again, and may hold instances
+         *         the registry read last no longer has
+         */
+        public boolean isDuplicated() {
+            return duplicated;
+        }
+
+        /**
+         * Shuffles the instances passed and returns the applications of the
+         * local region.
+         */
+        public Applications build() {
+            if (duplicated) {
+                applications.shuffleInstances(filterUpInstances);
+                for (Applications remoteApps : remoteRegionsRegistry.values()) {
+                    remoteApps.shuffleInstances(filterUpInstances);
+                }
+                return applications;
+            }
+            for (Map.Entry<Application, List<InstanceInfo>> entry : appShuffledInstances.entrySet()) {
+                entry.getKey().storeShuffledInstances(entry.getValue());
+            }
+            Random shuffleRandom = new Random();
+            for (Map.Entry<VipIndexSupport, List<InstanceInfo>> entry : vipShuffledInstances.entrySet()) {
+                Collections.shuffle(entry.getValue(), shuffleRandom);
+                entry.getKey().vipList.set(entry.getValue());
+            }
+            return applications;
+        }
+
+        /**
+         * @return the applications of each remote region, by region
+         */
+        public Map<String, Applications> getRemoteRegionsRegistry() {
+            return remoteRegionsRegistry;
+        }
+    }
 }
@@ -0,0 +1,32 @@
+package com.netflix.discovery.shared;
+
+/**
+ * The ways to select an instance of a virtual host name with
+ * {@link Applications#selectInstance(String, boolean, InstanceSelectionStrategy, String)}.
+ */
+public enum InstanceSelectionStrategy {
+
+    /**
+     * Selects the instances in turn.
+     */
+    ROUND_ROBIN,
+
+    /**
+     * Selects an instance at random.
+     */
+    RANDOM,
+
+    /**
+     * Selects the instances of the given zone in turn, or all the instances in turn if none is in the zone.
+     */
+    ZONE_PREFERRING,
+
+    /**
+     * Selects an instance at random, in proportion to the weight in its {@link #WEIGHT_METADATA_KEY} metadata. The
+     * instances without a valid weight have a weight of 1, and those with a weight of 0 or less are never selected.
+     * If no instance has a positive weight, the instances are selected in turn.
+     */
+    WEIGHTED;
+
+    public static final String WEIGHT_METADATA_KEY = "weight";
+}
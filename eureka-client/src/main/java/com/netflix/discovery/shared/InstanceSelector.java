@@ -0,0 +1,129 @@
+package com.netflix.discovery.shared;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.netflix.appinfo.InstanceInfo;
+
+/**
+ * Selects the instances of a virtual host name without copying them. The instances of the preferred zone and the
+ * weights of the instances are derived from the instance list the first time they are needed after the list
+ * changes, so that the selections in between do not allocate.
+ */
+class InstanceSelector {
+
+    // One per virtual host name, apart from the round-robin index of DiscoveryClient.getNextServerFromEureka. The
+    // selecting threads still contend on it; striping it is left until InstanceSelectionBenchmark shows the need.
+    private final AtomicLong counter = new AtomicLong();
+
+    private volatile ZoneInstances zoneInstances;
+    private volatile WeightedInstances weightedInstances;
+
+    /**
+     * @return the selected instance, or null if there are no instances
+     */
+    InstanceInfo select(List<InstanceInfo> instances, InstanceSelectionStrategy strategy, @Nullable String zone) {
+        if (instances.isEmpty()) {
+            return null;
+        }
+        switch (strategy) {
+            case RANDOM:
+                return instances.get(ThreadLocalRandom.current().nextInt(instances.size()));
+            case ZONE_PREFERRING:
+                return selectInZone(instances, zone);
+            case WEIGHTED:
+                return selectWeighted(instances);
+            default:
+                return selectNext(instances);
+        }
+    }
+
+    private InstanceInfo selectNext(List<InstanceInfo> instances) {
+        return instances.get((int) ((counter.getAndIncrement() & Long.MAX_VALUE) % instances.size()));
+    }
+
+    private InstanceInfo selectInZone(List<InstanceInfo> instances, @Nullable String zone) {
+        ZoneInstances current = zoneInstances;
+        if (current == null || current.instances != instances || !current.isOfZone(zone)) {
+            current = new ZoneInstances(instances, zone);
+            zoneInstances = current;
+        }
+        return selectNext(current.zoneInstances.isEmpty() ? instances : current.zoneInstances);
+    }
+
+    private InstanceInfo selectWeighted(List<InstanceInfo> instances) {
+        WeightedInstances current = weightedInstances;
+        if (current == null || current.instances != instances) {
+            current = new WeightedInstances(instances);
+            weightedInstances = current;
+        }
+        long[] cumulativeWeights = current.cumulativeWeights;
+        long totalWeight = cumulativeWeights[cumulativeWeights.length - 1];
+        if (totalWeight <= 0) {
+            return selectNext(instances);
+        }
+        // The first instance whose cumulative weight is above the target
+        long target = ThreadLocalRandom.current().nextLong(totalWeight);
+        int low = 0;
+        int high = cumulativeWeights.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cumulativeWeights[mid] > target) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return instances.get(low);
+    }
+
+    private static int getWeight(InstanceInfo instance) {
+        String weight = instance.getMetadata().get(InstanceSelectionStrategy.WEIGHT_METADATA_KEY);
+        if (weight == null) {
+            return 1;
+        }
+        try {
+            return Math.max(0, Integer.parseInt(weight.trim()));
+        } catch (NumberFormatException e) {
+            return 1;
+        }
+    }
+
+    private static final class ZoneInstances {
+        final List<InstanceInfo> instances;
+        final String zone;
+        final List<InstanceInfo> zoneInstances = new ArrayList<>();
+
+        ZoneInstances(List<InstanceInfo> instances, @Nullable String zone) {
+            this.instances = instances;
+            this.zone = zone;
+            for (InstanceInfo instance : instances) {
+                if (isOfZone(InstanceInfo.getZone(null, instance))) {
+                    zoneInstances.add(instance);
+                }
+            }
+        }
+
+        boolean isOfZone(@Nullable String zone) {
+            return this.zone == null ? zone == null : this.zone.equals(zone);
+        }
+    }
+
+    private static final class WeightedInstances {
+        final List<InstanceInfo> instances;
+        final long[] cumulativeWeights;
+
+        WeightedInstances(List<InstanceInfo> instances) {
+            this.instances = instances;
+            this.cumulativeWeights = new long[instances.size()];
+            long totalWeight = 0;
+            for (int i = 0; i < cumulativeWeights.length; i++) {
+                totalWeight += getWeight(instances.get(i));
+                cumulativeWeights[i] = totalWeight;
+            }
+        }
+    }
+}
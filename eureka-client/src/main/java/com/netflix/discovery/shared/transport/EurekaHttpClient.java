@@ -1,9 +1,14 @@
 package com.netflix.discovery.shared.transport;
 
+import java.util.function.Consumer;
+
 import com.netflix.appinfo.InstanceInfo;
 import com.netflix.appinfo.InstanceInfo.InstanceStatus;
 import com.netflix.discovery.shared.Application;
 import com.netflix.discovery.shared.Applications;
+import com.netflix.discovery.util.EurekaEntityFunctions;
+
+import static com.netflix.discovery.shared.transport.EurekaHttpResponse.anEurekaHttpResponse;
 
 /**
  * Low level Eureka HTTP client API.
@@ -26,6 +31,71 @@ public interface EurekaHttpClient {
 
     EurekaHttpResponse<Applications> getDelta(String... regions);
 
+    /**
+     * Same as {@link #getApplications(String...)}, except that a <em>304 Not Modified</em> response without any
+     * entity is returned if the full registry still has the given entity tag. By default, the entity tag is ignored
+     * and the full registry is always returned.
+     */
+    default EurekaHttpResponse<Applications> getApplicationsIfNoneMatch(String eTag, String... regions) {
+        return getApplications(regions);
+    }
+
+    /**
+     * Same as {@link #getDelta(String...)}, except that a <em>304 Not Modified</em> response without any entity is
+     * returned if the delta still has the given entity tag. By default, the entity tag is ignored and the delta is
+     * always returned.
+     */
+    default EurekaHttpResponse<Applications> getDeltaIfNoneMatch(String eTag, String... regions) {
+        return getDelta(regions);
+    }
+
+    /**
+     * Same as {@link #getApplicationsIfNoneMatch(String, String...)}, except that the instances of the registry are
+     * passed to the handler as they are read, and the returned entity only holds the version and the apps hash code
+     * of the registry. The entity tag may be null. The handler may be passed the instances of more than one response
+     * if the request is retried.
+     * <p>
+     * By default, the registry is decoded whole and then its instances are passed to the handler.
+     */
+    default EurekaHttpResponse<Applications> streamApplications(String eTag, Consumer<InstanceInfo> instanceHandler, String... regions) {
+        EurekaHttpResponse<Applications> httpResponse = getApplicationsIfNoneMatch(eTag, regions);
+        if (httpResponse.getEntity() == null) {
+            return httpResponse;
+        }
+        Applications applications = EurekaEntityFunctions.replayInstances(httpResponse.getEntity(), instanceHandler);
+        return anEurekaHttpResponse(httpResponse.getStatusCode(), applications).headers(httpResponse.getHeaders()).build();
+    }
+
+    /**
+     * Same as {@link #getDeltaIfNoneMatch(String, String...)}, except that the instances of the delta are passed to
+     * the handler as they are read, and the returned entity only holds the version and the apps hash code of the
+     * delta. The entity tag may be null. The handler may be passed the instances of more than one response if the
+     * request is retried, so applying an instance must not depend on the instances applied before it.
+     * <p>
+     * By default, the delta is decoded whole and then its instances are passed to the handler.
+     */
+    default EurekaHttpResponse<Applications> streamDelta(String eTag, Consumer<InstanceInfo> instanceHandler, String... regions) {
+        EurekaHttpResponse<Applications> httpResponse = getDeltaIfNoneMatch(eTag, regions);
+        if (httpResponse.getEntity() == null) {
+            return httpResponse;
+        }
+        Applications delta = EurekaEntityFunctions.replayInstances(httpResponse.getEntity(), instanceHandler);
+        return anEurekaHttpResponse(httpResponse.getStatusCode(), delta).headers(httpResponse.getHeaders()).build();
+    }
+
+    /**
+     * Waits on the server side, for at most the given time, until the registry version differs from the given one
+     * (see {@link EurekaHttpResponse#HEADER_REGISTRY_VERSION}), and then returns the delta. A <em>304 Not Modified</em>
+     * response without any entity is returned if the registry did not change in the meantime.
+     * <p>
+     * By default, watching is not supported: the delta is returned right away, without the registry version, so that
+     * the caller falls back to polling.
+     */
+    default EurekaHttpResponse<Applications> watchDelta(long sinceVersion, int timeoutSeconds, String... regions) {
+        EurekaHttpResponse<Applications> httpResponse = getDelta(regions);
+        return anEurekaHttpResponse(httpResponse.getStatusCode(), httpResponse.getEntity()).build();
+    }
+
     EurekaHttpResponse<Applications> getVip(String vipAddress, String... regions);
 
     EurekaHttpResponse<Applications> getSecureVip(String secureVipAddress, String... regions);
@@ -28,6 +28,12 @@ import java.util.Map;
  * @author Tomasz Bak
  */
 public class EurekaHttpResponse<T> {
+
+    /**
+     * Response header carrying the version of the server local registry the registry payload was generated from.
+     */
+    public static final String HEADER_REGISTRY_VERSION = "X-Eureka-Registry-Version";
+
     private final int statusCode;
     private final T entity;
     private final Map<String, String> headers;
@@ -16,6 +16,8 @@
 
 package com.netflix.discovery.shared.transport.decorator;
 
+import java.util.function.Consumer;
+
 import com.netflix.appinfo.InstanceInfo;
 import com.netflix.appinfo.InstanceInfo.InstanceStatus;
 import com.netflix.discovery.shared.Application;
@@ -36,6 +38,7 @@ public abstract class EurekaHttpClientDecorator implements EurekaHttpClient {
         DeleteStatusOverride,
         GetApplications,
         GetDelta,
+        WatchDelta,
         GetVip,
         GetSecureVip,
         GetApplication,
@@ -159,6 +162,84 @@ public abstract class EurekaHttpClientDecorator implements EurekaHttpClient {
         });
     }
 
+    @Override
+    public EurekaHttpResponse<Applications> getApplicationsIfNoneMatch(final String eTag, final String... regions) {
+        return execute(new RequestExecutor<Applications>() {
+            @Override
+            public EurekaHttpResponse<Applications> execute(EurekaHttpClient delegate) {
+                return delegate.getApplicationsIfNoneMatch(eTag, regions);
+            }
+
+            @Override
+            public RequestType getRequestType() {
+                return RequestType.GetApplications;
+            }
+        });
+    }
+
+    @Override
+    public EurekaHttpResponse<Applications> getDeltaIfNoneMatch(final String eTag, final String... regions) {
+        return execute(new RequestExecutor<Applications>() {
+            @Override
+            public EurekaHttpResponse<Applications> execute(EurekaHttpClient delegate) {
+                return delegate.getDeltaIfNoneMatch(eTag, regions);
+            }
+
+            @Override
+            public RequestType getRequestType() {
+                return RequestType.GetDelta;
+            }
+        });
+    }
+
+    @Override
+    public EurekaHttpResponse<Applications> streamApplications(final String eTag,
+                                                               final Consumer<InstanceInfo> instanceHandler,
+                                                               final String... regions) {
+        return execute(new RequestExecutor<Applications>() {
+            @Override
+            public EurekaHttpResponse<Applications> execute(EurekaHttpClient delegate) {
+                return delegate.streamApplications(eTag, instanceHandler, regions);
+            }
+
+            @Override
+            public RequestType getRequestType() {
+                return RequestType.GetApplications;
+            }
+        });
+    }
+
+    @Override
+    public EurekaHttpResponse<Applications> streamDelta(final String eTag, final Consumer<InstanceInfo> instanceHandler,
+                                                        final String... regions) {
+        return execute(new RequestExecutor<Applications>() {
+            @Override
+            public EurekaHttpResponse<Applications> execute(EurekaHttpClient delegate) {
+                return delegate.streamDelta(eTag, instanceHandler, regions);
+            }
+
+            @Override
+            public RequestType getRequestType() {
+                return RequestType.GetDelta;
+            }
+        });
+    }
+
+    @Override
+    public EurekaHttpResponse<Applications> watchDelta(final long sinceVersion, final int timeoutSeconds, final String... regions) {
+        return execute(new RequestExecutor<Applications>() {
+            @Override
+            public EurekaHttpResponse<Applications> execute(EurekaHttpClient delegate) {
+                return delegate.watchDelta(sinceVersion, timeoutSeconds, regions);
+            }
+
+            @Override
+            public RequestType getRequestType() {
+                return RequestType.WatchDelta;
+            }
+        });
+    }
+
     @Override
     public EurekaHttpResponse<Applications> getVip(final String vipAddress, final String... regions) {
         return execute(new RequestExecutor<Applications>() {
@@ -36,6 +36,12 @@ public final class ServerStatusEvaluators {
                 return true;
             } else if (requestType == RequestType.GetDelta && (statusCode == 403 || statusCode == 404)) {
                 return true;
+            } else if ((requestType == RequestType.GetApplications || requestType == RequestType.GetDelta)
+                    && statusCode == 304) {  // conditional fetch, nothing changed
+                return true;
+            } else if (requestType == RequestType.WatchDelta
+                    && (statusCode == 304 || statusCode == 403 || statusCode == 404)) {  // no change, or no watch support
+                return true;
             }
             return false;
         }
@@ -2,27 +2,36 @@ package com.netflix.discovery.shared.transport.jersey;
 
 import com.netflix.appinfo.InstanceInfo;
 import com.netflix.appinfo.InstanceInfo.InstanceStatus;
+import com.netflix.discovery.provider.DiscoveryJerseyProvider;
 import com.netflix.discovery.shared.Application;
 import com.netflix.discovery.shared.Applications;
 import com.netflix.discovery.shared.transport.EurekaHttpClient;
 import com.netflix.discovery.shared.transport.EurekaHttpResponse;
 import com.netflix.discovery.shared.transport.EurekaHttpResponse.EurekaHttpResponseBuilder;
+import com.netflix.discovery.util.EurekaEntityFunctions;
 import com.netflix.discovery.util.StringUtil;
 import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.ClientHandlerException;
 import com.sun.jersey.api.client.ClientResponse;
 import com.sun.jersey.api.client.WebResource;
 import com.sun.jersey.api.client.WebResource.Builder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.ext.MessageBodyReader;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.function.Consumer;
 
 import static com.netflix.discovery.shared.transport.EurekaHttpResponse.anEurekaHttpResponse;
 
@@ -164,25 +173,56 @@ public abstract class AbstractJerseyEurekaHttpClient implements EurekaHttpClient
 
     @Override
     public EurekaHttpResponse<Applications> getApplications(String... regions) {
-        return getApplicationsInternal("apps/", regions);
+        return getApplicationsInternal("apps/", null, null, null, regions);
     }
 
     @Override
     public EurekaHttpResponse<Applications> getDelta(String... regions) {
-        return getApplicationsInternal("apps/delta", regions);
+        return getApplicationsInternal("apps/delta", null, null, null, regions);
+    }
+
+    @Override
+    public EurekaHttpResponse<Applications> getApplicationsIfNoneMatch(String eTag, String... regions) {
+        return getApplicationsInternal("apps/", eTag, null, null, regions);
+    }
+
+    @Override
+    public EurekaHttpResponse<Applications> getDeltaIfNoneMatch(String eTag, String... regions) {
+        return getApplicationsInternal("apps/delta", eTag, null, null, regions);
+    }
+
+    @Override
+    public EurekaHttpResponse<Applications> streamApplications(String eTag, Consumer<InstanceInfo> instanceHandler, String... regions) {
+        return getApplicationsInternal("apps/", eTag, null, instanceHandler, regions);
+    }
+
+    @Override
+    public EurekaHttpResponse<Applications> streamDelta(String eTag, Consumer<InstanceInfo> instanceHandler, String... regions) {
+        return getApplicationsInternal("apps/delta", eTag, null, instanceHandler, regions);
+    }
+
+    @Override
+    public EurekaHttpResponse<Applications> watchDelta(long sinceVersion, int timeoutSeconds, String... regions) {
+        Map<String, String> watchParams = new LinkedHashMap<>();
+        watchParams.put("since", Long.toString(sinceVersion));
+        watchParams.put("timeoutSeconds", Integer.toString(timeoutSeconds));
+        return getApplicationsInternal("apps/watch", null, watchParams, null, regions);
     }
 
     @Override
     public EurekaHttpResponse<Applications> getVip(String vipAddress, String... regions) {
-        return getApplicationsInternal("vips/" + vipAddress, regions);
+        return getApplicationsInternal("vips/" + vipAddress, null, null, null, regions);
     }
 
     @Override
     public EurekaHttpResponse<Applications> getSecureVip(String secureVipAddress, String... regions) {
-        return getApplicationsInternal("svips/" + secureVipAddress, regions);
+        return getApplicationsInternal("svips/" + secureVipAddress, null, null, null, regions);
     }
 
-    private EurekaHttpResponse<Applications> getApplicationsInternal(String urlPath, String[] regions) {
+    private EurekaHttpResponse<Applications> getApplicationsInternal(String urlPath, String eTag,
+                                                                     Map<String, String> queryParams,
+                                                                     Consumer<InstanceInfo> instanceHandler,
+                                                                     String[] regions) {
         ClientResponse response = null;
         String regionsParamValue = null;
         try {
@@ -191,13 +231,23 @@ public abstract class AbstractJerseyEurekaHttpClient implements EurekaHttpClient
                 regionsParamValue = StringUtil.join(regions);
                 webResource = webResource.queryParam("regions", regionsParamValue);
             }
+            if (queryParams != null) {
+                for (Entry<String, String> entry : queryParams.entrySet()) {
+                    webResource = webResource.queryParam(entry.getKey(), entry.getValue());
+                }
+            }
             Builder requestBuilder = webResource.getRequestBuilder();
             addExtraHeaders(requestBuilder);
+            if (eTag != null) {
+                requestBuilder.header(HttpHeaders.IF_NONE_MATCH, eTag);
+            }
             response = requestBuilder.accept(MediaType.APPLICATION_JSON_TYPE).get(ClientResponse.class);
 
             Applications applications = null;
             if (response.getStatus() == Status.OK.getStatusCode() && response.hasEntity()) {
-                applications = response.getEntity(Applications.class);
+                applications = instanceHandler == null
+                        ? response.getEntity(Applications.class)
+                        : readInstances(response, instanceHandler);
             }
             return anEurekaHttpResponse(response.getStatus(), Applications.class)
                     .headers(headersOf(response))
@@ -217,6 +267,24 @@ public abstract class AbstractJerseyEurekaHttpClient implements EurekaHttpClient
         }
     }
 
+    /**
+     * Reads the registry instance by instance if the client decodes it with {@link DiscoveryJerseyProvider},
+     * or decodes it whole and then passes its instances to the handler otherwise.
+     */
+    private Applications readInstances(ClientResponse response, Consumer<InstanceInfo> instanceHandler) {
+        MediaType mediaType = response.getType() == null ? MediaType.APPLICATION_JSON_TYPE : response.getType();
+        MessageBodyReader<Applications> reader = jerseyClient.getProviders().getMessageBodyReader(
+                Applications.class, Applications.class, new Annotation[0], mediaType);
+        if (!(reader instanceof DiscoveryJerseyProvider)) {
+            return EurekaEntityFunctions.replayInstances(response.getEntity(Applications.class), instanceHandler);
+        }
+        try {
+            return ((DiscoveryJerseyProvider) reader).readInstances(mediaType, response.getEntityInputStream(), instanceHandler);
+        } catch (IOException e) {
+            throw new ClientHandlerException(e);
+        }
+    }
+
     @Override
     public EurekaHttpResponse<Application> getApplication(String appName) {
         String urlPath = "apps/" + appName;
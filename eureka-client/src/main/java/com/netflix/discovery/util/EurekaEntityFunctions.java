@@ -19,12 +19,14 @@ package com.netflix.discovery.util;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 
 import com.netflix.appinfo.InstanceInfo;
 import com.netflix.appinfo.InstanceInfo.ActionType;
@@ -42,6 +44,7 @@ import com.netflix.discovery.util.EurekaEntityTransformers.Transformer;
  *     <li>deepCopy - copy Eureka entities, with aggregated {@link InstanceInfo} objects copied by value</li>
  *     <li>merge - merge two identical data structures</li>
  *     <li>count - statistical functions</li>
+ *     <li>replay - pass the instances of an entity to a handler</li>
  *     <li>comparator - comparators for the domain objects</li>
  * </ul>
  *
@@ -280,6 +283,21 @@ public final class EurekaEntityFunctions {
         return count;
     }
 
+    /**
+     * Passes the instances of a decoded registry or delta to the handler, as reading it instance by instance would.
+     *
+     * @return the version and the apps hash code of the registry, without any application
+     */
+    public static Applications replayInstances(Applications applications, Consumer<InstanceInfo> instanceHandler) {
+        for (Application application : applications.getRegisteredApplications()) {
+            for (InstanceInfo instance : application.getInstances()) {
+                instanceHandler.accept(instance);
+            }
+        }
+        return new Applications(applications.getAppsHashCode(), applications.getVersion(),
+                Collections.<Application>emptyList());
+    }
+
     public static Comparator<InstanceInfo> comparatorByAppNameAndId() {
         return INSTANCE_APP_ID_COMPARATOR;
     }
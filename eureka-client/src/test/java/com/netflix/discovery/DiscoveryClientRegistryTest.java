@@ -8,6 +8,7 @@ import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 import com.netflix.appinfo.DataCenterInfo;
+import com.netflix.config.ConfigurationManager;
 import com.netflix.appinfo.InstanceInfo;
 import com.netflix.appinfo.InstanceInfo.InstanceStatus;
 import com.netflix.discovery.junit.resource.DiscoveryClientResource;
@@ -314,6 +315,49 @@ public class DiscoveryClientRegistryTest {
         assertEquals(client.getApplications().getRegisteredApplications(), new ArrayList<>());
     }
 
+    @Test
+    public void testDeltaDoesNotChangeThePublishedRegistry() throws Exception {
+        InstanceInfoGenerator instanceGen = InstanceInfoGenerator.newBuilder(3, 1).build();
+        Applications initialApps = instanceGen.takeDelta(2);
+        Applications deltaForDelete = instanceGen.takeDeltaForDelete(true, 1);
+        when(requestHandler.getApplications(TEST_REMOTE_REGION)).thenReturn(
+                anEurekaHttpResponse(200, initialApps).type(MediaType.APPLICATION_JSON_TYPE).build()
+        );
+        EurekaClient client = discoveryClientResource.getClient();
+        Applications published = client.getApplications();
+        when(requestHandler.getDelta(TEST_REMOTE_REGION)).thenReturn(
+                anEurekaHttpResponse(200, deltaForDelete).type(MediaType.APPLICATION_JSON_TYPE).build()
+        );
+        assertThat(discoveryClientResource.awaitCacheUpdate(5, TimeUnit.SECONDS), is(true));
+
+        assertThat(countInstances(client.getApplications()), is(equalTo(1)));
+        assertThat(countInstances(published), is(equalTo(2)));
+    }
+
+    @Test
+    public void testStreamedDeltaIsApplied() throws Exception {
+        ConfigurationManager.getConfigInstance().setProperty("eureka.experimental.registryDelta.streaming", "true");
+        try {
+            InstanceInfoGenerator instanceGen = InstanceInfoGenerator.newBuilder(4, 1).build();
+            Applications initialApps = instanceGen.takeDelta(2);
+            Applications deltaForAdd = instanceGen.takeDelta(2);
+            when(requestHandler.getApplications(TEST_REMOTE_REGION)).thenReturn(
+                    anEurekaHttpResponse(200, initialApps).type(MediaType.APPLICATION_JSON_TYPE).build()
+            );
+            EurekaClient client = discoveryClientResource.getClient();
+            Applications published = client.getApplications();
+            when(requestHandler.getDelta(TEST_REMOTE_REGION)).thenReturn(
+                    anEurekaHttpResponse(200, deltaForAdd).type(MediaType.APPLICATION_JSON_TYPE).build()
+            );
+            assertThat(discoveryClientResource.awaitCacheUpdate(5, TimeUnit.SECONDS), is(true));
+
+            assertThat(countInstances(client.getApplications()), is(equalTo(4)));
+            assertThat(countInstances(published), is(equalTo(2)));
+        } finally {
+            ConfigurationManager.getConfigInstance().clearProperty("eureka.experimental.registryDelta.streaming");
+        }
+    }
+
     /**
      * There is a bug, because of which remote registry data structures are not initialized during full registry fetch, only during delta.
      */
@@ -1,12 +1,18 @@
 package com.netflix.discovery.converters;
 
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
 
 import javax.ws.rs.core.MediaType;
 
@@ -207,6 +213,29 @@ public class EurekaJacksonCodecTest {
         assertTrue(EurekaEntityComparators.equal(decoded, APPLICATIONS));
     }
 
+    @Test
+    public void testDeltaJacksonStreamingDecode() throws Exception {
+        Applications delta = new Applications("ADDED_4_", 5L, Arrays.asList(APPLICATION_1, APPLICATION_2));
+
+        // Encode
+        ByteArrayOutputStream captureStream = new ByteArrayOutputStream();
+        codec.writeTo(delta, captureStream);
+        byte[] encoded = captureStream.toByteArray();
+
+        // Decode instance by instance
+        List<InstanceInfo> instances = new ArrayList<>();
+        Applications decoded = codec.readInstances(new ByteArrayInputStream(encoded), instances::add);
+
+        assertThat(decoded.getVersion(), is(equalTo(5L)));
+        assertThat(decoded.getAppsHashCode(), is(equalTo("ADDED_4_")));
+        assertTrue(decoded.getRegisteredApplications().isEmpty());
+        assertThat(instances.size(), is(equalTo(4)));
+        for (InstanceInfo instance : instances) {
+            InstanceInfo original = delta.getRegisteredApplications(instance.getAppName()).getByInstanceId(instance.getId());
+            assertTrue(EurekaEntityComparators.equal(instance, original));
+        }
+    }
+
     @Test
     public void testJacksonWriteToString() throws Exception {
         String jsonValue = codec.writeToString(INSTANCE_INFO_1_A1);
@@ -15,6 +15,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -389,6 +390,150 @@ public class ApplicationsTest {
         assertNotNull(applications.getRegisteredApplications("TestApp").getByInstanceId("test.hostname"));
         assertTrue(applications.getInstancesBySecureVirtualHostName("securetest.testname:7102").isEmpty());
         assertTrue(applications.getInstancesBySecureVirtualHostName("test.testname:1").isEmpty());
-    }    
+    }
+
+    @Test
+    public void testShuffleChangedApplications() {
+        Application appA = new Application("A");
+        appA.addInstance(newInstance("A", "a-1", "a.vip", InstanceStatus.UP));
+        Application appB = new Application("B");
+        appB.addInstance(newInstance("B", "b-1", "b.vip,shared.vip", InstanceStatus.UP));
+
+        Applications applications = new Applications();
+        applications.addApplication(appA);
+        applications.addApplication(appB);
+        applications.shuffleInstances(true);
+        AtomicLong indexOfB = applications.getNextIndex("b.vip", false);
+        indexOfB.set(5);
+
+        appA.addInstance(newInstance("A", "a-2", "a.vip,shared.vip", InstanceStatus.UP));
+        appA.addInstance(newInstance("A", "a-3", "a.vip", InstanceStatus.DOWN));
+        applications.shuffleInstances(Collections.singleton("a"), true);
+
+        assertEquals(2, applications.getInstancesByVirtualHostName("a.vip").size());
+        assertEquals(2, applications.getInstancesByVirtualHostName("shared.vip").size());
+        assertEquals(1, applications.getInstancesByVirtualHostName("b.vip").size());
+        // The virtual host names of the other applications are left as they were
+        assertEquals(0L, applications.getNextIndex("a.vip", false).get());
+        assertEquals(5L, applications.getNextIndex("b.vip", false).get());
+        assertTrue(indexOfB == applications.getNextIndex("b.vip", false));
+    }
+
+    @Test
+    public void testShuffleRemovedApplication() {
+        Application appA = new Application("A");
+        appA.addInstance(newInstance("A", "a-1", "a.vip,shared.vip", InstanceStatus.UP));
+        Application appB = new Application("B");
+        appB.addInstance(newInstance("B", "b-1", "b.vip,shared.vip", InstanceStatus.UP));
+
+        Applications applications = new Applications();
+        applications.addApplication(appA);
+        applications.addApplication(appB);
+        applications.shuffleInstances(false);
+
+        applications.removeApplication(appB);
+        applications.shuffleInstances(Collections.singleton("B"), false);
+
+        assertTrue(applications.getInstancesByVirtualHostName("b.vip").isEmpty());
+        assertNull(applications.getNextIndex("b.vip", false));
+        List<InstanceInfo> shared = applications.getInstancesByVirtualHostName("shared.vip");
+        assertEquals(1, shared.size());
+        assertEquals("a-1", shared.get(0).getId());
+    }
+
+    @Test
+    public void testShuffleChangedApplicationsMovedToAnotherVip() {
+        Application appA = new Application("A");
+        appA.addInstance(newInstance("A", "a-1", "a.vip", InstanceStatus.UP));
+
+        Applications applications = new Applications();
+        applications.addApplication(appA);
+        applications.shuffleInstances(false);
+
+        appA.addInstance(newInstance("A", "a-1", "new.vip", InstanceStatus.UP));
+        applications.shuffleInstances(Collections.singleton("A"), false);
 
+        assertNull(applications.getNextIndex("a.vip", false));
+        assertEquals(1, applications.getInstancesByVirtualHostName("new.vip").size());
+        assertEquals(1, applications.getInstancesBySecureVirtualHostName("secure.new.vip").size());
+    }
+
+    @Test
+    public void testCopyIsChangedWithoutChangingTheOriginal() {
+        Application appA = new Application("A");
+        appA.addInstance(newInstance("A", "a-1", "a.vip", InstanceStatus.UP));
+        Application appB = new Application("B");
+        appB.addInstance(newInstance("B", "b-1", "b.vip", InstanceStatus.UP));
+
+        Applications applications = new Applications();
+        applications.addApplication(appA);
+        applications.addApplication(appB);
+        applications.shuffleInstances(false);
+
+        Applications copy = applications.copy();
+        copy.copyRegisteredApplication("A").addInstance(newInstance("A", "a-2", "a.vip", InstanceStatus.UP));
+        copy.shuffleInstances(Collections.singleton("A"), false);
+
+        assertEquals(1, applications.getRegisteredApplications("A").size());
+        assertEquals(1, applications.getInstancesByVirtualHostName("a.vip").size());
+        assertEquals(2, copy.getRegisteredApplications("A").size());
+        assertEquals(2, copy.getInstancesByVirtualHostName("a.vip").size());
+        assertEquals(2, copy.getRegisteredApplications().size());
+        // The applications the copy did not change are shared
+        assertTrue(appB == copy.getRegisteredApplications("B"));
+        assertTrue(applications.getNextIndex("b.vip", false) == copy.getNextIndex("b.vip", false));
+        assertNotSame(applications.getNextIndex("a.vip", false), copy.getNextIndex("a.vip", false));
+    }
+
+    @Test
+    public void testIndexingBuilderIndexesInstancesAsTheyArePassed() {
+        Applications.IndexingBuilder builder = new Applications.IndexingBuilder(true, null);
+        builder.accept(newInstance("A", "a-1", "a.vip", InstanceStatus.UP));
+        builder.accept(newInstance("A", "a-2", "a.vip,shared.vip", InstanceStatus.DOWN));
+        builder.accept(newInstance("B", "b-1", "shared.vip", InstanceStatus.UP));
+        Applications applications = builder.build();
+
+        assertFalse(builder.isDuplicated());
+        assertEquals(3, applications.size());
+        assertEquals(1, applications.getRegisteredApplications("A").getInstances().size());
+        assertEquals(2, applications.getRegisteredApplications("A").getInstancesAsIsFromEureka().size());
+        assertEquals(1, applications.getInstancesByVirtualHostName("a.vip").size());
+        assertEquals(1, applications.getInstancesByVirtualHostName("shared.vip").size());
+        assertEquals(1, applications.getInstancesBySecureVirtualHostName("secure.a.vip").size());
+        assertEquals(0L, applications.getNextIndex("a.vip", false).get());
+
+        // The indexes built are updated as those of shuffled applications
+        applications.copyRegisteredApplication("A").addInstance(newInstance("A", "a-2", "a.vip", InstanceStatus.UP));
+        applications.shuffleInstances(Collections.singleton("A"), true);
+        assertEquals(2, applications.getInstancesByVirtualHostName("a.vip").size());
+        assertEquals(1, applications.getInstancesByVirtualHostName("shared.vip").size());
+    }
+
+    @Test
+    public void testIndexingBuilderReindexesDuplicatedInstances() {
+        Applications.IndexingBuilder builder = new Applications.IndexingBuilder(false, null);
+        builder.accept(newInstance("A", "a-1", "a.vip", InstanceStatus.UP));
+        builder.accept(newInstance("A", "a-1", "a.vip", InstanceStatus.UP));
+        Applications applications = builder.build();
+
+        assertTrue(builder.isDuplicated());
+        assertEquals(1, applications.size());
+        assertEquals(1, applications.getInstancesByVirtualHostName("a.vip").size());
+    }
+
+    private static InstanceInfo newInstance(String appName, String id, String vipAddress, InstanceStatus status) {
+        return InstanceInfo.Builder.newBuilder()
+                .setAppName(appName)
+                .setInstanceId(id)
+                .setHostName(id + ".hostname")
+                .setVIPAddress(vipAddress)
+                .setSecureVIPAddress("secure." + vipAddress)
+                .setDataCenterInfo(new DataCenterInfo() {
+                    public DataCenterInfo.Name getName() {
+                        return DataCenterInfo.Name.MyOwn;
+                    }
+                })
+                .setStatus(status)
+                .build();
+    }
 }
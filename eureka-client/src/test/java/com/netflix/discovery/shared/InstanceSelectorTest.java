@@ -0,0 +1,126 @@
+package com.netflix.discovery.shared;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.netflix.appinfo.AmazonInfo;
+import com.netflix.appinfo.AmazonInfo.MetaDataKey;
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.appinfo.InstanceInfo.InstanceStatus;
+import org.junit.Test;
+
+import static com.netflix.discovery.shared.InstanceSelectionStrategy.RANDOM;
+import static com.netflix.discovery.shared.InstanceSelectionStrategy.ROUND_ROBIN;
+import static com.netflix.discovery.shared.InstanceSelectionStrategy.WEIGHTED;
+import static com.netflix.discovery.shared.InstanceSelectionStrategy.ZONE_PREFERRING;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class InstanceSelectorTest {
+
+    private static final String VIP_ADDRESS = "app.vip";
+
+    @Test
+    public void testRoundRobinSelectsAllInstancesInTurn() {
+        Applications applications = newApplications(
+                newInstance("i-1", "us-east-1a", null),
+                newInstance("i-2", "us-east-1b", null),
+                newInstance("i-3", "us-east-1c", null)
+        );
+
+        Set<String> selected = new HashSet<>();
+        for (int i = 0; i < 3; i++) {
+            selected.add(applications.selectInstance(VIP_ADDRESS, false, ROUND_ROBIN, null).getId());
+        }
+        assertThat(selected.size(), is(equalTo(3)));
+    }
+
+    @Test
+    public void testZonePreferringSelectsInstancesOfTheZone() {
+        Applications applications = newApplications(
+                newInstance("i-1", "us-east-1a", null),
+                newInstance("i-2", "us-east-1b", null),
+                newInstance("i-3", "us-east-1b", null)
+        );
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(applications.selectInstance(VIP_ADDRESS, false, ZONE_PREFERRING, "us-east-1a").getId(),
+                    is(equalTo("i-1")));
+        }
+        // Falls back to all the instances if none is in the zone
+        InstanceInfo selected = applications.selectInstance(VIP_ADDRESS, false, ZONE_PREFERRING, "us-west-2a");
+        assertThat(selected, is(notNullValue()));
+    }
+
+    @Test
+    public void testWeightedNeverSelectsInstancesWithoutWeight() {
+        Applications applications = newApplications(
+                newInstance("i-1", "us-east-1a", "0"),
+                newInstance("i-2", "us-east-1a", "5"),
+                newInstance("i-3", "us-east-1a", "-1")
+        );
+
+        for (int i = 0; i < 100; i++) {
+            InstanceInfo selected = applications.selectInstance(VIP_ADDRESS, false, WEIGHTED, null);
+            assertThat(selected.getId(), is(equalTo("i-2")));
+        }
+    }
+
+    @Test
+    public void testWeightedSelectsInTurnIfNoInstanceHasWeight() {
+        Applications applications = newApplications(
+                newInstance("i-1", "us-east-1a", "0"),
+                newInstance("i-2", "us-east-1a", "0")
+        );
+
+        Set<String> selected = new HashSet<>();
+        for (int i = 0; i < 2; i++) {
+            selected.add(applications.selectInstance(VIP_ADDRESS, false, WEIGHTED, null).getId());
+        }
+        assertThat(selected.size(), is(equalTo(2)));
+    }
+
+    @Test
+    public void testUnknownVipAddress() {
+        Applications applications = newApplications(newInstance("i-1", "us-east-1a", null));
+
+        assertThat(applications.selectInstance("other.vip", false, RANDOM, null), is(nullValue()));
+        assertThat(applications.selectInstance(VIP_ADDRESS, true, RANDOM, null), is(nullValue()));
+        assertThat(applications.selectInstance("APP.VIP", false, RANDOM, null).getId(),
+                is(equalTo("i-1")));
+    }
+
+    private static Applications newApplications(InstanceInfo... instances) {
+        Application application = new Application("APP");
+        for (InstanceInfo instance : instances) {
+            application.addInstance(instance);
+        }
+        Applications applications = new Applications();
+        applications.addApplication(application);
+        applications.shuffleInstances(true);
+        return applications;
+    }
+
+    private static InstanceInfo newInstance(String id, String zone, String weight) {
+        Map<String, String> metadata = new HashMap<>();
+        if (weight != null) {
+            metadata.put(InstanceSelectionStrategy.WEIGHT_METADATA_KEY, weight);
+        }
+        return InstanceInfo.Builder.newBuilder()
+                .setAppName("APP")
+                .setInstanceId(id)
+                .setHostName(id + ".hostname")
+                .setVIPAddress(VIP_ADDRESS)
+                .setDataCenterInfo(AmazonInfo.Builder.newBuilder()
+                        .addMetadata(MetaDataKey.availabilityZone, zone)
+                        .build())
+                .setMetadata(metadata)
+                .setStatus(InstanceStatus.UP)
+                .build();
+    }
+}
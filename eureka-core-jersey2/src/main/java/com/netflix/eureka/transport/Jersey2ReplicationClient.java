@@ -27,8 +27,12 @@ import com.netflix.discovery.shared.transport.jersey2.EurekaJersey2Client;
 import com.netflix.discovery.shared.transport.jersey2.EurekaJersey2ClientImpl;
 import com.netflix.eureka.EurekaServerConfig;
 import com.netflix.eureka.EurekaServerIdentity;
+import com.netflix.eureka.cluster.HeartbeatFrameNegotiator;
 import com.netflix.eureka.cluster.HttpReplicationClient;
 import com.netflix.eureka.cluster.PeerEurekaNode;
+import com.netflix.eureka.cluster.protocol.HeartbeatFrame;
+import com.netflix.eureka.cluster.protocol.LeaseVector;
+import com.netflix.eureka.cluster.protocol.RegistryDigest;
 import com.netflix.eureka.cluster.protocol.ReplicationList;
 import com.netflix.eureka.cluster.protocol.ReplicationListResponse;
 import com.netflix.eureka.resources.ASGResource.ASGStatus;
@@ -42,10 +46,18 @@ public class Jersey2ReplicationClient extends AbstractJersey2EurekaHttpClient im
     private static final Logger logger = LoggerFactory.getLogger(Jersey2ReplicationClient.class);
 
     private final EurekaJersey2Client eurekaJersey2Client;
+    private final HeartbeatFrameNegotiator heartbeatFrameNegotiator;
+    private final Jersey2SentBytesCountingInterceptor sentBytesCountingInterceptor = new Jersey2SentBytesCountingInterceptor();
 
     public Jersey2ReplicationClient(EurekaJersey2Client eurekaJersey2Client, String serviceUrl) {
+        this(eurekaJersey2Client, serviceUrl, false);
+    }
+
+    public Jersey2ReplicationClient(EurekaJersey2Client eurekaJersey2Client, String serviceUrl, boolean binaryHeartbeats) {
         super(eurekaJersey2Client.getClient(), serviceUrl);
         this.eurekaJersey2Client = eurekaJersey2Client;
+        this.heartbeatFrameNegotiator = new HeartbeatFrameNegotiator(serviceUrl, binaryHeartbeats);
+        eurekaJersey2Client.getClient().register(sentBytesCountingInterceptor);
     }
 
     @Override
@@ -106,14 +118,24 @@ public class Jersey2ReplicationClient extends AbstractJersey2EurekaHttpClient im
         }
     }
 
+    /**
+     * Batches made of heartbeats only are sent in a {@link HeartbeatFrame} if the peer supports it, and as JSON
+     * otherwise.
+     */
     @Override
     public EurekaHttpResponse<ReplicationListResponse> submitBatchUpdates(ReplicationList replicationList) {
+        return heartbeatFrameNegotiator.submitBatchUpdates(replicationList,
+                frame -> postBatchUpdates(Entity.entity(frame, HeartbeatFrame.MEDIA_TYPE)),
+                list -> postBatchUpdates(Entity.json(list)));
+    }
+
+    private EurekaHttpResponse<ReplicationListResponse> postBatchUpdates(Entity<?> entity) {
         Response response = null;
         try {
             response = jerseyClient.target(serviceUrl)
                     .path(PeerEurekaNode.BATCH_URL_PATH)
                     .request(MediaType.APPLICATION_JSON_TYPE)
-                    .post(Entity.json(replicationList));
+                    .post(entity);
             if (!isSuccess(response.getStatus())) {
                 return anEurekaHttpResponse(response.getStatus(), ReplicationListResponse.class).build();
             }
@@ -126,6 +148,51 @@ public class Jersey2ReplicationClient extends AbstractJersey2EurekaHttpClient im
         }
     }
 
+    @Override
+    public EurekaHttpResponse<RegistryDigest> compareRegistryDigest(RegistryDigest registryDigest) {
+        Response response = null;
+        try {
+            response = jerseyClient.target(serviceUrl)
+                    .path(PeerEurekaNode.DIGEST_URL_PATH)
+                    .request(MediaType.APPLICATION_JSON_TYPE)
+                    .post(Entity.json(registryDigest));
+            if (!isSuccess(response.getStatus())) {
+                return anEurekaHttpResponse(response.getStatus(), RegistryDigest.class).build();
+            }
+            RegistryDigest peerDigest = response.readEntity(RegistryDigest.class);
+            return anEurekaHttpResponse(response.getStatus(), peerDigest).type(MediaType.APPLICATION_JSON_TYPE).build();
+        } finally {
+            if (response != null) {
+                response.close();
+            }
+        }
+    }
+
+    @Override
+    public EurekaHttpResponse<LeaseVector> renewLeases(LeaseVector leaseVector) {
+        Response response = null;
+        try {
+            response = jerseyClient.target(serviceUrl)
+                    .path(PeerEurekaNode.LEASES_URL_PATH)
+                    .request(MediaType.APPLICATION_JSON_TYPE)
+                    .post(Entity.json(leaseVector));
+            if (!isSuccess(response.getStatus())) {
+                return anEurekaHttpResponse(response.getStatus(), LeaseVector.class).build();
+            }
+            LeaseVector missingLeases = response.readEntity(LeaseVector.class);
+            return anEurekaHttpResponse(response.getStatus(), missingLeases).type(MediaType.APPLICATION_JSON_TYPE).build();
+        } finally {
+            if (response != null) {
+                response.close();
+            }
+        }
+    }
+
+    @Override
+    public long getSentBytes() {
+        return sentBytesCountingInterceptor.getSentBytes();
+    }
+
     @Override
     public void shutdown() {
         super.shutdown();
@@ -178,7 +245,7 @@ public class Jersey2ReplicationClient extends AbstractJersey2EurekaHttpClient im
         EurekaServerIdentity identity = new EurekaServerIdentity(ip);
         jerseyApacheClient.register(new EurekaIdentityHeaderFilter(identity));
 
-        return new Jersey2ReplicationClient(jerseyClient, serviceUrl);
+        return new Jersey2ReplicationClient(jerseyClient, serviceUrl, config.shouldUseBinaryHeartbeatReplication());
     }
 
     private static boolean isSuccess(int statusCode) {
@@ -0,0 +1,43 @@
+package com.netflix.eureka.transport;
+
+import javax.annotation.Priority;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the bytes of the request bodies. It runs before the entity encoders, so that they write to the counting
+ * stream and the bytes are counted as they are sent.
+ */
+@Priority(Priorities.ENTITY_CODER - 1)
+class Jersey2SentBytesCountingInterceptor implements WriterInterceptor {
+
+    private final AtomicLong sentBytes = new AtomicLong();
+
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException, WebApplicationException {
+        context.setOutputStream(new FilterOutputStream(context.getOutputStream()) {
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+                sentBytes.incrementAndGet();
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+                sentBytes.addAndGet(len);
+            }
+        });
+        context.proceed();
+    }
+
+    long getSentBytes() {
+        return sentBytes.get();
+    }
+}
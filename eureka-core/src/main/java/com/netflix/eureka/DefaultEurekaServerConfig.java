@@ -707,4 +707,106 @@ public class DefaultEurekaServerConfig implements EurekaServerConfig {
     public int getInitialCapacityOfResponseCache() {
         return configInstance.getIntProperty(namespace + "initialCapacityOfResponseCache", 1000).get();
     }
+
+    @Override
+    public boolean shouldUseApplicationPayloadFragments() {
+        return configInstance.getBooleanProperty(namespace + "useApplicationPayloadFragments", false).get();
+    }
+
+    @Override
+    public boolean shouldUseRegistryETag() {
+        return configInstance.getBooleanProperty(namespace + "useRegistryETag", true).get();
+    }
+
+    @Override
+    public int getMaxRegistryWatchers() {
+        return configInstance.getIntProperty(namespace + "maxRegistryWatchers", 100).get();
+    }
+
+    @Override
+    public long getMaxRegistryWatchTimeoutMs() {
+        return configInstance.getLongProperty(namespace + "maxRegistryWatchTimeoutMs", 30 * 1000).get();
+    }
+
+    @Override
+    public int getDeltaChangeLogCapacity() {
+        return configInstance.getIntProperty(namespace + "deltaChangeLogCapacity", 65536).get();
+    }
+
+    @Override
+    public boolean shouldUseBinaryHeartbeatReplication() {
+        return configInstance.getBooleanProperty(namespace + "shouldUseBinaryHeartbeatReplication", false).get();
+    }
+
+    @Override
+    public boolean shouldCoalescePeerHeartbeats() {
+        return configInstance.getBooleanProperty(namespace + "shouldCoalescePeerHeartbeats", false).get();
+    }
+
+    @Override
+    public long getPeerHeartbeatDigestIntervalMs() {
+        return configInstance.getLongProperty(namespace + "peerHeartbeatDigestIntervalMs", 5 * 1000).get();
+    }
+
+    @Override
+    public int getPeerHeartbeatDigestSize() {
+        return configInstance.getIntProperty(namespace + "peerHeartbeatDigestSize", 2500).get();
+    }
+
+    @Override
+    public int getPeerReplicationBatchParallelism() {
+        return configInstance.getIntProperty(namespace + "peerReplicationBatchParallelism",
+                Runtime.getRuntime().availableProcessors()).get();
+    }
+
+    @Override
+    public boolean shouldUseLockFreeReplicationAcceptor() {
+        return configInstance.getBooleanProperty(namespace + "shouldUseLockFreeReplicationAcceptor", false).get();
+    }
+
+    @Override
+    public boolean shouldUseAdaptiveReplicationBatching() {
+        return configInstance.getBooleanProperty(namespace + "shouldUseAdaptiveReplicationBatching", false).get();
+    }
+
+    @Override
+    public long getPeerReplicationTargetLatencyMs() {
+        return configInstance.getLongProperty(namespace + "peerReplicationTargetLatencyMs", 500).get();
+    }
+
+    @Override
+    public boolean shouldUseVirtualThreadsForPeerReplication() {
+        return configInstance.getBooleanProperty(namespace + "shouldUseVirtualThreadsForPeerReplication", false).get();
+    }
+
+    @Override
+    public int getRegistrySyncParallelism() {
+        return configInstance.getIntProperty(namespace + "registrySyncParallelism",
+                Runtime.getRuntime().availableProcessors()).get();
+    }
+
+    @Override
+    public String getRegistrySnapshotFile() {
+        return configInstance.getStringProperty(namespace + "registrySnapshotFile", null).get();
+    }
+
+    @Override
+    public long getRegistrySnapshotIntervalMs() {
+        return configInstance.getLongProperty(namespace + "registrySnapshotIntervalMs", 30 * 1000).get();
+    }
+
+    @Override
+    public long getRegistrySnapshotMaxAgeMs() {
+        return configInstance.getLongProperty(namespace + "registrySnapshotMaxAgeMs", 5 * 60 * 1000).get();
+    }
+
+    @Override
+    public boolean shouldUsePeerAntiEntropy() {
+        return configInstance.getBooleanProperty(namespace + "shouldUsePeerAntiEntropy", false).get();
+    }
+
+    @Override
+    public long getPeerAntiEntropyIntervalMs() {
+        return configInstance.getLongProperty(namespace + "peerAntiEntropyIntervalMs", 60 * 1000).get();
+    }
 }
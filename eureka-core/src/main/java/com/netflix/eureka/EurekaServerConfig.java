@@ -254,7 +254,9 @@ public interface EurekaServerConfig {
      * check for expired delta information.
      *
      * @return time in milliseconds.
+     * @deprecated the delta information is now dropped as it is read, see {@link #getDeltaChangeLogCapacity()}
      */
+    @Deprecated
     long getDeltaRetentionTimerIntervalInMs();
 
     /**
@@ -705,4 +707,183 @@ public interface EurekaServerConfig {
      * @return the capacity of responseCache.
      */
     int getInitialCapacityOfResponseCache();
+
+    /**
+     * Indicates whether the full registry payloads are assembled from per application encoded fragments, which are
+     * cached and reused as long as the application does not change, instead of encoding the whole registry again on
+     * every registry change. It is off by default.
+     *
+     * @return true if the full registry payloads should be assembled from application fragments, false otherwise.
+     */
+    boolean shouldUseApplicationPayloadFragments();
+
+    /**
+     * Indicates whether the full and delta registry responses carry an entity tag, so that clients can fetch them
+     * conditionally and get a <em>304 Not Modified</em> response when nothing changed since their last fetch.
+     *
+     * @return true if the registry responses should carry an entity tag, false otherwise.
+     */
+    boolean shouldUseRegistryETag();
+
+    /**
+     * Get the maximum number of clients that can concurrently wait for a registry change on the watch endpoint.
+     * Each of them holds a request thread, so clients beyond this limit get the delta right away and fall back to
+     * regular polling. Zero disables the watch endpoint waits altogether.
+     *
+     * @return the maximum number of concurrent registry watchers.
+     */
+    int getMaxRegistryWatchers();
+
+    /**
+     * Get the maximum time a watch request waits for a registry change before answering that nothing changed,
+     * whatever the timeout requested by the client. It should stay well below the client read timeouts.
+     *
+     * @return the maximum registry watch time in milliseconds.
+     */
+    long getMaxRegistryWatchTimeoutMs();
+
+    /**
+     * Get the number of registry versions the delta information is kept for, in addition to the time limit given by
+     * {@link #getRetentionTimeInMSInDeltaQueue()}. It should comfortably exceed the number of registry changes
+     * within the retention time, otherwise the deltas miss some changes and the clients fall back to fetching the
+     * full registry. The value is rounded up to a power of two, with a minimum of 1024.
+     *
+     * @return the capacity of the registry change log.
+     */
+    int getDeltaChangeLogCapacity();
+
+    /**
+     * Indicates whether the batches made of heartbeats only are replicated to the peers in a compact binary frame
+     * instead of JSON. Peers that do not support the frame are detected and sent JSON. It is off by default, to be
+     * turned on once all the peers of the cluster support the frame.
+     *
+     * @return true if the heartbeats are replicated in binary frames, false otherwise.
+     */
+    boolean shouldUseBinaryHeartbeatReplication();
+
+    /**
+     * Indicates whether the heartbeats replicated to each peer are coalesced into periodic lease vectors. A lease
+     * vector holds the last renewal time of each instance renewed since the previous one, and replaces the
+     * individual heartbeats of these instances. Registrations, cancellations and status changes are not affected.
+     *
+     * @return true if the replicated heartbeats are coalesced, false otherwise.
+     */
+    boolean shouldCoalescePeerHeartbeats();
+
+    /**
+     * Get the interval the lease vectors are sent to each peer at, when {@link #shouldCoalescePeerHeartbeats()} is
+     * enabled. It must stay well below the lease duration of the instances, for the peers to renew their leases in
+     * time.
+     *
+     * @return the lease vector interval in milliseconds.
+     */
+    long getPeerHeartbeatDigestIntervalMs();
+
+    /**
+     * Get the maximum number of leases sent to a peer in a single lease vector, when
+     * {@link #shouldCoalescePeerHeartbeats()} is enabled.
+     *
+     * @return the maximum lease vector size.
+     */
+    int getPeerHeartbeatDigestSize();
+
+    /**
+     * Get the number of partitions the replication batches received from the peers are processed in, in parallel.
+     * The events are partitioned by instance id, so that the events of an instance are processed in order. A value
+     * of one or less processes the batches sequentially on the request thread.
+     *
+     * @return the parallelism of the replication batch processing.
+     */
+    int getPeerReplicationBatchParallelism();
+
+    /**
+     * Indicates whether the replication tasks batched for the peers are dispatched by a lock free acceptor, from
+     * which the replication threads pull their batches directly, instead of an acceptor thread handing them the
+     * batches. This delivers more of the replication tasks to the peers when the replication backlog is full, at
+     * the price of slower submissions from the request threads.
+     *
+     * @return true if the lock free acceptor is used, false otherwise.
+     */
+    boolean shouldUseLockFreeReplicationAcceptor();
+
+    /**
+     * Indicates whether the size of the replication batches sent to each peer, the delay waiting for them to fill up
+     * and the number of batches sent at the same time are tuned from the latency and the result of the replication
+     * requests, instead of being fixed. The limits are reduced when the peer is congested, fails or is slower than
+     * {@link #getPeerReplicationTargetLatencyMs()}, and grow back otherwise.
+     *
+     * @return true if the replication batching adapts to each peer, false otherwise.
+     */
+    boolean shouldUseAdaptiveReplicationBatching();
+
+    /**
+     * Get the time in milliseconds within which a peer is expected to process a replication batch, when the
+     * replication batching adapts to each peer. Slower peers are sent fewer batches at the same time.
+     *
+     * @return the target latency of the replication requests in milliseconds.
+     */
+    long getPeerReplicationTargetLatencyMs();
+
+    /**
+     * Indicates whether the threads replicating the changes to the peers are virtual threads, on the Java runtimes
+     * supporting them. The replication threads mostly wait for the peers to respond, and virtual threads do not hold
+     * a platform thread while waiting. The number of threads per peer still limits the requests sent at the same
+     * time, see {@link #getMaxThreadsForPeerReplication()} and {@link #getMaxThreadsForStatusReplication()}.
+     *
+     * @return true if the replication threads are virtual threads, false otherwise.
+     */
+    boolean shouldUseVirtualThreadsForPeerReplication();
+
+    /**
+     * Get the number of partitions of the instances copied from a peer on startup, registered in parallel by the
+     * calling thread and the common fork join pool. The instances of an application are in the same partition, and
+     * the cached responses of each application are invalidated once all its instances are registered. A value of one
+     * or less registers them all on the calling thread.
+     *
+     * @return the parallelism of the registry sync on startup.
+     */
+    int getRegistrySyncParallelism();
+
+    /**
+     * Get the file the local registry is periodically saved to, so that a restarted server serves the saved
+     * registry within seconds instead of starting empty. The instances are then reconciled with the peers.
+     * Saving the registry is disabled when no file is configured.
+     *
+     * @return the path of the registry snapshot file, or null if the registry is not saved.
+     */
+    String getRegistrySnapshotFile();
+
+    /**
+     * Get the time interval in milliseconds at which the local registry is saved to the
+     * {@link #getRegistrySnapshotFile() snapshot file}.
+     *
+     * @return the interval at which the registry is saved in milliseconds.
+     */
+    long getRegistrySnapshotIntervalMs();
+
+    /**
+     * Get the maximum age in milliseconds of a {@link #getRegistrySnapshotFile() snapshot file} restored on
+     * startup. Older snapshots are ignored and the registry is copied from the peers only.
+     *
+     * @return the maximum age of a restored registry snapshot in milliseconds.
+     */
+    long getRegistrySnapshotMaxAgeMs();
+
+    /**
+     * Indicates whether the server periodically compares its registry with each peer, replicating to the peer the
+     * instances it does not know of or knows an older version of. This fixes the replication tasks that were lost,
+     * expired or failed, with no need for the registries to be transferred: only the hash of each application is
+     * sent, and the peer answers with the instances of the applications the registries disagree on.
+     *
+     * @return true if the registries are reconciled with the peers periodically, false otherwise.
+     */
+    boolean shouldUsePeerAntiEntropy();
+
+    /**
+     * Get the time interval in milliseconds at which the registry is compared with each peer, see
+     * {@link #shouldUsePeerAntiEntropy()}. A lost replication task is fixed within this time.
+     *
+     * @return the interval at which the registry is reconciled with the peers in milliseconds.
+     */
+    long getPeerAntiEntropyIntervalMs();
 }
@@ -0,0 +1,61 @@
+package com.netflix.eureka.cluster;
+
+import javax.ws.rs.core.Response.Status;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import com.netflix.discovery.shared.transport.EurekaHttpResponse;
+import com.netflix.eureka.cluster.protocol.HeartbeatFrame;
+import com.netflix.eureka.cluster.protocol.ReplicationList;
+import com.netflix.eureka.cluster.protocol.ReplicationListResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tells whether a peer is sent the batches made of heartbeats only in a {@link HeartbeatFrame}. Peers that do not
+ * support the frame reject it as an unsupported media type; the batch is then sent as JSON, and the peer is not sent
+ * frames again before {@link #RETRY_INTERVAL_MS} elapses, in case it was upgraded in the meantime.
+ */
+public class HeartbeatFrameNegotiator {
+
+    private static final Logger logger = LoggerFactory.getLogger(HeartbeatFrameNegotiator.class);
+
+    static final long RETRY_INTERVAL_MS = TimeUnit.MINUTES.toMillis(10);
+
+    private final String serviceUrl;
+    private final boolean enabled;
+
+    private volatile long rejectedAt = -1;
+
+    public HeartbeatFrameNegotiator(String serviceUrl, boolean enabled) {
+        this.serviceUrl = serviceUrl;
+        this.enabled = enabled;
+    }
+
+    /**
+     * @param frameSender posts the given frame to the peer
+     * @param jsonSender posts the given list to the peer as JSON
+     */
+    public EurekaHttpResponse<ReplicationListResponse> submitBatchUpdates(
+            ReplicationList replicationList,
+            Function<byte[], EurekaHttpResponse<ReplicationListResponse>> frameSender,
+            Function<ReplicationList, EurekaHttpResponse<ReplicationListResponse>> jsonSender) {
+        if (shouldSendFrame(replicationList)) {
+            EurekaHttpResponse<ReplicationListResponse> response = frameSender.apply(HeartbeatFrame.encode(replicationList));
+            if (response.getStatusCode() != Status.UNSUPPORTED_MEDIA_TYPE.getStatusCode()) {
+                return response;
+            }
+            logger.info("Peer {} does not support binary heartbeat frames, replicating heartbeats as JSON", serviceUrl);
+            rejectedAt = System.currentTimeMillis();
+        }
+        return jsonSender.apply(replicationList);
+    }
+
+    private boolean shouldSendFrame(ReplicationList replicationList) {
+        if (!enabled || !HeartbeatFrame.isEncodable(replicationList)) {
+            return false;
+        }
+        long lastRejectedAt = rejectedAt;
+        return lastRejectedAt < 0 || System.currentTimeMillis() - lastRejectedAt >= RETRY_INTERVAL_MS;
+    }
+}
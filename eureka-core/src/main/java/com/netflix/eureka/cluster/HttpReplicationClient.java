@@ -2,10 +2,14 @@ package com.netflix.eureka.cluster;
 
 import com.netflix.discovery.shared.transport.EurekaHttpClient;
 import com.netflix.discovery.shared.transport.EurekaHttpResponse;
+import com.netflix.eureka.cluster.protocol.LeaseVector;
+import com.netflix.eureka.cluster.protocol.RegistryDigest;
 import com.netflix.eureka.cluster.protocol.ReplicationList;
 import com.netflix.eureka.cluster.protocol.ReplicationListResponse;
 import com.netflix.eureka.resources.ASGResource.ASGStatus;
 
+import static com.netflix.discovery.shared.transport.EurekaHttpResponse.anEurekaHttpResponse;
+
 /**
  * @author Tomasz Bak
  */
@@ -14,4 +18,30 @@ public interface HttpReplicationClient extends EurekaHttpClient {
     EurekaHttpResponse<Void> statusUpdate(String asgName, ASGStatus newStatus);
 
     EurekaHttpResponse<ReplicationListResponse> submitBatchUpdates(ReplicationList replicationList);
+
+    /**
+     * Sends the digest of the local registry to the peer, which answers with the instance digests of the
+     * applications the registries disagree on, see {@link RegistryDigest}. By default, nothing is sent and a
+     * <em>404 Not Found</em> response is returned, as from a peer that does not support registry digests.
+     */
+    default EurekaHttpResponse<RegistryDigest> compareRegistryDigest(RegistryDigest registryDigest) {
+        return anEurekaHttpResponse(404, RegistryDigest.class).build();
+    }
+
+    /**
+     * Sends the last renewal time of the leases renewed locally to the peer, which answers with the leases it does
+     * not know of, see {@link LeaseVector}. By default, nothing is sent and a <em>404 Not Found</em> response is
+     * returned, as from a peer that does not support lease vectors.
+     */
+    default EurekaHttpResponse<LeaseVector> renewLeases(LeaseVector leaseVector) {
+        return anEurekaHttpResponse(404, LeaseVector.class).build();
+    }
+
+    /**
+     * @return the number of request body bytes sent to the peer, as they went on the wire. By default, the bytes are
+     *         not counted and 0 is returned.
+     */
+    default long getSentBytes() {
+        return 0;
+    }
 }
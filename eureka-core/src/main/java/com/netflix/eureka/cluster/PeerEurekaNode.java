@@ -18,12 +18,22 @@ package com.netflix.eureka.cluster;
 
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import com.netflix.appinfo.InstanceInfo;
 import com.netflix.appinfo.InstanceInfo.InstanceStatus;
 import com.netflix.discovery.shared.transport.EurekaHttpResponse;
 import com.netflix.eureka.EurekaServerConfig;
 import com.netflix.eureka.lease.Lease;
+import com.netflix.eureka.cluster.protocol.LeaseVector;
+import com.netflix.eureka.cluster.protocol.PeerReplicationStatus;
+import com.netflix.eureka.cluster.protocol.RegistryDigest;
 import com.netflix.eureka.registry.PeerAwareInstanceRegistry;
 import com.netflix.eureka.registry.PeerAwareInstanceRegistryImpl.Action;
 import com.netflix.eureka.resources.ASGResource.ASGStatus;
@@ -71,6 +81,10 @@ public class PeerEurekaNode {
 
     public static final String BATCH_URL_PATH = "peerreplication/batch/";
 
+    public static final String DIGEST_URL_PATH = "peerreplication/digest/";
+
+    public static final String LEASES_URL_PATH = "peerreplication/leases/";
+
     public static final String HEADER_REPLICATION = "x-netflix-discovery-replication";
 
     private final String serviceUrl;
@@ -82,6 +96,12 @@ public class PeerEurekaNode {
 
     private final TaskDispatcher<String, ReplicationTask> batchingDispatcher;
     private final TaskDispatcher<String, ReplicationTask> nonBatchingDispatcher;
+    private final boolean coalesceHeartbeats;
+    private final int leaseVectorSize;
+    // Last renewal time of the instances renewed since the last lease vector, by application name and instance id
+    private final ConcurrentMap<String, ConcurrentMap<String, Long>> pendingRenewals = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService leaseVectorExecutor;
+    private final PeerReplicationMetrics replicationMetrics;
 
     public PeerEurekaNode(PeerAwareInstanceRegistry registry, String targetHost, String serviceUrl, HttpReplicationClient replicationClient, EurekaServerConfig config) {
         this(registry, targetHost, serviceUrl, replicationClient, config, BATCH_SIZE, MAX_BATCHING_DELAY_MS, RETRY_SLEEP_TIME_MS, SERVER_UNAVAILABLE_SLEEP_TIME_MS);
@@ -100,17 +120,37 @@ public class PeerEurekaNode {
         this.maxProcessingDelayMs = config.getMaxTimeForReplication();
 
         String batcherName = getBatcherName();
-        ReplicationTaskProcessor taskProcessor = new ReplicationTaskProcessor(targetHost, replicationClient);
-        this.batchingDispatcher = TaskDispatchers.createBatchingTaskDispatcher(
-                batcherName,
-                config.getMaxElementsInPeerReplicationPool(),
-                batchSize,
-                config.getMaxThreadsForPeerReplication(),
-                maxBatchingDelayMs,
-                serverUnavailableSleepTimeMs,
-                retrySleepTimeMs,
-                taskProcessor
-        );
+        this.replicationMetrics = new PeerReplicationMetrics(batcherName, replicationClient);
+        ReplicationTaskProcessor taskProcessor = new ReplicationTaskProcessor(targetHost, replicationClient, replicationMetrics);
+        if (config.shouldUseAdaptiveReplicationBatching()) {
+            // The batch size and batching delay become upper bounds, within which the batching adapts to the peer
+            this.batchingDispatcher = TaskDispatchers.createAdaptiveBatchingTaskDispatcher(
+                    batcherName,
+                    config.getMaxElementsInPeerReplicationPool(),
+                    batchSize,
+                    config.getMaxThreadsForPeerReplication(),
+                    maxBatchingDelayMs,
+                    config.getPeerReplicationTargetLatencyMs(),
+                    serverUnavailableSleepTimeMs,
+                    retrySleepTimeMs,
+                    taskProcessor,
+                    config.shouldUseLockFreeReplicationAcceptor(),
+                    config.shouldUseVirtualThreadsForPeerReplication()
+            );
+        } else {
+            this.batchingDispatcher = TaskDispatchers.createBatchingTaskDispatcher(
+                    batcherName,
+                    config.getMaxElementsInPeerReplicationPool(),
+                    batchSize,
+                    config.getMaxThreadsForPeerReplication(),
+                    maxBatchingDelayMs,
+                    serverUnavailableSleepTimeMs,
+                    retrySleepTimeMs,
+                    taskProcessor,
+                    config.shouldUseLockFreeReplicationAcceptor(),
+                    config.shouldUseVirtualThreadsForPeerReplication()
+            );
+        }
         this.nonBatchingDispatcher = TaskDispatchers.createNonBatchingTaskDispatcher(
                 targetHost,
                 config.getMaxElementsInStatusReplicationPool(),
@@ -118,8 +158,24 @@ public class PeerEurekaNode {
                 maxBatchingDelayMs,
                 serverUnavailableSleepTimeMs,
                 retrySleepTimeMs,
-                taskProcessor
+                taskProcessor,
+                config.shouldUseVirtualThreadsForPeerReplication()
         );
+
+        // Renewals are collected into lease vectors, sent on a fixed delay rather than through the dispatchers
+        this.coalesceHeartbeats = config.shouldCoalescePeerHeartbeats();
+        this.leaseVectorSize = config.getPeerHeartbeatDigestSize();
+        if (coalesceHeartbeats) {
+            this.leaseVectorExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "Eureka-LeaseVectorSender-" + batcherName);
+                thread.setDaemon(true);
+                return thread;
+            });
+            long intervalMs = config.getPeerHeartbeatDigestIntervalMs();
+            leaseVectorExecutor.scheduleWithFixedDelay(this::sendLeaseVectors, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        } else {
+            this.leaseVectorExecutor = null;
+        }
     }
 
     /**
@@ -181,6 +237,10 @@ public class PeerEurekaNode {
      * this class. If the instance does not exist the node, the instance
      * registration information is sent again to the peer node.
      *
+     * <p>
+     * When the heartbeats are coalesced, only the renewal time is recorded, and sent in the next {@link LeaseVector}.
+     * </p>
+     *
      * @param appName
      *            the application name of the instance.
      * @param id
@@ -199,6 +259,15 @@ public class PeerEurekaNode {
             replicationClient.sendHeartBeat(appName, id, info, overriddenStatus);
             return;
         }
+        if (coalesceHeartbeats) {
+            pendingRenewals.computeIfAbsent(appName, k -> new ConcurrentHashMap<>()).put(id, System.currentTimeMillis());
+            return;
+        }
+        replicateHeartbeat(appName, id, info, overriddenStatus);
+    }
+
+    private void replicateHeartbeat(final String appName, final String id,
+                                    final InstanceInfo info, final InstanceStatus overriddenStatus) {
         ReplicationTask replicationTask = new InstanceReplicationTask(targetHost, Action.Heartbeat, info, overriddenStatus, false) {
             @Override
             public EurekaHttpResponse<InstanceInfo> execute() throws Throwable {
@@ -227,6 +296,87 @@ public class PeerEurekaNode {
         batchingDispatcher.process(taskId("heartbeat", info), replicationTask, expiryTime);
     }
 
+    /**
+     * Sends the renewals recorded since the previous call in lease vectors of at most
+     * {@link EurekaServerConfig#getPeerHeartbeatDigestSize()} leases.
+     */
+    /* For testing */ void sendLeaseVectors() {
+        Map<String, Map<String, Long>> leases = new HashMap<>();
+        int size = 0;
+        for (Map.Entry<String, ConcurrentMap<String, Long>> appRenewals : pendingRenewals.entrySet()) {
+            for (String id : appRenewals.getValue().keySet()) {
+                // Removed one by one, so that a renewal recorded meanwhile is either sent now or in the next vector
+                Long lastRenewalTimestamp = appRenewals.getValue().remove(id);
+                if (lastRenewalTimestamp == null) {
+                    continue;
+                }
+                leases.computeIfAbsent(appRenewals.getKey(), k -> new HashMap<>()).put(id, lastRenewalTimestamp);
+                if (++size == leaseVectorSize) {
+                    sendLeaseVector(new LeaseVector(leases));
+                    leases = new HashMap<>();
+                    size = 0;
+                }
+            }
+        }
+        if (size > 0) {
+            sendLeaseVector(new LeaseVector(leases));
+        }
+    }
+
+    private void sendLeaseVector(LeaseVector leaseVector) {
+        EurekaHttpResponse<LeaseVector> response;
+        try {
+            response = replicationClient.renewLeases(leaseVector);
+        } catch (Throwable e) {
+            logger.warn("Cannot send the lease vector to peer {}", targetHost, e);
+            restorePendingRenewals(leaseVector);
+            return;
+        }
+        if (response.getStatusCode() == 404) {
+            // The peer does not support lease vectors, so the renewals are replicated as heartbeats
+            for (Map.Entry<String, Map<String, Long>> appLeases : leaseVector.getLeases().entrySet()) {
+                for (String id : appLeases.getValue().keySet()) {
+                    InstanceInfo info = registry.getInstanceByAppAndId(appLeases.getKey(), id, false);
+                    if (info != null) {
+                        replicateHeartbeat(appLeases.getKey(), id, info, info.getOverriddenStatus());
+                    }
+                }
+            }
+        } else if (response.getStatusCode() != 200) {
+            logger.warn("Peer {} answered the lease vector with status {}", targetHost, response.getStatusCode());
+            restorePendingRenewals(leaseVector);
+        } else if (response.getEntity() != null) {
+            for (Map.Entry<String, Map<String, Long>> appLeases : response.getEntity().getLeases().entrySet()) {
+                for (String id : appLeases.getValue().keySet()) {
+                    // The registration may still be on its way to the peer, in which case it is replaced by this one.
+                    // An instance cancelled locally in the meantime is not registered again.
+                    InstanceInfo info = registry.getInstanceByAppAndId(appLeases.getKey(), id, false);
+                    if (info != null) {
+                        logger.warn("Peer {} cannot find instance id {} and hence replicating the instance with status {}",
+                                targetHost, id, info.getStatus());
+                        try {
+                            register(info);
+                        } catch (Exception e) {
+                            logger.warn("Cannot replicate the registration of instance id {} to peer {}", id, targetHost, e);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Puts back the renewals of a lease vector that could not be sent, unless more recent ones were recorded since.
+     */
+    private void restorePendingRenewals(LeaseVector leaseVector) {
+        for (Map.Entry<String, Map<String, Long>> appLeases : leaseVector.getLeases().entrySet()) {
+            ConcurrentMap<String, Long> appRenewals = pendingRenewals.computeIfAbsent(appLeases.getKey(), k -> new ConcurrentHashMap<>());
+            for (Map.Entry<String, Long> lease : appLeases.getValue().entrySet()) {
+                appRenewals.merge(lease.getKey(), lease.getValue(), Math::max);
+            }
+        }
+    }
+
     /**
      * Send the status information of of the ASG represented by the instance.
      *
@@ -304,6 +454,47 @@ public class PeerEurekaNode {
                 expiryTime);
     }
 
+    /**
+     * Sends the digest of the local registry to the peer node, which answers with the versions it knows of the
+     * instances of the applications the registries disagree on. Unlike the other requests, the digest is sent right
+     * away by the calling thread.
+     *
+     * @param digest
+     *            the digest of the local registry.
+     * @return the digest of the divergent applications, or null if the peer cannot be reached or does not support
+     *         registry digests.
+     */
+    public RegistryDigest compareRegistryDigest(RegistryDigest digest) {
+        try {
+            EurekaHttpResponse<RegistryDigest> response = replicationClient.compareRegistryDigest(digest);
+            if (response.getStatusCode() == 200 && response.getEntity() != null) {
+                return response.getEntity();
+            }
+            logger.warn("Peer {} answered the registry digest with status {}", targetHost, response.getStatusCode());
+        } catch (Throwable e) {
+            logger.warn("Cannot send the registry digest to peer {}", targetHost, e);
+        }
+        return null;
+    }
+
+    /**
+     * Get the replication state of the peer node, telling how far behind the local registry it is.
+     *
+     * @return the replication lag, the age of the oldest task waiting to be sent, the number of expired tasks of
+     *         each action and the number of bytes sent to the peer node.
+     */
+    public PeerReplicationStatus getReplicationStatus() {
+        long oldestTaskAge = Math.max(batchingDispatcher.getOldestTaskAge(), nonBatchingDispatcher.getOldestTaskAge());
+        return new PeerReplicationStatus(
+                serviceUrl,
+                replicationMetrics.getReplicatedTasks(),
+                replicationMetrics.getLastReplicationLag(),
+                oldestTaskAge,
+                replicationMetrics.getExpiredTasks(),
+                replicationMetrics.getSentBytes()
+        );
+    }
+
     /**
      * Get the service Url of the peer eureka node.
      *
@@ -349,6 +540,10 @@ public class PeerEurekaNode {
     public void shutDown() {
         batchingDispatcher.shutdown();
         nonBatchingDispatcher.shutdown();
+        if (coalesceHeartbeats) {
+            leaseVectorExecutor.shutdown();
+        }
+        replicationMetrics.shutdown();
         replicationClient.shutdown();
     }
 
@@ -0,0 +1,126 @@
+package com.netflix.eureka.cluster;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.netflix.discovery.util.ServoUtil;
+import com.netflix.eureka.registry.PeerAwareInstanceRegistryImpl.Action;
+import com.netflix.servo.annotations.DataSourceType;
+import com.netflix.servo.annotations.Monitor;
+import com.netflix.servo.monitor.BasicCounter;
+import com.netflix.servo.monitor.Counter;
+import com.netflix.servo.monitor.MonitorConfig;
+import com.netflix.servo.monitor.Monitors;
+import com.netflix.servo.monitor.StatsTimer;
+import com.netflix.servo.monitor.Timer;
+import com.netflix.servo.stats.StatsConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.netflix.eureka.Names.METRIC_REPLICATION_PREFIX;
+
+/**
+ * Replication metrics of a peer, telling how far behind the local registry the peer is. The replication lag is the
+ * time from a change being queued for the peer to the peer acknowledging it, and the changes that could not reach
+ * the peer before they expired are counted by action.
+ */
+class PeerReplicationMetrics {
+
+    private static final Logger logger = LoggerFactory.getLogger(PeerReplicationMetrics.class);
+
+    private final String id;
+    private final HttpReplicationClient replicationClient;
+
+    private final Map<Action, Counter> expiredTasks = new EnumMap<>(Action.class);
+
+    @Monitor(name = METRIC_REPLICATION_PREFIX + "replicatedTasks", description = "Number of tasks acknowledged by the peer", type = DataSourceType.COUNTER)
+    private final AtomicLong replicatedTasks = new AtomicLong();
+
+    @Monitor(name = METRIC_REPLICATION_PREFIX + "lastReplicationLag", description = "Time in ms from queueing to acknowledgement of the last replicated task", type = DataSourceType.GAUGE)
+    private volatile long lastReplicationLag;
+
+    private final Timer replicationLag;
+
+    PeerReplicationMetrics(String id, HttpReplicationClient replicationClient) {
+        this.id = id;
+        this.replicationClient = replicationClient;
+
+        for (Action action : Action.values()) {
+            MonitorConfig config = MonitorConfig.builder(METRIC_REPLICATION_PREFIX + "expiredTasksByAction")
+                    .withTag("id", id)
+                    .withTag("action", action.name())
+                    .build();
+            expiredTasks.put(action, new BasicCounter(config));
+        }
+
+        final double[] percentiles = {50.0, 95.0, 99.0, 99.5};
+        final StatsConfig statsConfig = new StatsConfig.Builder()
+                .withSampleSize(1000)
+                .withPercentiles(percentiles)
+                .withPublishStdDev(true)
+                .build();
+        final MonitorConfig config = MonitorConfig.builder(METRIC_REPLICATION_PREFIX + "replicationLag").build();
+        this.replicationLag = new StatsTimer(config, statsConfig);
+        try {
+            Monitors.registerObject(id, this);
+        } catch (Throwable e) {
+            logger.warn("Cannot register servo monitor for this object", e);
+        }
+        for (Counter counter : expiredTasks.values()) {
+            ServoUtil.register(counter);
+        }
+    }
+
+    void taskReplicated(ReplicationTask task) {
+        long lag = Math.max(0, System.currentTimeMillis() - task.getSubmitTimestamp());
+        lastReplicationLag = lag;
+        replicationLag.record(lag, TimeUnit.MILLISECONDS);
+        replicatedTasks.incrementAndGet();
+    }
+
+    void taskExpired(ReplicationTask task) {
+        Counter counter = expiredTasks.get(task.getAction());
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+
+    @Monitor(name = METRIC_REPLICATION_PREFIX + "sentBytes", description = "Number of bytes sent to the peer", type = DataSourceType.COUNTER)
+    public long getSentBytes() {
+        return replicationClient.getSentBytes();
+    }
+
+    long getReplicatedTasks() {
+        return replicatedTasks.get();
+    }
+
+    long getLastReplicationLag() {
+        return lastReplicationLag;
+    }
+
+    /**
+     * @return the number of expired tasks of each action, leaving out the actions none expired of
+     */
+    Map<String, Long> getExpiredTasks() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (Map.Entry<Action, Counter> entry : expiredTasks.entrySet()) {
+            long count = entry.getValue().getValue().longValue();
+            if (count > 0) {
+                counts.put(entry.getKey().name(), count);
+            }
+        }
+        return counts;
+    }
+
+    void shutdown() {
+        try {
+            Monitors.unregisterObject(id, this);
+        } catch (Throwable e) {
+            logger.warn("Cannot unregister servo monitor for this object", e);
+        }
+        ServoUtil.unregister(expiredTasks.values());
+    }
+}
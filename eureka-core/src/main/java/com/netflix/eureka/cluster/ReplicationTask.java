@@ -14,10 +14,12 @@ abstract class ReplicationTask {
 
     protected final String peerNodeName;
     protected final Action action;
+    private final long submitTimestamp;
 
     ReplicationTask(String peerNodeName, Action action) {
         this.peerNodeName = peerNodeName;
         this.action = action;
+        this.submitTimestamp = System.currentTimeMillis();
     }
 
     public abstract String getTaskName();
@@ -26,6 +28,13 @@ abstract class ReplicationTask {
         return action;
     }
 
+    /**
+     * @return the time in ms the task was created, which is when the change it replicates was queued
+     */
+    public long getSubmitTimestamp() {
+        return submitTimestamp;
+    }
+
     public abstract EurekaHttpResponse<?> execute() throws Throwable;
 
     public void handleSuccess() {
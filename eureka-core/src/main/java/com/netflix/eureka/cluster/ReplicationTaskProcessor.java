@@ -29,13 +29,20 @@ class ReplicationTaskProcessor implements TaskProcessor<ReplicationTask> {
 
     private final String peerId;
 
+    private final PeerReplicationMetrics metrics;
+
     private volatile long lastNetworkErrorTime;
     
     private static final Pattern READ_TIME_OUT_PATTERN = Pattern.compile(".*read.*time.*out.*"); 
 
     ReplicationTaskProcessor(String peerId, HttpReplicationClient replicationClient) {
+        this(peerId, replicationClient, null);
+    }
+
+    ReplicationTaskProcessor(String peerId, HttpReplicationClient replicationClient, PeerReplicationMetrics metrics) {
         this.replicationClient = replicationClient;
         this.peerId = peerId;
+        this.metrics = metrics;
     }
 
     @Override
@@ -48,6 +55,7 @@ class ReplicationTaskProcessor implements TaskProcessor<ReplicationTask> {
                 logger.debug("Replication task {} completed with status {}, (includes entity {})", task.getTaskName(), statusCode, entity != null);
             }
             if (isSuccess(statusCode)) {
+                taskReplicated(task);
                 task.handleSuccess();
             } else if (statusCode == 503) {
                 logger.debug("Server busy (503) reply for task {}", task.getTaskName());
@@ -107,6 +115,19 @@ class ReplicationTaskProcessor implements TaskProcessor<ReplicationTask> {
         return ProcessingResult.Success;
     }
 
+    @Override
+    public void expired(ReplicationTask task) {
+        if (metrics != null) {
+            metrics.taskExpired(task);
+        }
+    }
+
+    private void taskReplicated(ReplicationTask task) {
+        if (metrics != null) {
+            metrics.taskReplicated(task);
+        }
+    }
+
     /**
      * We want to retry eagerly, but without flooding log file with tons of error entries.
      * As tasks are executed by a pool of threads the error logging multiplies. For example:
@@ -141,6 +162,7 @@ class ReplicationTaskProcessor implements TaskProcessor<ReplicationTask> {
     private void handleBatchResponse(ReplicationTask task, ReplicationInstanceResponse response) {
         int statusCode = response.getStatusCode();
         if (isSuccess(statusCode)) {
+            taskReplicated(task);
             task.handleSuccess();
             return;
         }
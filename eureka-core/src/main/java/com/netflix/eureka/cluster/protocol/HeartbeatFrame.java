@@ -0,0 +1,237 @@
+package com.netflix.eureka.cluster.protocol;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.netflix.eureka.registry.PeerAwareInstanceRegistryImpl.Action;
+
+/**
+ * A dense binary encoding of a {@link ReplicationList} made of heartbeats only, the bulk of the replication traffic.
+ *
+ * <p>
+ * A heartbeat only carries the instance identity, its statuses and its last dirty timestamp. The frame holds a table
+ * of the distinct application names, instance ids and status names, so that each one is written once, followed by
+ * the heartbeats:
+ * <pre>
+ * frame     := MAGIC VERSION varint(stringCount) string* varint(heartbeatCount) heartbeat*
+ * string    := varint(byteCount) utf8Bytes
+ * heartbeat := varint(appNameIndex) varint(idIndex) flags [varint(statusIndex)] [varint(overriddenStatusIndex)]
+ *              [zigzagVarint(timestampDelta)]
+ * </pre>
+ * The flags tell which of the optional fields are present. Statuses are written by name, so that the frame does not
+ * depend on the order of the statuses known to each peer. Each last dirty timestamp is written as the difference with
+ * the previous one in the frame, as they are usually close to each other.
+ * </p>
+ *
+ * <p>
+ * Peers that do not know the frame reject it as an unsupported media type, and are sent the JSON encoding instead.
+ * </p>
+ */
+public final class HeartbeatFrame {
+
+    public static final String MEDIA_TYPE = "application/vnd.netflix.eureka.heartbeats";
+
+    private static final int MAGIC = 0xEB;
+    private static final int VERSION = 1;
+
+    private static final int HAS_STATUS = 1;
+    private static final int HAS_OVERRIDDEN_STATUS = 1 << 1;
+    private static final int HAS_LAST_DIRTY_TIMESTAMP = 1 << 2;
+
+    private HeartbeatFrame() {
+    }
+
+    /**
+     * @return true if the given list only holds heartbeats that can be encoded in a frame without loss
+     */
+    public static boolean isEncodable(ReplicationList replicationList) {
+        List<ReplicationInstance> instances = replicationList.getReplicationList();
+        if (instances == null || instances.isEmpty()) {
+            return false;
+        }
+        for (ReplicationInstance instance : instances) {
+            if (instance.getAction() != Action.Heartbeat
+                    || instance.getInstanceInfo() != null
+                    || instance.getAppName() == null
+                    || instance.getId() == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the list is not {@link #isEncodable(ReplicationList) encodable}
+     */
+    public static byte[] encode(ReplicationList replicationList) {
+        if (!isEncodable(replicationList)) {
+            throw new IllegalArgumentException("Only heartbeats without instance information can be encoded");
+        }
+        List<ReplicationInstance> instances = replicationList.getReplicationList();
+        Map<String, Integer> stringIndexes = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        for (ReplicationInstance instance : instances) {
+            addString(instance.getAppName(), stringIndexes, strings);
+            addString(instance.getId(), stringIndexes, strings);
+            addString(instance.getStatus(), stringIndexes, strings);
+            addString(instance.getOverriddenStatus(), stringIndexes, strings);
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 * instances.size() + 32 * strings.size());
+        out.write(MAGIC);
+        out.write(VERSION);
+        writeVarLong(out, strings.size());
+        for (String value : strings) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(out, bytes.length);
+            out.write(bytes, 0, bytes.length);
+        }
+        writeVarLong(out, instances.size());
+        long previousTimestamp = 0;
+        for (ReplicationInstance instance : instances) {
+            writeVarLong(out, stringIndexes.get(instance.getAppName()));
+            writeVarLong(out, stringIndexes.get(instance.getId()));
+            String status = instance.getStatus();
+            String overriddenStatus = instance.getOverriddenStatus();
+            Long lastDirtyTimestamp = instance.getLastDirtyTimestamp();
+            int flags = (status == null ? 0 : HAS_STATUS)
+                    | (overriddenStatus == null ? 0 : HAS_OVERRIDDEN_STATUS)
+                    | (lastDirtyTimestamp == null ? 0 : HAS_LAST_DIRTY_TIMESTAMP);
+            out.write(flags);
+            if (status != null) {
+                writeVarLong(out, stringIndexes.get(status));
+            }
+            if (overriddenStatus != null) {
+                writeVarLong(out, stringIndexes.get(overriddenStatus));
+            }
+            if (lastDirtyTimestamp != null) {
+                long delta = lastDirtyTimestamp - previousTimestamp;
+                writeVarLong(out, (delta << 1) ^ (delta >> 63));
+                previousTimestamp = lastDirtyTimestamp;
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * @throws IOException if the given bytes are not a valid frame
+     */
+    public static ReplicationList decode(byte[] frame) throws IOException {
+        Reader reader = new Reader(frame);
+        if (reader.readByte() != MAGIC) {
+            throw new IOException("Not a heartbeat frame");
+        }
+        int version = reader.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported heartbeat frame version " + version);
+        }
+        String[] strings = new String[reader.readCount()];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = reader.readString(reader.readCount());
+        }
+        int count = reader.readCount();
+        List<ReplicationInstance> instances = new ArrayList<>(count);
+        long previousTimestamp = 0;
+        for (int i = 0; i < count; i++) {
+            ReplicationInstance.ReplicationInstanceBuilder builder = ReplicationInstance.ReplicationInstanceBuilder
+                    .aReplicationInstance()
+                    .withAction(Action.Heartbeat)
+                    .withAppName(reader.readString(strings))
+                    .withId(reader.readString(strings));
+            int flags = reader.readByte();
+            if ((flags & HAS_STATUS) != 0) {
+                builder.withStatus(reader.readString(strings));
+            }
+            if ((flags & HAS_OVERRIDDEN_STATUS) != 0) {
+                builder.withOverriddenStatus(reader.readString(strings));
+            }
+            if ((flags & HAS_LAST_DIRTY_TIMESTAMP) != 0) {
+                long zigzag = reader.readVarLong();
+                previousTimestamp += (zigzag >>> 1) ^ -(zigzag & 1);
+                builder.withLastDirtyTimestamp(previousTimestamp);
+            }
+            instances.add(builder.build());
+        }
+        if (!reader.isAtEnd()) {
+            throw new IOException("Unexpected bytes after the heartbeat frame");
+        }
+        return new ReplicationList(instances);
+    }
+
+    private static void addString(String value, Map<String, Integer> stringIndexes, List<String> strings) {
+        if (value != null && !stringIndexes.containsKey(value)) {
+            stringIndexes.put(value, strings.size());
+            strings.add(value);
+        }
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static final class Reader {
+        private final byte[] bytes;
+        private int position;
+
+        Reader(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        boolean isAtEnd() {
+            return position == bytes.length;
+        }
+
+        int readByte() throws IOException {
+            if (position >= bytes.length) {
+                throw new IOException("Truncated heartbeat frame");
+            }
+            return bytes[position++] & 0xFF;
+        }
+
+        long readVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed variable length number in heartbeat frame");
+        }
+
+        /**
+         * Reads a count, which cannot exceed the number of bytes left as each counted item takes at least one byte.
+         */
+        int readCount() throws IOException {
+            long count = readVarLong();
+            if (count < 0 || count > bytes.length - position) {
+                throw new IOException("Invalid count in heartbeat frame: " + count);
+            }
+            return (int) count;
+        }
+
+        String readString(int length) {
+            String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        String readString(String[] strings) throws IOException {
+            long index = readVarLong();
+            if (index < 0 || index >= strings.length) {
+                throw new IOException("Invalid string index in heartbeat frame: " + index);
+            }
+            return strings[(int) index];
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.netflix.eureka.cluster.protocol;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.netflix.appinfo.InstanceInfo.InstanceStatus;
+
+/**
+ * The version of an instance a peer knows of, exchanged to find out which of the peers has the most recent one.
+ */
+public class InstanceDigest {
+
+    private final String id;
+    private final InstanceStatus status;
+    private final long lastDirtyTimestamp;
+
+    @JsonCreator
+    public InstanceDigest(
+            @JsonProperty("id") String id,
+            @JsonProperty("status") InstanceStatus status,
+            @JsonProperty("lastDirtyTimestamp") long lastDirtyTimestamp) {
+        this.id = id;
+        this.status = status;
+        this.lastDirtyTimestamp = lastDirtyTimestamp;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public InstanceStatus getStatus() {
+        return status;
+    }
+
+    public long getLastDirtyTimestamp() {
+        return lastDirtyTimestamp;
+    }
+
+    /**
+     * @return the hash of the instance, which changes whenever its status or last dirty timestamp changes
+     */
+    public long hash() {
+        return RegistryDigest.hashOf(id, status, lastDirtyTimestamp);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+
+        InstanceDigest that = (InstanceDigest) o;
+
+        if (lastDirtyTimestamp != that.lastDirtyTimestamp)
+            return false;
+        if (id != null ? !id.equals(that.id) : that.id != null)
+            return false;
+        return status == that.status;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = id != null ? id.hashCode() : 0;
+        result = 31 * result + (status != null ? status.hashCode() : 0);
+        result = 31 * result + (int) (lastDirtyTimestamp ^ (lastDirtyTimestamp >>> 32));
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "InstanceDigest{id=" + id + ", status=" + status + ", lastDirtyTimestamp=" + lastDirtyTimestamp + '}';
+    }
+}
@@ -0,0 +1,49 @@
+package com.netflix.eureka.cluster.protocol;
+
+import java.util.Collections;
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.netflix.discovery.provider.Serializer;
+
+/**
+ * The last renewal time of the leases renewed on a server, replicated to a peer in place of the individual
+ * heartbeats. A server collects the instances renewed since its previous lease vector and sends them periodically,
+ * each instance once however many times it was renewed. The peer renews these leases and answers with a lease vector
+ * of the instances it does not know of, for the server to register them again.
+ */
+@Serializer("jackson") // For backwards compatibility with DiscoveryJerseyProvider
+public class LeaseVector {
+
+    private final Map<String, Map<String, Long>> leases;
+
+    @JsonCreator
+    public LeaseVector(@JsonProperty("leases") Map<String, Map<String, Long>> leases) {
+        this.leases = leases == null ? Collections.<String, Map<String, Long>>emptyMap() : leases;
+    }
+
+    /**
+     * @return the last renewal time of each instance, by application name and instance id
+     */
+    public Map<String, Map<String, Long>> getLeases() {
+        return leases;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+
+        LeaseVector that = (LeaseVector) o;
+
+        return leases.equals(that.leases);
+    }
+
+    @Override
+    public int hashCode() {
+        return leases.hashCode();
+    }
+}
@@ -0,0 +1,105 @@
+package com.netflix.eureka.cluster.protocol;
+
+import java.util.Collections;
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * The replication state of a peer, telling how far behind the local registry the peer is.
+ */
+public class PeerReplicationStatus {
+
+    private final String serviceUrl;
+    private final long replicatedTasks;
+    private final long lastReplicationLagMs;
+    private final long oldestTaskAgeMs;
+    private final Map<String, Long> expiredTasks;
+    private final long sentBytes;
+
+    @JsonCreator
+    public PeerReplicationStatus(
+            @JsonProperty("serviceUrl") String serviceUrl,
+            @JsonProperty("replicatedTasks") long replicatedTasks,
+            @JsonProperty("lastReplicationLagMs") long lastReplicationLagMs,
+            @JsonProperty("oldestTaskAgeMs") long oldestTaskAgeMs,
+            @JsonProperty("expiredTasks") Map<String, Long> expiredTasks,
+            @JsonProperty("sentBytes") long sentBytes) {
+        this.serviceUrl = serviceUrl;
+        this.replicatedTasks = replicatedTasks;
+        this.lastReplicationLagMs = lastReplicationLagMs;
+        this.oldestTaskAgeMs = oldestTaskAgeMs;
+        this.expiredTasks = expiredTasks == null ? Collections.<String, Long>emptyMap() : expiredTasks;
+        this.sentBytes = sentBytes;
+    }
+
+    public String getServiceUrl() {
+        return serviceUrl;
+    }
+
+    /**
+     * @return the number of tasks the peer acknowledged
+     */
+    public long getReplicatedTasks() {
+        return replicatedTasks;
+    }
+
+    /**
+     * @return the time in ms from queueing to acknowledgement of the last task the peer acknowledged
+     */
+    public long getLastReplicationLagMs() {
+        return lastReplicationLagMs;
+    }
+
+    /**
+     * @return the time in ms the oldest task queued for the peer has been waiting for, or 0 if none is waiting
+     */
+    public long getOldestTaskAgeMs() {
+        return oldestTaskAgeMs;
+    }
+
+    /**
+     * @return the number of tasks which expired before they could be sent to the peer, by action
+     */
+    public Map<String, Long> getExpiredTasks() {
+        return expiredTasks;
+    }
+
+    public long getSentBytes() {
+        return sentBytes;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+
+        PeerReplicationStatus that = (PeerReplicationStatus) o;
+
+        if (replicatedTasks != that.replicatedTasks)
+            return false;
+        if (lastReplicationLagMs != that.lastReplicationLagMs)
+            return false;
+        if (oldestTaskAgeMs != that.oldestTaskAgeMs)
+            return false;
+        if (sentBytes != that.sentBytes)
+            return false;
+        if (serviceUrl != null ? !serviceUrl.equals(that.serviceUrl) : that.serviceUrl != null)
+            return false;
+        return expiredTasks.equals(that.expiredTasks);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = serviceUrl != null ? serviceUrl.hashCode() : 0;
+        result = 31 * result + (int) (replicatedTasks ^ (replicatedTasks >>> 32));
+        result = 31 * result + (int) (lastReplicationLagMs ^ (lastReplicationLagMs >>> 32));
+        result = 31 * result + (int) (oldestTaskAgeMs ^ (oldestTaskAgeMs >>> 32));
+        result = 31 * result + expiredTasks.hashCode();
+        result = 31 * result + (int) (sentBytes ^ (sentBytes >>> 32));
+        return result;
+    }
+}
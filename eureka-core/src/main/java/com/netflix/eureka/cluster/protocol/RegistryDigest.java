@@ -0,0 +1,101 @@
+package com.netflix.eureka.cluster.protocol;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.netflix.appinfo.InstanceInfo.InstanceStatus;
+import com.netflix.discovery.provider.Serializer;
+
+/**
+ * The digest of a registry, exchanged by the peers to find the instances they disagree on without transferring
+ * their registries.
+ *
+ * <p>
+ * The digest is a two level hash tree. Each instance is hashed from its id, status and last dirty timestamp, and each
+ * application is hashed as the sum of the hashes of its instances, which does not depend on the order the instances
+ * are visited in. A server sends the hash of each of its applications to a peer, which answers with the
+ * {@link InstanceDigest instance digests} of the applications whose hash differs from its own, the others being the
+ * same on both sides. An application the peer does not know of is answered with no instances.
+ * </p>
+ */
+@Serializer("jackson") // For backwards compatibility with DiscoveryJerseyProvider
+public class RegistryDigest {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * Answer of a registry that does not support registry digests, told apart from an empty digest by reference.
+     */
+    public static final RegistryDigest UNSUPPORTED = new RegistryDigest(null, null);
+
+    private final Map<String, Long> applicationHashes;
+    private final Map<String, List<InstanceDigest>> divergentApplications;
+
+    @JsonCreator
+    public RegistryDigest(
+            @JsonProperty("applicationHashes") Map<String, Long> applicationHashes,
+            @JsonProperty("divergentApplications") Map<String, List<InstanceDigest>> divergentApplications) {
+        this.applicationHashes = applicationHashes == null ? Collections.<String, Long>emptyMap() : applicationHashes;
+        this.divergentApplications = divergentApplications == null
+                ? Collections.<String, List<InstanceDigest>>emptyMap()
+                : divergentApplications;
+    }
+
+    /**
+     * @return the hash of each application, by application name
+     */
+    public Map<String, Long> getApplicationHashes() {
+        return applicationHashes;
+    }
+
+    /**
+     * @return the instance digests of the applications whose hash differs from the one of the peer, by application
+     *         name
+     */
+    public Map<String, List<InstanceDigest>> getDivergentApplications() {
+        return divergentApplications;
+    }
+
+    /**
+     * Hashes an instance to 64 bits, the same way on all the peers.
+     */
+    public static long hashOf(String id, InstanceStatus status, long lastDirtyTimestamp) {
+        long hash = FNV_OFFSET_BASIS;
+        if (id != null) {
+            for (int i = 0; i < id.length(); i++) {
+                hash = (hash ^ id.charAt(i)) * FNV_PRIME;
+            }
+        }
+        hash = (hash ^ (status == null ? -1 : status.name().hashCode())) * FNV_PRIME;
+        hash = (hash ^ lastDirtyTimestamp) * FNV_PRIME;
+        // Spreads the bits, so that the sums of the hashes of similar instances do not cancel out
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+
+        RegistryDigest that = (RegistryDigest) o;
+
+        return applicationHashes.equals(that.applicationHashes)
+                && divergentApplications.equals(that.divergentApplications);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * applicationHashes.hashCode() + divergentApplications.hashCode();
+    }
+}
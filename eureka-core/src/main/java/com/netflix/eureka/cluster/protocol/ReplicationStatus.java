@@ -0,0 +1,43 @@
+package com.netflix.eureka.cluster.protocol;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.netflix.discovery.provider.Serializer;
+
+/**
+ * The replication state of each peer of a server.
+ */
+@Serializer("jackson") // For backwards compatibility with DiscoveryJerseyProvider
+public class ReplicationStatus {
+
+    private final List<PeerReplicationStatus> peerStatuses;
+
+    @JsonCreator
+    public ReplicationStatus(@JsonProperty("peerStatuses") List<PeerReplicationStatus> peerStatuses) {
+        this.peerStatuses = peerStatuses == null ? Collections.<PeerReplicationStatus>emptyList() : peerStatuses;
+    }
+
+    public List<PeerReplicationStatus> getPeerStatuses() {
+        return peerStatuses;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+
+        ReplicationStatus that = (ReplicationStatus) o;
+
+        return peerStatuses.equals(that.peerStatuses);
+    }
+
+    @Override
+    public int hashCode() {
+        return peerStatuses.hashCode();
+    }
+}
@@ -54,6 +54,21 @@ public class Lease<T> {
 
     }
 
+    /**
+     * Restores a lease with the timestamps it had when it was saved.
+     *
+     * @see #getRegistrationTimestamp()
+     * @see #getLastRenewalTimestamp()
+     * @see #getServiceUpTimestamp()
+     */
+    public Lease(T r, long durationInMs, long registrationTimestamp, long lastUpdateTimestamp, long serviceUpTimestamp) {
+        holder = r;
+        this.registrationTimestamp = registrationTimestamp;
+        this.lastUpdateTimestamp = lastUpdateTimestamp;
+        this.serviceUpTimestamp = serviceUpTimestamp;
+        duration = durationInMs;
+    }
+
     /**
      * Renew the lease, use renewal duration if it was specified by the
      * associated {@link T} during registration, otherwise default duration is
@@ -130,6 +145,25 @@ public class Lease<T> {
         return lastUpdateTimestamp;
     }
 
+    /**
+     * Gets the milliseconds since epoch after which the lease is expired, unless it is renewed or cancelled before.
+     * This is {@link #isExpired()} as a point in time.
+     *
+     * @return the milliseconds since epoch after which the lease is expired.
+     */
+    public long getExpirationTimestamp() {
+        return lastUpdateTimestamp + duration;
+    }
+
+    /**
+     * Gets the duration of the lease in milliseconds.
+     *
+     * @return the duration of the lease in milliseconds.
+     */
+    public long getDuration() {
+        return duration;
+    }
+
     /**
      * Gets the milliseconds since epoch when the lease was evicted.
      *
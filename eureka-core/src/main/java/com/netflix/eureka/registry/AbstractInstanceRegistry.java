@@ -17,14 +17,21 @@
 package com.netflix.eureka.registry;
 
 import javax.annotation.Nullable;
+import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.AbstractQueue;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Random;
@@ -33,13 +40,16 @@ import java.util.Timer;
 import java.util.TimerTask;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
 
 import com.google.common.cache.CacheBuilder;
 import com.netflix.appinfo.InstanceInfo;
@@ -51,6 +61,8 @@ import com.netflix.discovery.shared.Application;
 import com.netflix.discovery.shared.Applications;
 import com.netflix.discovery.shared.Pair;
 import com.netflix.eureka.EurekaServerConfig;
+import com.netflix.eureka.cluster.protocol.InstanceDigest;
+import com.netflix.eureka.cluster.protocol.RegistryDigest;
 import com.netflix.eureka.lease.Lease;
 import com.netflix.eureka.registry.rule.InstanceStatusOverrideRule;
 import com.netflix.eureka.resources.ServerCodecs;
@@ -75,6 +87,9 @@ import static com.netflix.eureka.util.EurekaMonitors.*;
  */
 public abstract class AbstractInstanceRegistry implements InstanceRegistry {
     private static final Logger logger = LoggerFactory.getLogger(AbstractInstanceRegistry.class);
+    private static final int OPTIMISTIC_DELTA_READ_ATTEMPTS = 3;
+    private static final long LEASE_EXPIRATION_TICK_MS = 1000;
+    private static final int LEASE_EXPIRATION_WHEEL_SIZE = 512;
 
     private static final String[] EMPTY_STR_ARRAY = new String[0];
     private final ConcurrentHashMap<String, Map<String, Lease<InstanceInfo>>> registry
@@ -88,19 +103,36 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
     // CircularQueues here for debugging/statistics purposes only
     private final CircularQueue<Pair<Long, String>> recentRegisteredQueue;
     private final CircularQueue<Pair<Long, String>> recentCanceledQueue;
-    private ConcurrentLinkedQueue<RecentlyChangedItem> recentlyChangedQueue = new ConcurrentLinkedQueue<>();
 
     private final ReentrantReadWriteLock readWriteLock = new ReentrantReadWriteLock();
     private final Lock read = readWriteLock.readLock();
     private final Lock write = readWriteLock.writeLock();
+    // The registry updates started and completed, so that the delta can be read without blocking them (see readChanges)
+    private final AtomicLong updatesStarted = new AtomicLong();
+    private final AtomicLong updatesCompleted = new AtomicLong();
     protected final Object lock = new Object();
 
-    private Timer deltaRetentionTimer = new Timer("Eureka-DeltaRetentionTimer", true);
     private Timer evictionTimer = new Timer("Eureka-EvictionTimer", true);
+    private volatile Timer snapshotTimer;
     private final MeasuredRate renewsLastMin;
 
     private final AtomicReference<EvictionTask> evictionTaskRef = new AtomicReference<>();
 
+    // Bumped on every registry change; a new snapshot is built lazily for each new version. It starts from a time
+    // based value, so that the versions of two servers are far apart and never mistaken for one another.
+    private final AtomicLong registryVersion = new AtomicLong(System.currentTimeMillis() << 20);
+    // The changes served as deltas, by registry version
+    private final RegistryChangeLog changeLog;
+    // The registered leases by expiration time, so that eviction does not need to scan the whole registry
+    private final LeaseExpirationWheel leaseExpirationWheel =
+            new LeaseExpirationWheel(LEASE_EXPIRATION_TICK_MS, LEASE_EXPIRATION_WHEEL_SIZE);
+    private final AtomicReference<RegistrySnapshot> registrySnapshotRef = new AtomicReference<>();
+    // Applications modified since the last snapshot was built; all the others are carried over to the next one
+    private final Set<String> changedAppNames = ConcurrentHashMap.newKeySet();
+    // Requests parked until the registry version changes, see awaitRegistryChange
+    private final Object registryChangeMonitor = new Object();
+    private final AtomicInteger registryChangeWaiters = new AtomicInteger();
+
     protected String[] allKnownRemoteRegions = EMPTY_STR_ARRAY;
     protected volatile int numberOfRenewsPerMinThreshold;
     protected volatile int expectedNumberOfClientsSendingRenews;
@@ -122,9 +154,7 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
 
         this.renewsLastMin = new MeasuredRate(1000 * 60 * 1);
 
-        this.deltaRetentionTimer.schedule(getDeltaRetentionTask(),
-                serverConfig.getDeltaRetentionTimerIntervalInMs(),
-                serverConfig.getDeltaRetentionTimerIntervalInMs());
+        this.changeLog = new RegistryChangeLog(serverConfig.getDeltaChangeLogCapacity(), registryVersion.get());
     }
 
     @Override
@@ -167,6 +197,92 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
         return total;
     }
 
+    /**
+     * Gets the digest of the local registry, holding the hash of each application, see {@link RegistryDigest}.
+     */
+    public RegistryDigest getRegistryDigest() {
+        Map<String, Long> applicationHashes = new HashMap<>();
+        for (Entry<String, Map<String, Lease<InstanceInfo>>> entry : registry.entrySet()) {
+            if (entry.getValue().isEmpty()) {
+                continue;
+            }
+            long hash = 0;
+            for (Lease<InstanceInfo> lease : entry.getValue().values()) {
+                hash += digestOf(lease.getHolder()).hash();
+            }
+            applicationHashes.put(entry.getKey(), hash);
+        }
+        return new RegistryDigest(applicationHashes, null);
+    }
+
+    /**
+     * Compares the digest of the registry of a peer with the local registry.
+     *
+     * @return the instance digests of the local applications whose hash differs from the one of the peer
+     */
+    public RegistryDigest compareRegistryDigest(RegistryDigest peerDigest) {
+        Map<String, List<InstanceDigest>> divergentApplications = new HashMap<>();
+        for (Entry<String, Long> entry : peerDigest.getApplicationHashes().entrySet()) {
+            Map<String, Lease<InstanceInfo>> leaseMap = registry.get(entry.getKey());
+            List<InstanceDigest> instances = new ArrayList<>();
+            long hash = 0;
+            if (leaseMap != null) {
+                for (Lease<InstanceInfo> lease : leaseMap.values()) {
+                    InstanceDigest instance = digestOf(lease.getHolder());
+                    instances.add(instance);
+                    hash += instance.hash();
+                }
+            }
+            if (instances.isEmpty() || hash != entry.getValue()) {
+                divergentApplications.put(entry.getKey(), instances);
+            }
+        }
+        return new RegistryDigest(null, divergentApplications);
+    }
+
+    /**
+     * Gets the local instances of the divergent applications of a peer digest that the peer does not know of, or
+     * knows an older version of. The peer is expected to do the same on its side, so the instances it has a more
+     * recent version of are left to it.
+     *
+     * <p>
+     * An instance the peer does not know of is only returned if its lease was renewed since it was registered, as
+     * the instance could have been cancelled on the peer without the cancellation reaching this server. Its lease
+     * would then no longer be renewed, and registering it again on the peer would keep it alive there until it
+     * expires, if not longer by being sent back here.
+     * </p>
+     *
+     * @param peerDigest the answer of the peer to {@link #compareRegistryDigest(RegistryDigest)}
+     */
+    public List<InstanceInfo> getInstancesNewerThan(RegistryDigest peerDigest) {
+        List<InstanceInfo> instances = new ArrayList<>();
+        for (Entry<String, List<InstanceDigest>> entry : peerDigest.getDivergentApplications().entrySet()) {
+            Map<String, Lease<InstanceInfo>> leaseMap = registry.get(entry.getKey());
+            if (leaseMap == null) {
+                continue;
+            }
+            Map<String, InstanceDigest> peerInstances = new HashMap<>();
+            for (InstanceDigest peerInstance : entry.getValue()) {
+                peerInstances.put(peerInstance.getId(), peerInstance);
+            }
+            for (Lease<InstanceInfo> lease : leaseMap.values()) {
+                InstanceInfo info = lease.getHolder();
+                InstanceDigest peerInstance = peerInstances.get(info.getId());
+                if (peerInstance == null
+                        ? lease.getLastRenewalTimestamp() != lease.getRegistrationTimestamp() && !lease.isExpired()
+                        : peerInstance.getLastDirtyTimestamp() < digestOf(info).getLastDirtyTimestamp()) {
+                    instances.add(info);
+                }
+            }
+        }
+        return instances;
+    }
+
+    private static InstanceDigest digestOf(InstanceInfo info) {
+        Long lastDirtyTimestamp = info.getLastDirtyTimestamp();
+        return new InstanceDigest(info.getId(), info.getStatus(), lastDirtyTimestamp == null ? 0 : lastDirtyTimestamp);
+    }
+
     /**
      * Completely clear the registry.
      */
@@ -175,8 +291,10 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
         overriddenInstanceStatusMap.clear();
         recentCanceledQueue.clear();
         recentRegisteredQueue.clear();
-        recentlyChangedQueue.clear();
         registry.clear();
+        leaseExpirationWheel.clear();
+        changeLog.truncate(registryVersion.incrementAndGet());
+        signalRegistryChange();
     }
 
     // for server info use
@@ -185,13 +303,197 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
         return new HashMap<>(overriddenInstanceStatusMap);
     }
 
+    /**
+     * Saves the local registry to the {@link EurekaServerConfig#getRegistrySnapshotFile() snapshot file}, if one is
+     * configured.
+     */
+    protected synchronized void saveRegistrySnapshot() {
+        String file = serverConfig.getRegistrySnapshotFile();
+        if (file == null || file.isEmpty()) {
+            return;
+        }
+        // Read before the leases, so that the changes made while they are copied are not claimed by the snapshot
+        long version = registryVersion.get();
+        List<Lease<InstanceInfo>> leases = new ArrayList<>();
+        for (Map<String, Lease<InstanceInfo>> leaseMap : registry.values()) {
+            leases.addAll(leaseMap.values());
+        }
+        try {
+            RegistrySnapshotFile.write(Paths.get(file), version, leases,
+                    new HashMap<>(overriddenInstanceStatusMap), serverCodecs.getFullJsonCodec());
+            logger.debug("Saved {} instances to the registry snapshot {}", leases.size(), file);
+        } catch (Exception e) {
+            logger.warn("Cannot save the registry snapshot {}", file, e);
+        }
+    }
+
+    /**
+     * Restores the registry saved to the {@link EurekaServerConfig#getRegistrySnapshotFile() snapshot file}, if it
+     * is recent enough. The leases keep the timestamps they were saved with, so that the instances that stopped
+     * renewing while the server was down still expire on time. The instances already registered and the leases that
+     * expired since the snapshot was taken are skipped.
+     *
+     * @return the number of restored instances
+     */
+    protected int restoreRegistrySnapshot() {
+        String file = serverConfig.getRegistrySnapshotFile();
+        if (file == null || file.isEmpty() || !Files.exists(Paths.get(file))) {
+            return 0;
+        }
+        RegistrySnapshotFile snapshot;
+        try {
+            snapshot = RegistrySnapshotFile.read(Paths.get(file), serverCodecs.getFullJsonCodec());
+        } catch (IOException e) {
+            logger.warn("Cannot read the registry snapshot {}", file, e);
+            return 0;
+        }
+        long age = System.currentTimeMillis() - snapshot.getCreatedAt();
+        if (age > serverConfig.getRegistrySnapshotMaxAgeMs()) {
+            logger.info("Ignoring the registry snapshot {} taken {} ms ago", file, age);
+            return 0;
+        }
+
+        // Carries on from the position of the saved registry, so that the restored changes come after it
+        registryVersion.accumulateAndGet(snapshot.getRegistryVersion(), Math::max);
+        for (Entry<String, InstanceStatus> entry : snapshot.getOverriddenStatuses().entrySet()) {
+            overriddenInstanceStatusMap.putIfAbsent(entry.getKey(), entry.getValue());
+        }
+        int count = 0;
+        Map<String, Set<List<String>>> vipAddressesByApp = new HashMap<>();
+        beginUpdate();
+        try {
+            for (Lease<InstanceInfo> lease : snapshot.getLeases()) {
+                InstanceInfo info = lease.getHolder();
+                if (lease.isExpired()) {
+                    continue;
+                }
+                Map<String, Lease<InstanceInfo>> gMap = registry.get(info.getAppName());
+                if (gMap == null) {
+                    final ConcurrentHashMap<String, Lease<InstanceInfo>> gNewMap = new ConcurrentHashMap<String, Lease<InstanceInfo>>();
+                    gMap = registry.putIfAbsent(info.getAppName(), gNewMap);
+                    if (gMap == null) {
+                        gMap = gNewMap;
+                    }
+                }
+                if (gMap.putIfAbsent(info.getId(), lease) != null) {
+                    continue;
+                }
+                leaseExpirationWheel.schedule(lease);
+                InstanceStatus overriddenStatus = overriddenInstanceStatusMap.get(info.getId());
+                if (overriddenStatus != null) {
+                    info.setOverriddenStatus(overriddenStatus);
+                }
+                changeLog.append(markRegistryChanged(info.getAppName()), lease);
+                vipAddressesByApp.computeIfAbsent(info.getAppName(), appName -> new HashSet<>())
+                        .add(Arrays.asList(info.getVIPAddress(), info.getSecureVipAddress()));
+                count++;
+            }
+        } finally {
+            endUpdate();
+        }
+        for (Entry<String, Set<List<String>>> entry : vipAddressesByApp.entrySet()) {
+            for (List<String> vipAddress : entry.getValue()) {
+                responseCache.invalidate(entry.getKey(), vipAddress.get(0), vipAddress.get(1));
+            }
+        }
+        signalRegistryChange();
+        logger.info("Restored {} of the {} instances of the registry snapshot {} taken {} ms ago",
+                count, snapshot.getLeases().size(), file, age);
+        return count;
+    }
+
     /**
      * Registers a new instance with a given duration.
      *
      * @see com.netflix.eureka.lease.LeaseManager#register(java.lang.Object, int, boolean)
      */
     public void register(InstanceInfo registrant, int leaseDuration, boolean isReplication) {
-        read.lock();
+        register(registrant, leaseDuration, isReplication, false);
+    }
+
+    /**
+     * Registers the given instances, which are usually a copy of the registry of another server, in parallel. Unlike
+     * with {@link #register(InstanceInfo, int, boolean)}, the cached responses are invalidated once per application
+     * when all the instances are registered, rather than once per instance.
+     *
+     * @param parallelism the number of partitions of the applications registered in parallel, one on the calling thread
+     *                    and the others on the common fork join pool, or one or less to register them all on the
+     *                    calling thread
+     * @return the number of registered instances
+     */
+    protected int registerAll(Collection<InstanceInfo> registrants, boolean isReplication, int parallelism) {
+        Map<String, List<InstanceInfo>> registrantsByApp = new HashMap<>();
+        for (InstanceInfo registrant : registrants) {
+            registrantsByApp.computeIfAbsent(registrant.getAppName(), appName -> new ArrayList<>()).add(registrant);
+        }
+        List<List<InstanceInfo>> apps = new ArrayList<>(registrantsByApp.values());
+        int partitionCount = Math.max(1, Math.min(parallelism, apps.size()));
+
+        List<List<List<InstanceInfo>>> partitions = new ArrayList<>(partitionCount);
+        for (int i = 0; i < partitionCount; i++) {
+            final List<List<InstanceInfo>> partition = new ArrayList<>();
+            for (int j = i; j < apps.size(); j += partitionCount) {
+                partition.add(apps.get(j));
+            }
+            partitions.add(partition);
+        }
+
+        int count = 0;
+        try {
+            // The first partition is registered on the calling thread, the others on the common pool
+            List<ForkJoinTask<Integer>> partitionTasks = new ArrayList<>(partitionCount - 1);
+            for (int i = 1; i < partitionCount; i++) {
+                final List<List<InstanceInfo>> partition = partitions.get(i);
+                partitionTasks.add(ForkJoinPool.commonPool().submit(() -> registerApps(partition, isReplication)));
+            }
+            count = registerApps(partitions.get(0), isReplication);
+            for (ForkJoinTask<Integer> partitionTask : partitionTasks) {
+                count += partitionTask.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Interrupted during the bulk registration of {} instances", registrants.size());
+        } catch (Exception e) {
+            logger.error("Bulk registration failed", e);
+        } finally {
+            signalRegistryChange();
+        }
+        return count;
+    }
+
+    private int registerApps(List<List<InstanceInfo>> apps, boolean isReplication) {
+        int count = 0;
+        for (List<InstanceInfo> app : apps) {
+            // Pairs of the virtual and secure virtual addresses of the application instances
+            Set<List<String>> vipAddresses = new HashSet<>();
+            for (InstanceInfo registrant : app) {
+                try {
+                    int leaseDuration = Lease.DEFAULT_DURATION_IN_SECS;
+                    if (registrant.getLeaseInfo() != null && registrant.getLeaseInfo().getDurationInSecs() > 0) {
+                        leaseDuration = registrant.getLeaseInfo().getDurationInSecs();
+                    }
+                    vipAddresses.add(Arrays.asList(registrant.getVIPAddress(), registrant.getSecureVipAddress()));
+                    InstanceInfo registered = register(registrant, leaseDuration, isReplication, true);
+                    vipAddresses.add(Arrays.asList(registered.getVIPAddress(), registered.getSecureVipAddress()));
+                    count++;
+                } catch (Throwable t) {
+                    logger.error("Cannot register instance {}/{}", registrant.getAppName(), registrant.getId(), t);
+                }
+            }
+            String appName = app.get(0).getAppName();
+            for (List<String> vipAddress : vipAddresses) {
+                responseCache.invalidate(appName, vipAddress.get(0), vipAddress.get(1));
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @param bulkLoad if true, the registry change is recorded but the cached responses are not invalidated
+     * @return the registered instance, which is the existing one if it is more recent than the given one
+     */
+    private InstanceInfo register(InstanceInfo registrant, int leaseDuration, boolean isReplication, boolean bulkLoad) {
+        beginUpdate();
         try {
             Map<String, Lease<InstanceInfo>> gMap = registry.get(registrant.getAppName());
             REGISTER.increment(isReplication);
@@ -233,6 +535,7 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
                 lease.setServiceUpTimestamp(existingLease.getServiceUpTimestamp());
             }
             gMap.put(registrant.getId(), lease);
+            leaseExpirationWheel.schedule(lease);
             recentRegisteredQueue.add(new Pair<Long, String>(
                     System.currentTimeMillis(),
                     registrant.getAppName() + "(" + registrant.getId() + ")"));
@@ -260,13 +563,19 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
                 lease.serviceUp();
             }
             registrant.setActionType(ActionType.ADDED);
-            recentlyChangedQueue.add(new RecentlyChangedItem(lease));
             registrant.setLastUpdatedTimestamp();
-            invalidateCache(registrant.getAppName(), registrant.getVIPAddress(), registrant.getSecureVipAddress());
-            logger.info("Registered instance {}/{} with status {} (replication={})",
-                    registrant.getAppName(), registrant.getId(), registrant.getStatus(), isReplication);
+            if (bulkLoad) {
+                changeLog.append(markRegistryChanged(registrant.getAppName()), lease);
+                logger.debug("Registered instance {}/{} with status {} (replication={})",
+                        registrant.getAppName(), registrant.getId(), registrant.getStatus(), isReplication);
+            } else {
+                invalidateCache(registrant.getAppName(), registrant.getVIPAddress(), registrant.getSecureVipAddress(), lease);
+                logger.info("Registered instance {}/{} with status {} (replication={})",
+                        registrant.getAppName(), registrant.getId(), registrant.getStatus(), isReplication);
+            }
+            return registrant;
         } finally {
-            read.unlock();
+            endUpdate();
         }
     }
 
@@ -295,7 +604,7 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
      * in the remote peers as valid cancellations, so self preservation mode would not kick-in.
      */
     protected boolean internalCancel(String appName, String id, boolean isReplication) {
-        read.lock();
+        beginUpdate();
         try {
             CANCEL.increment(isReplication);
             Map<String, Lease<InstanceInfo>> gMap = registry.get(appName);
@@ -319,16 +628,15 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
                 String svip = null;
                 if (instanceInfo != null) {
                     instanceInfo.setActionType(ActionType.DELETED);
-                    recentlyChangedQueue.add(new RecentlyChangedItem(leaseToCancel));
                     instanceInfo.setLastUpdatedTimestamp();
                     vip = instanceInfo.getVIPAddress();
                     svip = instanceInfo.getSecureVipAddress();
                 }
-                invalidateCache(appName, vip, svip);
+                invalidateCache(appName, vip, svip, instanceInfo == null ? null : leaseToCancel);
                 logger.info("Cancelled instance {}/{} (replication={})", appName, id, isReplication);
             }
         } finally {
-            read.unlock();
+            endUpdate();
         }
 
         synchronized (lock) {
@@ -361,7 +669,7 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
             return false;
         } else {
             InstanceInfo instanceInfo = leaseToRenew.getHolder();
-            if (instanceInfo != null) {
+            if (instanceInfo != null && !isStatusUnchangedOnRenewal(instanceInfo)) {
                 // touchASGCache(instanceInfo.getASGName());
                 InstanceStatus overriddenInstanceStatus = this.getOverriddenInstanceStatus(
                         instanceInfo, leaseToRenew, isReplication);
@@ -378,7 +686,8 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
                                     overriddenInstanceStatus.name(),
                                     instanceInfo.getId());
                     instanceInfo.setStatusWithoutDirty(overriddenInstanceStatus);
-
+                    markRegistryChanged(appName);
+                    signalRegistryChange();
                 }
             }
             renewsLastMin.increment();
@@ -411,7 +720,10 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
             overriddenInstanceStatusMap.put(id, overriddenStatus);
             List<InstanceInfo> instanceInfo = this.getInstancesById(id, false);
             if ((instanceInfo != null) && (!instanceInfo.isEmpty())) {
-                instanceInfo.iterator().next().setOverriddenStatus(overriddenStatus);
+                InstanceInfo info = instanceInfo.iterator().next();
+                info.setOverriddenStatus(overriddenStatus);
+                markRegistryChanged(info.getAppName());
+                signalRegistryChange();
                 logger.info(
                         "Setting the overridden status for instance id {} and the value is {} ",
                         id, overriddenStatus.name());
@@ -440,6 +752,8 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
             overriddenInstanceStatusMap.put(id, overriddenStatus);
             InstanceInfo instanceInfo = this.getInstanceByAppAndId(appName, id, false);
             instanceInfo.setOverriddenStatus(overriddenStatus);
+            markRegistryChanged(appName);
+            signalRegistryChange();
             logger.info("Set the overridden status for instance (appname:{}, id:{}} and the value is {} ",
                     appName, id, overriddenStatus.name());
         }
@@ -462,7 +776,7 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
     public boolean statusUpdate(String appName, String id,
                                 InstanceStatus newStatus, String lastDirtyTimestamp,
                                 boolean isReplication) {
-        read.lock();
+        beginUpdate();
         try {
             STATUS_UPDATE.increment(isReplication);
             Map<String, Lease<InstanceInfo>> gMap = registry.get(appName);
@@ -501,14 +815,13 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
                         info.setLastDirtyTimestamp(replicaDirtyTimestamp);
                     }
                     info.setActionType(ActionType.MODIFIED);
-                    recentlyChangedQueue.add(new RecentlyChangedItem(lease));
                     info.setLastUpdatedTimestamp();
-                    invalidateCache(appName, info.getVIPAddress(), info.getSecureVipAddress());
+                    invalidateCache(appName, info.getVIPAddress(), info.getSecureVipAddress(), lease);
                 }
                 return true;
             }
         } finally {
-            read.unlock();
+            endUpdate();
         }
     }
 
@@ -528,7 +841,7 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
                                         InstanceStatus newStatus,
                                         String lastDirtyTimestamp,
                                         boolean isReplication) {
-        read.lock();
+        beginUpdate();
         try {
             STATUS_OVERRIDE_DELETE.increment(isReplication);
             Map<String, Lease<InstanceInfo>> gMap = registry.get(appName);
@@ -562,14 +875,13 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
                         info.setLastDirtyTimestamp(replicaDirtyTimestamp);
                     }
                     info.setActionType(ActionType.MODIFIED);
-                    recentlyChangedQueue.add(new RecentlyChangedItem(lease));
                     info.setLastUpdatedTimestamp();
-                    invalidateCache(appName, info.getVIPAddress(), info.getSecureVipAddress());
+                    invalidateCache(appName, info.getVIPAddress(), info.getSecureVipAddress(), lease);
                 }
                 return true;
             }
         } finally {
-            read.unlock();
+            endUpdate();
         }
     }
 
@@ -594,18 +906,8 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
         // We collect first all expired items, to evict them in random order. For large eviction sets,
         // if we do not that, we might wipe out whole apps before self preservation kicks in. By randomizing it,
         // the impact should be evenly distributed across all applications.
-        List<Lease<InstanceInfo>> expiredLeases = new ArrayList<>();
-        for (Entry<String, Map<String, Lease<InstanceInfo>>> groupEntry : registry.entrySet()) {
-            Map<String, Lease<InstanceInfo>> leaseMap = groupEntry.getValue();
-            if (leaseMap != null) {
-                for (Entry<String, Lease<InstanceInfo>> leaseEntry : leaseMap.entrySet()) {
-                    Lease<InstanceInfo> lease = leaseEntry.getValue();
-                    if (lease.isExpired(additionalLeaseMs) && lease.getHolder() != null) {
-                        expiredLeases.add(lease);
-                    }
-                }
-            }
-        }
+        List<Lease<InstanceInfo>> expiredLeases = leaseExpirationWheel.advance(
+                System.currentTimeMillis(), additionalLeaseMs, this::isRegisteredLease);
 
         // To compensate for GC pauses or drifting local time, we need to use current registry size as a base for
         // triggering self-preservation. Without that we would wipe out full registry.
@@ -631,6 +933,15 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
                 internalCancel(appName, id, false);
             }
         }
+        // The leases left over by self preservation are checked again on the next run
+        for (int i = Math.max(toEvict, 0); i < expiredLeases.size(); i++) {
+            leaseExpirationWheel.schedule(expiredLeases.get(i));
+        }
+    }
+
+    private boolean isRegisteredLease(Lease<InstanceInfo> lease) {
+        Map<String, Lease<InstanceInfo>> gMap = registry.get(lease.getHolder().getAppName());
+        return gMap != null && gMap.get(lease.getHolder().getId()) == lease;
     }
 
 
@@ -690,11 +1001,20 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
      * @see com.netflix.discovery.shared.LookupService#getApplications()
      */
     public Applications getApplications() {
+        return copyOf(getSharedApplications());
+    }
+
+    /**
+     * Same as {@link #getApplications()}, without copying the applications shared with the registry snapshot, which
+     * must not be modified.
+     */
+    Applications getSharedApplications() {
         boolean disableTransparentFallback = serverConfig.disableTransparentFallbackToOtherRegion();
         if (disableTransparentFallback) {
-            return getApplicationsFromLocalRegionOnly();
+            return getSharedApplicationsFromMultipleRegions(EMPTY_STR_ARRAY);
         } else {
-            return getApplicationsFromAllRemoteRegions();  // Behavior of falling back to remote region can be disabled.
+            // Behavior of falling back to remote region can be disabled.
+            return getSharedApplicationsFromMultipleRegions(allKnownRemoteRegions);
         }
     }
 
@@ -733,6 +1053,14 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
      * from remote regions can be only for certain whitelisted apps as explained above.
      */
     public Applications getApplicationsFromMultipleRegions(String[] remoteRegions) {
+        return copyOf(getSharedApplicationsFromMultipleRegions(remoteRegions));
+    }
+
+    /**
+     * Same as {@link #getApplicationsFromMultipleRegions(String[])}, without copying the applications shared with
+     * the registry snapshot, which must not be modified. Used by the response cache, which only encodes them.
+     */
+    Applications getSharedApplicationsFromMultipleRegions(String[] remoteRegions) {
 
         boolean includeRemoteRegion = null != remoteRegions && remoteRegions.length != 0;
 
@@ -744,57 +1072,81 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
         } else {
             GET_ALL_CACHE_MISS.increment();
         }
-        Applications apps = new Applications();
-        apps.setVersion(1L);
-        for (Entry<String, Map<String, Lease<InstanceInfo>>> entry : registry.entrySet()) {
-            Application app = null;
+        Applications localApps = getRegistrySnapshot().getApplications();
+        if (!includeRemoteRegion) {
+            return localApps;
+        }
 
-            if (entry.getValue() != null) {
-                for (Entry<String, Lease<InstanceInfo>> stringLeaseEntry : entry.getValue().entrySet()) {
-                    Lease<InstanceInfo> lease = stringLeaseEntry.getValue();
-                    if (app == null) {
-                        app = new Application(lease.getHolder().getAppName());
+        // Collect the remote applications first, so that only the local applications that get merged with remote
+        // instances are copied; all the others are shared with the registry snapshot.
+        List<Application> remoteApplications = new ArrayList<>();
+        Set<String> remoteAppNames = new HashSet<>();
+        for (String remoteRegion : remoteRegions) {
+            RemoteRegionRegistry remoteRegistry = regionNameVSRemoteRegistry.get(remoteRegion);
+            if (null != remoteRegistry) {
+                Applications remoteApps = remoteRegistry.getApplications();
+                for (Application application : remoteApps.getRegisteredApplications()) {
+                    if (shouldFetchFromRemoteRegistry(application.getName(), remoteRegion)) {
+                        logger.info("Application {}  fetched from the remote region {}",
+                                application.getName(), remoteRegion);
+                        remoteApplications.add(application);
+                        remoteAppNames.add(application.getName().toUpperCase(Locale.ROOT));
+                    } else {
+                        logger.debug("Application {} not fetched from the remote region {} as there exists a "
+                                        + "whitelist and this app is not in the whitelist.",
+                                application.getName(), remoteRegion);
                     }
-                    app.addInstance(decorateInstanceInfo(lease));
                 }
+            } else {
+                logger.warn("No remote registry available for the remote region {}", remoteRegion);
             }
-            if (app != null) {
+        }
+
+        Applications apps = new Applications();
+        apps.setVersion(1L);
+        for (Application app : localApps.getRegisteredApplications()) {
+            if (remoteAppNames.contains(app.getName().toUpperCase(Locale.ROOT))) {
+                Application copy = new Application(app.getName());
+                for (InstanceInfo instanceInfo : app.getInstancesAsIsFromEureka()) {
+                    copy.addInstance(instanceInfo);
+                }
+                apps.addApplication(copy);
+            } else {
                 apps.addApplication(app);
             }
         }
-        if (includeRemoteRegion) {
-            for (String remoteRegion : remoteRegions) {
-                RemoteRegionRegistry remoteRegistry = regionNameVSRemoteRegistry.get(remoteRegion);
-                if (null != remoteRegistry) {
-                    Applications remoteApps = remoteRegistry.getApplications();
-                    for (Application application : remoteApps.getRegisteredApplications()) {
-                        if (shouldFetchFromRemoteRegistry(application.getName(), remoteRegion)) {
-                            logger.info("Application {}  fetched from the remote region {}",
-                                    application.getName(), remoteRegion);
-
-                            Application appInstanceTillNow = apps.getRegisteredApplications(application.getName());
-                            if (appInstanceTillNow == null) {
-                                appInstanceTillNow = new Application(application.getName());
-                                apps.addApplication(appInstanceTillNow);
-                            }
-                            for (InstanceInfo instanceInfo : application.getInstances()) {
-                                appInstanceTillNow.addInstance(instanceInfo);
-                            }
-                        } else {
-                            logger.debug("Application {} not fetched from the remote region {} as there exists a "
-                                            + "whitelist and this app is not in the whitelist.",
-                                    application.getName(), remoteRegion);
-                        }
-                    }
-                } else {
-                    logger.warn("No remote registry available for the remote region {}", remoteRegion);
-                }
+        for (Application application : remoteApplications) {
+            Application appInstanceTillNow = apps.getRegisteredApplications(application.getName());
+            if (appInstanceTillNow == null) {
+                appInstanceTillNow = new Application(application.getName());
+                apps.addApplication(appInstanceTillNow);
+            }
+            for (InstanceInfo instanceInfo : application.getInstances()) {
+                appInstanceTillNow.addInstance(instanceInfo);
             }
         }
         apps.setAppsHashCode(apps.getReconcileHashCode());
         return apps;
     }
 
+    /**
+     * Copies the structure of shared applications, so that the caller can modify it. The instances themselves are
+     * the lease holders, as they always were.
+     */
+    private static Applications copyOf(Applications shared) {
+        Applications apps = new Applications();
+        apps.setVersion(shared.getVersion());
+        for (Application app : shared.getRegisteredApplications()) {
+            Application copy = new Application(app.getName());
+            for (InstanceInfo instanceInfo : app.getInstancesAsIsFromEureka()) {
+                copy.addInstance(instanceInfo);
+            }
+            apps.addApplication(copy);
+        }
+        apps.setAppsHashCode(shared.getAppsHashCode());
+        return apps;
+    }
+
     private boolean shouldFetchFromRemoteRegistry(String appName, String remoteRegion) {
         Set<String> whiteList = serverConfig.getRemoteRegionAppWhitelist(remoteRegion);
         if (null == whiteList) {
@@ -817,38 +1169,29 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
      */
     @Deprecated
     public Applications getApplications(boolean includeRemoteRegion) {
+        return copyOf(getSharedApplications(includeRemoteRegion));
+    }
+
+    private Applications getSharedApplications(boolean includeRemoteRegion) {
         GET_ALL_CACHE_MISS.increment();
+        Applications localApps = getRegistrySnapshot().getApplications();
+        if (!includeRemoteRegion) {
+            return localApps;
+        }
+
         Applications apps = new Applications();
         apps.setVersion(1L);
-        for (Entry<String, Map<String, Lease<InstanceInfo>>> entry : registry.entrySet()) {
-            Application app = null;
-
-            if (entry.getValue() != null) {
-                for (Entry<String, Lease<InstanceInfo>> stringLeaseEntry : entry.getValue().entrySet()) {
-
-                    Lease<InstanceInfo> lease = stringLeaseEntry.getValue();
-
-                    if (app == null) {
-                        app = new Application(lease.getHolder().getAppName());
-                    }
-
-                    app.addInstance(decorateInstanceInfo(lease));
-                }
-            }
-            if (app != null) {
-                apps.addApplication(app);
-            }
+        for (Application app : localApps.getRegisteredApplications()) {
+            apps.addApplication(app);
         }
-        if (includeRemoteRegion) {
-            for (RemoteRegionRegistry remoteRegistry : this.regionNameVSRemoteRegistry.values()) {
-                Applications applications = remoteRegistry.getApplications();
-                for (Application application : applications
-                        .getRegisteredApplications()) {
-                    Application appInLocalRegistry = apps
-                            .getRegisteredApplications(application.getName());
-                    if (appInLocalRegistry == null) {
-                        apps.addApplication(application);
-                    }
+        for (RemoteRegionRegistry remoteRegistry : this.regionNameVSRemoteRegistry.values()) {
+            Applications applications = remoteRegistry.getApplications();
+            for (Application application : applications
+                    .getRegisteredApplications()) {
+                Application appInLocalRegistry = apps
+                        .getRegisteredApplications(application.getName());
+                if (appInLocalRegistry == null) {
+                    apps.addApplication(application);
                 }
             }
         }
@@ -873,51 +1216,28 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
         GET_ALL_CACHE_MISS_DELTA.increment();
         Applications apps = new Applications();
         apps.setVersion(responseCache.getVersionDelta().get());
-        Map<String, Application> applicationInstancesMap = new HashMap<String, Application>();
-        write.lock();
-        try {
-            Iterator<RecentlyChangedItem> iter = this.recentlyChangedQueue.iterator();
-            logger.debug("The number of elements in the delta queue is : {}",
-                    this.recentlyChangedQueue.size());
-            while (iter.hasNext()) {
-                Lease<InstanceInfo> lease = iter.next().getLeaseInfo();
-                InstanceInfo instanceInfo = lease.getHolder();
-                logger.debug(
-                        "The instance id {} is found with status {} and actiontype {}",
-                        instanceInfo.getId(), instanceInfo.getStatus().name(), instanceInfo.getActionType().name());
-                Application app = applicationInstancesMap.get(instanceInfo
-                        .getAppName());
-                if (app == null) {
-                    app = new Application(instanceInfo.getAppName());
-                    applicationInstancesMap.put(instanceInfo.getAppName(), app);
-                    apps.addApplication(app);
-                }
-                app.addInstance(new InstanceInfo(decorateInstanceInfo(lease)));
-            }
+        final boolean disableTransparentFallback = serverConfig.disableTransparentFallbackToOtherRegion();
+        ChangedLeases changed = readRetainedChanges(
+                () -> getSharedApplications(!disableTransparentFallback).getReconcileHashCode());
+        addChangedInstances(apps, changed.getLeases());
 
-            boolean disableTransparentFallback = serverConfig.disableTransparentFallbackToOtherRegion();
+        if (!disableTransparentFallback) {
+            Applications allAppsInLocalRegion = getSharedApplications(false);
 
-            if (!disableTransparentFallback) {
-                Applications allAppsInLocalRegion = getApplications(false);
-
-                for (RemoteRegionRegistry remoteRegistry : this.regionNameVSRemoteRegistry.values()) {
-                    Applications applications = remoteRegistry.getApplicationDeltas();
-                    for (Application application : applications.getRegisteredApplications()) {
-                        Application appInLocalRegistry =
-                                allAppsInLocalRegion.getRegisteredApplications(application.getName());
-                        if (appInLocalRegistry == null) {
-                            apps.addApplication(application);
-                        }
+            for (RemoteRegionRegistry remoteRegistry : this.regionNameVSRemoteRegistry.values()) {
+                Applications applications = remoteRegistry.getApplicationDeltas();
+                for (Application application : applications.getRegisteredApplications()) {
+                    Application appInLocalRegistry =
+                            allAppsInLocalRegion.getRegisteredApplications(application.getName());
+                    if (appInLocalRegistry == null) {
+                        apps.addApplication(application);
                     }
                 }
             }
-
-            Applications allApps = getApplications(!disableTransparentFallback);
-            apps.setAppsHashCode(allApps.getReconcileHashCode());
-            return apps;
-        } finally {
-            write.unlock();
         }
+
+        apps.setAppsHashCode(changed.getAppsHashCode());
+        return apps;
     }
 
     /**
@@ -953,57 +1273,147 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
 
         Applications apps = new Applications();
         apps.setVersion(responseCache.getVersionDeltaWithRegions().get());
-        Map<String, Application> applicationInstancesMap = new HashMap<String, Application>();
-        write.lock();
-        try {
-            Iterator<RecentlyChangedItem> iter = this.recentlyChangedQueue.iterator();
-            logger.debug("The number of elements in the delta queue is :{}", this.recentlyChangedQueue.size());
-            while (iter.hasNext()) {
-                Lease<InstanceInfo> lease = iter.next().getLeaseInfo();
-                InstanceInfo instanceInfo = lease.getHolder();
-                logger.debug("The instance id {} is found with status {} and actiontype {}",
-                        instanceInfo.getId(), instanceInfo.getStatus().name(), instanceInfo.getActionType().name());
-                Application app = applicationInstancesMap.get(instanceInfo.getAppName());
-                if (app == null) {
-                    app = new Application(instanceInfo.getAppName());
-                    applicationInstancesMap.put(instanceInfo.getAppName(), app);
-                    apps.addApplication(app);
-                }
-                app.addInstance(new InstanceInfo(decorateInstanceInfo(lease)));
-            }
+        final String[] regions = remoteRegions;
+        ChangedLeases changed = readRetainedChanges(
+                () -> getSharedApplicationsFromMultipleRegions(regions).getReconcileHashCode());
+        addChangedInstances(apps, changed.getLeases());
 
-            if (includeRemoteRegion) {
-                for (String remoteRegion : remoteRegions) {
-                    RemoteRegionRegistry remoteRegistry = regionNameVSRemoteRegistry.get(remoteRegion);
-                    if (null != remoteRegistry) {
-                        Applications remoteAppsDelta = remoteRegistry.getApplicationDeltas();
-                        if (null != remoteAppsDelta) {
-                            for (Application application : remoteAppsDelta.getRegisteredApplications()) {
-                                if (shouldFetchFromRemoteRegistry(application.getName(), remoteRegion)) {
-                                    Application appInstanceTillNow =
-                                            apps.getRegisteredApplications(application.getName());
-                                    if (appInstanceTillNow == null) {
-                                        appInstanceTillNow = new Application(application.getName());
-                                        apps.addApplication(appInstanceTillNow);
-                                    }
-                                    for (InstanceInfo instanceInfo : application.getInstances()) {
-                                        appInstanceTillNow.addInstance(new InstanceInfo(instanceInfo));
-                                    }
+        if (includeRemoteRegion) {
+            for (String remoteRegion : remoteRegions) {
+                RemoteRegionRegistry remoteRegistry = regionNameVSRemoteRegistry.get(remoteRegion);
+                if (null != remoteRegistry) {
+                    Applications remoteAppsDelta = remoteRegistry.getApplicationDeltas();
+                    if (null != remoteAppsDelta) {
+                        for (Application application : remoteAppsDelta.getRegisteredApplications()) {
+                            if (shouldFetchFromRemoteRegistry(application.getName(), remoteRegion)) {
+                                Application appInstanceTillNow =
+                                        apps.getRegisteredApplications(application.getName());
+                                if (appInstanceTillNow == null) {
+                                    appInstanceTillNow = new Application(application.getName());
+                                    apps.addApplication(appInstanceTillNow);
+                                }
+                                for (InstanceInfo instanceInfo : application.getInstances()) {
+                                    appInstanceTillNow.addInstance(new InstanceInfo(instanceInfo));
                                 }
                             }
                         }
                     }
                 }
             }
+        }
+
+        apps.setAppsHashCode(changed.getAppsHashCode());
+        return apps;
+    }
 
-            Applications allApps = getApplicationsFromMultipleRegions(remoteRegions);
-            apps.setAppsHashCode(allApps.getReconcileHashCode());
-            return apps;
+    /**
+     * Gets the changes of the local region registry made after the given registry version, as reported in the
+     * registry responses. Unlike {@link #getApplicationDeltas()}, the delta is exact: it holds the instances changed
+     * since that version only, whatever the delta retention time.
+     *
+     * @param sinceVersion the registry version the caller is up to date with
+     * @return the delta, or null if the changes since that version are not known anymore, or if the registry view
+     * served to the clients also holds remote region instances, which are not versioned
+     */
+    @Override
+    public Applications getApplicationDeltasSince(long sinceVersion) {
+        if (!isApplicationsViewLocalOnly()) {
+            return null;
+        }
+        ChangedLeases changed = readChanges(sinceVersion, 0, () -> getSharedApplications().getReconcileHashCode());
+        if (!changed.isComplete()) {
+            return null;
+        }
+        Applications apps = new Applications();
+        apps.setVersion(responseCache.getVersionDelta().get());
+        addChangedInstances(apps, changed.getLeases());
+        apps.setAppsHashCode(changed.getAppsHashCode());
+        return apps;
+    }
+
+    private void addChangedInstances(Applications apps, List<Lease<InstanceInfo>> leases) {
+        Map<String, Application> applicationInstancesMap = new HashMap<String, Application>();
+        for (Lease<InstanceInfo> lease : leases) {
+            InstanceInfo instanceInfo = lease.getHolder();
+            logger.debug("The instance id {} is found with status {} and actiontype {}",
+                    instanceInfo.getId(), instanceInfo.getStatus().name(), instanceInfo.getActionType().name());
+            Application app = applicationInstancesMap.get(instanceInfo.getAppName());
+            if (app == null) {
+                app = new Application(instanceInfo.getAppName());
+                applicationInstancesMap.put(instanceInfo.getAppName(), app);
+                apps.addApplication(app);
+            }
+            app.addInstance(new InstanceInfo(decorateInstanceInfo(lease)));
+        }
+    }
+
+    private ChangedLeases readRetainedChanges(Supplier<String> appsHashCode) {
+        long minTimestamp = System.currentTimeMillis() - serverConfig.getRetentionTimeInMSInDeltaQueue();
+        ChangedLeases changed = readChanges(changeLog.getTruncatedVersion(), minTimestamp, appsHashCode);
+        if (changed.isOverflow()) {
+            logger.warn("Some registry changes are missing from the delta, as there were more than {} changes within"
+                    + " the delta retention time", changeLog.getCapacity());
+        }
+        return changed;
+    }
+
+    /**
+     * Reads the changes made after the given version, together with the apps hash code of the registry they lead to.
+     *
+     * <p>
+     * Both must match, so they have to be read while no registry change is in progress. Rather than blocking all
+     * the registry updates with the write lock, this is first attempted optimistically, like a sequence lock: the
+     * read starts only once all the updates started have completed, and is kept only if no update started nor the
+     * registry version changed in the meantime. Under a steady stream of updates, this falls back to the write lock.
+     * </p>
+     */
+    private ChangedLeases readChanges(long sinceVersion, long minTimestamp, Supplier<String> appsHashCode) {
+        for (int attempt = 0; attempt < OPTIMISTIC_DELTA_READ_ATTEMPTS; attempt++) {
+            // Completed first: if the counts then match, every update started so far has completed
+            long completed = updatesCompleted.get();
+            long started = updatesStarted.get();
+            if (started != completed) {
+                Thread.yield();
+                continue;
+            }
+            long version = registryVersion.get();
+            ChangedLeases changed = readChanges(sinceVersion, version, minTimestamp, appsHashCode);
+            if (updatesStarted.get() == started && registryVersion.get() == version) {
+                changeLog.truncate(changed.getExpiredUntilVersion());
+                return changed;
+            }
+        }
+        write.lock();
+        try {
+            ChangedLeases changed = readChanges(sinceVersion, registryVersion.get(), minTimestamp, appsHashCode);
+            changeLog.truncate(changed.getExpiredUntilVersion());
+            return changed;
         } finally {
             write.unlock();
         }
     }
 
+    /**
+     * Registry updates may run concurrently with each other, but not with a delta read under the write lock.
+     */
+    private void beginUpdate() {
+        read.lock();
+        updatesStarted.incrementAndGet();
+    }
+
+    private void endUpdate() {
+        updatesCompleted.incrementAndGet();
+        read.unlock();
+    }
+
+    private ChangedLeases readChanges(long sinceVersion, long untilVersion, long minTimestamp,
+                                      Supplier<String> appsHashCode) {
+        List<Lease<InstanceInfo>> leases = new ArrayList<>();
+        RegistryChangeLog.ReadResult result = changeLog.read(sinceVersion, untilVersion, minTimestamp, leases);
+        logger.debug("The number of changes in the delta is : {}", leases.size());
+        return new ChangedLeases(leases, result, appsHashCode.get());
+    }
+
     /**
      * Gets the {@link InstanceInfo} information.
      *
@@ -1074,22 +1484,11 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
     public List<InstanceInfo> getInstancesById(String id, boolean includeRemoteRegions) {
         List<InstanceInfo> list = new ArrayList<>();
 
-        for (Iterator<Entry<String, Map<String, Lease<InstanceInfo>>>> iter =
-                     registry.entrySet().iterator(); iter.hasNext(); ) {
-
-            Map<String, Lease<InstanceInfo>> leaseMap = iter.next().getValue();
-            if (leaseMap != null) {
-                Lease<InstanceInfo> lease = leaseMap.get(id);
-
-                if (lease == null || (isLeaseExpirationEnabled() && lease.isExpired())) {
-                    continue;
-                }
-
-                if (list == Collections.EMPTY_LIST) {
-                    list = new ArrayList<>();
-                }
-                list.add(decorateInstanceInfo(lease));
+        for (Lease<InstanceInfo> lease : getRegistrySnapshot().getLeasesById(id)) {
+            if (isLeaseExpirationEnabled() && lease.isExpired()) {
+                continue;
             }
+            list.add(decorateInstanceInfo(lease));
         }
         if (list.isEmpty() && includeRemoteRegions) {
             for (RemoteRegionRegistry remoteRegistry : this.regionNameVSRemoteRegistry.values()) {
@@ -1180,35 +1579,110 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
         return list;
     }
 
-    private void invalidateCache(String appName, @Nullable String vipAddress, @Nullable String secureVipAddress) {
+    private void invalidateCache(String appName, @Nullable String vipAddress, @Nullable String secureVipAddress,
+                                 @Nullable Lease<InstanceInfo> changedLease) {
+        long version = markRegistryChanged(appName);
+        if (changedLease != null) {
+            changeLog.append(version, changedLease);
+        }
         // invalidate cache
         responseCache.invalidate(appName, vipAddress, secureVipAddress);
+        // only now, so that woken up watchers do not get the payloads generated before the change
+        signalRegistryChange();
     }
 
-    protected void updateRenewsPerMinThreshold() {
-        this.numberOfRenewsPerMinThreshold = (int) (this.expectedNumberOfClientsSendingRenews
-                * (60.0 / serverConfig.getExpectedClientRenewalIntervalSeconds())
-                * serverConfig.getRenewalPercentThreshold());
+    /**
+     * Records a change of the given application. The name must be recorded before the version is bumped, so that
+     * the snapshot built for the new version is guaranteed to pick it up.
+     *
+     * @return the registry version of the change
+     */
+    private long markRegistryChanged(String appName) {
+        if (appName != null) {
+            changedAppNames.add(appName);
+        }
+        return registryVersion.incrementAndGet();
     }
 
-    private static final class RecentlyChangedItem {
-        private long lastUpdateTime;
-        private Lease<InstanceInfo> leaseInfo;
-
-        public RecentlyChangedItem(Lease<InstanceInfo> lease) {
-            this.leaseInfo = lease;
-            lastUpdateTime = System.currentTimeMillis();
+    /**
+     * Wakes up the requests waiting in {@link #awaitRegistryChange(long, long)}, if any.
+     */
+    private void signalRegistryChange() {
+        if (registryChangeWaiters.get() > 0) {
+            synchronized (registryChangeMonitor) {
+                registryChangeMonitor.notifyAll();
+            }
         }
+    }
 
-        public long getLastUpdateTime() {
-            return this.lastUpdateTime;
+    @Override
+    public long getRegistryVersion() {
+        return registryVersion.get();
+    }
+
+    @Override
+    public long awaitRegistryChange(long sinceVersion, long timeoutMs) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        // Registered before reading the version, so that a concurrent change either is seen or signals the monitor
+        registryChangeWaiters.incrementAndGet();
+        try {
+            synchronized (registryChangeMonitor) {
+                long version = registryVersion.get();
+                while (version == sinceVersion) {
+                    long remainingNanos = deadline - System.nanoTime();
+                    if (remainingNanos <= 0) {
+                        break;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(registryChangeMonitor, remainingNanos);
+                    version = registryVersion.get();
+                }
+                return version;
+            }
+        } finally {
+            registryChangeWaiters.decrementAndGet();
         }
+    }
 
-        public Lease<InstanceInfo> getLeaseInfo() {
-            return this.leaseInfo;
+    /**
+     * Gets the snapshot of the local region registry for the current registry version. The snapshot is built by the
+     * first caller observing a new version and shared by everybody else until the registry changes again.
+     */
+    RegistrySnapshot getRegistrySnapshot() {
+        RegistrySnapshot snapshot = registrySnapshotRef.get();
+        if (snapshot != null && snapshot.getVersion() == registryVersion.get()) {
+            return snapshot;
+        }
+        synchronized (registrySnapshotRef) {
+            // Read the version before the lease maps, so that a concurrent change always forces a rebuild later on
+            long version = registryVersion.get();
+            snapshot = registrySnapshotRef.get();
+            if (snapshot == null || snapshot.getVersion() != version) {
+                // Drain before reading the lease maps; a name recorded afterwards stays for the next rebuild
+                Set<String> changed = new HashSet<>();
+                for (Iterator<String> it = changedAppNames.iterator(); it.hasNext(); ) {
+                    changed.add(it.next());
+                    it.remove();
+                }
+                snapshot = RegistrySnapshot.build(version, snapshot, changed, registry, this::decorateInstanceInfo);
+                registrySnapshotRef.set(snapshot);
+            }
+            return snapshot;
         }
     }
 
+    /**
+     * @return true if {@link #getApplications()} is the local region registry only, without remote region instances
+     */
+    boolean isApplicationsViewLocalOnly() {
+        return serverConfig.disableTransparentFallbackToOtherRegion() || allKnownRemoteRegions.length == 0;
+    }
+
+    protected void updateRenewsPerMinThreshold() {
+        this.numberOfRenewsPerMinThreshold = (int) (this.expectedNumberOfClientsSendingRenews
+                * (60.0 / serverConfig.getExpectedClientRenewalIntervalSeconds())
+                * serverConfig.getRenewalPercentThreshold());
+    }
+
     protected void postInit() {
         renewsLastMin.start();
         if (evictionTaskRef.get() != null) {
@@ -1218,6 +1692,17 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
         evictionTimer.schedule(evictionTaskRef.get(),
                 serverConfig.getEvictionIntervalTimerInMs(),
                 serverConfig.getEvictionIntervalTimerInMs());
+
+        String snapshotFile = serverConfig.getRegistrySnapshotFile();
+        if (snapshotFile != null && !snapshotFile.isEmpty() && snapshotTimer == null) {
+            snapshotTimer = new Timer("Eureka-RegistrySnapshotTimer", true);
+            snapshotTimer.schedule(new TimerTask() {
+                @Override
+                public void run() {
+                    saveRegistrySnapshot();
+                }
+            }, serverConfig.getRegistrySnapshotIntervalMs(), serverConfig.getRegistrySnapshotIntervalMs());
+        }
     }
 
     /**
@@ -1225,8 +1710,12 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
      */
     @Override
     public void shutdown() {
-        deltaRetentionTimer.cancel();
         evictionTimer.cancel();
+        Timer snapshotTimer = this.snapshotTimer;
+        if (snapshotTimer != null) {
+            snapshotTimer.cancel();
+            saveRegistrySnapshot();
+        }
         renewsLastMin.stop();
         responseCache.stop();
     }
@@ -1236,6 +1725,41 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
         return overriddenInstanceStatusMap.size();
     }
 
+    /**
+     * Changed leases read from the {@link RegistryChangeLog}, with the apps hash code of the registry at that time.
+     */
+    private static final class ChangedLeases {
+        private final List<Lease<InstanceInfo>> leases;
+        private final RegistryChangeLog.ReadResult readResult;
+        private final String appsHashCode;
+
+        ChangedLeases(List<Lease<InstanceInfo>> leases, RegistryChangeLog.ReadResult readResult, String appsHashCode) {
+            this.leases = leases;
+            this.readResult = readResult;
+            this.appsHashCode = appsHashCode;
+        }
+
+        List<Lease<InstanceInfo>> getLeases() {
+            return leases;
+        }
+
+        boolean isComplete() {
+            return readResult.isComplete();
+        }
+
+        boolean isOverflow() {
+            return readResult.isOverflow();
+        }
+
+        long getExpiredUntilVersion() {
+            return readResult.getExpiredUntilVersion();
+        }
+
+        String getAppsHashCode() {
+            return appsHashCode;
+        }
+    }
+
     /* visible for testing */ class EvictionTask extends TimerTask {
 
         private final AtomicLong lastExecutionNanosRef = new AtomicLong(0l);
@@ -1329,6 +1853,15 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
      */
     protected abstract InstanceStatusOverrideRule getInstanceInfoOverrideRule();
 
+    /**
+     * Tells whether the status override rule would keep the current status of the given instance on renewal, in
+     * which case renewals skip the rule evaluation. This is the case for most renewals, but can only be known from
+     * the rule in use, so by default the rule is always evaluated.
+     */
+    protected boolean isStatusUnchangedOnRenewal(InstanceInfo instanceInfo) {
+        return false;
+    }
+
     protected InstanceInfo.InstanceStatus getOverriddenInstanceStatus(InstanceInfo r,
                                                                     Lease<InstanceInfo> existingLease,
                                                                     boolean isReplication) {
@@ -1336,23 +1869,4 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
         logger.debug("Processing override status using rule: {}", rule);
         return rule.apply(r, existingLease, isReplication).status();
     }
-
-    private TimerTask getDeltaRetentionTask() {
-        return new TimerTask() {
-
-            @Override
-            public void run() {
-                Iterator<RecentlyChangedItem> it = recentlyChangedQueue.iterator();
-                while (it.hasNext()) {
-                    if (it.next().getLastUpdateTime() <
-                            System.currentTimeMillis() - serverConfig.getRetentionTimeInMSInDeltaQueue()) {
-                        it.remove();
-                    } else {
-                        break;
-                    }
-                }
-            }
-
-        };
-    }
 }
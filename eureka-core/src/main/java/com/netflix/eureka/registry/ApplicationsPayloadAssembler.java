@@ -0,0 +1,255 @@
+package com.netflix.eureka.registry;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.netflix.discovery.converters.wrappers.EncoderWrapper;
+import com.netflix.discovery.shared.Application;
+import com.netflix.discovery.shared.Applications;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Encodes the full registry payload by splicing together cached, per {@link Application} encoded fragments.
+ *
+ * <p>
+ * A registry change invalidates the full registry payload, but usually touches one or a few applications only.
+ * As {@link RegistrySnapshot} carries unchanged {@link Application} objects over from one version to the next, their
+ * fragments are found in the cache (keyed by identity) and only the changed applications need to be encoded again.
+ * </p>
+ *
+ * <p>
+ * The encoders are not aware of fragments, so the framing of the {@link Applications} document (the header before
+ * the first application, the separator between two applications and the trailer) is derived for each encoder by
+ * encoding a few tiny documents with placeholder applications. The first payload assembled for an encoder is checked
+ * against the encoder output for the whole document, and if they differ the encoder is not assembled from fragments
+ * anymore. Fragments expire together with the response cache entries, so the lease timestamps they carry are not
+ * any older than those of a cached full registry payload.
+ * </p>
+ */
+class ApplicationsPayloadAssembler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ApplicationsPayloadAssembler.class);
+
+    private static final String PLACEHOLDER_HASH_CODE = "UP_0_";
+
+    private final long fragmentExpirationInSeconds;
+    private final ConcurrentMap<EncoderWrapper, Framing> framings = new ConcurrentHashMap<>();
+
+    ApplicationsPayloadAssembler(long fragmentExpirationInSeconds) {
+        this.fragmentExpirationInSeconds = fragmentExpirationInSeconds;
+    }
+
+    /**
+     * Encodes the given applications, reusing the fragments cached for the applications encoded before.
+     *
+     * @return the UTF-8 encoded payload
+     */
+    byte[] encode(EncoderWrapper encoder, Applications apps) throws IOException {
+        Framing framing = framings.get(encoder);
+        if (framing == null) {
+            framing = deriveFraming(encoder);
+            Framing existing = framings.putIfAbsent(encoder, framing);
+            if (existing != null) {
+                framing = existing;
+            }
+        }
+        if (framing == Framing.UNSUPPORTED) {
+            return toBytes(encoder.encode(apps));
+        }
+
+        byte[] payload;
+        try {
+            payload = assemble(framing, encoder, apps);
+        } catch (IOException e) {
+            logger.warn("Cannot assemble the payload from application fragments; encoding the full registry instead", e);
+            return toBytes(encoder.encode(apps));
+        }
+        if (!framing.verified) {
+            byte[] expected = toBytes(encoder.encode(apps));
+            if (!Arrays.equals(expected, payload)) {
+                logger.warn("Payload assembled from application fragments does not match the {} encoder output;"
+                        + " encoding the full registry as a whole from now on", encoder.codecName());
+                framings.put(encoder, Framing.UNSUPPORTED);
+                return expected;
+            }
+            framing.verified = true;
+        }
+        return payload;
+    }
+
+    /**
+     * @return the number of fragments currently cached for the given encoder
+     */
+    long getFragmentCount(EncoderWrapper encoder) {
+        Framing framing = framings.get(encoder);
+        return framing == null || framing == Framing.UNSUPPORTED ? 0 : framing.fragments.size();
+    }
+
+    private static byte[] assemble(Framing framing, EncoderWrapper encoder, Applications apps) throws IOException {
+        // Same header as the real payload, but without any application in it
+        String emptyDocument = encoder.encode(
+                new Applications(apps.getAppsHashCode(), apps.getVersion(), Collections.<Application>emptyList()));
+        if (!emptyDocument.endsWith(framing.trailer)) {
+            throw new IOException("Unexpected document framing from the " + encoder.codecName() + " encoder");
+        }
+        byte[] header = toBytes(emptyDocument.substring(0, emptyDocument.length() - framing.trailer.length()));
+
+        Collection<Application> registeredApps = apps.getRegisteredApplications();
+        byte[][] fragments = new byte[registeredApps.size()][];
+        int count = 0;
+        int length = header.length + framing.trailerBytes.length;
+        for (Application app : registeredApps) {
+            if (count == fragments.length) {
+                break;
+            }
+            byte[] fragment = getFragment(framing, encoder, app);
+            length += fragment.length;
+            fragments[count++] = fragment;
+        }
+        if (count > 1) {
+            length += (count - 1) * framing.separatorBytes.length;
+        }
+
+        // Splice everything together into the final array, without any intermediate copy
+        byte[] payload = new byte[length];
+        int pos = append(header, payload, 0);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                pos = append(framing.separatorBytes, payload, pos);
+            }
+            pos = append(fragments[i], payload, pos);
+        }
+        append(framing.trailerBytes, payload, pos);
+        return payload;
+    }
+
+    private static byte[] getFragment(Framing framing, EncoderWrapper encoder, Application app) throws IOException {
+        byte[] fragment = framing.fragments.getIfPresent(app);
+        if (fragment == null) {
+            String document = encoder.encode(placeholderDocument(app));
+            String extracted = framing.extractFragment(document);
+            if (extracted == null) {
+                throw new IOException("Unexpected document framing from the " + encoder.codecName()
+                        + " encoder for application " + app.getName());
+            }
+            fragment = toBytes(extracted);
+            framing.fragments.put(app, fragment);
+        }
+        return fragment;
+    }
+
+    private static int append(byte[] source, byte[] target, int pos) {
+        System.arraycopy(source, 0, target, pos, source.length);
+        return pos + source.length;
+    }
+
+    private static byte[] toBytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private Framing deriveFraming(EncoderWrapper encoder) {
+        try {
+            String empty = encoder.encode(placeholderDocument());
+            String first = encoder.encode(placeholderDocument(new Application("A")));
+            String second = encoder.encode(placeholderDocument(new Application("B")));
+            String both = encoder.encode(placeholderDocument(new Application("A"), new Application("B")));
+
+            int headerLength = commonPrefixLength(empty, first);
+            int trailerLength = Math.min(commonSuffixLength(empty, first), empty.length() - headerLength);
+            if (headerLength + trailerLength != empty.length()) {
+                logger.info("Cannot derive the document framing of the {} encoder", encoder.codecName());
+                return Framing.UNSUPPORTED;
+            }
+            String header = empty.substring(0, headerLength);
+            String trailer = empty.substring(headerLength);
+
+            Framing framing = new Framing(header, trailer, "", fragmentExpirationInSeconds);
+            String firstFragment = framing.extractFragment(first);
+            String secondFragment = framing.extractFragment(second);
+            String fragments = framing.extractFragment(both);
+            if (firstFragment == null || secondFragment == null || fragments == null
+                    || !fragments.startsWith(firstFragment) || !fragments.endsWith(secondFragment)
+                    || fragments.length() < firstFragment.length() + secondFragment.length()) {
+                logger.info("Cannot derive the application separator of the {} encoder", encoder.codecName());
+                return Framing.UNSUPPORTED;
+            }
+            String separator = fragments.substring(firstFragment.length(), fragments.length() - secondFragment.length());
+            return new Framing(header, trailer, separator, fragmentExpirationInSeconds);
+        } catch (Exception e) {
+            logger.warn("Cannot derive the document framing of the {} encoder", encoder.codecName(), e);
+            return Framing.UNSUPPORTED;
+        }
+    }
+
+    private static Applications placeholderDocument(Application... apps) {
+        Applications applications = new Applications();
+        applications.setVersion(1L);
+        applications.setAppsHashCode(PLACEHOLDER_HASH_CODE);
+        for (Application app : apps) {
+            applications.addApplication(app);
+        }
+        return applications;
+    }
+
+    private static int commonPrefixLength(String a, String b) {
+        int max = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < max && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int commonSuffixLength(String a, String b) {
+        int max = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < max && a.charAt(a.length() - 1 - i) == b.charAt(b.length() - 1 - i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static final class Framing {
+
+        static final Framing UNSUPPORTED = new Framing("", "", "", 0);
+
+        final String placeholderHeader;
+        final String trailer;
+        final byte[] trailerBytes;
+        final byte[] separatorBytes;
+        final Cache<Application, byte[]> fragments;
+        volatile boolean verified;
+
+        Framing(String placeholderHeader, String trailer, String separator, long fragmentExpirationInSeconds) {
+            this.placeholderHeader = placeholderHeader;
+            this.trailer = trailer;
+            this.trailerBytes = toBytes(trailer);
+            this.separatorBytes = toBytes(separator);
+            this.fragments = CacheBuilder.newBuilder()
+                    .weakKeys()
+                    .expireAfterWrite(fragmentExpirationInSeconds, TimeUnit.SECONDS)
+                    .build();
+        }
+
+        /**
+         * @return the applications part of a placeholder document, or null if the document is not framed as expected
+         */
+        String extractFragment(String placeholderDocument) {
+            if (placeholderDocument.length() < placeholderHeader.length() + trailer.length()
+                    || !placeholderDocument.startsWith(placeholderHeader)
+                    || !placeholderDocument.endsWith(trailer)) {
+                return null;
+            }
+            return placeholderDocument.substring(placeholderHeader.length(), placeholderDocument.length() - trailer.length());
+        }
+    }
+}
@@ -94,4 +94,38 @@ public interface InstanceRegistry extends LeaseManager<InstanceInfo>, LookupServ
 
     boolean isSelfPreservationModeEnabled();
 
+    /**
+     * Gets the version of the local region registry, which changes whenever an instance is registered, cancelled or
+     * has its status changed. Versions are only meaningful within a single server; they are not replicated. By
+     * default, the registry is not versioned.
+     *
+     * @return the current registry version, or -1 if the registry is not versioned
+     */
+    default long getRegistryVersion() {
+        return -1;
+    }
+
+    /**
+     * Waits until the local region registry version is different from the given one, or the timeout elapses. By
+     * default, the current registry version is returned immediately without waiting.
+     *
+     * @param sinceVersion the registry version known by the caller
+     * @param timeoutMs the maximum time to wait, in milliseconds
+     * @return the current registry version, which is equal to {@code sinceVersion} if the wait timed out
+     */
+    default long awaitRegistryChange(long sinceVersion, long timeoutMs) throws InterruptedException {
+        return getRegistryVersion();
+    }
+
+    /**
+     * Gets the exact delta of the local region registry since the given registry version. By default, the changes
+     * are never known, so that callers fall back to the regular delta.
+     *
+     * @param sinceVersion the registry version known by the caller
+     * @return the instances changed since that version, or null if these changes are not known anymore
+     */
+    default Applications getApplicationDeltasSince(long sinceVersion) {
+        return null;
+    }
+
 }
@@ -0,0 +1,137 @@
+package com.netflix.eureka.registry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Predicate;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.eureka.lease.Lease;
+
+/**
+ * A hashed timing wheel of the registered leases, bucketed by the time they are due to expire, so that the eviction
+ * task only looks at the leases expiring since its previous run instead of scanning the whole registry.
+ *
+ * <p>
+ * A lease is scheduled once, when it is registered, in the slot of the tick its expiration falls in; a slot holds the
+ * leases of all the ticks that are a multiple of the wheel size apart. Renewals are not tracked: they are frequent,
+ * and moving the lease on each of them would add work and contention to the renewal path. A lease is instead moved
+ * lazily when its slot becomes due, to the slot of its current expiration if it was renewed in the meantime. A lease
+ * that is no longer registered, because it was cancelled or replaced by a new registration, is dropped at that point.
+ * </p>
+ *
+ * <p>
+ * Leases are added concurrently, while the wheel is only advanced by one thread at a time. The added leases are
+ * queued, and moved into their slots by the advancing thread before it processes the due ticks, so that a lease is
+ * never put into a slot the advancing thread has already gone past.
+ * </p>
+ */
+final class LeaseExpirationWheel {
+
+    private final long tickMs;
+    private final Queue<Lease<InstanceInfo>>[] slots;
+    private final int mask;
+    // The leases scheduled since the wheel was last advanced
+    private final Queue<Lease<InstanceInfo>> scheduledLeases = new ConcurrentLinkedQueue<>();
+    // All the ticks up to and including this one are processed; only accessed by the advancing thread
+    private long processedTick;
+
+    /**
+     * @param tickMs the time span of a slot
+     * @param size the number of slots; rounded up to a power of two
+     */
+    @SuppressWarnings("unchecked")
+    LeaseExpirationWheel(long tickMs, int size) {
+        int slotCount = Integer.highestOneBit(Math.max(size, 1));
+        if (slotCount < size) {
+            slotCount <<= 1;
+        }
+        this.tickMs = tickMs;
+        this.slots = new Queue[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            slots[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.mask = slotCount - 1;
+        this.processedTick = System.currentTimeMillis() / tickMs - 1;
+    }
+
+    /**
+     * Schedules the given lease for its current expiration time, or for the next tick to process if that time has
+     * already been processed. The lease is put into its slot on the next advance of the wheel.
+     */
+    void schedule(Lease<InstanceInfo> lease) {
+        scheduledLeases.add(lease);
+    }
+
+    private void addToSlot(Lease<InstanceInfo> lease) {
+        long tick = Math.max(lease.getExpirationTimestamp() / tickMs, processedTick + 1);
+        slots[(int) (tick & mask)].add(lease);
+    }
+
+    /**
+     * Processes all the ticks fully expired at the given time, and collects the expired leases found in them. The
+     * expired leases are removed from the wheel; those not evicted by the caller must be scheduled again to be
+     * checked on the next run.
+     *
+     * @param additionalLeaseMs any additional lease time to add to the lease evaluation, see
+     *                          {@link Lease#isExpired(long)}
+     * @param isRegistered tells whether a lease is still the registered lease of its instance
+     * @return the expired leases, still registered
+     */
+    synchronized List<Lease<InstanceInfo>> advance(long now, long additionalLeaseMs,
+                                                   Predicate<Lease<InstanceInfo>> isRegistered) {
+        List<Lease<InstanceInfo>> expiredLeases = new ArrayList<>();
+        Lease<InstanceInfo> scheduledLease;
+        while ((scheduledLease = scheduledLeases.poll()) != null) {
+            addToSlot(scheduledLease);
+        }
+
+        long dueTick = (now - additionalLeaseMs) / tickMs - 1;
+        long fromTick = Math.max(processedTick + 1, dueTick - slots.length + 1);
+        if (fromTick > dueTick) {
+            return expiredLeases;
+        }
+
+        List<Lease<InstanceInfo>> pendingLeases = new ArrayList<>();
+        for (long tick = fromTick; tick <= dueTick; tick++) {
+            Queue<Lease<InstanceInfo>> slot = slots[(int) (tick & mask)];
+            Lease<InstanceInfo> lease;
+            while ((lease = slot.poll()) != null) {
+                if (lease.getHolder() == null || !isRegistered.test(lease)) {
+                    continue;
+                }
+                if (lease.isExpired(additionalLeaseMs)) {
+                    expiredLeases.add(lease);
+                } else {
+                    // Renewed since it was scheduled, or due in a later round of the wheel
+                    pendingLeases.add(lease);
+                }
+            }
+        }
+        processedTick = dueTick;
+        // Moved only now, so that a lease going back to one of the slots above is not seen twice
+        for (Lease<InstanceInfo> lease : pendingLeases) {
+            addToSlot(lease);
+        }
+        return expiredLeases;
+    }
+
+    /**
+     * Drops all the scheduled leases.
+     */
+    void clear() {
+        scheduledLeases.clear();
+        for (Queue<Lease<InstanceInfo>> slot : slots) {
+            slot.clear();
+        }
+    }
+
+    int size() {
+        int size = scheduledLeases.size();
+        for (Queue<Lease<InstanceInfo>> slot : slots) {
+            size += slot.size();
+        }
+        return size;
+    }
+}
@@ -19,6 +19,7 @@ package com.netflix.eureka.registry;
 import com.netflix.appinfo.InstanceInfo;
 import com.netflix.discovery.shared.Application;
 import com.netflix.eureka.cluster.PeerEurekaNodes;
+import com.netflix.eureka.cluster.protocol.RegistryDigest;
 import com.netflix.eureka.resources.ASGResource;
 
 import java.util.List;
@@ -52,4 +53,14 @@ public interface PeerAwareInstanceRegistry extends InstanceRegistry {
      void register(InstanceInfo info, boolean isReplication);
 
      void statusUpdate(final String asgName, final ASGResource.ASGStatus newStatus, final boolean isReplication);
+
+    /**
+     * Compares the digest of the registry of a peer eureka node with the local registry. By default, registry digests
+     * are not supported, and {@link RegistryDigest#UNSUPPORTED} is returned.
+     *
+     * @return the instance digests of the local applications whose hash differs from the one of the peer
+     */
+     default RegistryDigest compareRegistryDigest(RegistryDigest peerDigest) {
+         return RegistryDigest.UNSUPPORTED;
+     }
 }
@@ -46,6 +46,7 @@ import com.netflix.eureka.EurekaServerConfig;
 import com.netflix.eureka.Version;
 import com.netflix.eureka.cluster.PeerEurekaNode;
 import com.netflix.eureka.cluster.PeerEurekaNodes;
+import com.netflix.eureka.cluster.protocol.RegistryDigest;
 import com.netflix.eureka.lease.Lease;
 import com.netflix.eureka.resources.ASGResource.ASGStatus;
 import com.netflix.eureka.resources.ServerCodecs;
@@ -125,6 +126,7 @@ public class PeerAwareInstanceRegistryImpl extends AbstractInstanceRegistry impl
 
     private Timer timer = new Timer(
             "ReplicaAwareInstanceRegistry - RenewalThresholdUpdater", true);
+    private volatile Timer antiEntropyTimer;
 
     @Inject
     public PeerAwareInstanceRegistryImpl(
@@ -147,12 +149,31 @@ public class PeerAwareInstanceRegistryImpl extends AbstractInstanceRegistry impl
         return this.instanceStatusOverrideRule;
     }
 
+    @Override
+    protected boolean isStatusUnchangedOnRenewal(InstanceInfo instanceInfo) {
+        if (getInstanceInfoOverrideRule() != instanceStatusOverrideRule) {
+            // A subclass rule, nothing is known about it
+            return false;
+        }
+        // The lease being renewed is the one of the instance, so the rule can only change the status of an instance
+        // that has an explicit override, or reject a renewal of an instance with an unknown status
+        InstanceStatus status = instanceInfo.getStatus();
+        if (status == null || status == InstanceStatus.UNKNOWN) {
+            return false;
+        }
+        InstanceStatus overriddenStatus = overriddenInstanceStatusMap.get(instanceInfo.getId());
+        return overriddenStatus == null || overriddenStatus == status;
+    }
+
     @Override
     public void init(PeerEurekaNodes peerEurekaNodes) throws Exception {
         this.numberOfReplicationsLastMin.start();
         this.peerEurekaNodes = peerEurekaNodes;
         initializedResponseCache();
         scheduleRenewalThresholdUpdateTask();
+        if (serverConfig.shouldUsePeerAntiEntropy()) {
+            scheduleAntiEntropyTask();
+        }
         initRemoteRegionRegistry();
 
         try {
@@ -179,6 +200,9 @@ public class PeerAwareInstanceRegistryImpl extends AbstractInstanceRegistry impl
         }
         numberOfReplicationsLastMin.stop();
         timer.cancel();
+        if (antiEntropyTimer != null) {
+            antiEntropyTimer.cancel();
+        }
 
         super.shutdown();
     }
@@ -200,6 +224,55 @@ public class PeerAwareInstanceRegistryImpl extends AbstractInstanceRegistry impl
                 serverConfig.getRenewalThresholdUpdateIntervalMs());
     }
 
+    /**
+     * Schedule the task that reconciles the registry with the peers periodically, see
+     * {@link #reconcileWithPeers()}.
+     */
+    private void scheduleAntiEntropyTask() {
+        antiEntropyTimer = new Timer("Eureka-AntiEntropyTimer", true);
+        antiEntropyTimer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                try {
+                    reconcileWithPeers();
+                } catch (Throwable e) {
+                    logger.error("Cannot reconcile the registry with the peers", e);
+                }
+            }
+        }, serverConfig.getPeerAntiEntropyIntervalMs(), serverConfig.getPeerAntiEntropyIntervalMs());
+    }
+
+    /**
+     * Compares the registry with each peer, and replicates to the peer the instances it does not know of or knows an
+     * older version of. Each peer does the same, so the registries converge within a round of comparisons even if
+     * replication tasks were lost.
+     *
+     * @return the number of instances replicated to the peers
+     */
+    /* visible for testing */ int reconcileWithPeers() {
+        RegistryDigest digest = getRegistryDigest();
+        int count = 0;
+        for (PeerEurekaNode node : peerEurekaNodes.getPeerEurekaNodes()) {
+            RegistryDigest peerDigest = node.compareRegistryDigest(digest);
+            if (peerDigest == null || peerDigest.getDivergentApplications().isEmpty()) {
+                continue;
+            }
+            List<InstanceInfo> instances = getInstancesNewerThan(peerDigest);
+            logger.info("The registry of peer {} differs for {} applications; replicating {} instances",
+                    node.getServiceUrl(), peerDigest.getDivergentApplications().size(), instances.size());
+            for (InstanceInfo instance : instances) {
+                try {
+                    node.register(instance);
+                    count++;
+                } catch (Throwable e) {
+                    logger.warn("Cannot replicate instance {}/{} to peer {}",
+                            instance.getAppName(), instance.getId(), node.getServiceUrl(), e);
+                }
+            }
+        }
+        return count;
+    }
+
     /**
      * Populates the registry information from a peer eureka node. This
      * operation fails over to other nodes until the list is exhausted if the
@@ -207,10 +280,16 @@ public class PeerAwareInstanceRegistryImpl extends AbstractInstanceRegistry impl
      */
     @Override
     public int syncUp() {
+        // A recent local snapshot lets the server serve right away, the peers only being asked for the differences
+        int restoredCount = restoreRegistrySnapshot();
+        int retries = restoredCount > 0
+                ? Math.min(1, serverConfig.getRegistrySyncRetries())
+                : serverConfig.getRegistrySyncRetries();
+
         // Copy entire entry from neighboring DS node
         int count = 0;
 
-        for (int i = 0; ((i < serverConfig.getRegistrySyncRetries()) && (count == 0)); i++) {
+        for (int i = 0; ((i < retries) && (count == 0)); i++) {
             if (i > 0) {
                 try {
                     Thread.sleep(serverConfig.getRegistrySyncRetryWaitMs());
@@ -219,21 +298,22 @@ public class PeerAwareInstanceRegistryImpl extends AbstractInstanceRegistry impl
                     break;
                 }
             }
-            Applications apps = eurekaClient.getApplications();
-            for (Application app : apps.getRegisteredApplications()) {
-                for (InstanceInfo instance : app.getInstances()) {
-                    try {
-                        if (isRegisterable(instance)) {
-                            register(instance, instance.getLeaseInfo().getDurationInSecs(), true);
-                            count++;
-                        }
-                    } catch (Throwable t) {
-                        logger.error("During DS init copy", t);
-                    }
+            List<InstanceInfo> instances = getRegisterableInstances(eurekaClient.getApplications());
+            count = registerAll(instances, true, serverConfig.getRegistrySyncParallelism());
+        }
+        return restoredCount > 0 ? (int) getLocalRegistrySize() : count;
+    }
+
+    private List<InstanceInfo> getRegisterableInstances(Applications apps) {
+        List<InstanceInfo> instances = new ArrayList<>();
+        for (Application app : apps.getRegisteredApplications()) {
+            for (InstanceInfo instance : app.getInstances()) {
+                if (isRegisterable(instance)) {
+                    instances.add(instance);
                 }
             }
         }
-        return count;
+        return instances;
     }
 
     @Override
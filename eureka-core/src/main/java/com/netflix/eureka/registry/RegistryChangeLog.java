@@ -0,0 +1,176 @@
+package com.netflix.eureka.registry;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.eureka.lease.Lease;
+
+/**
+ * A bounded log of the recent registry changes, indexed by registry version.
+ *
+ * <p>
+ * Each change is stored in the slot of the registry version it was recorded for, so the log needs neither a queue
+ * nor a lock: a writer publishes a single slot and readers walk the range of versions they are interested in. A
+ * version without a change (for instance a change that is not part of the deltas) leaves its slot untouched, and a
+ * change older than the log capacity is overwritten by a more recent one.
+ * </p>
+ *
+ * <p>
+ * The log is truncated by version. Readers report how far the changes have expired, and the owner moves the
+ * truncation point once it knows no change was being recorded concurrently, see {@link #truncate(long)}.
+ * </p>
+ */
+final class RegistryChangeLog {
+
+    private static final int MIN_CAPACITY = 1024;
+    private static final int MAX_CAPACITY = 1 << 24;
+
+    private final AtomicReferenceArray<Change> changes;
+    private final int mask;
+    // All the changes up to and including this version are dropped
+    private final AtomicLong truncatedVersion = new AtomicLong();
+
+    /**
+     * @param capacity the number of registry versions the log spans; rounded up to a power of two
+     * @param initialVersion the registry version the log starts from; nothing is known about earlier versions
+     */
+    RegistryChangeLog(int capacity, long initialVersion) {
+        int size = Integer.highestOneBit(Math.min(Math.max(capacity, MIN_CAPACITY), MAX_CAPACITY));
+        if (size < capacity && size < MAX_CAPACITY) {
+            size <<= 1;
+        }
+        this.changes = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.truncatedVersion.set(initialVersion);
+    }
+
+    int getCapacity() {
+        return changes.length();
+    }
+
+    long getTruncatedVersion() {
+        return truncatedVersion.get();
+    }
+
+    /**
+     * Records the change of the given lease as the change made by the given registry version.
+     */
+    void append(long version, Lease<InstanceInfo> lease) {
+        changes.set((int) (version & mask), new Change(version, lease, System.currentTimeMillis()));
+    }
+
+    /**
+     * Drops all the changes up to and including the given version.
+     */
+    void truncate(long version) {
+        long current = truncatedVersion.get();
+        while (current < version && !truncatedVersion.compareAndSet(current, version)) {
+            current = truncatedVersion.get();
+        }
+    }
+
+    /**
+     * Collects the leases changed by the registry versions in the range {@code (sinceVersion, untilVersion]}, skipping
+     * the changes recorded before the given time. The result is only meaningful if no change was recorded for a
+     * version of the range while it was being read.
+     *
+     * @param result the list the changed leases are added to, oldest change first
+     * @return the outcome of the read
+     */
+    ReadResult read(long sinceVersion, long untilVersion, long minTimestamp, List<Lease<InstanceInfo>> result) {
+        long truncated = truncatedVersion.get();
+        long from = Math.max(sinceVersion, truncated) + 1;
+        // A version ahead of the registry is not one of ours, we cannot tell what changed since
+        boolean complete = sinceVersion >= truncated && sinceVersion <= untilVersion;
+        boolean overflow = false;
+        if (untilVersion - from + 1 > changes.length()) {
+            // The oldest versions of the range do not fit in the log anymore
+            from = untilVersion - changes.length() + 1;
+            complete = false;
+            overflow = true;
+        }
+
+        long expiredUntil = truncated;
+        // The versions before the range may still hold changes, so expiration only shows when reading from the start
+        boolean expiring = sinceVersion <= truncated;
+        for (long version = from; version <= untilVersion; version++) {
+            Change change = changes.get((int) (version & mask));
+            if (change == null || change.version < version) {
+                // No change for this version
+                if (expiring) {
+                    expiredUntil = version;
+                }
+                continue;
+            }
+            if (change.version > version) {
+                // Overwritten by a more recent change, the log is too small for the change rate
+                complete = false;
+                overflow = true;
+                expiring = false;
+                continue;
+            }
+            if (change.timestamp < minTimestamp) {
+                if (expiring) {
+                    expiredUntil = version;
+                }
+                complete = false;
+                continue;
+            }
+            expiring = false;
+            result.add(change.lease);
+        }
+        return new ReadResult(complete, overflow, expiredUntil);
+    }
+
+    /**
+     * The outcome of a {@link #read(long, long, long, List)}.
+     */
+    static final class ReadResult {
+        private final boolean complete;
+        private final boolean overflow;
+        private final long expiredUntilVersion;
+
+        ReadResult(boolean complete, boolean overflow, long expiredUntilVersion) {
+            this.complete = complete;
+            this.overflow = overflow;
+            this.expiredUntilVersion = expiredUntilVersion;
+        }
+
+        /**
+         * @return true if none of the changes of the range were dropped, either because of their age, because they
+         *         were truncated or because the log capacity was exceeded
+         */
+        boolean isComplete() {
+            return complete;
+        }
+
+        /**
+         * @return true if some changes of the range were dropped because the log capacity was exceeded
+         */
+        boolean isOverflow() {
+            return overflow;
+        }
+
+        /**
+         * @return the version up to which the log holds nothing worth reading anymore, a candidate for
+         *         {@link #truncate(long)}
+         */
+        long getExpiredUntilVersion() {
+            return expiredUntilVersion;
+        }
+    }
+
+    private static final class Change {
+        final long version;
+        final Lease<InstanceInfo> lease;
+        final long timestamp;
+
+        Change(long version, Lease<InstanceInfo> lease, long timestamp) {
+            this.version = version;
+            this.lease = lease;
+            this.timestamp = timestamp;
+        }
+    }
+}
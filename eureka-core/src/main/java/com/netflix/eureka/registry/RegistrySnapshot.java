@@ -0,0 +1,156 @@
+package com.netflix.eureka.registry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import javax.annotation.Nullable;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.shared.Application;
+import com.netflix.discovery.shared.Applications;
+import com.netflix.eureka.lease.Lease;
+
+/**
+ * An immutable, versioned view of the local region registry.
+ *
+ * <p>
+ * A snapshot is built at most once per registry version and is then shared by all the read paths (full registry
+ * payload generation, VIP lookups and instance id lookups) until the registry changes again, so readers do not
+ * have to walk the lease maps or rebuild the {@link Applications} tree on every response cache miss.
+ * </p>
+ *
+ * <p>
+ * The {@link Applications} held by a snapshot is shared and must be treated as read-only. As with the rest of the
+ * registry read API, the {@link InstanceInfo} objects are the lease holders themselves.
+ * </p>
+ *
+ * <p>
+ * An {@link Application} that did not change since the previous snapshot is carried over as the very same object,
+ * which lets the response cache reuse whatever it derived from it (see {@link ApplicationsPayloadAssembler}).
+ * </p>
+ */
+final class RegistrySnapshot {
+
+    private final long version;
+    private final Applications applications;
+    private final Map<String, Application> applicationsByRegistryKey;
+    private final Map<String, List<Lease<InstanceInfo>>> leasesById;
+    private final Map<String, List<InstanceInfo>> instancesByVipAddress;
+    private final Map<String, List<InstanceInfo>> instancesBySecureVipAddress;
+
+    private RegistrySnapshot(long version,
+                             Applications applications,
+                             Map<String, Application> applicationsByRegistryKey,
+                             Map<String, List<Lease<InstanceInfo>>> leasesById,
+                             Map<String, List<InstanceInfo>> instancesByVipAddress,
+                             Map<String, List<InstanceInfo>> instancesBySecureVipAddress) {
+        this.version = version;
+        this.applications = applications;
+        this.applicationsByRegistryKey = applicationsByRegistryKey;
+        this.leasesById = leasesById;
+        this.instancesByVipAddress = instancesByVipAddress;
+        this.instancesBySecureVipAddress = instancesBySecureVipAddress;
+    }
+
+    /**
+     * @return the registry version this snapshot was built from
+     */
+    long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return the local region applications, with the apps hash code already computed. Must not be modified.
+     */
+    Applications getApplications() {
+        return applications;
+    }
+
+    List<Lease<InstanceInfo>> getLeasesById(String id) {
+        List<Lease<InstanceInfo>> leases = leasesById.get(id);
+        return leases == null ? Collections.<Lease<InstanceInfo>>emptyList() : leases;
+    }
+
+    List<InstanceInfo> getInstancesByVipAddress(String vipAddress) {
+        List<InstanceInfo> instances = instancesByVipAddress.get(vipAddress);
+        return instances == null ? Collections.<InstanceInfo>emptyList() : instances;
+    }
+
+    List<InstanceInfo> getInstancesBySecureVipAddress(String secureVipAddress) {
+        List<InstanceInfo> instances = instancesBySecureVipAddress.get(secureVipAddress);
+        return instances == null ? Collections.<InstanceInfo>emptyList() : instances;
+    }
+
+    /**
+     * Builds a new snapshot from the registry lease maps.
+     *
+     * @param version the registry version observed before reading the lease maps
+     * @param previous the snapshot being replaced, or null if there is none
+     * @param changedAppNames the applications modified since the previous snapshot was built; the others are
+     *                        carried over from the previous snapshot as is
+     * @param registry the registry lease maps, keyed by application name and instance id
+     * @param decorator function returning the {@link InstanceInfo} to publish for a lease
+     */
+    static RegistrySnapshot build(long version,
+                                  @Nullable RegistrySnapshot previous,
+                                  Set<String> changedAppNames,
+                                  Map<String, Map<String, Lease<InstanceInfo>>> registry,
+                                  Function<Lease<InstanceInfo>, InstanceInfo> decorator) {
+        Applications apps = new Applications();
+        apps.setVersion(1L);
+        Map<String, Application> applicationsByRegistryKey = new HashMap<>();
+        Map<String, List<Lease<InstanceInfo>>> leasesById = new HashMap<>();
+        Map<String, List<InstanceInfo>> instancesByVipAddress = new HashMap<>();
+        Map<String, List<InstanceInfo>> instancesBySecureVipAddress = new HashMap<>();
+
+        for (Map.Entry<String, Map<String, Lease<InstanceInfo>>> entry : registry.entrySet()) {
+            Map<String, Lease<InstanceInfo>> leaseMap = entry.getValue();
+            if (leaseMap == null) {
+                continue;
+            }
+            Application previousApp = null;
+            if (previous != null && !leaseMap.isEmpty() && !changedAppNames.contains(entry.getKey())) {
+                previousApp = previous.applicationsByRegistryKey.get(entry.getKey());
+            }
+            Application app = previousApp;
+            for (Lease<InstanceInfo> lease : leaseMap.values()) {
+                InstanceInfo instanceInfo = decorator.apply(lease);
+                if (app == null) {
+                    app = new Application(instanceInfo.getAppName());
+                }
+                if (previousApp == null) {
+                    app.addInstance(instanceInfo);
+                }
+                leasesById.computeIfAbsent(instanceInfo.getId(), k -> new ArrayList<>(1)).add(lease);
+                addToVipIndex(instanceInfo, instanceInfo.getVIPAddress(), instancesByVipAddress);
+                addToVipIndex(instanceInfo, instanceInfo.getSecureVipAddress(), instancesBySecureVipAddress);
+            }
+            if (app != null) {
+                apps.addApplication(app);
+                applicationsByRegistryKey.put(entry.getKey(), app);
+            }
+        }
+        apps.setAppsHashCode(apps.getReconcileHashCode());
+
+        return new RegistrySnapshot(version, apps, applicationsByRegistryKey, leasesById,
+                instancesByVipAddress, instancesBySecureVipAddress);
+    }
+
+    /**
+     * An instance may be mapped to several comma separated VIP addresses; it is indexed under each of them, using
+     * the same exact match semantics as the VIP resources.
+     */
+    private static void addToVipIndex(InstanceInfo instanceInfo, String vipAddresses, Map<String, List<InstanceInfo>> index) {
+        if (vipAddresses == null) {
+            return;
+        }
+        for (String vipAddress : vipAddresses.split(",")) {
+            index.computeIfAbsent(vipAddress, k -> new ArrayList<>()).add(instanceInfo);
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package com.netflix.eureka.registry;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.appinfo.InstanceInfo.InstanceStatus;
+import com.netflix.discovery.converters.wrappers.CodecWrapper;
+import com.netflix.eureka.lease.Lease;
+
+/**
+ * The local registry saved to a file, so that a restarted server can serve it before the peers are reached.
+ *
+ * <p>
+ * The file starts with a header holding the time the snapshot was taken, the registry version it was taken at and
+ * the number of leases and overridden statuses. The leases follow, deflate compressed, each one being the JSON
+ * representation of its instance followed by the lease timestamps, then the overridden statuses. The file ends with
+ * the CRC32 checksum of everything before it.
+ * </p>
+ *
+ * <p>
+ * A snapshot is written to a temporary file which then replaces the previous snapshot, so that a server stopped
+ * while saving the registry still finds the previous snapshot. It is read from a memory mapped file, the checksum
+ * being verified before anything is decoded.
+ * </p>
+ */
+final class RegistrySnapshotFile {
+
+    private static final int MAGIC = 0x45524753;
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 4 + 4;
+    private static final int TRAILER_SIZE = 8;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final long createdAt;
+    private final long registryVersion;
+    private final List<Lease<InstanceInfo>> leases;
+    private final Map<String, InstanceStatus> overriddenStatuses;
+
+    private RegistrySnapshotFile(long createdAt,
+                                 long registryVersion,
+                                 List<Lease<InstanceInfo>> leases,
+                                 Map<String, InstanceStatus> overriddenStatuses) {
+        this.createdAt = createdAt;
+        this.registryVersion = registryVersion;
+        this.leases = leases;
+        this.overriddenStatuses = overriddenStatuses;
+    }
+
+    /**
+     * @return the time in ms the snapshot was taken
+     */
+    long getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * @return the registry version the snapshot was taken at
+     */
+    long getRegistryVersion() {
+        return registryVersion;
+    }
+
+    /**
+     * @return the saved leases, holding the decoded instances and the saved lease timestamps
+     */
+    List<Lease<InstanceInfo>> getLeases() {
+        return leases;
+    }
+
+    Map<String, InstanceStatus> getOverriddenStatuses() {
+        return overriddenStatuses;
+    }
+
+    /**
+     * Saves the given leases and overridden statuses, replacing the snapshot the file holds, if any.
+     */
+    static void write(Path file,
+                      long registryVersion,
+                      Collection<Lease<InstanceInfo>> leases,
+                      Map<String, InstanceStatus> overriddenStatuses,
+                      CodecWrapper codec) throws IOException {
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (FileChannel channel = FileChannel.open(tempFile,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream fileOut = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+            CheckedOutputStream checkedOut = new CheckedOutputStream(fileOut, new CRC32());
+
+            DataOutputStream header = new DataOutputStream(checkedOut);
+            header.writeInt(MAGIC);
+            header.writeInt(FORMAT_VERSION);
+            header.writeLong(System.currentTimeMillis());
+            header.writeLong(registryVersion);
+            header.writeInt(leases.size());
+            header.writeInt(overriddenStatuses.size());
+            header.flush();
+
+            DeflaterOutputStream deflaterOut = new DeflaterOutputStream(checkedOut, deflater, BUFFER_SIZE);
+            DataOutputStream body = new DataOutputStream(deflaterOut);
+            for (Lease<InstanceInfo> lease : leases) {
+                byte[] instance = codec.encode(lease.getHolder()).getBytes(StandardCharsets.UTF_8);
+                body.writeInt(instance.length);
+                body.write(instance);
+                body.writeLong(lease.getDuration());
+                body.writeLong(lease.getRegistrationTimestamp());
+                body.writeLong(lease.getLastRenewalTimestamp());
+                body.writeLong(lease.getServiceUpTimestamp());
+            }
+            for (Map.Entry<String, InstanceStatus> entry : overriddenStatuses.entrySet()) {
+                body.writeUTF(entry.getKey());
+                body.writeUTF(entry.getValue().name());
+            }
+            body.flush();
+            // Not closed, as this would close the channel before the checksum is written
+            deflaterOut.finish();
+
+            new DataOutputStream(fileOut).writeLong(checkedOut.getChecksum().getValue());
+            fileOut.flush();
+            channel.force(true);
+        } finally {
+            deflater.end();
+        }
+        try {
+            Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Reads the snapshot the given file holds.
+     *
+     * @throws IOException if the file cannot be read, is not a registry snapshot or is corrupted
+     */
+    static RegistrySnapshotFile read(Path file, CodecWrapper codec) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE + TRAILER_SIZE || size > Integer.MAX_VALUE) {
+                throw new IOException("Invalid registry snapshot size " + size);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int contentSize = (int) size - TRAILER_SIZE;
+
+            ByteBuffer content = mapped.duplicate();
+            content.limit(contentSize);
+            CRC32 crc = new CRC32();
+            crc.update(content.duplicate());
+            if (crc.getValue() != mapped.getLong(contentSize)) {
+                throw new IOException("Registry snapshot checksum mismatch");
+            }
+
+            if (content.getInt() != MAGIC) {
+                throw new IOException("Not a registry snapshot");
+            }
+            int formatVersion = content.getInt();
+            if (formatVersion != FORMAT_VERSION) {
+                throw new IOException("Unsupported registry snapshot format " + formatVersion);
+            }
+            long createdAt = content.getLong();
+            long registryVersion = content.getLong();
+            int leaseCount = content.getInt();
+            int overriddenStatusCount = content.getInt();
+
+            Inflater inflater = new Inflater();
+            try {
+                DataInputStream body = new DataInputStream(
+                        new InflaterInputStream(new ByteBufferInputStream(content), inflater, BUFFER_SIZE));
+                List<Lease<InstanceInfo>> leases = new ArrayList<>(leaseCount);
+                for (int i = 0; i < leaseCount; i++) {
+                    byte[] instance = new byte[body.readInt()];
+                    body.readFully(instance);
+                    InstanceInfo info = codec.decode(new String(instance, StandardCharsets.UTF_8), InstanceInfo.class);
+                    long duration = body.readLong();
+                    long registrationTimestamp = body.readLong();
+                    long lastUpdateTimestamp = body.readLong();
+                    long serviceUpTimestamp = body.readLong();
+                    leases.add(new Lease<>(info, duration, registrationTimestamp, lastUpdateTimestamp, serviceUpTimestamp));
+                }
+                Map<String, InstanceStatus> overriddenStatuses = new HashMap<>();
+                for (int i = 0; i < overriddenStatusCount; i++) {
+                    String id = body.readUTF();
+                    overriddenStatuses.put(id, InstanceStatus.toEnum(body.readUTF()));
+                }
+                return new RegistrySnapshotFile(createdAt, registryVersion,
+                        Collections.unmodifiableList(leases), Collections.unmodifiableMap(overriddenStatuses));
+            } finally {
+                inflater.end();
+            }
+        }
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(len, buffer.remaining());
+            buffer.get(b, off, count);
+            return count;
+        }
+    }
+}
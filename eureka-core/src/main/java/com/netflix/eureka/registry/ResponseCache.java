@@ -1,8 +1,11 @@
 package com.netflix.eureka.registry;
 
 import javax.annotation.Nullable;
+import java.nio.charset.StandardCharsets;
 import java.util.concurrent.atomic.AtomicLong;
 
+import com.google.common.hash.Hashing;
+
 /**
  * @author David Liu
  */
@@ -28,6 +31,32 @@ public interface ResponseCache {
      */
      String get(Key key);
 
+    /**
+     * Get the UTF-8 encoded information about the applications. Unlike {@link #get(Key)}, the payload is handed out
+     * in the form it is cached in, so the returned array must not be modified. By default, the payload returned by
+     * {@link #get(Key)} is encoded on each call.
+     *
+     * @param key the key for which the cached information needs to be obtained.
+     * @return encoded payload which contains information about the applications.
+     */
+    default byte[] getRaw(Key key) {
+        String payload = get(key);
+        return payload == null ? null : payload.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Get the entity tag identifying the current payload for the given key. Two payloads with the same entity tag
+     * have the same content. By default, the entity tag is hashed from the payload returned by {@link #getRaw(Key)}
+     * on each call.
+     *
+     * @param key the key for which the entity tag needs to be obtained.
+     * @return the quoted entity tag, or null if there is no payload for the key.
+     */
+    default String getETag(Key key) {
+        byte[] payload = getRaw(key);
+        return payload == null ? null : '"' + Hashing.murmur3_128().hashBytes(payload).toString() + '"';
+    }
+
     /**
      * Get the compressed information about the applications.
      *
@@ -36,6 +65,37 @@ public interface ResponseCache {
      */
     byte[] getGZIP(Key key);
 
+    /**
+     * Get the most recent information about the applications, bypassing the read-only cache if it is in use, so that
+     * the payload reflects the registry changes invalidated so far. By default, the cached payload is returned.
+     *
+     * @param key the key for which the cached information needs to be obtained.
+     * @param gzipped whether the compressed or the UTF-8 encoded payload is requested.
+     * @return payload which contains information about the applications, or null if there is none.
+     */
+    default byte[] getLatest(Key key, boolean gzipped) {
+        return gzipped ? getGZIP(key) : getRaw(key);
+    }
+
+    /**
+     * Get the local registry version the payload returned by {@link #getRaw(Key)} and {@link #getGZIP(Key)} was
+     * generated from. The payload reflects at least the registry changes up to that version. By default, the
+     * version is not known.
+     *
+     * @param key the key for which the registry version needs to be obtained.
+     * @return the registry version, or -1 if it is not known.
+     */
+    default long getRegistryVersion(Key key) {
+        return -1;
+    }
+
+    /**
+     * Same as {@link #getRegistryVersion(Key)}, for the payload returned by {@link #getLatest(Key, boolean)}.
+     */
+    default long getLatestRegistryVersion(Key key) {
+        return getRegistryVersion(key);
+    }
+
     /**
      * Performs a shutdown of this cache by stopping internal threads and unregistering
      * Servo monitors.
@@ -19,6 +19,7 @@ package com.netflix.eureka.registry;
 import javax.annotation.Nullable;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
@@ -40,6 +41,7 @@ import com.google.common.cache.RemovalListener;
 import com.google.common.cache.RemovalNotification;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
+import com.google.common.hash.Hashing;
 import com.netflix.appinfo.EurekaAccept;
 import com.netflix.appinfo.InstanceInfo;
 import com.netflix.discovery.converters.wrappers.EncoderWrapper;
@@ -84,7 +86,7 @@ public class ResponseCacheImpl implements ResponseCache {
     private static final AtomicLong versionDeltaLegacy = new AtomicLong(0);
     private static final AtomicLong versionDeltaWithRegionsLegacy = new AtomicLong(0);
 
-    private static final String EMPTY_PAYLOAD = "";
+    private static final byte[] EMPTY_PAYLOAD = new byte[0];
     private final java.util.Timer timer = new java.util.Timer("Eureka-CacheFillTimer", true);
     private final AtomicLong versionDelta = new AtomicLong(0);
     private final AtomicLong versionDeltaWithRegions = new AtomicLong(0);
@@ -119,12 +121,16 @@ public class ResponseCacheImpl implements ResponseCache {
     private final AbstractInstanceRegistry registry;
     private final EurekaServerConfig serverConfig;
     private final ServerCodecs serverCodecs;
+    private final ApplicationsPayloadAssembler payloadAssembler;
 
     ResponseCacheImpl(EurekaServerConfig serverConfig, ServerCodecs serverCodecs, AbstractInstanceRegistry registry) {
         this.serverConfig = serverConfig;
         this.serverCodecs = serverCodecs;
         this.shouldUseReadOnlyResponseCache = serverConfig.shouldUseReadOnlyResponseCache();
         this.registry = registry;
+        this.payloadAssembler = serverConfig.shouldUseApplicationPayloadFragments()
+                ? new ApplicationsPayloadAssembler(serverConfig.getResponseCacheAutoExpirationInSeconds())
+                : null;
 
         long responseCacheUpdateIntervalMs = serverConfig.getResponseCacheUpdateIntervalMs();
         this.readWriteCacheMap =
@@ -212,13 +218,44 @@ public class ResponseCacheImpl implements ResponseCache {
     @VisibleForTesting
     String get(final Key key, boolean useReadOnlyCache) {
         Value payload = getValue(key, useReadOnlyCache);
-        if (payload == null || payload.getPayload().equals(EMPTY_PAYLOAD)) {
+        if (payload == null || payload.isEmpty()) {
             return null;
         } else {
             return payload.getPayload();
         }
     }
 
+    /**
+     * Get the UTF-8 encoded information about the applications.
+     *
+     * @param key
+     *            the key for which the cached information needs to be obtained.
+     * @return encoded payload which contains information about the
+     *         applications. The array is shared and must not be modified.
+     */
+    public byte[] getRaw(Key key) {
+        Value payload = getValue(key, shouldUseReadOnlyResponseCache);
+        if (payload == null || payload.isEmpty()) {
+            return null;
+        }
+        return payload.getRawBytes();
+    }
+
+    /**
+     * Get the entity tag of the cached information about the applications.
+     *
+     * @param key
+     *            the key for which the entity tag needs to be obtained.
+     * @return the quoted entity tag of the payload, derived from its content.
+     */
+    public String getETag(Key key) {
+        Value payload = getValue(key, shouldUseReadOnlyResponseCache);
+        if (payload == null || payload.isEmpty()) {
+            return null;
+        }
+        return payload.getETag();
+    }
+
     /**
      * Get the compressed information about the applications.
      *
@@ -226,7 +263,7 @@ public class ResponseCacheImpl implements ResponseCache {
      *            the key for which the compressed cached information needs to
      *            be obtained.
      * @return compressed payload which contains information about the
-     *         applications.
+     *         applications. The array is shared and must not be modified.
      */
     public byte[] getGZIP(Key key) {
         Value payload = getValue(key, shouldUseReadOnlyResponseCache);
@@ -236,6 +273,36 @@ public class ResponseCacheImpl implements ResponseCache {
         return payload.getGzipped();
     }
 
+    /**
+     * Get the information about the applications from the read-write cache.
+     *
+     * @param key
+     *            the key for which the cached information needs to be obtained.
+     * @param gzipped
+     *            whether the compressed or the UTF-8 encoded payload is requested.
+     * @return payload which contains information about the applications. The array is shared and must not be
+     *         modified.
+     */
+    public byte[] getLatest(Key key, boolean gzipped) {
+        Value payload = getValue(key, false);
+        if (payload == null || payload.isEmpty()) {
+            return null;
+        }
+        return gzipped ? payload.getGzipped() : payload.getRawBytes();
+    }
+
+    @Override
+    public long getRegistryVersion(Key key) {
+        Value payload = getValue(key, shouldUseReadOnlyResponseCache);
+        return payload == null ? -1 : payload.getRegistryVersion();
+    }
+
+    @Override
+    public long getLatestRegistryVersion(Key key) {
+        Value payload = getValue(key, false);
+        return payload == null ? -1 : payload.getRegistryVersion();
+    }
+
     @Override
     public void stop() {
         timer.cancel();
@@ -372,14 +439,36 @@ public class ResponseCacheImpl implements ResponseCache {
     /**
      * Generate pay load with both JSON and XML formats for all applications.
      */
-    private String getPayLoad(Key key, Applications apps) {
+    private byte[] getPayLoad(Key key, Applications apps) {
+        EncoderWrapper encoderWrapper = serverCodecs.getEncoder(key.getType(), key.getEurekaAccept());
+        byte[] result;
+        try {
+            result = encoderWrapper.encode(apps).getBytes(StandardCharsets.UTF_8);
+        } catch (Exception e) {
+            logger.error("Failed to encode the payload for all apps", e);
+            return EMPTY_PAYLOAD;
+        }
+        if(logger.isDebugEnabled()) {
+            logger.debug("New application cache entry {} with apps hashcode {}", key.toStringCompact(), apps.getAppsHashCode());
+        }
+        return result;
+    }
+
+    /**
+     * Generate pay load with both JSON and XML formats for the full registry, reusing the encoded form of the
+     * applications that did not change since the previous full registry payload was generated.
+     */
+    private byte[] getFullRegistryPayLoad(Key key, Applications apps) {
+        if (payloadAssembler == null) {
+            return getPayLoad(key, apps);
+        }
         EncoderWrapper encoderWrapper = serverCodecs.getEncoder(key.getType(), key.getEurekaAccept());
-        String result;
+        byte[] result;
         try {
-            result = encoderWrapper.encode(apps);
+            result = payloadAssembler.encode(encoderWrapper, apps);
         } catch (Exception e) {
             logger.error("Failed to encode the payload for all apps", e);
-            return "";
+            return EMPTY_PAYLOAD;
         }
         if(logger.isDebugEnabled()) {
             logger.debug("New application cache entry {} with apps hashcode {}", key.toStringCompact(), apps.getAppsHashCode());
@@ -390,17 +479,17 @@ public class ResponseCacheImpl implements ResponseCache {
     /**
      * Generate pay load with both JSON and XML formats for a given application.
      */
-    private String getPayLoad(Key key, Application app) {
+    private byte[] getPayLoad(Key key, Application app) {
         if (app == null) {
             return EMPTY_PAYLOAD;
         }
 
         EncoderWrapper encoderWrapper = serverCodecs.getEncoder(key.getType(), key.getEurekaAccept());
         try {
-            return encoderWrapper.encode(app);
+            return encoderWrapper.encode(app).getBytes(StandardCharsets.UTF_8);
         } catch (Exception e) {
             logger.error("Failed to encode the payload for application {}", app.getName(), e);
-            return "";
+            return EMPTY_PAYLOAD;
         }
     }
 
@@ -410,7 +499,9 @@ public class ResponseCacheImpl implements ResponseCache {
     private Value generatePayload(Key key) {
         Stopwatch tracer = null;
         try {
-            String payload;
+            // Read before the registry, so the payload reflects at least the changes up to this version
+            long registryVersion = registry.getRegistryVersion();
+            byte[] payload;
             switch (key.getEntityType()) {
                 case Application:
                     boolean isRemoteRegionRequested = key.hasRegions();
@@ -418,10 +509,10 @@ public class ResponseCacheImpl implements ResponseCache {
                     if (ALL_APPS.equals(key.getName())) {
                         if (isRemoteRegionRequested) {
                             tracer = serializeAllAppsWithRemoteRegionTimer.start();
-                            payload = getPayLoad(key, registry.getApplicationsFromMultipleRegions(key.getRegions()));
+                            payload = getFullRegistryPayLoad(key, registry.getSharedApplicationsFromMultipleRegions(key.getRegions()));
                         } else {
                             tracer = serializeAllAppsTimer.start();
-                            payload = getPayLoad(key, registry.getApplications());
+                            payload = getFullRegistryPayLoad(key, registry.getSharedApplications());
                         }
                     } else if (ALL_APPS_DELTA.equals(key.getName())) {
                         if (isRemoteRegionRequested) {
@@ -448,10 +539,10 @@ public class ResponseCacheImpl implements ResponseCache {
                     break;
                 default:
                     logger.error("Unidentified entity type: {} found in the cache key.", key.getEntityType());
-                    payload = "";
+                    payload = EMPTY_PAYLOAD;
                     break;
             }
-            return new Value(payload);
+            return new Value(payload, registryVersion);
         } finally {
             if (tracer != null) {
                 tracer.stop();
@@ -464,29 +555,44 @@ public class ResponseCacheImpl implements ResponseCache {
                 "Retrieving applications from registry for key : {} {} {} {}",
                 key.getEntityType(), key.getName(), key.getVersion(), key.getType());
         Applications toReturn = new Applications();
-        Applications applications = registry.getApplications();
-        for (Application application : applications.getRegisteredApplications()) {
-            Application appToAdd = null;
-            for (InstanceInfo instanceInfo : application.getInstances()) {
-                String vipAddress;
-                if (Key.EntityType.VIP.equals(key.getEntityType())) {
-                    vipAddress = instanceInfo.getVIPAddress();
-                } else if (Key.EntityType.SVIP.equals(key.getEntityType())) {
-                    vipAddress = instanceInfo.getSecureVipAddress();
-                } else {
-                    // should not happen, but just in case.
-                    continue;
+        if (registry.isApplicationsViewLocalOnly()) {
+            RegistrySnapshot snapshot = registry.getRegistrySnapshot();
+            List<InstanceInfo> instances = Key.EntityType.SVIP.equals(key.getEntityType())
+                    ? snapshot.getInstancesBySecureVipAddress(key.getName())
+                    : snapshot.getInstancesByVipAddress(key.getName());
+            for (InstanceInfo instanceInfo : instances) {
+                Application appToAdd = toReturn.getRegisteredApplications(instanceInfo.getAppName());
+                if (null == appToAdd) {
+                    appToAdd = new Application(instanceInfo.getAppName());
+                    toReturn.addApplication(appToAdd);
                 }
+                appToAdd.addInstance(instanceInfo);
+            }
+        } else {
+            Applications applications = registry.getSharedApplications();
+            for (Application application : applications.getRegisteredApplications()) {
+                Application appToAdd = null;
+                for (InstanceInfo instanceInfo : application.getInstances()) {
+                    String vipAddress;
+                    if (Key.EntityType.VIP.equals(key.getEntityType())) {
+                        vipAddress = instanceInfo.getVIPAddress();
+                    } else if (Key.EntityType.SVIP.equals(key.getEntityType())) {
+                        vipAddress = instanceInfo.getSecureVipAddress();
+                    } else {
+                        // should not happen, but just in case.
+                        continue;
+                    }
 
-                if (null != vipAddress) {
-                    String[] vipAddresses = vipAddress.split(",");
-                    Arrays.sort(vipAddresses);
-                    if (Arrays.binarySearch(vipAddresses, key.getName()) >= 0) {
-                        if (null == appToAdd) {
-                            appToAdd = new Application(application.getName());
-                            toReturn.addApplication(appToAdd);
+                    if (null != vipAddress) {
+                        String[] vipAddresses = vipAddress.split(",");
+                        Arrays.sort(vipAddresses);
+                        if (Arrays.binarySearch(vipAddresses, key.getName()) >= 0) {
+                            if (null == appToAdd) {
+                                appToAdd = new Application(application.getName());
+                                toReturn.addApplication(appToAdd);
+                            }
+                            appToAdd.addInstance(instanceInfo);
                         }
-                        appToAdd.addInstance(instanceInfo);
                     }
                 }
             }
@@ -502,45 +608,95 @@ public class ResponseCacheImpl implements ResponseCache {
     /**
      * The class that stores payload in both compressed and uncompressed form.
      *
+     * <p>
+     * The payload is kept as UTF-8 encoded bytes, which are handed out as is to the resources, so that serving a
+     * response does not require to encode or copy it. The compressed form is only built when first asked for, and at
+     * most once per value.
+     * </p>
      */
     public class Value {
-        private final String payload;
-        private byte[] gzipped;
+        private final byte[] payload;
+        private final long registryVersion;
+        private volatile byte[] gzipped;
+        private volatile String eTag;
 
         public Value(String payload) {
+            this(payload.getBytes(StandardCharsets.UTF_8), -1);
+        }
+
+        Value(byte[] payload, long registryVersion) {
             this.payload = payload;
-            if (!EMPTY_PAYLOAD.equals(payload)) {
-                Stopwatch tracer = compressPayloadTimer.start();
-                try {
-                    ByteArrayOutputStream bos = new ByteArrayOutputStream();
-                    GZIPOutputStream out = new GZIPOutputStream(bos);
-                    byte[] rawBytes = payload.getBytes();
-                    out.write(rawBytes);
-                    // Finish creation of gzip file
-                    out.finish();
-                    out.close();
-                    bos.close();
-                    gzipped = bos.toByteArray();
-                } catch (IOException e) {
-                    gzipped = null;
-                } finally {
-                    if (tracer != null) {
-                        tracer.stop();
-                    }
-                }
-            } else {
-                gzipped = null;
-            }
+            this.registryVersion = registryVersion;
+        }
+
+        boolean isEmpty() {
+            return payload.length == 0;
         }
 
         public String getPayload() {
+            return new String(payload, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * @return the UTF-8 encoded payload. The array is shared and must not be modified.
+         */
+        public byte[] getRawBytes() {
             return payload;
         }
 
+        /**
+         * @return the local registry version this payload was generated from, or -1 if it is not known
+         */
+        public long getRegistryVersion() {
+            return registryVersion;
+        }
+
+        /**
+         * @return the quoted entity tag of this payload, computed from its content on first use
+         */
+        public String getETag() {
+            String result = eTag;
+            if (result == null) {
+                result = '"' + Hashing.murmur3_128().hashBytes(payload).toString() + '"';
+                eTag = result;
+            }
+            return result;
+        }
+
         public byte[] getGzipped() {
-            return gzipped;
+            byte[] result = gzipped;
+            if (result == null && payload.length > 0) {
+                synchronized (this) {
+                    result = gzipped;
+                    if (result == null) {
+                        result = compress();
+                        gzipped = result;
+                    }
+                }
+            }
+            return result;
         }
 
+        private byte[] compress() {
+            Stopwatch tracer = compressPayloadTimer.start();
+            try {
+                ByteArrayOutputStream bos = new ByteArrayOutputStream(payload.length / 4 + 64);
+                GZIPOutputStream out = new GZIPOutputStream(bos);
+                out.write(payload);
+                // Finish creation of gzip file
+                out.finish();
+                out.close();
+                bos.close();
+                return bos.toByteArray();
+            } catch (IOException e) {
+                logger.error("Failed to compress the payload", e);
+                return null;
+            } finally {
+                if (tracer != null) {
+                    tracer.stop();
+                }
+            }
+        }
     }
 
 }
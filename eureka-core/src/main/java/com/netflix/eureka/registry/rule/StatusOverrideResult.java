@@ -12,8 +12,22 @@ public class StatusOverrideResult {
 
     public static StatusOverrideResult NO_MATCH = new StatusOverrideResult(false, null);
 
+    // Results are immutable, so a single one is shared for each status
+    private static final StatusOverrideResult[] MATCHING_STATUSES;
+
+    static {
+        InstanceInfo.InstanceStatus[] statuses = InstanceInfo.InstanceStatus.values();
+        MATCHING_STATUSES = new StatusOverrideResult[statuses.length];
+        for (InstanceInfo.InstanceStatus status : statuses) {
+            MATCHING_STATUSES[status.ordinal()] = new StatusOverrideResult(true, status);
+        }
+    }
+
     public static StatusOverrideResult matchingStatus(InstanceInfo.InstanceStatus status) {
-        return new StatusOverrideResult(true, status);
+        if (status == null) {
+            return new StatusOverrideResult(true, null);
+        }
+        return MATCHING_STATUSES[status.ordinal()];
     }
 
     // Does the rule match?
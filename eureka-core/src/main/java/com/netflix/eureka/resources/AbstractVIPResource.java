@@ -68,7 +68,7 @@ abstract class AbstractVIPResource {
                 eurekaAccept
         );
 
-        String payLoad = responseCache.get(cacheKey);
+        byte[] payLoad = responseCache.getRaw(cacheKey);
         CurrentRequestVersion.remove();
 
         if (payLoad != null) {
@@ -106,7 +106,7 @@ public class ApplicationResource {
                 EurekaAccept.fromString(eurekaAccept)
         );
 
-        String payLoad = responseCache.get(cacheKey);
+        byte[] payLoad = responseCache.getRaw(cacheKey);
         CurrentRequestVersion.remove();
 
         if (payLoad != null) {
@@ -29,9 +29,14 @@ import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 import javax.ws.rs.core.UriInfo;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.netflix.appinfo.EurekaAccept;
+import com.netflix.discovery.shared.Applications;
+import com.netflix.discovery.shared.transport.EurekaHttpResponse;
 import com.netflix.eureka.EurekaServerContext;
 import com.netflix.eureka.EurekaServerContextHolder;
 import com.netflix.eureka.registry.AbstractInstanceRegistry;
@@ -43,6 +48,8 @@ import com.netflix.eureka.registry.Key.KeyType;
 import com.netflix.eureka.registry.ResponseCacheImpl;
 import com.netflix.eureka.registry.Key;
 import com.netflix.eureka.util.EurekaMonitors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * A <em>jersey</em> resource that handles request related to all
@@ -54,22 +61,31 @@ import com.netflix.eureka.util.EurekaMonitors;
 @Path("/{version}/apps")
 @Produces({"application/xml", "application/json"})
 public class ApplicationsResource {
+    private static final Logger logger = LoggerFactory.getLogger(ApplicationsResource.class);
+
     private static final String HEADER_ACCEPT = "Accept";
     private static final String HEADER_ACCEPT_ENCODING = "Accept-Encoding";
     private static final String HEADER_CONTENT_ENCODING = "Content-Encoding";
     private static final String HEADER_CONTENT_TYPE = "Content-Type";
     private static final String HEADER_GZIP_VALUE = "gzip";
     private static final String HEADER_JSON_VALUE = "json";
+    private static final String HEADER_ETAG = "ETag";
+    private static final String HEADER_IF_NONE_MATCH = "If-None-Match";
+
+    // Watch requests currently parked, across all resource instances
+    private static final AtomicInteger activeWatchers = new AtomicInteger();
 
     private final EurekaServerConfig serverConfig;
     private final PeerAwareInstanceRegistry registry;
     private final ResponseCache responseCache;
+    private final ServerCodecs serverCodecs;
 
     @Inject
     ApplicationsResource(EurekaServerContext eurekaServer) {
         this.serverConfig = eurekaServer.getServerConfig();
         this.registry = eurekaServer.getRegistry();
         this.responseCache = registry.getResponseCache();
+        this.serverCodecs = eurekaServer.getServerCodecs();
     }
 
     public ApplicationsResource() {
@@ -113,11 +129,30 @@ public class ApplicationsResource {
      * @return a response containing information about all {@link com.netflix.discovery.shared.Applications}
      *         from the {@link AbstractInstanceRegistry}.
      */
+    public Response getContainers(String version,
+                                  String acceptHeader,
+                                  String acceptEncoding,
+                                  String eurekaAccept,
+                                  UriInfo uriInfo,
+                                  @Nullable String regionsStr) {
+        return getContainers(version, acceptHeader, acceptEncoding, eurekaAccept, null, uriInfo, regionsStr);
+    }
+
+    /**
+     * Get information about all {@link com.netflix.discovery.shared.Applications}, unless the client already has the
+     * current version of it.
+     *
+     * @param ifNoneMatch the entity tag of the registry information the client already has, if any. If it matches
+     *                    the current one, a <em>304 Not Modified</em> response without content is returned.
+     *
+     * @see #getContainers(String, String, String, String, UriInfo, String)
+     */
     @GET
     public Response getContainers(@PathParam("version") String version,
                                   @HeaderParam(HEADER_ACCEPT) String acceptHeader,
                                   @HeaderParam(HEADER_ACCEPT_ENCODING) String acceptEncoding,
                                   @HeaderParam(EurekaAccept.HTTP_X_EUREKA_ACCEPT) String eurekaAccept,
+                                  @HeaderParam(HEADER_IF_NONE_MATCH) String ifNoneMatch,
                                   @Context UriInfo uriInfo,
                                   @Nullable @QueryParam("regions") String regionsStr) {
 
@@ -150,16 +185,7 @@ public class ApplicationsResource {
                 keyType, CurrentRequestVersion.get(), EurekaAccept.fromString(eurekaAccept), regions
         );
 
-        Response response;
-        if (acceptEncoding != null && acceptEncoding.contains(HEADER_GZIP_VALUE)) {
-            response = Response.ok(responseCache.getGZIP(cacheKey))
-                    .header(HEADER_CONTENT_ENCODING, HEADER_GZIP_VALUE)
-                    .header(HEADER_CONTENT_TYPE, returnMediaType)
-                    .build();
-        } else {
-            response = Response.ok(responseCache.get(cacheKey))
-                    .build();
-        }
+        Response response = getCachedResponse(cacheKey, acceptEncoding, ifNoneMatch, returnMediaType, true);
         CurrentRequestVersion.remove();
         return response;
     }
@@ -192,6 +218,24 @@ public class ApplicationsResource {
      * @return response containing the delta information of the
      *         {@link AbstractInstanceRegistry}.
      */
+    public Response getContainerDifferential(
+            String version,
+            String acceptHeader,
+            String acceptEncoding,
+            String eurekaAccept,
+            UriInfo uriInfo, @Nullable String regionsStr) {
+        return getContainerDifferential(version, acceptHeader, acceptEncoding, eurekaAccept, null, uriInfo, regionsStr);
+    }
+
+    /**
+     * Get information about all delta changes in {@link com.netflix.discovery.shared.Applications}, unless the
+     * client already has the current version of it.
+     *
+     * @param ifNoneMatch the entity tag of the delta the client already has, if any. If it matches the current one,
+     *                    a <em>304 Not Modified</em> response without content is returned.
+     *
+     * @see #getContainerDifferential(String, String, String, String, UriInfo, String)
+     */
     @Path("delta")
     @GET
     public Response getContainerDifferential(
@@ -199,6 +243,7 @@ public class ApplicationsResource {
             @HeaderParam(HEADER_ACCEPT) String acceptHeader,
             @HeaderParam(HEADER_ACCEPT_ENCODING) String acceptEncoding,
             @HeaderParam(EurekaAccept.HTTP_X_EUREKA_ACCEPT) String eurekaAccept,
+            @HeaderParam(HEADER_IF_NONE_MATCH) String ifNoneMatch,
             @Context UriInfo uriInfo, @Nullable @QueryParam("regions") String regionsStr) {
 
         boolean isRemoteRegionRequested = null != regionsStr && !regionsStr.isEmpty();
@@ -208,7 +253,12 @@ public class ApplicationsResource {
         if ((serverConfig.shouldDisableDelta()) || (!registry.shouldAllowAccess(isRemoteRegionRequested))) {
             return Response.status(Status.FORBIDDEN).build();
         }
+        return getDeltaResponse(version, acceptHeader, acceptEncoding, eurekaAccept, ifNoneMatch, regionsStr, true);
+    }
 
+    private Response getDeltaResponse(String version, String acceptHeader, String acceptEncoding, String eurekaAccept,
+                                      String ifNoneMatch, @Nullable String regionsStr, boolean withRegistryVersion) {
+        boolean isRemoteRegionRequested = null != regionsStr && !regionsStr.isEmpty();
         String[] regions = null;
         if (!isRemoteRegionRequested) {
             EurekaMonitors.GET_ALL_DELTA.increment();
@@ -231,18 +281,174 @@ public class ApplicationsResource {
                 keyType, CurrentRequestVersion.get(), EurekaAccept.fromString(eurekaAccept), regions
         );
 
-        final Response response;
+        final Response response = getCachedResponse(cacheKey, acceptEncoding, ifNoneMatch, returnMediaType, withRegistryVersion);
+
+        CurrentRequestVersion.remove();
+        return response;
+    }
+
+    /**
+     * Waits for the local registry to change past the given version, and then gets the delta changes in
+     * {@link com.netflix.discovery.shared.Applications}.
+     *
+     * <p>
+     * This lets clients learn about registry changes as they happen, instead of polling the delta at a fixed
+     * interval. The client passes the registry version it last saw in the
+     * {@link EurekaHttpResponse#HEADER_REGISTRY_VERSION} header of a registry response; the request is held until the
+     * version changes or the timeout elapses, in which case a <em>304 Not Modified</em> response is returned. The
+     * delta returned afterwards holds exactly the changes since the client version, if they are still known;
+     * otherwise it is the regular delta, which overlaps with what the client already has.
+     * </p>
+     *
+     * <p>
+     * A waiting request holds a request thread, so the number of concurrent watchers is bounded by
+     * {@link EurekaServerConfig#getMaxRegistryWatchers()}. Over that limit, the regular delta is returned right away
+     * without the {@link EurekaHttpResponse#HEADER_REGISTRY_VERSION} header, so that the client does not watch again
+     * from there but falls back to polling at its regular interval.
+     * </p>
+     *
+     * @param since the registry version the client already has.
+     * @param timeoutSeconds the maximum time to wait for a change, bounded by
+     *                       {@link EurekaServerConfig#getMaxRegistryWatchTimeoutMs()}.
+     * @see #getContainerDifferential(String, String, String, String, UriInfo, String)
+     */
+    @Path("watch")
+    @GET
+    public Response watchContainerDifferential(
+            @PathParam("version") String version,
+            @HeaderParam(HEADER_ACCEPT) String acceptHeader,
+            @HeaderParam(HEADER_ACCEPT_ENCODING) String acceptEncoding,
+            @HeaderParam(EurekaAccept.HTTP_X_EUREKA_ACCEPT) String eurekaAccept,
+            @QueryParam("since") long since,
+            @QueryParam("timeoutSeconds") int timeoutSeconds,
+            @Context UriInfo uriInfo, @Nullable @QueryParam("regions") String regionsStr) {
+
+        boolean isRemoteRegionRequested = null != regionsStr && !regionsStr.isEmpty();
+        if ((serverConfig.shouldDisableDelta()) || (!registry.shouldAllowAccess(isRemoteRegionRequested))) {
+            return Response.status(Status.FORBIDDEN).build();
+        }
+
+        if (activeWatchers.incrementAndGet() > serverConfig.getMaxRegistryWatchers()) {
+            activeWatchers.decrementAndGet();
+            // Without a registry version, the client polls at its regular interval rather than watching again
+            return getDeltaResponse(version, acceptHeader, acceptEncoding, eurekaAccept, null, regionsStr, false);
+        }
+        long registryVersion;
+        try {
+            EurekaMonitors.WATCH_DELTA.increment();
+            long timeoutMs = Math.min(Math.max(timeoutSeconds, 0) * 1000L, serverConfig.getMaxRegistryWatchTimeoutMs());
+            registryVersion = registry.awaitRegistryChange(since, timeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Response.status(Status.SERVICE_UNAVAILABLE).build();
+        } finally {
+            activeWatchers.decrementAndGet();
+        }
+        if (registryVersion == since) {
+            return Response.notModified().header(EurekaHttpResponse.HEADER_REGISTRY_VERSION, registryVersion).build();
+        }
 
+        String[] regions = null;
+        if (isRemoteRegionRequested) {
+            regions = regionsStr.toLowerCase().split(",");
+            Arrays.sort(regions); // So we don't have different caches for same regions queried in different order.
+        }
+        CurrentRequestVersion.set(Version.toEnum(version));
+        KeyType keyType = Key.KeyType.JSON;
+        String returnMediaType = MediaType.APPLICATION_JSON;
+        if (acceptHeader == null || !acceptHeader.contains(HEADER_JSON_VALUE)) {
+            keyType = Key.KeyType.XML;
+            returnMediaType = MediaType.APPLICATION_XML;
+        }
+
+        if (regions == null) {
+            Response response = getExactDeltaResponse(since, keyType, EurekaAccept.fromString(eurekaAccept));
+            if (response != null) {
+                CurrentRequestVersion.remove();
+                return response;
+            }
+        }
+
+        Key cacheKey = new Key(Key.EntityType.Application,
+                ResponseCacheImpl.ALL_APPS_DELTA,
+                keyType, CurrentRequestVersion.get(), EurekaAccept.fromString(eurekaAccept), regions
+        );
+
+        // The read-only cache may still hold the delta from before the change the client was woken up for
+        Response.ResponseBuilder builder;
+        long payloadVersion = responseCache.getLatestRegistryVersion(cacheKey);
         if (acceptEncoding != null && acceptEncoding.contains(HEADER_GZIP_VALUE)) {
-             response = Response.ok(responseCache.getGZIP(cacheKey))
+            builder = Response.ok(responseCache.getLatest(cacheKey, true))
                     .header(HEADER_CONTENT_ENCODING, HEADER_GZIP_VALUE)
-                    .header(HEADER_CONTENT_TYPE, returnMediaType)
-                    .build();
+                    .header(HEADER_CONTENT_TYPE, returnMediaType);
         } else {
-            response = Response.ok(responseCache.get(cacheKey)).build();
+            builder = Response.ok(responseCache.getLatest(cacheKey, false));
+        }
+        if (payloadVersion >= 0) {
+            builder.header(EurekaHttpResponse.HEADER_REGISTRY_VERSION, payloadVersion);
         }
-
         CurrentRequestVersion.remove();
-        return response;
+        return builder.build();
+    }
+
+    /**
+     * The delta since a given version is specific to the client and so is not cached; it is usually small enough
+     * to be served uncompressed.
+     *
+     * @return the response holding the exact delta, or null if the changes since that version are not known anymore
+     */
+    private Response getExactDeltaResponse(long since, KeyType keyType, EurekaAccept eurekaAccept) {
+        // Read before the delta, which holds at least the changes up to this version
+        long deltaVersion = registry.getRegistryVersion();
+        Applications delta = registry.getApplicationDeltasSince(since);
+        if (delta == null) {
+            return null;
+        }
+        try {
+            String payload = serverCodecs.getEncoder(keyType, eurekaAccept).encode(delta);
+            return Response.ok(payload.getBytes(StandardCharsets.UTF_8))
+                    .header(EurekaHttpResponse.HEADER_REGISTRY_VERSION, deltaVersion)
+                    .build();
+        } catch (IOException e) {
+            logger.warn("Cannot encode the registry delta since version {}; serving the cached delta instead", since, e);
+            return null;
+        }
+    }
+
+    /**
+     * @param withRegistryVersion whether to tell the client the registry version of the payload; without it, the
+     *                            client cannot watch the registry from there and polls instead.
+     */
+    private Response getCachedResponse(Key cacheKey, String acceptEncoding, String ifNoneMatch, String returnMediaType,
+                                       boolean withRegistryVersion) {
+        // The registry version is read before the payload, like the entity tag below, so that a client never skips
+        // a change by watching from a version newer than its payload
+        long registryVersion = withRegistryVersion ? responseCache.getRegistryVersion(cacheKey) : -1;
+        // The entity tag is read before the payload; should the payload change in between, the client ends up
+        // with an outdated tag and gets the payload again next time, rather than missing the change
+        String eTag = serverConfig.shouldUseRegistryETag() ? responseCache.getETag(cacheKey) : null;
+        if (eTag != null && ifNoneMatch != null && ifNoneMatch.contains(eTag)) {
+            Response.ResponseBuilder notModified = Response.notModified().header(HEADER_ETAG, eTag);
+            if (registryVersion >= 0) {
+                notModified.header(EurekaHttpResponse.HEADER_REGISTRY_VERSION, registryVersion);
+            }
+            return notModified.build();
+        }
+
+        Response.ResponseBuilder builder;
+        if (acceptEncoding != null && acceptEncoding.contains(HEADER_GZIP_VALUE)) {
+            builder = Response.ok(responseCache.getGZIP(cacheKey))
+                    .header(HEADER_CONTENT_ENCODING, HEADER_GZIP_VALUE)
+                    .header(HEADER_CONTENT_TYPE, returnMediaType);
+        } else {
+            builder = Response.ok(responseCache.getRaw(cacheKey));
+        }
+        if (eTag != null) {
+            builder.header(HEADER_ETAG, eTag);
+        }
+        if (registryVersion >= 0) {
+            builder.header(EurekaHttpResponse.HEADER_REGISTRY_VERSION, registryVersion);
+        }
+        return builder.build();
     }
 }
@@ -16,22 +16,47 @@
 
 package com.netflix.eureka.resources;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
 import javax.inject.Inject;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
 
 import com.netflix.appinfo.InstanceInfo;
+import com.netflix.appinfo.InstanceInfo.InstanceStatus;
 import com.netflix.eureka.EurekaServerContext;
 import com.netflix.eureka.EurekaServerConfig;
 import com.netflix.eureka.EurekaServerContextHolder;
+import com.netflix.eureka.cluster.PeerEurekaNode;
+import com.netflix.eureka.cluster.PeerEurekaNodes;
+import com.netflix.eureka.cluster.protocol.HeartbeatFrame;
+import com.netflix.eureka.cluster.protocol.LeaseVector;
+import com.netflix.eureka.cluster.protocol.PeerReplicationStatus;
+import com.netflix.eureka.cluster.protocol.RegistryDigest;
 import com.netflix.eureka.cluster.protocol.ReplicationInstance;
 import com.netflix.eureka.cluster.protocol.ReplicationInstanceResponse;
 import com.netflix.eureka.cluster.protocol.ReplicationInstanceResponse.Builder;
 import com.netflix.eureka.cluster.protocol.ReplicationList;
 import com.netflix.eureka.cluster.protocol.ReplicationListResponse;
+import com.netflix.eureka.cluster.protocol.ReplicationStatus;
+import com.netflix.eureka.lease.Lease;
 import com.netflix.eureka.registry.PeerAwareInstanceRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -48,15 +73,21 @@ public class PeerReplicationResource {
 
     private static final Logger logger = LoggerFactory.getLogger(PeerReplicationResource.class);
 
+    private static final String HEADER_JSON_VALUE = "json";
+
     private static final String REPLICATION = "true";
 
     private final EurekaServerConfig serverConfig;
     private final PeerAwareInstanceRegistry registry;
+    private final PeerEurekaNodes peerEurekaNodes;
+    private final ServerCodecs serverCodecs;
 
     @Inject
     PeerReplicationResource(EurekaServerContext server) {
         this.serverConfig = server.getServerConfig();
         this.registry = server.getRegistry();
+        this.peerEurekaNodes = server.getPeerEurekaNodes();
+        this.serverCodecs = server.getServerCodecs();
     }
 
     public PeerReplicationResource() {
@@ -67,110 +98,251 @@ public class PeerReplicationResource {
      * Process batched replication events from peer eureka nodes.
      *
      * <p>
-     *  The batched events are delegated to underlying resources to generate a
-     *  {@link ReplicationListResponse} containing the individual responses to the batched events
+     *  The batched events are applied to the registry to generate a {@link ReplicationListResponse} containing the
+     *  individual responses to the batched events. A registration is validated as by
+     *  {@link ApplicationResource#addInstance(InstanceInfo, String)}. The events are partitioned by instance id, and the partitions processed in
+     *  parallel as configured by {@link EurekaServerConfig#getPeerReplicationBatchParallelism()}, so the events of an
+     *  instance are still processed in order.
+     * </p>
+     * <p>
+     *  A JSON response is streamed in the batch order by the configured JSON codec, each individual response encoded
+     *  as soon as it and the ones before it are available.
      * </p>
      *
      * @param replicationList
      *            The List of replication events from peer eureka nodes
+     * @param acceptHeader
+     *            The accept header, telling whether the response is JSON or XML
      * @return A batched response containing the information about the responses of individual events
      */
     @Path("batch")
     @POST
-    public Response batchReplication(ReplicationList replicationList) {
+    public Response batchReplication(ReplicationList replicationList,
+                                     @HeaderParam(HttpHeaders.ACCEPT) String acceptHeader) {
         try {
-            ReplicationListResponse batchResponse = new ReplicationListResponse();
-            for (ReplicationInstance instanceInfo : replicationList.getReplicationList()) {
-                try {
-                    batchResponse.addResponse(dispatch(instanceInfo));
-                } catch (Exception e) {
-                    batchResponse.addResponse(new ReplicationInstanceResponse(Status.INTERNAL_SERVER_ERROR.getStatusCode(), null));
-                    logger.error("{} request processing failed for batch item {}/{}",
-                            instanceInfo.getAction(), instanceInfo.getAppName(), instanceInfo.getId(), e);
-                }
+            List<ReplicationInstance> instances = replicationList.getReplicationList();
+            int partitionCount = Math.max(1, Math.min(serverConfig.getPeerReplicationBatchParallelism(), instances.size()));
+            BatchDispatch batchDispatch = new BatchDispatch(instances, partitionCount);
+            if (acceptHeader != null && acceptHeader.contains(HEADER_JSON_VALUE)) {
+                return Response.ok(batchDispatch, MediaType.APPLICATION_JSON_TYPE).build();
             }
-            return Response.ok(batchResponse).build();
+            return Response.ok(batchDispatch.awaitResponseList()).build();
         } catch (Throwable e) {
             logger.error("Cannot execute batch Request", e);
             return Response.status(Status.INTERNAL_SERVER_ERROR).build();
         }
     }
 
-    private ReplicationInstanceResponse dispatch(ReplicationInstance instanceInfo) {
-        ApplicationResource applicationResource = createApplicationResource(instanceInfo);
-        InstanceResource resource = createInstanceResource(instanceInfo, applicationResource);
+    private static int partitionOf(ReplicationInstance instanceInfo, int partitionCount) {
+        String id = instanceInfo.getId();
+        return id == null ? 0 : (id.hashCode() & Integer.MAX_VALUE) % partitionCount;
+    }
+
+    /**
+     * Process batched heartbeats from peer eureka nodes, sent as a {@link HeartbeatFrame}.
+     *
+     * @param frame
+     *            The encoded heartbeats
+     * @param acceptHeader
+     *            The accept header, telling whether the response is JSON or XML
+     * @return A batched response containing the information about the responses of individual heartbeats
+     */
+    @Path("batch")
+    @POST
+    @Consumes(HeartbeatFrame.MEDIA_TYPE)
+    public Response batchHeartbeatReplication(byte[] frame, @HeaderParam(HttpHeaders.ACCEPT) String acceptHeader) {
+        ReplicationList replicationList;
+        try {
+            replicationList = HeartbeatFrame.decode(frame);
+        } catch (IOException e) {
+            logger.warn("Cannot decode heartbeat frame", e);
+            return Response.status(Status.BAD_REQUEST).build();
+        }
+        return batchReplication(replicationList, acceptHeader);
+    }
 
-        String lastDirtyTimestamp = toString(instanceInfo.getLastDirtyTimestamp());
-        String overriddenStatus = toString(instanceInfo.getOverriddenStatus());
-        String instanceStatus = toString(instanceInfo.getStatus());
+    /**
+     * Compares the registry digest of a peer eureka node with the local registry, for the peer to replicate the
+     * instances it has a more recent version of.
+     *
+     * @param registryDigest
+     *            The hash of each application of the peer registry
+     * @return The instance digests of the local applications whose hash differs from the one of the peer, or
+     *         <em>404 Not Found</em> if the registry does not support registry digests
+     */
+    @Path("digest")
+    @POST
+    public Response compareRegistryDigest(RegistryDigest registryDigest) {
+        try {
+            RegistryDigest divergentDigest = registry.compareRegistryDigest(registryDigest);
+            if (divergentDigest == RegistryDigest.UNSUPPORTED) {
+                return Response.status(Status.NOT_FOUND).build();
+            }
+            return Response.ok(divergentDigest).build();
+        } catch (Throwable e) {
+            logger.error("Cannot compare registry digest", e);
+            return Response.status(Status.INTERNAL_SERVER_ERROR).build();
+        }
+    }
 
-        Builder singleResponseBuilder = new Builder();
+    /**
+     * Renews the leases replicated by a peer eureka node in a {@link LeaseVector}. A renewal older than the default
+     * lease duration is ignored, as it cannot keep a lease alive any more.
+     *
+     * @param leaseVector
+     *            The last renewal time of the leases renewed on the peer
+     * @return The leases unknown to the local registry, for the peer to register their instances again
+     */
+    @Path("leases")
+    @POST
+    public Response renewLeases(LeaseVector leaseVector) {
+        try {
+            long oldestRenewalTimestamp = System.currentTimeMillis() - Lease.DEFAULT_DURATION_IN_SECS * 1000L;
+            Map<String, Map<String, Long>> missingLeases = new HashMap<>();
+            for (Map.Entry<String, Map<String, Long>> appLeases : leaseVector.getLeases().entrySet()) {
+                String appName = appLeases.getKey().toUpperCase();
+                for (Map.Entry<String, Long> lease : appLeases.getValue().entrySet()) {
+                    if (lease.getValue() < oldestRenewalTimestamp) {
+                        continue;
+                    }
+                    if (!registry.renew(appName, lease.getKey(), true)) {
+                        logger.warn("Not Found (Renew): {} - {}", appName, lease.getKey());
+                        missingLeases.computeIfAbsent(appLeases.getKey(), k -> new HashMap<>())
+                                .put(lease.getKey(), lease.getValue());
+                    }
+                }
+            }
+            return Response.ok(new LeaseVector(missingLeases)).build();
+        } catch (Throwable e) {
+            logger.error("Cannot renew the leases of the lease vector", e);
+            return Response.status(Status.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /**
+     * Reports the replication state of each peer eureka node, telling how far behind the local registry they are.
+     *
+     * @return The replication lag, the age of the oldest task waiting to be sent, the number of expired tasks of
+     *         each action and the number of bytes sent, for each peer
+     */
+    @Path("status")
+    @GET
+    public Response getReplicationStatus() {
+        try {
+            List<PeerReplicationStatus> peerStatuses = new ArrayList<>();
+            for (PeerEurekaNode node : peerEurekaNodes.getPeerEurekaNodes()) {
+                peerStatuses.add(node.getReplicationStatus());
+            }
+            return Response.ok(new ReplicationStatus(peerStatuses)).build();
+        } catch (Throwable e) {
+            logger.error("Cannot get the replication status", e);
+            return Response.status(Status.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    private ReplicationInstanceResponse dispatch(ReplicationInstance instanceInfo) {
+        String appName = instanceInfo.getAppName().toUpperCase();
+        String id = instanceInfo.getId();
         switch (instanceInfo.getAction()) {
             case Register:
-                singleResponseBuilder = handleRegister(instanceInfo, applicationResource);
-                break;
+                return handleRegister(instanceInfo);
             case Heartbeat:
-                singleResponseBuilder = handleHeartbeat(serverConfig, resource, lastDirtyTimestamp, overriddenStatus, instanceStatus);
-                break;
+                return handleHeartbeat(appName, id, instanceInfo);
             case Cancel:
-                singleResponseBuilder = handleCancel(resource);
-                break;
+                return handleCancel(appName, id);
             case StatusUpdate:
-                singleResponseBuilder = handleStatusUpdate(instanceInfo, resource);
-                break;
+                return handleStatusUpdate(appName, id, instanceInfo);
             case DeleteStatusOverride:
-                singleResponseBuilder = handleDeleteStatusOverride(instanceInfo, resource);
-                break;
+                return handleDeleteStatusOverride(appName, id, instanceInfo);
         }
-        return singleResponseBuilder.build();
-    }
-
-    /* Visible for testing */ ApplicationResource createApplicationResource(ReplicationInstance instanceInfo) {
-        return new ApplicationResource(instanceInfo.getAppName(), serverConfig, registry);
+        return new Builder().build();
     }
 
-    /* Visible for testing */ InstanceResource createInstanceResource(ReplicationInstance instanceInfo,
-                                                                      ApplicationResource applicationResource) {
-        return new InstanceResource(applicationResource, instanceInfo.getId(), serverConfig, registry);
-    }
-
-    private static Builder handleRegister(ReplicationInstance instanceInfo, ApplicationResource applicationResource) {
-        applicationResource.addInstance(instanceInfo.getInstanceInfo(), REPLICATION);
-        return new Builder().setStatusCode(Status.OK.getStatusCode());
+    private ReplicationInstanceResponse handleRegister(ReplicationInstance instanceInfo) {
+        ApplicationResource applicationResource = new ApplicationResource(instanceInfo.getAppName(), serverConfig, registry);
+        Response response = applicationResource.addInstance(instanceInfo.getInstanceInfo(), REPLICATION);
+        if (response.getStatus() == Status.NO_CONTENT.getStatusCode()) {
+            return new Builder().setStatusCode(Status.OK.getStatusCode()).build();
+        }
+        logger.warn("Invalid registration of {}/{}: {}", instanceInfo.getAppName(), instanceInfo.getId(), response.getEntity());
+        return new Builder().setStatusCode(response.getStatus()).build();
     }
 
-    private static Builder handleCancel(InstanceResource resource) {
-        Response response = resource.cancelLease(REPLICATION);
-        return new Builder().setStatusCode(response.getStatus());
+    private ReplicationInstanceResponse handleCancel(String appName, String id) {
+        if (registry.cancel(appName, id, true)) {
+            logger.debug("Found (Cancel): {} - {}", appName, id);
+            return new Builder().setStatusCode(Status.OK.getStatusCode()).build();
+        }
+        logger.info("Not Found (Cancel): {} - {}", appName, id);
+        return new Builder().setStatusCode(Status.NOT_FOUND.getStatusCode()).build();
     }
 
-    private static Builder handleHeartbeat(EurekaServerConfig config, InstanceResource resource, String lastDirtyTimestamp, String overriddenStatus, String instanceStatus) {
-        Response response = resource.renewLease(REPLICATION, overriddenStatus, instanceStatus, lastDirtyTimestamp);
-        int responseStatus = response.getStatus();
-        Builder responseBuilder = new Builder().setStatusCode(responseStatus);
-
-        if ("false".equals(config.getExperimental("bugfix.934"))) {
-            if (responseStatus == Status.OK.getStatusCode() && response.getEntity() != null) {
-                responseBuilder.setResponseEntity((InstanceInfo) response.getEntity());
-            }
-        } else {
-            if ((responseStatus == Status.OK.getStatusCode() || responseStatus == Status.CONFLICT.getStatusCode())
-                    && response.getEntity() != null) {
-                responseBuilder.setResponseEntity((InstanceInfo) response.getEntity());
+    /**
+     * Renews the lease of the instance, and compares the last dirty timestamp of the peer with the local one as
+     * {@link InstanceResource#renewLease(String, String, String, String)} does.
+     */
+    private ReplicationInstanceResponse handleHeartbeat(String appName, String id, ReplicationInstance instanceInfo) {
+        if (!registry.renew(appName, id, true)) {
+            logger.warn("Not Found (Renew): {} - {}", appName, id);
+            return new Builder().setStatusCode(Status.NOT_FOUND.getStatusCode()).build();
+        }
+        Long lastDirtyTimestamp = instanceInfo.getLastDirtyTimestamp();
+        if (lastDirtyTimestamp == null || !serverConfig.shouldSyncWhenTimestampDiffers()) {
+            return new Builder().setStatusCode(Status.OK.getStatusCode()).build();
+        }
+        InstanceInfo localInfo = registry.getInstanceByAppAndId(appName, id, false);
+        if (localInfo == null || lastDirtyTimestamp.equals(localInfo.getLastDirtyTimestamp())) {
+            return new Builder().setStatusCode(Status.OK.getStatusCode()).build();
+        }
+        if (lastDirtyTimestamp > localInfo.getLastDirtyTimestamp()) {
+            logger.debug("Time to sync, since the last dirty timestamp differs - ReplicationInstance id : {},Registry : {} Incoming: {} Replication: {}",
+                    id, localInfo.getLastDirtyTimestamp(), lastDirtyTimestamp, true);
+            // Store the overridden status since the node that replicates wins
+            String overriddenStatus = instanceInfo.getOverriddenStatus();
+            if (overriddenStatus != null && !InstanceStatus.UNKNOWN.name().equals(overriddenStatus)) {
+                registry.storeOverriddenStatusIfRequired(appName, id, InstanceStatus.valueOf(overriddenStatus));
             }
+            return new Builder().setStatusCode(Status.NOT_FOUND.getStatusCode()).build();
+        }
+        // Send the local instance info for the replicating node to sync itself with this one
+        logger.debug("Time to sync, since the last dirty timestamp differs - ReplicationInstance id : {},Registry : {} Incoming: {} Replication: {}",
+                id, localInfo.getLastDirtyTimestamp(), lastDirtyTimestamp, true);
+        Builder responseBuilder = new Builder().setStatusCode(Status.CONFLICT.getStatusCode());
+        if (!"false".equals(serverConfig.getExperimental("bugfix.934"))) {
+            responseBuilder.setResponseEntity(localInfo);
         }
-        return responseBuilder;
+        return responseBuilder.build();
     }
 
-    private static Builder handleStatusUpdate(ReplicationInstance instanceInfo, InstanceResource resource) {
-        Response response = resource.statusUpdate(instanceInfo.getStatus(), REPLICATION, toString(instanceInfo.getLastDirtyTimestamp()));
-        return new Builder().setStatusCode(response.getStatus());
+    private ReplicationInstanceResponse handleStatusUpdate(String appName, String id, ReplicationInstance instanceInfo) {
+        if (registry.getInstanceByAppAndId(appName, id) == null) {
+            logger.warn("Instance not found: {}/{}", appName, id);
+            return new Builder().setStatusCode(Status.NOT_FOUND.getStatusCode()).build();
+        }
+        boolean isSuccess = registry.statusUpdate(appName, id, InstanceStatus.valueOf(instanceInfo.getStatus()),
+                toString(instanceInfo.getLastDirtyTimestamp()), true);
+        if (isSuccess) {
+            logger.info("Status updated: {} - {} - {}", appName, id, instanceInfo.getStatus());
+            return new Builder().setStatusCode(Status.OK.getStatusCode()).build();
+        }
+        logger.warn("Unable to update status: {} - {} - {}", appName, id, instanceInfo.getStatus());
+        return new Builder().setStatusCode(Status.INTERNAL_SERVER_ERROR.getStatusCode()).build();
     }
 
-    private static Builder handleDeleteStatusOverride(ReplicationInstance instanceInfo, InstanceResource resource) {
-        Response response = resource.deleteStatusUpdate(REPLICATION, instanceInfo.getStatus(),
-                instanceInfo.getLastDirtyTimestamp().toString());
-        return new Builder().setStatusCode(response.getStatus());
+    private ReplicationInstanceResponse handleDeleteStatusOverride(String appName, String id, ReplicationInstance instanceInfo) {
+        if (registry.getInstanceByAppAndId(appName, id) == null) {
+            logger.warn("Instance not found: {}/{}", appName, id);
+            return new Builder().setStatusCode(Status.NOT_FOUND.getStatusCode()).build();
+        }
+        InstanceStatus newStatus = instanceInfo.getStatus() == null ? InstanceStatus.UNKNOWN : InstanceStatus.valueOf(instanceInfo.getStatus());
+        boolean isSuccess = registry.deleteStatusOverride(appName, id, newStatus,
+                toString(instanceInfo.getLastDirtyTimestamp()), true);
+        if (isSuccess) {
+            logger.info("Status override removed: {} - {}", appName, id);
+            return new Builder().setStatusCode(Status.OK.getStatusCode()).build();
+        }
+        logger.warn("Unable to remove status override: {} - {}", appName, id);
+        return new Builder().setStatusCode(Status.INTERNAL_SERVER_ERROR.getStatusCode()).build();
     }
 
     private static <T> String toString(T value) {
@@ -179,4 +351,122 @@ public class PeerReplicationResource {
         }
         return value.toString();
     }
+
+    /**
+     * The responses to the events of a batch. The partitions of the batch other than the first are dispatched on the
+     * common fork join pool as soon as it is created, and the first one by the thread reading the responses, in the
+     * batch order. The responses are read through a {@link ReplicationListResponse} whose response list waits for
+     * each of them, so that the JSON codec encodes them as they become available.
+     */
+    private class BatchDispatch implements StreamingOutput {
+
+        private final List<ReplicationInstance> instances;
+        private final int partitionCount;
+        // Guarded by this
+        private final ReplicationInstanceResponse[] responses;
+
+        BatchDispatch(List<ReplicationInstance> instances, int partitionCount) {
+            this.instances = instances;
+            this.partitionCount = partitionCount;
+            this.responses = new ReplicationInstanceResponse[instances.size()];
+            for (int partition = 1; partition < partitionCount; partition++) {
+                final int taskPartition = partition;
+                ForkJoinPool.commonPool().execute(() -> dispatchPartition(taskPartition));
+            }
+        }
+
+        ReplicationListResponse awaitResponseList() throws InterruptedException {
+            ReplicationInstanceResponse[] responseList = new ReplicationInstanceResponse[responses.length];
+            for (int i = 0; i < responseList.length; i++) {
+                responseList[i] = awaitResponse(i);
+            }
+            return new ReplicationListResponse(Arrays.asList(responseList));
+        }
+
+        @Override
+        public void write(OutputStream output) throws IOException {
+            StreamedResponseList responseList = new StreamedResponseList();
+            try {
+                serverCodecs.getFullJsonCodec().encode(new ReplicationListResponse(responseList), output);
+            } finally {
+                // The events of the first partition are applied as their responses are encoded, and must still be
+                // applied if the peer does not read them
+                for (int i = responseList.encoded; i < responses.length; i++) {
+                    if (partitionOf(instances.get(i), partitionCount) == 0 && getResponse(i) == null) {
+                        setResponse(i, dispatchItem(instances.get(i)));
+                    }
+                }
+            }
+        }
+
+        private ReplicationInstanceResponse awaitResponse(int index) throws InterruptedException {
+            if (partitionOf(instances.get(index), partitionCount) == 0) {
+                ReplicationInstanceResponse response = getResponse(index);
+                if (response == null) {
+                    response = dispatchItem(instances.get(index));
+                    setResponse(index, response);
+                }
+                return response;
+            }
+            synchronized (this) {
+                while (responses[index] == null) {
+                    wait();
+                }
+                return responses[index];
+            }
+        }
+
+        private void dispatchPartition(int partition) {
+            for (int i = 0; i < responses.length; i++) {
+                if (partitionOf(instances.get(i), partitionCount) == partition) {
+                    setResponse(i, dispatchItem(instances.get(i)));
+                }
+            }
+        }
+
+        private ReplicationInstanceResponse dispatchItem(ReplicationInstance instanceInfo) {
+            try {
+                return dispatch(instanceInfo);
+            } catch (Throwable e) {
+                logger.error("{} request processing failed for batch item {}/{}",
+                        instanceInfo.getAction(), instanceInfo.getAppName(), instanceInfo.getId(), e);
+                return new ReplicationInstanceResponse(Status.INTERNAL_SERVER_ERROR.getStatusCode(), null);
+            }
+        }
+
+        private synchronized ReplicationInstanceResponse getResponse(int index) {
+            return responses[index];
+        }
+
+        private synchronized void setResponse(int index, ReplicationInstanceResponse response) {
+            responses[index] = response;
+            notifyAll();
+        }
+
+        /**
+         * The responses in the batch order, each one awaited when the codec reads it.
+         */
+        private class StreamedResponseList extends AbstractList<ReplicationInstanceResponse> {
+
+            // Number of responses read, which the codec does in order
+            private int encoded;
+
+            @Override
+            public ReplicationInstanceResponse get(int index) {
+                try {
+                    ReplicationInstanceResponse response = awaitResponse(index);
+                    encoded = index + 1;
+                    return response;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for the batch responses", e);
+                }
+            }
+
+            @Override
+            public int size() {
+                return responses.length;
+            }
+        }
+    }
 }
@@ -17,8 +17,12 @@ import com.netflix.discovery.shared.transport.jersey.EurekaJerseyClientImpl.Eure
 import com.netflix.eureka.EurekaServerConfig;
 import com.netflix.eureka.EurekaServerIdentity;
 import com.netflix.eureka.cluster.DynamicGZIPContentEncodingFilter;
+import com.netflix.eureka.cluster.HeartbeatFrameNegotiator;
 import com.netflix.eureka.cluster.HttpReplicationClient;
 import com.netflix.eureka.cluster.PeerEurekaNode;
+import com.netflix.eureka.cluster.protocol.HeartbeatFrame;
+import com.netflix.eureka.cluster.protocol.LeaseVector;
+import com.netflix.eureka.cluster.protocol.RegistryDigest;
 import com.netflix.eureka.cluster.protocol.ReplicationList;
 import com.netflix.eureka.cluster.protocol.ReplicationListResponse;
 import com.netflix.eureka.resources.ASGResource.ASGStatus;
@@ -42,11 +46,20 @@ public class JerseyReplicationClient extends AbstractJerseyEurekaHttpClient impl
 
     private final EurekaJerseyClient jerseyClient;
     private final ApacheHttpClient4 jerseyApacheClient;
+    private final HeartbeatFrameNegotiator heartbeatFrameNegotiator;
+    private final SentBytesCountingFilter sentBytesCountingFilter = new SentBytesCountingFilter();
 
     public JerseyReplicationClient(EurekaJerseyClient jerseyClient, String serviceUrl) {
+        this(jerseyClient, serviceUrl, false);
+    }
+
+    public JerseyReplicationClient(EurekaJerseyClient jerseyClient, String serviceUrl, boolean binaryHeartbeats) {
         super(jerseyClient.getClient(), serviceUrl);
         this.jerseyClient = jerseyClient;
         this.jerseyApacheClient = jerseyClient.getClient();
+        this.heartbeatFrameNegotiator = new HeartbeatFrameNegotiator(serviceUrl, binaryHeartbeats);
+        // Added last, so that it counts the request bodies once compressed
+        this.jerseyApacheClient.addFilter(sentBytesCountingFilter);
     }
 
     @Override
@@ -106,15 +119,25 @@ public class JerseyReplicationClient extends AbstractJerseyEurekaHttpClient impl
         }
     }
 
+    /**
+     * Batches made of heartbeats only are sent in a {@link HeartbeatFrame} if the peer supports it, and as JSON
+     * otherwise.
+     */
     @Override
     public EurekaHttpResponse<ReplicationListResponse> submitBatchUpdates(ReplicationList replicationList) {
+        return heartbeatFrameNegotiator.submitBatchUpdates(replicationList,
+                frame -> postBatchUpdates(MediaType.valueOf(HeartbeatFrame.MEDIA_TYPE), frame),
+                list -> postBatchUpdates(MediaType.APPLICATION_JSON_TYPE, list));
+    }
+
+    private EurekaHttpResponse<ReplicationListResponse> postBatchUpdates(MediaType type, Object entity) {
         ClientResponse response = null;
         try {
             response = jerseyApacheClient.resource(serviceUrl)
                     .path(PeerEurekaNode.BATCH_URL_PATH)
                     .accept(MediaType.APPLICATION_JSON_TYPE)
-                    .type(MediaType.APPLICATION_JSON_TYPE)
-                    .post(ClientResponse.class, replicationList);
+                    .type(type)
+                    .post(ClientResponse.class, entity);
             if (!isSuccess(response.getStatus())) {
                 return anEurekaHttpResponse(response.getStatus(), ReplicationListResponse.class).build();
             }
@@ -127,6 +150,53 @@ public class JerseyReplicationClient extends AbstractJerseyEurekaHttpClient impl
         }
     }
 
+    @Override
+    public EurekaHttpResponse<RegistryDigest> compareRegistryDigest(RegistryDigest registryDigest) {
+        ClientResponse response = null;
+        try {
+            response = jerseyApacheClient.resource(serviceUrl)
+                    .path(PeerEurekaNode.DIGEST_URL_PATH)
+                    .accept(MediaType.APPLICATION_JSON_TYPE)
+                    .type(MediaType.APPLICATION_JSON_TYPE)
+                    .post(ClientResponse.class, registryDigest);
+            if (!isSuccess(response.getStatus())) {
+                return anEurekaHttpResponse(response.getStatus(), RegistryDigest.class).build();
+            }
+            RegistryDigest peerDigest = response.getEntity(RegistryDigest.class);
+            return anEurekaHttpResponse(response.getStatus(), peerDigest).type(MediaType.APPLICATION_JSON_TYPE).build();
+        } finally {
+            if (response != null) {
+                response.close();
+            }
+        }
+    }
+
+    @Override
+    public EurekaHttpResponse<LeaseVector> renewLeases(LeaseVector leaseVector) {
+        ClientResponse response = null;
+        try {
+            response = jerseyApacheClient.resource(serviceUrl)
+                    .path(PeerEurekaNode.LEASES_URL_PATH)
+                    .accept(MediaType.APPLICATION_JSON_TYPE)
+                    .type(MediaType.APPLICATION_JSON_TYPE)
+                    .post(ClientResponse.class, leaseVector);
+            if (!isSuccess(response.getStatus())) {
+                return anEurekaHttpResponse(response.getStatus(), LeaseVector.class).build();
+            }
+            LeaseVector missingLeases = response.getEntity(LeaseVector.class);
+            return anEurekaHttpResponse(response.getStatus(), missingLeases).type(MediaType.APPLICATION_JSON_TYPE).build();
+        } finally {
+            if (response != null) {
+                response.close();
+            }
+        }
+    }
+
+    @Override
+    public long getSentBytes() {
+        return sentBytesCountingFilter.getSentBytes();
+    }
+
     public void addReplicationClientFilter(ClientFilter clientFilter) {
         jerseyApacheClient.addFilter(clientFilter);
     }
@@ -183,7 +253,7 @@ public class JerseyReplicationClient extends AbstractJerseyEurekaHttpClient impl
         EurekaServerIdentity identity = new EurekaServerIdentity(ip);
         jerseyApacheClient.addFilter(new EurekaIdentityHeaderFilter(identity));
 
-        return new JerseyReplicationClient(jerseyClient, serviceUrl);
+        return new JerseyReplicationClient(jerseyClient, serviceUrl, config.shouldUseBinaryHeartbeatReplication());
     }
 
     private static boolean isSuccess(int statusCode) {
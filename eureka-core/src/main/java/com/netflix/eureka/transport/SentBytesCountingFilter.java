@@ -0,0 +1,56 @@
+package com.netflix.eureka.transport;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.jersey.api.client.AbstractClientRequestAdapter;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.ClientRequestAdapter;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.filter.ClientFilter;
+
+/**
+ * Counts the bytes of the request bodies. The filter must be added after the filters encoding the request bodies,
+ * so that it runs before them and counts the bytes as they are sent rather than before they are encoded.
+ */
+class SentBytesCountingFilter extends ClientFilter {
+
+    private final AtomicLong sentBytes = new AtomicLong();
+
+    @Override
+    public ClientResponse handle(ClientRequest request) {
+        if (request.getEntity() != null) {
+            request.setAdapter(new CountingAdapter(request.getAdapter()));
+        }
+        return getNext().handle(request);
+    }
+
+    long getSentBytes() {
+        return sentBytes.get();
+    }
+
+    private final class CountingAdapter extends AbstractClientRequestAdapter {
+        CountingAdapter(ClientRequestAdapter cra) {
+            super(cra);
+        }
+
+        @Override
+        public OutputStream adapt(ClientRequest request, OutputStream out) throws IOException {
+            return new FilterOutputStream(getAdapter().adapt(request, out)) {
+                @Override
+                public void write(int b) throws IOException {
+                    out.write(b);
+                    sentBytes.incrementAndGet();
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                    sentBytes.addAndGet(len);
+                }
+            };
+        }
+    }
+}
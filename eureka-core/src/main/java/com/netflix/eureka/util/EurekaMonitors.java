@@ -52,6 +52,7 @@ public enum EurekaMonitors {
     GET_ALL_DELTA("getAllDeltaCounter", "Number of total deltas since startup"),
     GET_ALL_DELTA_WITH_REMOTE_REGIONS("getAllDeltaWithRemoteRegionCounter",
             "Number of total deltas with remote regions since startup"),
+    WATCH_DELTA("watchDeltaCounter", "Number of total registry watches waiting for a delta since startup"),
     GET_ALL("getAllCounter", "Number of total registry queries seen since startup"),
     GET_ALL_WITH_REMOTE_REGIONS("getAllWithRemoteRegionCounter",
             "Number of total registry queries with remote regions, seen since startup"),
@@ -49,8 +49,7 @@ class AcceptorExecutor<ID, T> {
 
     private final String id;
     private final int maxBufferSize;
-    private final int maxBatchingSize;
-    private final long maxBatchingDelay;
+    private final BatchingPolicy batchingPolicy;
 
     private final AtomicBoolean isShutdown = new AtomicBoolean(false);
 
@@ -61,6 +60,9 @@ class AcceptorExecutor<ID, T> {
     private final Map<ID, TaskHolder<ID, T>> pendingTasks = new HashMap<>();
     private final Deque<ID> processingOrder = new LinkedList<>();
 
+    // Submit timestamp of the task at the head of the processing order, or 0 if there is none
+    private volatile long oldestTaskSubmitTimestamp;
+
     private final Semaphore singleItemWorkRequests = new Semaphore(0);
     private final BlockingQueue<TaskHolder<ID, T>> singleItemWorkQueue = new LinkedBlockingQueue<>();
 
@@ -69,6 +71,9 @@ class AcceptorExecutor<ID, T> {
 
     private final TrafficShaper trafficShaper;
 
+    // Notified of the expired tasks, if set
+    private final TaskProcessor<T> taskProcessor;
+
     /*
      * Metrics
      */
@@ -95,11 +100,28 @@ class AcceptorExecutor<ID, T> {
                      long maxBatchingDelay,
                      long congestionRetryDelayMs,
                      long networkFailureRetryMs) {
+        this(id, maxBufferSize, new BatchingPolicy(maxBatchingSize, maxBatchingDelay), congestionRetryDelayMs, networkFailureRetryMs);
+    }
+
+    AcceptorExecutor(String id,
+                     int maxBufferSize,
+                     BatchingPolicy batchingPolicy,
+                     long congestionRetryDelayMs,
+                     long networkFailureRetryMs) {
+        this(id, maxBufferSize, batchingPolicy, congestionRetryDelayMs, networkFailureRetryMs, null);
+    }
+
+    AcceptorExecutor(String id,
+                     int maxBufferSize,
+                     BatchingPolicy batchingPolicy,
+                     long congestionRetryDelayMs,
+                     long networkFailureRetryMs,
+                     TaskProcessor<T> taskProcessor) {
         this.id = id;
         this.maxBufferSize = maxBufferSize;
-        this.maxBatchingSize = maxBatchingSize;
-        this.maxBatchingDelay = maxBatchingDelay;
+        this.batchingPolicy = batchingPolicy;
         this.trafficShaper = new TrafficShaper(congestionRetryDelayMs, networkFailureRetryMs);
+        this.taskProcessor = taskProcessor;
 
         ThreadGroup threadGroup = new ThreadGroup("eurekaTaskExecutors");
         this.acceptorThread = new Thread(threadGroup, new AcceptorRunner(), "TaskAcceptor-" + id);
@@ -138,6 +160,10 @@ class AcceptorExecutor<ID, T> {
         trafficShaper.registerFailure(processingResult);
     }
 
+    void batchCompleted(ProcessingResult processingResult, int batchSize, long latencyMs) {
+        batchingPolicy.batchCompleted(processingResult, batchSize, latencyMs);
+    }
+
     BlockingQueue<TaskHolder<ID, T>> requestWorkItem() {
         singleItemWorkRequests.release();
         return singleItemWorkQueue;
@@ -151,6 +177,7 @@ class AcceptorExecutor<ID, T> {
     void shutdown() {
         if (isShutdown.compareAndSet(false, true)) {
             Monitors.unregisterObject(id, this);
+            batchingPolicy.shutdown();
             acceptorThread.interrupt();
         }
     }
@@ -180,6 +207,19 @@ class AcceptorExecutor<ID, T> {
         return singleItemWorkQueue.size() + batchWorkQueue.size();
     }
 
+    @Monitor(name = METRIC_REPLICATION_PREFIX + "oldestTaskAge", description = "Time in ms the oldest pending task has been waiting for", type = DataSourceType.GAUGE)
+    public long getOldestTaskAge() {
+        long submitTimestamp = oldestTaskSubmitTimestamp;
+        return submitTimestamp == 0 ? 0 : Math.max(0, System.currentTimeMillis() - submitTimestamp);
+    }
+
+    private void expired(TaskHolder<ID, T> taskHolder) {
+        expiredTasks++;
+        if (taskProcessor != null) {
+            taskProcessor.expired(taskHolder.getTask());
+        }
+    }
+
     class AcceptorRunner implements Runnable {
         @Override
         public void run() {
@@ -198,6 +238,8 @@ class AcceptorExecutor<ID, T> {
                         assignBatchWork();
                         assignSingleItemWork();
                     }
+                    oldestTaskSubmitTimestamp = processingOrder.isEmpty()
+                            ? 0 : pendingTasks.get(processingOrder.peek()).getSubmitTimestamp();
 
                     // If no worker is requesting data or there is a delay injected by the traffic shaper,
                     // sleep for some time to avoid tight loop.
@@ -247,7 +289,7 @@ class AcceptorExecutor<ID, T> {
                 TaskHolder<ID, T> taskHolder = reprocessQueue.pollLast();
                 ID id = taskHolder.getId();
                 if (taskHolder.getExpiryTime() <= now) {
-                    expiredTasks++;
+                    expired(taskHolder);
                 } else if (pendingTasks.containsKey(id)) {
                     overriddenTasks++;
                 } else {
@@ -285,7 +327,7 @@ class AcceptorExecutor<ID, T> {
                             singleItemWorkQueue.add(holder);
                             return;
                         }
-                        expiredTasks++;
+                        expired(holder);
                     }
                     singleItemWorkRequests.release();
                 }
@@ -293,10 +335,10 @@ class AcceptorExecutor<ID, T> {
         }
 
         void assignBatchWork() {
-            if (hasEnoughTasksForNextBatch()) {
+            if (hasEnoughTasksForNextBatch() && batchingPolicy.canStartBatch()) {
                 if (batchWorkRequests.tryAcquire(1)) {
                     long now = System.currentTimeMillis();
-                    int len = Math.min(maxBatchingSize, processingOrder.size());
+                    int len = Math.min(batchingPolicy.getBatchingSize(), processingOrder.size());
                     List<TaskHolder<ID, T>> holders = new ArrayList<>(len);
                     while (holders.size() < len && !processingOrder.isEmpty()) {
                         ID id = processingOrder.poll();
@@ -304,13 +346,14 @@ class AcceptorExecutor<ID, T> {
                         if (holder.getExpiryTime() > now) {
                             holders.add(holder);
                         } else {
-                            expiredTasks++;
+                            expired(holder);
                         }
                     }
                     if (holders.isEmpty()) {
                         batchWorkRequests.release();
                     } else {
                         batchSizeMetric.record(holders.size(), TimeUnit.MILLISECONDS);
+                        batchingPolicy.batchStarted();
                         batchWorkQueue.add(holders);
                     }
                 }
@@ -327,7 +370,7 @@ class AcceptorExecutor<ID, T> {
 
             TaskHolder<ID, T> nextHolder = pendingTasks.get(processingOrder.peek());
             long delay = System.currentTimeMillis() - nextHolder.getSubmitTimestamp();
-            return delay >= maxBatchingDelay;
+            return batchingPolicy.isBatchReady(processingOrder.size(), delay);
         }
     }
 }
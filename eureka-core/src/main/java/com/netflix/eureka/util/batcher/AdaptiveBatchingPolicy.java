@@ -0,0 +1,158 @@
+package com.netflix.eureka.util.batcher;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.netflix.eureka.util.batcher.TaskProcessor.ProcessingResult;
+import com.netflix.servo.annotations.DataSourceType;
+import com.netflix.servo.annotations.Monitor;
+import com.netflix.servo.monitor.Monitors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.netflix.eureka.Names.METRIC_REPLICATION_PREFIX;
+
+/**
+ * A {@link BatchingPolicy} tuning the batching size, the batching delay and the number of batches in flight with
+ * additive increase and multiplicative decrease, from the latency and the result of each processed batch.
+ *
+ * <p>
+ * The policy starts at the given limits. Each batch processed within the target latency lets one more batch in
+ * flight every time the current limit of batches is processed, grows the batches and shortens the batching delay, so
+ * that a fast target is sent the tasks as soon as they come. A batch processed slower than the target latency reduces
+ * the batches in flight by a quarter, keeping the batches large so that a slow target is sent fewer requests. A
+ * congestion or a transient error halves the batches in flight and the batching size, and doubles the batching
+ * delay. As the batches in flight when the limits are reduced report the same condition, they are not reduced again
+ * for batches started before.
+ * </p>
+ *
+ * <p>
+ * Whatever the batching delay, a batch is sent as soon as there are enough pending tasks to fill it.
+ * </p>
+ */
+class AdaptiveBatchingPolicy extends BatchingPolicy {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdaptiveBatchingPolicy.class);
+
+    private static final int STEPS = 10;
+
+    private final String id;
+    private final int maxBatchingSize;
+    private final long maxBatchingDelay;
+    private final int maxBatchesInFlight;
+    private final long targetLatencyMs;
+
+    private final int batchingSizeStep;
+    private final long batchingDelayStep;
+
+    private volatile int batchingSize;
+    private volatile long batchingDelay;
+    private volatile int batchesInFlightLimit;
+    private final AtomicInteger batchesInFlight = new AtomicInteger();
+
+    // Guarded by this
+    private int batchesSinceIncrease;
+    private long lastDecreaseTime = Long.MIN_VALUE;
+
+    AdaptiveBatchingPolicy(String id, int maxBatchingSize, long maxBatchingDelay, int maxBatchesInFlight, long targetLatencyMs) {
+        super(maxBatchingSize, maxBatchingDelay);
+        this.id = id;
+        this.maxBatchingSize = maxBatchingSize;
+        this.maxBatchingDelay = maxBatchingDelay;
+        this.maxBatchesInFlight = Math.max(1, maxBatchesInFlight);
+        this.targetLatencyMs = targetLatencyMs;
+        this.batchingSizeStep = Math.max(1, maxBatchingSize / STEPS);
+        this.batchingDelayStep = Math.max(1, maxBatchingDelay / STEPS);
+
+        this.batchingSize = maxBatchingSize;
+        this.batchingDelay = maxBatchingDelay;
+        this.batchesInFlightLimit = this.maxBatchesInFlight;
+        try {
+            Monitors.registerObject(id, this);
+        } catch (Throwable e) {
+            logger.warn("Cannot register servo monitor for this object", e);
+        }
+    }
+
+    @Monitor(name = METRIC_REPLICATION_PREFIX + "batchingSize", description = "Current maximum batch size", type = DataSourceType.GAUGE)
+    @Override
+    public int getBatchingSize() {
+        return batchingSize;
+    }
+
+    @Monitor(name = METRIC_REPLICATION_PREFIX + "batchingDelay", description = "Current maximum batching delay", type = DataSourceType.GAUGE)
+    @Override
+    public long getBatchingDelay() {
+        return batchingDelay;
+    }
+
+    @Monitor(name = METRIC_REPLICATION_PREFIX + "batchesInFlightLimit", description = "Current maximum number of batches in flight", type = DataSourceType.GAUGE)
+    public int getBatchesInFlightLimit() {
+        return batchesInFlightLimit;
+    }
+
+    @Monitor(name = METRIC_REPLICATION_PREFIX + "batchesInFlight", description = "Number of batches in flight", type = DataSourceType.GAUGE)
+    public int getBatchesInFlight() {
+        return batchesInFlight.get();
+    }
+
+    @Override
+    boolean isBatchReady(int pendingTasks, long oldestTaskAge) {
+        return pendingTasks >= batchingSize || oldestTaskAge >= batchingDelay;
+    }
+
+    @Override
+    boolean canStartBatch() {
+        return batchesInFlight.get() < batchesInFlightLimit;
+    }
+
+    @Override
+    void batchStarted() {
+        batchesInFlight.incrementAndGet();
+    }
+
+    @Override
+    void batchCompleted(ProcessingResult result, int batchSize, long latencyMs) {
+        batchesInFlight.decrementAndGet();
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            switch (result) {
+                case Success:
+                    batchingSize = Math.min(maxBatchingSize, batchingSize + batchingSizeStep);
+                    if (latencyMs <= targetLatencyMs) {
+                        batchingDelay = Math.max(0, batchingDelay - batchingDelayStep);
+                        if (++batchesSinceIncrease >= batchesInFlightLimit) {
+                            batchesSinceIncrease = 0;
+                            batchesInFlightLimit = Math.min(maxBatchesInFlight, batchesInFlightLimit + 1);
+                        }
+                    } else if (isStartedAfterLastDecrease(now, latencyMs)) {
+                        lastDecreaseTime = now;
+                        batchesSinceIncrease = 0;
+                        batchesInFlightLimit = Math.max(1, batchesInFlightLimit * 3 / 4);
+                    }
+                    break;
+                case Congestion:
+                case TransientError:
+                    if (isStartedAfterLastDecrease(now, latencyMs)) {
+                        lastDecreaseTime = now;
+                        batchesSinceIncrease = 0;
+                        batchesInFlightLimit = Math.max(1, batchesInFlightLimit / 2);
+                        batchingSize = Math.max(1, batchingSize / 2);
+                        batchingDelay = Math.min(maxBatchingDelay, Math.max(batchingDelayStep, batchingDelay * 2));
+                    }
+                    break;
+                case PermanentError:
+                    // Says nothing about the state of the target
+                    break;
+            }
+        }
+    }
+
+    private boolean isStartedAfterLastDecrease(long now, long latencyMs) {
+        return now - latencyMs >= lastDecreaseTime;
+    }
+
+    @Override
+    void shutdown() {
+        Monitors.unregisterObject(id, this);
+    }
+}
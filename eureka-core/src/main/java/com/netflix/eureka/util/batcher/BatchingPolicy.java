@@ -0,0 +1,52 @@
+package com.netflix.eureka.util.batcher;
+
+import com.netflix.eureka.util.batcher.TaskProcessor.ProcessingResult;
+
+/**
+ * Decides how large the batches are, how long the oldest pending task waits for a batch to fill up, and how many
+ * batches may be processed at the same time. This policy uses the fixed limits it is given, and lets each worker
+ * process a batch. See {@link AdaptiveBatchingPolicy} for a policy tuned from the processing results.
+ *
+ * <p>
+ * Batches are only started by a single thread at a time, but are completed by the workers concurrently.
+ * </p>
+ */
+class BatchingPolicy {
+
+    private final int maxBatchingSize;
+    private final long maxBatchingDelay;
+
+    BatchingPolicy(int maxBatchingSize, long maxBatchingDelay) {
+        this.maxBatchingSize = maxBatchingSize;
+        this.maxBatchingDelay = maxBatchingDelay;
+    }
+
+    int getBatchingSize() {
+        return maxBatchingSize;
+    }
+
+    long getBatchingDelay() {
+        return maxBatchingDelay;
+    }
+
+    /**
+     * @param pendingTasks   number of tasks waiting to be dispatched
+     * @param oldestTaskAge  time in ms the oldest of these tasks has been waiting
+     */
+    boolean isBatchReady(int pendingTasks, long oldestTaskAge) {
+        return oldestTaskAge >= maxBatchingDelay;
+    }
+
+    boolean canStartBatch() {
+        return true;
+    }
+
+    void batchStarted() {
+    }
+
+    void batchCompleted(ProcessingResult result, int batchSize, long latencyMs) {
+    }
+
+    void shutdown() {
+    }
+}
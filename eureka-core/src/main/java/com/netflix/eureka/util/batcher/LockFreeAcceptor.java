@@ -0,0 +1,330 @@
+package com.netflix.eureka.util.batcher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import com.netflix.eureka.util.batcher.TaskProcessor.ProcessingResult;
+import com.netflix.servo.annotations.DataSourceType;
+import com.netflix.servo.annotations.Monitor;
+import com.netflix.servo.monitor.MonitorConfig;
+import com.netflix.servo.monitor.Monitors;
+import com.netflix.servo.monitor.StatsTimer;
+import com.netflix.servo.monitor.Timer;
+import com.netflix.servo.stats.StatsConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.netflix.eureka.Names.METRIC_REPLICATION_PREFIX;
+
+/**
+ * An alternative to {@link AcceptorExecutor} for batch processing, without an acceptor thread. The tasks are
+ * queued in a {@link MpscArrayQueue}, so that clients never block, and the workers pull their batches directly:
+ * the worker asking for work moves the queued tasks to the {@link PendingTaskIndex}, and takes the next batch from
+ * it. Workers take turns at this without ever blocking on each other, as a worker finding another one at it simply
+ * retries shortly after.
+ *
+ * <p>
+ * The task handling is the same as in {@link AcceptorExecutor}: newer tasks replace older ones with the same id,
+ * re-processed tasks come first, the oldest tasks are dropped when the buffer is full, and the batches are delayed to
+ * make them as large as possible.
+ * </p>
+ *
+ * <p>
+ * Without the hand-off to the acceptor thread, more of the submitted tasks reach the workers once the buffer fills
+ * up. The submitting threads pay for it, as they contend on the queue rather than on the acceptor's blocking deque,
+ * see TaskDispatcherBenchmark for the comparison.
+ * </p>
+ */
+class LockFreeAcceptor<ID, T> {
+
+    private static final Logger logger = LoggerFactory.getLogger(LockFreeAcceptor.class);
+
+    private static final int MAX_QUEUE_CAPACITY = 64 * 1024;
+
+    // Time a worker waits before checking for work again, when no batch is ready
+    private static final long MAX_IDLE_WAIT_NS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final String id;
+    private final int maxBufferSize;
+    private final BatchingPolicy batchingPolicy;
+
+    private final AtomicBoolean isShutdown = new AtomicBoolean(false);
+
+    private final MpscArrayQueue<TaskHolder<ID, T>> acceptorQueue;
+    private final ConcurrentLinkedDeque<TaskHolder<ID, T>> reprocessQueue = new ConcurrentLinkedDeque<>();
+
+    // Set by the worker organizing the pending tasks, which are only accessed by that worker
+    private final AtomicBoolean organizing = new AtomicBoolean(false);
+    private final PendingTaskIndex<ID, T> pendingTasks = new PendingTaskIndex<>();
+    private long scheduleTime;
+
+    // Submit timestamp of the first pending task when they were last organized, or 0 if there was none
+    private volatile long oldestTaskSubmitTimestamp;
+
+    // A worker waiting for tasks while there are none, woken up by the next one
+    private final AtomicReference<Thread> idleWorker = new AtomicReference<>();
+
+    private final TrafficShaper trafficShaper;
+
+    // Notified of the expired tasks, if set
+    private final TaskProcessor<T> taskProcessor;
+
+    /*
+     * Metrics, updated by the worker organizing the pending tasks
+     */
+    @Monitor(name = METRIC_REPLICATION_PREFIX + "acceptedTasks", description = "Number of accepted tasks", type = DataSourceType.COUNTER)
+    volatile long acceptedTasks;
+
+    @Monitor(name = METRIC_REPLICATION_PREFIX + "replayedTasks", description = "Number of replayedTasks tasks", type = DataSourceType.COUNTER)
+    volatile long replayedTasks;
+
+    @Monitor(name = METRIC_REPLICATION_PREFIX + "expiredTasks", description = "Number of expired tasks", type = DataSourceType.COUNTER)
+    volatile long expiredTasks;
+
+    @Monitor(name = METRIC_REPLICATION_PREFIX + "overriddenTasks", description = "Number of overridden tasks", type = DataSourceType.COUNTER)
+    volatile long overriddenTasks;
+
+    @Monitor(name = METRIC_REPLICATION_PREFIX + "queueOverflows", description = "Number of queue overflows", type = DataSourceType.COUNTER)
+    volatile long queueOverflows;
+
+    private final Timer batchSizeMetric;
+
+    LockFreeAcceptor(String id,
+                     int maxBufferSize,
+                     int maxBatchingSize,
+                     long maxBatchingDelay,
+                     long congestionRetryDelayMs,
+                     long networkFailureRetryMs) {
+        this(id, maxBufferSize, new BatchingPolicy(maxBatchingSize, maxBatchingDelay), congestionRetryDelayMs, networkFailureRetryMs);
+    }
+
+    LockFreeAcceptor(String id,
+                     int maxBufferSize,
+                     BatchingPolicy batchingPolicy,
+                     long congestionRetryDelayMs,
+                     long networkFailureRetryMs) {
+        this(id, maxBufferSize, batchingPolicy, congestionRetryDelayMs, networkFailureRetryMs, null);
+    }
+
+    LockFreeAcceptor(String id,
+                     int maxBufferSize,
+                     BatchingPolicy batchingPolicy,
+                     long congestionRetryDelayMs,
+                     long networkFailureRetryMs,
+                     TaskProcessor<T> taskProcessor) {
+        this.id = id;
+        this.maxBufferSize = maxBufferSize;
+        this.batchingPolicy = batchingPolicy;
+        this.acceptorQueue = new MpscArrayQueue<>(Math.min(maxBufferSize, MAX_QUEUE_CAPACITY));
+        this.trafficShaper = new TrafficShaper(congestionRetryDelayMs, networkFailureRetryMs);
+        this.taskProcessor = taskProcessor;
+
+        final double[] percentiles = {50.0, 95.0, 99.0, 99.5};
+        final StatsConfig statsConfig = new StatsConfig.Builder()
+                .withSampleSize(1000)
+                .withPercentiles(percentiles)
+                .withPublishStdDev(true)
+                .build();
+        final MonitorConfig config = MonitorConfig.builder(METRIC_REPLICATION_PREFIX + "batchSize").build();
+        this.batchSizeMetric = new StatsTimer(config, statsConfig);
+        try {
+            Monitors.registerObject(id, this);
+        } catch (Throwable e) {
+            logger.warn("Cannot register servo monitor for this object", e);
+        }
+    }
+
+    void process(ID id, T task, long expiryTime) {
+        TaskHolder<ID, T> holder = new TaskHolder<>(id, task, expiryTime);
+        while (!acceptorQueue.offer(holder)) {
+            // The workers are behind, so make room in the queue rather than waiting for them
+            if (organizing.compareAndSet(false, true)) {
+                try {
+                    drainAcceptorQueue();
+                } finally {
+                    organizing.set(false);
+                }
+            } else {
+                Thread.yield();
+            }
+        }
+        Thread worker = idleWorker.get();
+        if (worker != null) {
+            LockSupport.unpark(worker);
+        }
+    }
+
+    void reprocess(List<TaskHolder<ID, T>> holders, ProcessingResult processingResult) {
+        reprocessQueue.addAll(holders);
+        trafficShaper.registerFailure(processingResult);
+    }
+
+    void batchCompleted(ProcessingResult processingResult, int batchSize, long latencyMs) {
+        batchingPolicy.batchCompleted(processingResult, batchSize, latencyMs);
+    }
+
+    /**
+     * Waits for the next batch of tasks.
+     *
+     * @return the next batch, or null if none was ready within the given time or the acceptor is shut down
+     */
+    List<TaskHolder<ID, T>> pollBatch(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!isShutdown.get()) {
+            long waitNs = MAX_IDLE_WAIT_NS;
+            boolean idle = true;
+            if (organizing.compareAndSet(false, true)) {
+                try {
+                    List<TaskHolder<ID, T>> batch = takeBatch();
+                    TaskHolder<ID, T> oldestTask = pendingTasks.peekFirst();
+                    oldestTaskSubmitTimestamp = oldestTask == null ? 0 : oldestTask.getSubmitTimestamp();
+                    if (batch != null) {
+                        return batch;
+                    }
+                    idle = pendingTasks.isEmpty();
+                    waitNs = Math.min(waitNs, nanosUntilNextBatch());
+                } finally {
+                    organizing.set(false);
+                }
+            }
+            long remainingNs = deadline - System.nanoTime();
+            if (remainingNs <= 0) {
+                return null;
+            }
+            if (!idle) {
+                LockSupport.parkNanos(this, Math.max(1, Math.min(waitNs, remainingNs)));
+            } else {
+                Thread current = Thread.currentThread();
+                idleWorker.set(current);
+                // Checked again, as a task queued before this worker was visible would not wake it up
+                if (acceptorQueue.isEmpty()) {
+                    LockSupport.parkNanos(this, Math.min(waitNs, remainingNs));
+                }
+                idleWorker.compareAndSet(current, null);
+            }
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+        return null;
+    }
+
+    void shutdown() {
+        if (isShutdown.compareAndSet(false, true)) {
+            Monitors.unregisterObject(id, this);
+            batchingPolicy.shutdown();
+        }
+    }
+
+    @Monitor(name = METRIC_REPLICATION_PREFIX + "acceptorQueueSize", description = "Number of tasks waiting in the acceptor queue", type = DataSourceType.GAUGE)
+    public long getAcceptorQueueSize() {
+        return acceptorQueue.size();
+    }
+
+    @Monitor(name = METRIC_REPLICATION_PREFIX + "reprocessQueueSize", description = "Number of tasks waiting in the reprocess queue", type = DataSourceType.GAUGE)
+    public long getReprocessQueueSize() {
+        return reprocessQueue.size();
+    }
+
+    @Monitor(name = METRIC_REPLICATION_PREFIX + "oldestTaskAge", description = "Time in ms the oldest pending task has been waiting for", type = DataSourceType.GAUGE)
+    public long getOldestTaskAge() {
+        long submitTimestamp = oldestTaskSubmitTimestamp;
+        return submitTimestamp == 0 ? 0 : Math.max(0, System.currentTimeMillis() - submitTimestamp);
+    }
+
+    private void expired(TaskHolder<ID, T> holder) {
+        expiredTasks++;
+        if (taskProcessor != null) {
+            taskProcessor.expired(holder.getTask());
+        }
+    }
+
+    private List<TaskHolder<ID, T>> takeBatch() {
+        drainReprocessQueue();
+        drainAcceptorQueue();
+
+        long now = System.currentTimeMillis();
+        if (scheduleTime < now) {
+            scheduleTime = now + trafficShaper.transmissionDelay();
+        }
+        if (scheduleTime > now || !hasEnoughTasksForNextBatch(now) || !batchingPolicy.canStartBatch()) {
+            return null;
+        }
+        int len = Math.min(batchingPolicy.getBatchingSize(), pendingTasks.size());
+        List<TaskHolder<ID, T>> holders = new ArrayList<>(len);
+        while (holders.size() < len && !pendingTasks.isEmpty()) {
+            TaskHolder<ID, T> holder = pendingTasks.pollFirst();
+            if (holder.getExpiryTime() > now) {
+                holders.add(holder);
+            } else {
+                expired(holder);
+            }
+        }
+        if (holders.isEmpty()) {
+            return null;
+        }
+        batchSizeMetric.record(holders.size(), TimeUnit.MILLISECONDS);
+        batchingPolicy.batchStarted();
+        return holders;
+    }
+
+    private boolean hasEnoughTasksForNextBatch(long now) {
+        if (pendingTasks.isEmpty()) {
+            return false;
+        }
+        if (pendingTasks.size() >= maxBufferSize) {
+            return true;
+        }
+        return batchingPolicy.isBatchReady(pendingTasks.size(), now - pendingTasks.peekFirst().getSubmitTimestamp());
+    }
+
+    private long nanosUntilNextBatch() {
+        long now = System.currentTimeMillis();
+        long delayMs;
+        if (scheduleTime > now) {
+            delayMs = scheduleTime - now;
+        } else if (!pendingTasks.isEmpty() && batchingPolicy.canStartBatch()) {
+            delayMs = pendingTasks.peekFirst().getSubmitTimestamp() + batchingPolicy.getBatchingDelay() - now;
+        } else {
+            return MAX_IDLE_WAIT_NS;
+        }
+        return TimeUnit.MILLISECONDS.toNanos(Math.max(1, delayMs));
+    }
+
+    private void drainReprocessQueue() {
+        long now = System.currentTimeMillis();
+        TaskHolder<ID, T> holder;
+        while (pendingTasks.size() < maxBufferSize && (holder = reprocessQueue.pollLast()) != null) {
+            replayedTasks++;
+            if (holder.getExpiryTime() <= now) {
+                expired(holder);
+            } else if (!pendingTasks.addFirstIfAbsent(holder)) {
+                overriddenTasks++;
+            }
+        }
+        if (pendingTasks.size() >= maxBufferSize) {
+            while (reprocessQueue.pollLast() != null) {
+                queueOverflows++;
+            }
+        }
+    }
+
+    private void drainAcceptorQueue() {
+        TaskHolder<ID, T> holder;
+        while ((holder = acceptorQueue.poll()) != null) {
+            acceptedTasks++;
+            if (pendingTasks.size() >= maxBufferSize && !pendingTasks.containsId(holder.getId())) {
+                pendingTasks.pollFirst();
+                queueOverflows++;
+            }
+            if (pendingTasks.addLast(holder) != null) {
+                overriddenTasks++;
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.netflix.eureka.util.batcher;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded queue backed by an array, for many producers and a single consumer at a time. Producers claim a slot
+ * with a compare-and-set on the producer index and never block. The consumer side is not thread safe: callers must
+ * make sure that a single thread polls at a time, and that the next consumer thread sees the work of the previous one.
+ */
+class MpscArrayQueue<E> {
+
+    private final int mask;
+    private final AtomicReferenceArray<E> elements;
+
+    private final AtomicLong producerIndex = new AtomicLong();
+    private final AtomicLong consumerIndex = new AtomicLong();
+
+    MpscArrayQueue(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.mask = size - 1;
+        this.elements = new AtomicReferenceArray<>(size);
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * @return false if the queue is full
+     */
+    boolean offer(E element) {
+        long index;
+        do {
+            index = producerIndex.get();
+            if (index - consumerIndex.get() > mask) {
+                return false;
+            }
+        } while (!producerIndex.compareAndSet(index, index + 1));
+        elements.lazySet((int) index & mask, element);
+        return true;
+    }
+
+    /**
+     * @return the oldest element, or null if the queue is empty or its oldest element is being published
+     */
+    E poll() {
+        long index = consumerIndex.get();
+        int offset = (int) index & mask;
+        E element = elements.get(offset);
+        if (element == null) {
+            return null;
+        }
+        elements.lazySet(offset, null);
+        consumerIndex.lazySet(index + 1);
+        return element;
+    }
+
+    boolean isEmpty() {
+        return producerIndex.get() == consumerIndex.get();
+    }
+
+    int size() {
+        return (int) Math.max(0, producerIndex.get() - consumerIndex.get());
+    }
+}
@@ -0,0 +1,158 @@
+package com.netflix.eureka.util.batcher;
+
+import java.util.ArrayDeque;
+
+/**
+ * The tasks waiting to be dispatched, indexed by task id in an open addressing hash table, and kept in their
+ * processing order. A task replacing another one with the same id keeps its place in the processing order. It is not
+ * thread safe.
+ */
+class PendingTaskIndex<ID, T> {
+
+    private static final int INITIAL_TABLE_SIZE = 64;
+
+    private Object[] ids;
+    private Object[] holders;
+    private int mask;
+    private int size;
+
+    private final ArrayDeque<ID> processingOrder = new ArrayDeque<>();
+
+    PendingTaskIndex() {
+        allocate(INITIAL_TABLE_SIZE);
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    boolean containsId(ID id) {
+        return ids[indexOf(id)] != null;
+    }
+
+    /**
+     * @return the task holder with the same id that was replaced, or null if the task is new, in which case it is
+     *         the last one in the processing order
+     */
+    TaskHolder<ID, T> addLast(TaskHolder<ID, T> holder) {
+        TaskHolder<ID, T> previous = put(holder);
+        if (previous == null) {
+            processingOrder.addLast(holder.getId());
+        }
+        return previous;
+    }
+
+    /**
+     * Adds a task first in the processing order, unless there is already a task with the same id.
+     *
+     * @return false if there is already a task with the same id
+     */
+    boolean addFirstIfAbsent(TaskHolder<ID, T> holder) {
+        if (containsId(holder.getId())) {
+            return false;
+        }
+        put(holder);
+        processingOrder.addFirst(holder.getId());
+        return true;
+    }
+
+    /**
+     * @return the first task holder in the processing order, or null if there is none
+     */
+    TaskHolder<ID, T> peekFirst() {
+        ID id = processingOrder.peekFirst();
+        return id == null ? null : get(id);
+    }
+
+    /**
+     * @return the first task holder in the processing order, which is removed, or null if there is none
+     */
+    TaskHolder<ID, T> pollFirst() {
+        ID id = processingOrder.pollFirst();
+        return id == null ? null : remove(id);
+    }
+
+    @SuppressWarnings("unchecked")
+    private TaskHolder<ID, T> get(ID id) {
+        return (TaskHolder<ID, T>) holders[indexOf(id)];
+    }
+
+    @SuppressWarnings("unchecked")
+    private TaskHolder<ID, T> put(TaskHolder<ID, T> holder) {
+        if (2 * (size + 1) > ids.length) {
+            resize(ids.length * 2);
+        }
+        int index = indexOf(holder.getId());
+        TaskHolder<ID, T> previous = (TaskHolder<ID, T>) holders[index];
+        if (previous == null) {
+            ids[index] = holder.getId();
+            size++;
+        }
+        holders[index] = holder;
+        return previous;
+    }
+
+    @SuppressWarnings("unchecked")
+    private TaskHolder<ID, T> remove(ID id) {
+        int index = indexOf(id);
+        TaskHolder<ID, T> holder = (TaskHolder<ID, T>) holders[index];
+        if (holder == null) {
+            return null;
+        }
+        size--;
+        // Move back the following entries of the probe sequence, so that no lookup stops at the freed slot
+        int free = index;
+        int next = (index + 1) & mask;
+        while (ids[next] != null) {
+            int home = hash(ids[next]) & mask;
+            if (((next - home) & mask) >= ((next - free) & mask)) {
+                ids[free] = ids[next];
+                holders[free] = holders[next];
+                free = next;
+            }
+            next = (next + 1) & mask;
+        }
+        ids[free] = null;
+        holders[free] = null;
+        return holder;
+    }
+
+    /**
+     * @return the slot holding the given id, or the free slot where it belongs
+     */
+    private int indexOf(Object id) {
+        int index = hash(id) & mask;
+        while (ids[index] != null && !ids[index].equals(id)) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private static int hash(Object id) {
+        int h = id.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private void allocate(int tableSize) {
+        ids = new Object[tableSize];
+        holders = new Object[tableSize];
+        mask = tableSize - 1;
+    }
+
+    private void resize(int tableSize) {
+        Object[] oldIds = ids;
+        Object[] oldHolders = holders;
+        allocate(tableSize);
+        for (int i = 0; i < oldIds.length; i++) {
+            if (oldIds[i] != null) {
+                int index = indexOf(oldIds[i]);
+                ids[index] = oldIds[i];
+                holders[index] = oldHolders[i];
+            }
+        }
+    }
+}
@@ -19,5 +19,13 @@ public interface TaskDispatcher<ID, T> {
 
     void process(ID id, T task, long expiryTime);
 
+    /**
+     * @return the time in ms the oldest task waiting to be handed to a worker has been waiting for, or 0 if no task
+     *         is waiting. By default, the waiting tasks are not tracked and 0 is returned.
+     */
+    default long getOldestTaskAge() {
+        return 0;
+    }
+
     void shutdown();
 }
@@ -14,16 +14,36 @@ public class TaskDispatchers {
                                                                                 long congestionRetryDelayMs,
                                                                                 long networkFailureRetryMs,
                                                                                 TaskProcessor<T> taskProcessor) {
+        return createNonBatchingTaskDispatcher(id, maxBufferSize, workerCount, maxBatchingDelay,
+                congestionRetryDelayMs, networkFailureRetryMs, taskProcessor, false);
+    }
+
+    /**
+     * @param virtualThreads if true, the workers run on virtual threads when the Java runtime supports them
+     */
+    public static <ID, T> TaskDispatcher<ID, T> createNonBatchingTaskDispatcher(String id,
+                                                                                int maxBufferSize,
+                                                                                int workerCount,
+                                                                                long maxBatchingDelay,
+                                                                                long congestionRetryDelayMs,
+                                                                                long networkFailureRetryMs,
+                                                                                TaskProcessor<T> taskProcessor,
+                                                                                boolean virtualThreads) {
         final AcceptorExecutor<ID, T> acceptorExecutor = new AcceptorExecutor<>(
-                id, maxBufferSize, 1, maxBatchingDelay, congestionRetryDelayMs, networkFailureRetryMs
+                id, maxBufferSize, new BatchingPolicy(1, maxBatchingDelay), congestionRetryDelayMs, networkFailureRetryMs, taskProcessor
         );
-        final TaskExecutors<ID, T> taskExecutor = TaskExecutors.singleItemExecutors(id, workerCount, taskProcessor, acceptorExecutor);
+        final TaskExecutors<ID, T> taskExecutor = TaskExecutors.singleItemExecutors(id, workerCount, taskProcessor, acceptorExecutor, virtualThreads);
         return new TaskDispatcher<ID, T>() {
             @Override
             public void process(ID id, T task, long expiryTime) {
                 acceptorExecutor.process(id, task, expiryTime);
             }
 
+            @Override
+            public long getOldestTaskAge() {
+                return acceptorExecutor.getOldestTaskAge();
+            }
+
             @Override
             public void shutdown() {
                 acceptorExecutor.shutdown();
@@ -40,16 +60,118 @@ public class TaskDispatchers {
                                                                              long congestionRetryDelayMs,
                                                                              long networkFailureRetryMs,
                                                                              TaskProcessor<T> taskProcessor) {
+        return createBatchingTaskDispatcher(id, maxBufferSize, workloadSize, workerCount, maxBatchingDelay,
+                congestionRetryDelayMs, networkFailureRetryMs, taskProcessor, false);
+    }
+
+    /**
+     * @param lockFreeAcceptor if true, the workers pull their batches from a {@link LockFreeAcceptor} instead of
+     *                         being handed them by the acceptor thread of an {@link AcceptorExecutor}
+     */
+    public static <ID, T> TaskDispatcher<ID, T> createBatchingTaskDispatcher(String id,
+                                                                             int maxBufferSize,
+                                                                             int workloadSize,
+                                                                             int workerCount,
+                                                                             long maxBatchingDelay,
+                                                                             long congestionRetryDelayMs,
+                                                                             long networkFailureRetryMs,
+                                                                             TaskProcessor<T> taskProcessor,
+                                                                             boolean lockFreeAcceptor) {
+        return createBatchingTaskDispatcher(id, maxBufferSize, workloadSize, workerCount, maxBatchingDelay,
+                congestionRetryDelayMs, networkFailureRetryMs, taskProcessor, lockFreeAcceptor, false);
+    }
+
+    /**
+     * @param lockFreeAcceptor if true, the workers pull their batches from a {@link LockFreeAcceptor}
+     * @param virtualThreads   if true, the workers run on virtual threads when the Java runtime supports them
+     */
+    public static <ID, T> TaskDispatcher<ID, T> createBatchingTaskDispatcher(String id,
+                                                                             int maxBufferSize,
+                                                                             int workloadSize,
+                                                                             int workerCount,
+                                                                             long maxBatchingDelay,
+                                                                             long congestionRetryDelayMs,
+                                                                             long networkFailureRetryMs,
+                                                                             TaskProcessor<T> taskProcessor,
+                                                                             boolean lockFreeAcceptor,
+                                                                             boolean virtualThreads) {
+        return createBatchingTaskDispatcher(id, maxBufferSize, new BatchingPolicy(workloadSize, maxBatchingDelay),
+                workerCount, congestionRetryDelayMs, networkFailureRetryMs, taskProcessor, lockFreeAcceptor, virtualThreads);
+    }
+
+    /**
+     * Creates a batching dispatcher whose batching size, batching delay and number of batches in flight are tuned
+     * from the latency and the result of the processed batches. See {@link AdaptiveBatchingPolicy}.
+     *
+     * @param maxWorkloadSize  upper bound of the batching size
+     * @param workerCount      number of workers, and upper bound of the batches in flight
+     * @param maxBatchingDelay upper bound of the batching delay
+     * @param targetLatencyMs  batches processed slower than this reduce the number of batches in flight
+     * @param virtualThreads   if true, the workers run on virtual threads when the Java runtime supports them
+     */
+    public static <ID, T> TaskDispatcher<ID, T> createAdaptiveBatchingTaskDispatcher(String id,
+                                                                                     int maxBufferSize,
+                                                                                     int maxWorkloadSize,
+                                                                                     int workerCount,
+                                                                                     long maxBatchingDelay,
+                                                                                     long targetLatencyMs,
+                                                                                     long congestionRetryDelayMs,
+                                                                                     long networkFailureRetryMs,
+                                                                                     TaskProcessor<T> taskProcessor,
+                                                                                     boolean lockFreeAcceptor,
+                                                                                     boolean virtualThreads) {
+        BatchingPolicy batchingPolicy = new AdaptiveBatchingPolicy(id, maxWorkloadSize, maxBatchingDelay, workerCount, targetLatencyMs);
+        return createBatchingTaskDispatcher(id, maxBufferSize, batchingPolicy,
+                workerCount, congestionRetryDelayMs, networkFailureRetryMs, taskProcessor, lockFreeAcceptor, virtualThreads);
+    }
+
+    private static <ID, T> TaskDispatcher<ID, T> createBatchingTaskDispatcher(String id,
+                                                                              int maxBufferSize,
+                                                                              BatchingPolicy batchingPolicy,
+                                                                              int workerCount,
+                                                                              long congestionRetryDelayMs,
+                                                                              long networkFailureRetryMs,
+                                                                              TaskProcessor<T> taskProcessor,
+                                                                              boolean lockFreeAcceptor,
+                                                                              boolean virtualThreads) {
+        if (lockFreeAcceptor) {
+            final LockFreeAcceptor<ID, T> acceptor = new LockFreeAcceptor<>(
+                    id, maxBufferSize, batchingPolicy, congestionRetryDelayMs, networkFailureRetryMs, taskProcessor
+            );
+            final TaskExecutors<ID, T> taskExecutor = TaskExecutors.batchExecutors(id, workerCount, taskProcessor, acceptor, virtualThreads);
+            return new TaskDispatcher<ID, T>() {
+                @Override
+                public void process(ID id, T task, long expiryTime) {
+                    acceptor.process(id, task, expiryTime);
+                }
+
+                @Override
+                public long getOldestTaskAge() {
+                    return acceptor.getOldestTaskAge();
+                }
+
+                @Override
+                public void shutdown() {
+                    acceptor.shutdown();
+                    taskExecutor.shutdown();
+                }
+            };
+        }
         final AcceptorExecutor<ID, T> acceptorExecutor = new AcceptorExecutor<>(
-                id, maxBufferSize, workloadSize, maxBatchingDelay, congestionRetryDelayMs, networkFailureRetryMs
+                id, maxBufferSize, batchingPolicy, congestionRetryDelayMs, networkFailureRetryMs, taskProcessor
         );
-        final TaskExecutors<ID, T> taskExecutor = TaskExecutors.batchExecutors(id, workerCount, taskProcessor, acceptorExecutor);
+        final TaskExecutors<ID, T> taskExecutor = TaskExecutors.batchExecutors(id, workerCount, taskProcessor, acceptorExecutor, virtualThreads);
         return new TaskDispatcher<ID, T>() {
             @Override
             public void process(ID id, T task, long expiryTime) {
                 acceptorExecutor.process(id, task, expiryTime);
             }
 
+            @Override
+            public long getOldestTaskAge() {
+                return acceptorExecutor.getOldestTaskAge();
+            }
+
             @Override
             public void shutdown() {
                 acceptorExecutor.shutdown();
@@ -37,13 +37,28 @@ class TaskExecutors<ID, T> {
     private final List<Thread> workerThreads;
 
     TaskExecutors(WorkerRunnableFactory<ID, T> workerRunnableFactory, int workerCount, AtomicBoolean isShutdown) {
+        this(workerRunnableFactory, workerCount, isShutdown, false);
+    }
+
+    /**
+     * @param virtualThreads if true, the workers run on virtual threads when the Java runtime supports them, so that
+     *                       the workers blocked on I/O do not hold platform threads. The number of workers still
+     *                       limits the number of tasks or batches processed at the same time.
+     */
+    TaskExecutors(WorkerRunnableFactory<ID, T> workerRunnableFactory, int workerCount, AtomicBoolean isShutdown, boolean virtualThreads) {
         this.isShutdown = isShutdown;
         this.workerThreads = new ArrayList<>();
 
+        if (virtualThreads && !VirtualThreads.isSupported()) {
+            logger.warn("Virtual threads are not supported by this Java runtime; using platform threads for the task workers");
+            virtualThreads = false;
+        }
         ThreadGroup threadGroup = new ThreadGroup("eurekaTaskExecutors");
         for (int i = 0; i < workerCount; i++) {
             WorkerRunnable<ID, T> runnable = workerRunnableFactory.create(i);
-            Thread workerThread = new Thread(threadGroup, runnable, runnable.getWorkerName());
+            Thread workerThread = virtualThreads
+                    ? VirtualThreads.newThread(runnable.getWorkerName(), runnable)
+                    : new Thread(threadGroup, runnable, runnable.getWorkerName());
             workerThreads.add(workerThread);
             workerThread.setDaemon(true);
             workerThread.start();
@@ -63,20 +78,47 @@ class TaskExecutors<ID, T> {
                                                             int workerCount,
                                                             final TaskProcessor<T> processor,
                                                             final AcceptorExecutor<ID, T> acceptorExecutor) {
+        return singleItemExecutors(name, workerCount, processor, acceptorExecutor, false);
+    }
+
+    static <ID, T> TaskExecutors<ID, T> singleItemExecutors(final String name,
+                                                            int workerCount,
+                                                            final TaskProcessor<T> processor,
+                                                            final AcceptorExecutor<ID, T> acceptorExecutor,
+                                                            boolean virtualThreads) {
         final AtomicBoolean isShutdown = new AtomicBoolean();
         final TaskExecutorMetrics metrics = new TaskExecutorMetrics(name);
         registeredMonitors.put(name, metrics);
-        return new TaskExecutors<>(idx -> new SingleTaskWorkerRunnable<>("TaskNonBatchingWorker-" + name + '-' + idx, isShutdown, metrics, processor, acceptorExecutor), workerCount, isShutdown);
+        return new TaskExecutors<>(idx -> new SingleTaskWorkerRunnable<>("TaskNonBatchingWorker-" + name + '-' + idx, isShutdown, metrics, processor, acceptorExecutor), workerCount, isShutdown, virtualThreads);
     }
 
     static <ID, T> TaskExecutors<ID, T> batchExecutors(final String name,
                                                        int workerCount,
                                                        final TaskProcessor<T> processor,
                                                        final AcceptorExecutor<ID, T> acceptorExecutor) {
+        return batchExecutors(name, workerCount, processor, acceptorExecutor, false);
+    }
+
+    static <ID, T> TaskExecutors<ID, T> batchExecutors(final String name,
+                                                       int workerCount,
+                                                       final TaskProcessor<T> processor,
+                                                       final AcceptorExecutor<ID, T> acceptorExecutor,
+                                                       boolean virtualThreads) {
+        final AtomicBoolean isShutdown = new AtomicBoolean();
+        final TaskExecutorMetrics metrics = new TaskExecutorMetrics(name);
+        registeredMonitors.put(name, metrics);
+        return new TaskExecutors<>(idx -> new BatchWorkerRunnable<>("TaskBatchingWorker-" + name + '-' + idx, isShutdown, metrics, processor, acceptorExecutor), workerCount, isShutdown, virtualThreads);
+    }
+
+    static <ID, T> TaskExecutors<ID, T> batchExecutors(final String name,
+                                                       int workerCount,
+                                                       final TaskProcessor<T> processor,
+                                                       final LockFreeAcceptor<ID, T> acceptor,
+                                                       boolean virtualThreads) {
         final AtomicBoolean isShutdown = new AtomicBoolean();
         final TaskExecutorMetrics metrics = new TaskExecutorMetrics(name);
         registeredMonitors.put(name, metrics);
-        return new TaskExecutors<>(idx -> new BatchWorkerRunnable<>("TaskBatchingWorker-" + name + '-' + idx, isShutdown, metrics, processor, acceptorExecutor), workerCount, isShutdown);
+        return new TaskExecutors<>(idx -> new PullingBatchWorkerRunnable<>("TaskBatchingWorker-" + name + '-' + idx, isShutdown, metrics, processor, acceptor), workerCount, isShutdown, virtualThreads);
     }
 
     static class TaskExecutorMetrics {
@@ -167,6 +209,14 @@ class TaskExecutors<ID, T> {
         String getWorkerName() {
             return workerName;
         }
+
+        static <ID, T> List<T> getTasksOf(List<TaskHolder<ID, T>> holders) {
+            List<T> tasks = new ArrayList<>(holders.size());
+            for (TaskHolder<ID, T> holder : holders) {
+                tasks.add(holder.getTask());
+            }
+            return tasks;
+        }
     }
 
     static class BatchWorkerRunnable<ID, T> extends WorkerRunnable<ID, T> {
@@ -187,7 +237,11 @@ class TaskExecutors<ID, T> {
                     metrics.registerExpiryTimes(holders);
 
                     List<T> tasks = getTasksOf(holders);
+                    long startTime = System.currentTimeMillis();
                     ProcessingResult result = processor.process(tasks);
+                    if (!holders.isEmpty()) {
+                        taskDispatcher.batchCompleted(result, holders.size(), System.currentTimeMillis() - startTime);
+                    }
                     switch (result) {
                         case Success:
                             break;
@@ -216,13 +270,56 @@ class TaskExecutors<ID, T> {
             } while (!isShutdown.get() && result == null);
             return (result == null) ? new ArrayList<>() : result;
         }
+    }
 
-        private List<T> getTasksOf(List<TaskHolder<ID, T>> holders) {
-            List<T> tasks = new ArrayList<>(holders.size());
-            for (TaskHolder<ID, T> holder : holders) {
-                tasks.add(holder.getTask());
+    /**
+     * A batch worker taking its batches straight from a {@link LockFreeAcceptor}.
+     */
+    static class PullingBatchWorkerRunnable<ID, T> extends WorkerRunnable<ID, T> {
+
+        private final LockFreeAcceptor<ID, T> acceptor;
+
+        PullingBatchWorkerRunnable(String workerName,
+                                   AtomicBoolean isShutdown,
+                                   TaskExecutorMetrics metrics,
+                                   TaskProcessor<T> processor,
+                                   LockFreeAcceptor<ID, T> acceptor) {
+            super(workerName, isShutdown, metrics, processor, null);
+            this.acceptor = acceptor;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!isShutdown.get()) {
+                    List<TaskHolder<ID, T>> holders = acceptor.pollBatch(1, TimeUnit.SECONDS);
+                    if (holders == null) {
+                        continue;
+                    }
+                    metrics.registerExpiryTimes(holders);
+
+                    List<T> tasks = getTasksOf(holders);
+                    long startTime = System.currentTimeMillis();
+                    ProcessingResult result = processor.process(tasks);
+                    acceptor.batchCompleted(result, holders.size(), System.currentTimeMillis() - startTime);
+                    switch (result) {
+                        case Success:
+                            break;
+                        case Congestion:
+                        case TransientError:
+                            acceptor.reprocess(holders, result);
+                            break;
+                        case PermanentError:
+                            logger.warn("Discarding {} tasks of {} due to permanent error", holders.size(), workerName);
+                    }
+                    metrics.registerTaskResult(result, tasks.size());
+                }
+            } catch (InterruptedException e) {
+                // Ignore
+            } catch (Throwable e) {
+                // Safe-guard, so we never exit this loop in an uncontrolled way.
+                logger.warn("Discovery WorkerThread error", e);
             }
-            return tasks;
         }
     }
 
@@ -32,4 +32,10 @@ public interface TaskProcessor<T> {
      * error is transient).
      */
     ProcessingResult process(List<T> tasks);
+
+    /**
+     * Called for each task dropped because it expired before it could be processed. Does nothing by default.
+     */
+    default void expired(T task) {
+    }
 }
@@ -0,0 +1,63 @@
+package com.netflix.eureka.util.batcher;
+
+import java.lang.reflect.Method;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Creates virtual threads on Java runtimes that support them. As the code is compiled for older runtimes, the
+ * {@code Thread.ofVirtual()} builder is looked up by reflection.
+ */
+final class VirtualThreads {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreads.class);
+
+    private static final Method OF_VIRTUAL;
+    private static final Method NAME;
+    private static final Method UNSTARTED;
+
+    static {
+        Method ofVirtual = null;
+        Method name = null;
+        Method unstarted = null;
+        try {
+            // The builder methods are looked up on the public interface, as the builder class is not accessible
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            name = builderClass.getMethod("name", String.class);
+            unstarted = builderClass.getMethod("unstarted", Runnable.class);
+            // Fails on the runtimes where virtual threads are a preview feature that is not enabled
+            ofVirtual.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            logger.debug("Virtual threads are not supported by this Java runtime");
+            ofVirtual = null;
+        }
+        OF_VIRTUAL = ofVirtual;
+        NAME = name;
+        UNSTARTED = unstarted;
+    }
+
+    private VirtualThreads() {
+    }
+
+    static boolean isSupported() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * @return a new virtual thread that is not started yet
+     * @throws IllegalStateException if virtual threads are not {@link #isSupported() supported}
+     */
+    static Thread newThread(String name, Runnable runnable) {
+        if (!isSupported()) {
+            throw new IllegalStateException("Virtual threads are not supported by this Java runtime");
+        }
+        try {
+            Object builder = NAME.invoke(OF_VIRTUAL.invoke(null), name);
+            return (Thread) UNSTARTED.invoke(builder, runnable);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create a virtual thread", e);
+        }
+    }
+}
@@ -8,11 +8,17 @@ import java.util.zip.GZIPOutputStream;
 
 import com.netflix.appinfo.InstanceInfo;
 import com.netflix.appinfo.InstanceInfo.InstanceStatus;
+import com.netflix.config.ConfigurationManager;
 import com.netflix.discovery.converters.EurekaJacksonCodec;
 import com.netflix.discovery.shared.transport.ClusterSampleData;
 import com.netflix.discovery.shared.transport.EurekaHttpResponse;
 import com.netflix.eureka.DefaultEurekaServerConfig;
 import com.netflix.eureka.EurekaServerConfig;
+import com.netflix.eureka.cluster.protocol.HeartbeatFrame;
+import com.netflix.eureka.cluster.protocol.ReplicationInstance.ReplicationInstanceBuilder;
+import com.netflix.eureka.cluster.protocol.ReplicationList;
+import com.netflix.eureka.cluster.protocol.ReplicationListResponse;
+import com.netflix.eureka.registry.PeerAwareInstanceRegistryImpl.Action;
 import com.netflix.eureka.resources.ASGResource.ASGStatus;
 import com.netflix.eureka.resources.DefaultServerCodecs;
 import com.netflix.eureka.resources.ServerCodecs;
@@ -32,6 +38,7 @@ import static org.junit.Assert.assertThat;
 import static org.mockserver.model.Header.header;
 import static org.mockserver.model.HttpRequest.request;
 import static org.mockserver.model.HttpResponse.response;
+import static org.mockserver.verify.VerificationTimes.exactly;
 
 /**
  * Ideally we would test client/server REST layer together as an integration test, where server side has mocked
@@ -181,6 +188,79 @@ public class JerseyReplicationClientTest {
         assertThat(response.getStatusCode(), is(equalTo(204)));
     }
 
+    @Test
+    public void testHeartbeatBatchIsSentAsJsonByDefault() throws Exception {
+        serverMockClient.when(
+                request()
+                        .withMethod("POST")
+                        .withPath("/eureka/v2/" + PeerEurekaNode.BATCH_URL_PATH)
+        ).respond(
+                response().withStatusCode(503)
+        );
+
+        ReplicationList heartbeats = new ReplicationList(ReplicationInstanceBuilder.aReplicationInstance()
+                .withAction(Action.Heartbeat)
+                .withAppName(instanceInfo.getAppName())
+                .withId(instanceInfo.getId())
+                .withStatus(instanceInfo.getStatus().name())
+                .build());
+        replicationClient.submitBatchUpdates(heartbeats);
+
+        serverMockClient.verify(
+                request().withMethod("POST").withHeader(header("Content-Type", HeartbeatFrame.MEDIA_TYPE)),
+                exactly(0)
+        );
+    }
+
+    @Test
+    public void testHeartbeatBatchFallsBackToJsonWhenBinaryFrameIsNotSupported() throws Exception {
+        ConfigurationManager.getConfigInstance().setProperty("eureka.shouldUseBinaryHeartbeatReplication", true);
+        JerseyReplicationClient binaryReplicationClient;
+        try {
+            binaryReplicationClient = JerseyReplicationClient.createReplicationClient(
+                    config, serverCodecs, "http://localhost:" + serverMockRule.getHttpPort() + "/eureka/v2"
+            );
+        } finally {
+            ConfigurationManager.getConfigInstance().clearProperty("eureka.shouldUseBinaryHeartbeatReplication");
+        }
+        serverMockClient.when(
+                request()
+                        .withMethod("POST")
+                        .withHeader(header("Content-Type", HeartbeatFrame.MEDIA_TYPE))
+                        .withPath("/eureka/v2/" + PeerEurekaNode.BATCH_URL_PATH)
+        ).respond(
+                response().withStatusCode(415)
+        );
+        serverMockClient.when(
+                request()
+                        .withMethod("POST")
+                        .withPath("/eureka/v2/" + PeerEurekaNode.BATCH_URL_PATH)
+        ).respond(
+                response().withStatusCode(503)
+        );
+
+        ReplicationList heartbeats = new ReplicationList(ReplicationInstanceBuilder.aReplicationInstance()
+                .withAction(Action.Heartbeat)
+                .withAppName(instanceInfo.getAppName())
+                .withId(instanceInfo.getId())
+                .withStatus(instanceInfo.getStatus().name())
+                .withLastDirtyTimestamp(instanceInfo.getLastDirtyTimestamp())
+                .build());
+        EurekaHttpResponse<ReplicationListResponse> response = binaryReplicationClient.submitBatchUpdates(heartbeats);
+        assertThat(response.getStatusCode(), is(equalTo(503)));
+
+        // The peer is not sent binary frames again until the retry interval elapses
+        response = binaryReplicationClient.submitBatchUpdates(heartbeats);
+        assertThat(response.getStatusCode(), is(equalTo(503)));
+
+        serverMockClient.verify(
+                request().withMethod("POST").withHeader(header("Content-Type", HeartbeatFrame.MEDIA_TYPE)),
+                exactly(1)
+        );
+        serverMockClient.verify(request().withMethod("POST").withPath("/eureka/v2/" + PeerEurekaNode.BATCH_URL_PATH), exactly(3));
+        binaryReplicationClient.shutdown();
+    }
+
     private static byte[] toGzippedJson(InstanceInfo remoteInfo) throws IOException {
         ByteArrayOutputStream bos = new ByteArrayOutputStream();
         GZIPOutputStream gos = new GZIPOutputStream(bos);
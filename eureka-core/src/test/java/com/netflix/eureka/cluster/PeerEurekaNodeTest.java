@@ -1,6 +1,8 @@
 package com.netflix.eureka.cluster;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 import com.netflix.appinfo.InstanceInfo;
@@ -11,6 +13,8 @@ import com.netflix.eureka.registry.PeerAwareInstanceRegistry;
 import com.netflix.eureka.registry.PeerAwareInstanceRegistryImpl.Action;
 import com.netflix.eureka.cluster.TestableHttpReplicationClient.HandledRequest;
 import com.netflix.eureka.cluster.TestableHttpReplicationClient.RequestType;
+import com.netflix.eureka.cluster.protocol.LeaseVector;
+import com.netflix.eureka.cluster.protocol.PeerReplicationStatus;
 import com.netflix.eureka.cluster.protocol.ReplicationInstance;
 import com.netflix.eureka.cluster.protocol.ReplicationList;
 import com.netflix.eureka.resources.ASGResource.ASGStatus;
@@ -22,10 +26,12 @@ import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 /**
  * @author Tomasz Bak
@@ -110,6 +116,94 @@ public class PeerEurekaNodeTest {
         verify(registry, timeout(1000).times(1)).register(instanceInfoFromPeer, true);
     }
 
+    @Test
+    public void testCoalescedHeartbeatsAreMergedIntoALeaseVector() throws Throwable {
+        InstanceInfo otherInstanceInfo = ClusterSampleData.newInstanceInfo(2);
+        PeerEurekaNode node = createPeerEurekaNode(true, Long.MAX_VALUE);
+        for (int i = 0; i < 3; i++) {
+            node.heartbeat(instanceInfo.getAppName(), instanceInfo.getId(), instanceInfo, null, false);
+            node.heartbeat(otherInstanceInfo.getAppName(), otherInstanceInfo.getId(), otherInstanceInfo, null, false);
+        }
+        long lastRenewalTimestamp = System.currentTimeMillis();
+        node.sendLeaseVectors();
+
+        // The last renewal of each instance is sent in a single lease vector
+        LeaseVector leaseVector = (LeaseVector) expectRequestType(RequestType.LeaseVector);
+        Map<String, Long> appLeases = leaseVector.getLeases().get(instanceInfo.getAppName());
+        assertThat(appLeases.size(), is(equalTo(1)));
+        assertThat(appLeases.get(instanceInfo.getId()) <= lastRenewalTimestamp, is(true));
+        Map<String, Long> otherAppLeases = leaseVector.getLeases().get(otherInstanceInfo.getAppName());
+        assertThat(otherAppLeases.size(), is(equalTo(1)));
+        assertThat(otherAppLeases.get(otherInstanceInfo.getId()) <= lastRenewalTimestamp, is(true));
+
+        // No heartbeat goes through the batches, and nothing is left for the next lease vector
+        node.sendLeaseVectors();
+        assertThat(httpReplicationClient.nextHandledRequest(500, TimeUnit.MILLISECONDS), is(nullValue()));
+    }
+
+    @Test
+    public void testLeaseVectorIsSplitBySize() throws Throwable {
+        PeerEurekaNode node = createPeerEurekaNode(true, Long.MAX_VALUE);
+        for (int i = 0; i < BATCH_SIZE + 1; i++) {
+            node.heartbeat(instanceInfo.getAppName(), "id#" + i, instanceInfo, null, false);
+        }
+        node.sendLeaseVectors();
+
+        LeaseVector leaseVector = (LeaseVector) expectRequestType(RequestType.LeaseVector);
+        assertThat(leaseVector.getLeases().get(instanceInfo.getAppName()).size(), is(equalTo(BATCH_SIZE)));
+        leaseVector = (LeaseVector) expectRequestType(RequestType.LeaseVector);
+        assertThat(leaseVector.getLeases().get(instanceInfo.getAppName()).size(), is(equalTo(1)));
+    }
+
+    @Test
+    public void testLeaseVectorIsSentAgainOnFailure() throws Throwable {
+        httpReplicationClient.withLeaseVectorReply(503, null);
+        PeerEurekaNode node = createPeerEurekaNode(true, Long.MAX_VALUE);
+        node.heartbeat(instanceInfo.getAppName(), instanceInfo.getId(), instanceInfo, null, false);
+        node.sendLeaseVectors();
+        LeaseVector failedLeaseVector = (LeaseVector) expectRequestType(RequestType.LeaseVector);
+
+        httpReplicationClient.withLeaseVectorReply(200, null);
+        node.sendLeaseVectors();
+        assertThat(expectRequestType(RequestType.LeaseVector), is(equalTo((Object) failedLeaseVector)));
+    }
+
+    @Test
+    public void testMissingLeaseIsRegisteredAgain() throws Throwable {
+        httpReplicationClient.withLeaseVectorReply(200, leaseVectorOf(instanceInfo));
+        when(registry.getInstanceByAppAndId(instanceInfo.getAppName(), instanceInfo.getId(), false)).thenReturn(instanceInfo);
+        createPeerEurekaNode(true).heartbeat(instanceInfo.getAppName(), instanceInfo.getId(), instanceInfo, null, false);
+
+        expectRequestType(RequestType.LeaseVector);
+
+        // Instance still registered locally, so it is registered with the peer
+        ReplicationInstance replicationInstance = expectSingleBatchRequest();
+        assertThat(replicationInstance.getAction(), is(equalTo(Action.Register)));
+    }
+
+    @Test
+    public void testMissingLeaseOfCancelledInstanceIsNotRegisteredAgain() throws Throwable {
+        httpReplicationClient.withLeaseVectorReply(200, leaseVectorOf(instanceInfo));
+        createPeerEurekaNode(true).heartbeat(instanceInfo.getAppName(), instanceInfo.getId(), instanceInfo, null, false);
+
+        expectRequestType(RequestType.LeaseVector);
+
+        // Instance cancelled locally in the meantime, so it is not registered again
+        assertThat(httpReplicationClient.nextHandledRequest(500, TimeUnit.MILLISECONDS), is(nullValue()));
+    }
+
+    @Test
+    public void testLeaseVectorFallsBackToHeartbeatsWhenNotSupported() throws Throwable {
+        httpReplicationClient.withLeaseVectorReply(404, null);
+        when(registry.getInstanceByAppAndId(instanceInfo.getAppName(), instanceInfo.getId(), false)).thenReturn(instanceInfo);
+        createPeerEurekaNode(true).heartbeat(instanceInfo.getAppName(), instanceInfo.getId(), instanceInfo, null, false);
+
+        expectRequestType(RequestType.LeaseVector);
+
+        ReplicationInstance replicationInstance = expectSingleBatchRequest();
+        assertThat(replicationInstance.getAction(), is(equalTo(Action.Heartbeat)));
+    }
+
     @Test
     public void testAsgStatusUpdate() throws Throwable {
         createPeerEurekaNode().statusUpdate(instanceInfo.getASGName(), ASGStatus.DISABLED);
@@ -134,8 +228,37 @@ public class PeerEurekaNodeTest {
         assertThat(replicationInstance.getAction(), is(equalTo(Action.DeleteStatusOverride)));
     }
 
+    @Test
+    public void testReplicationStatus() throws Exception {
+        PeerEurekaNode node = createPeerEurekaNode();
+        node.register(instanceInfo);
+        expectSingleBatchRequest();
+
+        long deadline = System.currentTimeMillis() + 30 * 1000;
+        PeerReplicationStatus status = node.getReplicationStatus();
+        while (status.getReplicatedTasks() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            status = node.getReplicationStatus();
+        }
+        assertThat(status.getServiceUrl(), is(equalTo("http://test.host.com")));
+        assertThat(status.getReplicatedTasks(), is(equalTo(1L)));
+        assertThat(status.getOldestTaskAgeMs(), is(equalTo(0L)));
+        assertThat(status.getExpiredTasks().isEmpty(), is(true));
+    }
+
     private PeerEurekaNode createPeerEurekaNode() {
+        return createPeerEurekaNode(false);
+    }
+
+    private PeerEurekaNode createPeerEurekaNode(boolean coalesceHeartbeats) {
+        return createPeerEurekaNode(coalesceHeartbeats, 200);
+    }
+
+    private PeerEurekaNode createPeerEurekaNode(boolean coalesceHeartbeats, long leaseVectorIntervalMs) {
         EurekaServerConfig config = ClusterSampleData.newEurekaServerConfig();
+        when(config.shouldCoalescePeerHeartbeats()).thenReturn(coalesceHeartbeats);
+        when(config.getPeerHeartbeatDigestIntervalMs()).thenReturn(leaseVectorIntervalMs);
+        when(config.getPeerHeartbeatDigestSize()).thenReturn(BATCH_SIZE);
 
         peerEurekaNode = new PeerEurekaNode(
                 registry, "test", "http://test.host.com",
@@ -149,6 +272,11 @@ public class PeerEurekaNodeTest {
         return peerEurekaNode;
     }
 
+    private static LeaseVector leaseVectorOf(InstanceInfo instanceInfo) {
+        Map<String, Long> appLeases = Collections.singletonMap(instanceInfo.getId(), System.currentTimeMillis());
+        return new LeaseVector(Collections.singletonMap(instanceInfo.getAppName(), appLeases));
+    }
+
     private Object expectRequestType(RequestType requestType) throws InterruptedException {
         HandledRequest handledRequest = httpReplicationClient.nextHandledRequest(60, TimeUnit.SECONDS);
         assertThat(handledRequest, is(notNullValue()));
@@ -59,6 +59,23 @@ public class ReplicationTaskProcessorTest {
         assertThat(task.getProcessingState(), is(ProcessingState.Failed));
     }
 
+    @Test
+    public void testReplicatedAndExpiredTasksAreCounted() throws Exception {
+        PeerReplicationMetrics metrics = new PeerReplicationMetrics("peerId#test", replicationClient);
+        try {
+            ReplicationTaskProcessor processor = new ReplicationTaskProcessor("peerId#test", replicationClient, metrics);
+
+            processor.process(aReplicationTask().withAction(Action.Heartbeat).withReplyStatusCode(200).build());
+            processor.process(aReplicationTask().withAction(Action.Heartbeat).withReplyStatusCode(406).build());
+            processor.expired(aReplicationTask().withAction(Action.Cancel).build());
+
+            assertThat(metrics.getReplicatedTasks(), is(1L));
+            assertThat(metrics.getExpiredTasks(), is(Collections.singletonMap(Action.Cancel.name(), 1L)));
+        } finally {
+            metrics.shutdown();
+        }
+    }
+
     @Test
     public void testBatchableTaskListExecution() throws Exception {
         TestableInstanceReplicationTask task = aReplicationTask().build();
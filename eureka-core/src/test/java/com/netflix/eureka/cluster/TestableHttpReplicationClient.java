@@ -15,6 +15,7 @@ import com.netflix.appinfo.InstanceInfo.InstanceStatus;
 import com.netflix.discovery.shared.Application;
 import com.netflix.discovery.shared.Applications;
 import com.netflix.discovery.shared.transport.EurekaHttpResponse;
+import com.netflix.eureka.cluster.protocol.LeaseVector;
 import com.netflix.eureka.cluster.protocol.ReplicationInstanceResponse;
 import com.netflix.eureka.cluster.protocol.ReplicationList;
 import com.netflix.eureka.cluster.protocol.ReplicationListResponse;
@@ -38,6 +39,9 @@ public class TestableHttpReplicationClient implements HttpReplicationClient {
 
     private int batchStatusCode;
 
+    private int leaseVectorStatusCode = 200;
+    private LeaseVector missingLeases;
+
     private final AtomicInteger callCounter = new AtomicInteger();
     private final AtomicInteger networkFailureCounter = new AtomicInteger();
     private final AtomicInteger readTimeOutCounter = new AtomicInteger();
@@ -59,6 +63,11 @@ public class TestableHttpReplicationClient implements HttpReplicationClient {
         this.batchStatusCode = batchStatusCode;
     }
 
+    public void withLeaseVectorReply(int leaseVectorStatusCode, LeaseVector missingLeases) {
+        this.leaseVectorStatusCode = leaseVectorStatusCode;
+        this.missingLeases = missingLeases;
+    }
+
     public void withNetworkError(int networkFailuresRepeatCount) {
         this.networkFailuresRepeatCount = networkFailuresRepeatCount;
     }
@@ -179,11 +188,17 @@ public class TestableHttpReplicationClient implements HttpReplicationClient {
         return anEurekaHttpResponse(statusCode, replicationListResponse).type(MediaType.APPLICATION_JSON_TYPE).build();
     }
 
+    @Override
+    public EurekaHttpResponse<LeaseVector> renewLeases(LeaseVector leaseVector) {
+        handledRequests.add(new HandledRequest(RequestType.LeaseVector, leaseVector));
+        return anEurekaHttpResponse(leaseVectorStatusCode, missingLeases).type(MediaType.APPLICATION_JSON_TYPE).build();
+    }
+
     @Override
     public void shutdown() {
     }
 
-    public enum RequestType {Heartbeat, Register, Cancel, StatusUpdate, DeleteStatusOverride, AsgStatusUpdate, Batch}
+    public enum RequestType {Heartbeat, Register, Cancel, StatusUpdate, DeleteStatusOverride, AsgStatusUpdate, Batch, LeaseVector}
 
     public static class HandledRequest {
         private final RequestType requestType;
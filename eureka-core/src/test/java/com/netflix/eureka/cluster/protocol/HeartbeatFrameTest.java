@@ -0,0 +1,93 @@
+package com.netflix.eureka.cluster.protocol;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import com.netflix.appinfo.InstanceInfo.InstanceStatus;
+import com.netflix.discovery.shared.transport.ClusterSampleData;
+import com.netflix.eureka.cluster.protocol.ReplicationInstance.ReplicationInstanceBuilder;
+import com.netflix.eureka.registry.PeerAwareInstanceRegistryImpl.Action;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class HeartbeatFrameTest {
+
+    @Test
+    public void testHeartbeatsEncoding() throws Exception {
+        ReplicationList replicationList = new ReplicationList(Arrays.asList(
+                newHeartbeat("app1", "id1", InstanceStatus.UP, null, 1500000000000L),
+                newHeartbeat("app1", "id2", InstanceStatus.UP, InstanceStatus.OUT_OF_SERVICE, 1400000000000L),
+                newHeartbeat("app2", "id3", null, null, null),
+                newHeartbeat("app1", "id1", InstanceStatus.DOWN, InstanceStatus.UNKNOWN, 1500000000001L)
+        ));
+
+        assertThat(HeartbeatFrame.isEncodable(replicationList), is(true));
+        ReplicationList decodedValue = HeartbeatFrame.decode(HeartbeatFrame.encode(replicationList));
+
+        assertThat(decodedValue, is(equalTo(replicationList)));
+    }
+
+    @Test
+    public void testRepeatedIdsAreWrittenOnce() throws Exception {
+        ReplicationInstance heartbeat = newHeartbeat("anApplicationName", "anInstanceId", InstanceStatus.UP, null, 1500000000000L);
+        int singleSize = HeartbeatFrame.encode(new ReplicationList(heartbeat)).length;
+        int doubleSize = HeartbeatFrame.encode(new ReplicationList(Arrays.asList(heartbeat, heartbeat))).length;
+
+        // Indexes, flags, status and a zero timestamp delta
+        assertThat(doubleSize - singleSize, is(equalTo(5)));
+    }
+
+    @Test
+    public void testOnlyHeartbeatsAreEncodable() throws Exception {
+        ReplicationInstance heartbeat = newHeartbeat("app1", "id1", InstanceStatus.UP, null, 1500000000000L);
+
+        assertThat(HeartbeatFrame.isEncodable(new ReplicationList()), is(false));
+        assertThat(HeartbeatFrame.isEncodable(new ReplicationList(Arrays.asList(
+                heartbeat, ClusterSampleData.newReplicationInstanceOf(Action.Cancel, ClusterSampleData.newInstanceInfo(1))
+        ))), is(false));
+        assertThat(HeartbeatFrame.isEncodable(new ReplicationList(
+                ClusterSampleData.newReplicationInstanceOf(Action.Heartbeat, ClusterSampleData.newInstanceInfo(1))
+        )), is(false));
+    }
+
+    @Test
+    public void testStatusesAreWrittenByName() throws Exception {
+        // A status added in a later version is passed through, as with the JSON encoding
+        ReplicationList replicationList = new ReplicationList(
+                ReplicationInstanceBuilder.aReplicationInstance().withAction(Action.Heartbeat)
+                        .withAppName("app1").withId("id1").withStatus("NOT_A_STATUS").build()
+        );
+
+        assertThat(HeartbeatFrame.isEncodable(replicationList), is(true));
+        assertThat(HeartbeatFrame.decode(HeartbeatFrame.encode(replicationList)), is(equalTo(replicationList)));
+    }
+
+    @Test(expected = IOException.class)
+    public void testTruncatedFrameIsRejected() throws Exception {
+        byte[] frame = HeartbeatFrame.encode(new ReplicationList(
+                newHeartbeat("app1", "id1", InstanceStatus.UP, null, 1500000000000L)
+        ));
+        HeartbeatFrame.decode(Arrays.copyOf(frame, frame.length - 1));
+    }
+
+    @Test(expected = IOException.class)
+    public void testOtherPayloadIsRejected() throws Exception {
+        HeartbeatFrame.decode("{\"replicationList\":[]}".getBytes("UTF-8"));
+    }
+
+    private static ReplicationInstance newHeartbeat(String appName, String id,
+                                                    InstanceStatus status, InstanceStatus overriddenStatus,
+                                                    Long lastDirtyTimestamp) {
+        return ReplicationInstanceBuilder.aReplicationInstance()
+                .withAction(Action.Heartbeat)
+                .withAppName(appName)
+                .withId(id)
+                .withStatus(status == null ? null : status.name())
+                .withOverriddenStatus(overriddenStatus == null ? null : overriddenStatus.name())
+                .withLastDirtyTimestamp(lastDirtyTimestamp)
+                .build();
+    }
+}
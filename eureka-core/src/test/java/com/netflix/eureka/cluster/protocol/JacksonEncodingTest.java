@@ -1,5 +1,9 @@
 package com.netflix.eureka.cluster.protocol;
 
+import java.util.Arrays;
+import java.util.Collections;
+
+import com.netflix.appinfo.InstanceInfo.InstanceStatus;
 import com.netflix.discovery.converters.EurekaJacksonCodec;
 import com.netflix.discovery.shared.transport.ClusterSampleData;
 
@@ -61,4 +65,21 @@ public class JacksonEncodingTest {
 
         assertThat(decodedValue, is(equalTo(replicationListResponse)));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testRegistryDigestEncoding() throws Exception {
+        RegistryDigest registryDigest = new RegistryDigest(
+                Collections.singletonMap("APP1", 1234567890123L),
+                Collections.singletonMap("APP2", Arrays.asList(
+                        new InstanceDigest("i-1", InstanceStatus.UP, 1500000000000L),
+                        new InstanceDigest("i-2", InstanceStatus.OUT_OF_SERVICE, 1500000000001L)
+                ))
+        );
+
+        // Encode / decode
+        String jsonText = jacksonCodec.writeToString(registryDigest);
+        RegistryDigest decodedValue = jacksonCodec.readValue(RegistryDigest.class, jsonText);
+
+        assertThat(decodedValue, is(equalTo(registryDigest)));
+    }
+}
@@ -0,0 +1,91 @@
+package com.netflix.eureka.registry;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.converters.wrappers.CodecWrappers;
+import com.netflix.discovery.converters.wrappers.EncoderWrapper;
+import com.netflix.discovery.shared.Application;
+import com.netflix.discovery.shared.Applications;
+import com.netflix.discovery.util.InstanceInfoGenerator;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class ApplicationsPayloadAssemblerTest {
+
+    private static final List<EncoderWrapper> ENCODERS = new ArrayList<>();
+
+    static {
+        ENCODERS.add(CodecWrappers.getEncoder(CodecWrappers.JacksonJson.class));
+        ENCODERS.add(CodecWrappers.getEncoder(CodecWrappers.JacksonJsonMini.class));
+        ENCODERS.add(CodecWrappers.getEncoder(CodecWrappers.LegacyJacksonJson.class));
+        ENCODERS.add(CodecWrappers.getEncoder(CodecWrappers.JacksonXml.class));
+        ENCODERS.add(CodecWrappers.getEncoder(CodecWrappers.JacksonXmlMini.class));
+        ENCODERS.add(CodecWrappers.getEncoder(CodecWrappers.XStreamJson.class));
+        ENCODERS.add(CodecWrappers.getEncoder(CodecWrappers.XStreamXml.class));
+    }
+
+    private final ApplicationsPayloadAssembler assembler = new ApplicationsPayloadAssembler(180);
+
+    private String encode(EncoderWrapper encoder, Applications apps) throws Exception {
+        return new String(assembler.encode(encoder, apps), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testAssembledPayloadMatchesEncoderOutput() throws Exception {
+        Applications apps = InstanceInfoGenerator.newBuilder(20, 5).withMetaData(true).build().toApplications();
+        apps.setAppsHashCode(apps.getReconcileHashCode());
+
+        for (EncoderWrapper encoder : ENCODERS) {
+            assertThat(encoder.codecName(), encode(encoder, apps), is(equalTo(encoder.encode(apps))));
+            // Second round is served from the cached fragments
+            assertThat(encoder.codecName(), encode(encoder, apps), is(equalTo(encoder.encode(apps))));
+        }
+    }
+
+    @Test
+    public void testEmptyRegistry() throws Exception {
+        Applications apps = new Applications();
+        apps.setAppsHashCode(apps.getReconcileHashCode());
+
+        for (EncoderWrapper encoder : ENCODERS) {
+            assertThat(encoder.codecName(), encode(encoder, apps), is(equalTo(encoder.encode(apps))));
+        }
+    }
+
+    @Test
+    public void testOnlyChangedApplicationsAreEncodedAgain() throws Exception {
+        EncoderWrapper encoder = CodecWrappers.getEncoder(CodecWrappers.LegacyJacksonJson.class);
+        Applications apps = InstanceInfoGenerator.newBuilder(20, 5).build().toApplications();
+        apps.setAppsHashCode(apps.getReconcileHashCode());
+        encode(encoder, apps);
+        assertThat(assembler.getFragmentCount(encoder), is(equalTo(5L)));
+
+        // Next registry version, with the first application replaced by a modified copy
+        Applications nextApps = new Applications();
+        nextApps.setVersion(1L);
+        boolean first = true;
+        for (Application app : apps.getRegisteredApplications()) {
+            if (first) {
+                Application changedApp = new Application(app.getName());
+                for (InstanceInfo instance : app.getInstances()) {
+                    changedApp.addInstance(new InstanceInfo.Builder(new InstanceInfo(instance))
+                            .setStatus(InstanceInfo.InstanceStatus.OUT_OF_SERVICE).build());
+                }
+                app = changedApp;
+                first = false;
+            }
+            nextApps.addApplication(app);
+        }
+        nextApps.setAppsHashCode(nextApps.getReconcileHashCode());
+
+        assertThat(encode(encoder, nextApps), is(equalTo(encoder.encode(nextApps))));
+        assertThat(assembler.getFragmentCount(encoder), is(equalTo(6L)));
+        assertThat(encode(encoder, apps), is(equalTo(encoder.encode(apps))));
+    }
+}
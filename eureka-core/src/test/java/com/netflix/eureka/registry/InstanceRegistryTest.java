@@ -17,6 +17,7 @@ import org.junit.Test;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.when;
 
@@ -128,6 +129,72 @@ public class InstanceRegistryTest extends AbstractTester {
 
     }
 
+    @Test
+    public void testRegistrySnapshotIsSharedUntilRegistryChanges() throws Exception {
+        InstanceInfo instance = createLocalInstance(LOCAL_REGION_INSTANCE_1_HOSTNAME);
+        registerInstanceLocally(instance);
+
+        RegistrySnapshot snapshot = registry.getRegistrySnapshot();
+        Assert.assertSame("Snapshot rebuilt without a registry change", snapshot, registry.getRegistrySnapshot());
+        Assert.assertSame("Local apps not served from the snapshot",
+                snapshot.getApplications(), registry.getSharedApplicationsFromMultipleRegions(null));
+        Applications apps = registry.getApplicationsFromLocalRegionOnly();
+        Assert.assertNotSame("Snapshot apps returned to external callers", snapshot.getApplications(), apps);
+        apps.getRegisteredApplications(LOCAL_REGION_APP_NAME).removeInstance(instance);
+        Assert.assertEquals("Snapshot apps modified through the returned copy", 1,
+                snapshot.getApplications().getRegisteredApplications(LOCAL_REGION_APP_NAME).getInstances().size());
+        Assert.assertEquals("Instance not found by id", 1, registry.getInstancesById(instance.getId(), false).size());
+
+        registry.cancel(LOCAL_REGION_APP_NAME, instance.getId(), false);
+
+        RegistrySnapshot updated = registry.getRegistrySnapshot();
+        Assert.assertTrue("Snapshot not rebuilt after a registry change", updated.getVersion() > snapshot.getVersion());
+        Assert.assertNull("Cancelled app still in snapshot",
+                updated.getApplications().getRegisteredApplications(LOCAL_REGION_APP_NAME));
+        Assert.assertTrue("Cancelled instance found by id", registry.getInstancesById(instance.getId(), false).isEmpty());
+    }
+
+    @Test
+    public void testApplicationDeltasSinceVersion() throws Exception {
+        // Remote region instances are not versioned, so exact deltas are for the local region view only
+        doReturn(true).when(serverConfig).disableTransparentFallbackToOtherRegion();
+        registerInstanceLocally(createLocalInstanceWithIdAndStatus(LOCAL_REGION_INSTANCE_1_HOSTNAME, "id1", InstanceStatus.UP));
+        long version = registry.getRegistryVersion();
+        registerInstanceLocally(createLocalInstanceWithIdAndStatus(LOCAL_REGION_INSTANCE_2_HOSTNAME, "id2", InstanceStatus.UP));
+
+        Applications delta = registry.getApplicationDeltasSince(version);
+        Application app = delta.getRegisteredApplications(LOCAL_REGION_APP_NAME);
+        Assert.assertEquals("Delta holds more than the changes since the version", 1, app.getInstances().size());
+        Assert.assertNotNull("Delta misses the change since the version", app.getByInstanceId("id2"));
+        Assert.assertEquals("Delta apps hash code not as expected", "UP_2_", delta.getAppsHashCode());
+
+        Applications empty = registry.getApplicationDeltasSince(registry.getRegistryVersion());
+        Assert.assertTrue("Delta not empty without changes", empty.getRegisteredApplications().isEmpty());
+        Assert.assertNull("Delta returned for an unknown version",
+                registry.getApplicationDeltasSince(registry.getRegistryVersion() + 1));
+    }
+
+    @Test
+    public void testApplicationDeltasSinceVersionNotServedWithRemoteRegionFallback() throws Exception {
+        long version = registry.getRegistryVersion();
+        registerInstanceLocally(createLocalInstance(LOCAL_REGION_INSTANCE_1_HOSTNAME));
+        Assert.assertNull("Exact delta served for a view including remote regions",
+                registry.getApplicationDeltasSince(version));
+    }
+
+    @Test
+    public void testMergingRemoteRegionsDoesNotModifyRegistrySnapshot() throws Exception {
+        registerInstanceLocally(createRemoteInstance(LOCAL_REGION_INSTANCE_2_HOSTNAME));
+
+        Applications localApps = registry.getApplicationsFromLocalRegionOnly();
+        Applications allApps = registry.getApplicationsFromAllRemoteRegions();
+
+        Assert.assertEquals("Merged app instance count not as expected.", 2,
+                allApps.getRegisteredApplications(REMOTE_REGION_APP_NAME).getInstances().size());
+        Assert.assertEquals("Local app modified by the remote region merge.", 1,
+                localApps.getRegisteredApplications(REMOTE_REGION_APP_NAME).getInstances().size());
+    }
+
     @Test
     public void testStatusOverrideSetAndRemoval() throws Exception {
         InstanceInfo seed = createLocalInstance(LOCAL_REGION_INSTANCE_1_HOSTNAME);
@@ -199,6 +266,22 @@ public class InstanceRegistryTest extends AbstractTester {
         verifyLocalInstanceStatus(seed.getId(), InstanceStatus.UP);
     }
 
+    @Test
+    public void testRenewWithoutStatusChange() throws Exception {
+        InstanceInfo myInstance = createLocalInstance(LOCAL_REGION_INSTANCE_1_HOSTNAME);
+        registerInstanceLocally(myInstance);
+        long registryVersion = registry.getRegistryVersion();
+
+        assertThat(registry.renew(myInstance.getAppName(), myInstance.getId(), false), is(true));
+        verifyLocalInstanceStatus(myInstance.getId(), InstanceStatus.UP);
+        assertThat(registry.getRegistryVersion(), is(registryVersion));
+
+        // An unknown status still requires the instance to register again
+        InstanceInfo registeredInstance = registry.getInstanceByAppAndId(myInstance.getAppName(), myInstance.getId());
+        registeredInstance.setStatusWithoutDirty(InstanceStatus.UNKNOWN);
+        assertThat(registry.renew(myInstance.getAppName(), myInstance.getId(), false), is(false));
+    }
+
     @Test
     public void testStatusOverrideStartingStatus() throws Exception {
         // Regular registration first
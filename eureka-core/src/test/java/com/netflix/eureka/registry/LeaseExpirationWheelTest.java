@@ -0,0 +1,121 @@
+package com.netflix.eureka.registry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.util.InstanceInfoGenerator;
+import com.netflix.eureka.lease.Lease;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class LeaseExpirationWheelTest {
+
+    private static final long TICK_MS = 1000;
+
+    private final LeaseExpirationWheel wheel = new LeaseExpirationWheel(TICK_MS, 8);
+    private final InstanceInfo instance = InstanceInfoGenerator.takeOne();
+
+    @Test
+    public void testExpiredLeaseIsCollected() throws Exception {
+        Lease<InstanceInfo> expiredLease = expiredLease();
+        Lease<InstanceInfo> liveLease = new Lease<>(instance, 60);
+        wheel.schedule(expiredLease);
+        wheel.schedule(liveLease);
+
+        List<Lease<InstanceInfo>> expired = wheel.advance(System.currentTimeMillis() + 2 * TICK_MS, 0, lease -> true);
+        assertThat(expired.size(), is(equalTo(1)));
+        assertThat(expired.get(0), is(equalTo(expiredLease)));
+        // The live lease stays in the wheel, for a later round
+        assertThat(wheel.size(), is(equalTo(1)));
+        // Nothing left to process for the same time
+        assertThat(wheel.advance(System.currentTimeMillis() + 2 * TICK_MS, 0, lease -> true).size(), is(equalTo(0)));
+    }
+
+    @Test
+    public void testLeaseNoLongerRegisteredIsDropped() throws Exception {
+        wheel.schedule(expiredLease());
+
+        List<Lease<InstanceInfo>> expired = wheel.advance(System.currentTimeMillis() + 2 * TICK_MS, 0, lease -> false);
+        assertThat(expired.size(), is(equalTo(0)));
+        assertThat(wheel.size(), is(equalTo(0)));
+    }
+
+    @Test
+    public void testRescheduledExpiredLeaseIsCollectedOnNextTick() throws Exception {
+        Lease<InstanceInfo> expiredLease = expiredLease();
+        wheel.schedule(expiredLease);
+        long now = System.currentTimeMillis() + 2 * TICK_MS;
+        assertThat(wheel.advance(now, 0, lease -> true).size(), is(equalTo(1)));
+
+        // Not evicted, as with self preservation
+        wheel.schedule(expiredLease);
+        assertThat(wheel.advance(now, 0, lease -> true).size(), is(equalTo(0)));
+        List<Lease<InstanceInfo>> expired = wheel.advance(now + TICK_MS, 0, lease -> true);
+        assertThat(expired.size(), is(equalTo(1)));
+        assertThat(expired.get(0), is(equalTo(expiredLease)));
+    }
+
+    @Test
+    public void testAdditionalLeaseTimeDelaysExpiration() throws Exception {
+        wheel.schedule(expiredLease());
+
+        long now = System.currentTimeMillis() + 2 * TICK_MS;
+        assertThat(wheel.advance(now, 10 * TICK_MS, lease -> true).size(), is(equalTo(0)));
+        assertThat(wheel.size(), is(equalTo(1)));
+    }
+
+    @Test
+    public void testLeaseScheduledWhileAdvancingIsCollectedOnNextAdvance() throws Exception {
+        final int threadCount = 4;
+        final int leasesPerThread = 2000;
+        final List<Lease<InstanceInfo>> leases = new ArrayList<>();
+        for (int i = 0; i < threadCount * leasesPerThread; i++) {
+            leases.add(new Lease<>(instance, 0));
+        }
+        Thread.sleep(5);
+
+        final Set<Lease<InstanceInfo>> collected = ConcurrentHashMap.newKeySet();
+        final AtomicBoolean scheduling = new AtomicBoolean(true);
+        final long[] now = {System.currentTimeMillis() + 2 * TICK_MS};
+        Thread advancer = new Thread(() -> {
+            while (scheduling.get()) {
+                now[0] += TICK_MS;
+                collected.addAll(wheel.advance(now[0], 0, lease -> true));
+            }
+        });
+        advancer.start();
+
+        final CountDownLatch done = new CountDownLatch(threadCount);
+        for (int i = 0; i < threadCount; i++) {
+            final List<Lease<InstanceInfo>> threadLeases = leases.subList(i * leasesPerThread, (i + 1) * leasesPerThread);
+            new Thread(() -> {
+                for (Lease<InstanceInfo> lease : threadLeases) {
+                    wheel.schedule(lease);
+                }
+                done.countDown();
+            }).start();
+        }
+        done.await();
+        scheduling.set(false);
+        advancer.join();
+
+        // A single tick later, every lease must be found, none being left in a slot the wheel went past
+        collected.addAll(wheel.advance(now[0] + TICK_MS, 0, lease -> true));
+        assertThat(collected.size(), is(equalTo(leases.size())));
+        assertThat(wheel.size(), is(equalTo(0)));
+    }
+
+    private Lease<InstanceInfo> expiredLease() throws InterruptedException {
+        Lease<InstanceInfo> lease = new Lease<>(instance, 0);
+        Thread.sleep(5);
+        return lease;
+    }
+}
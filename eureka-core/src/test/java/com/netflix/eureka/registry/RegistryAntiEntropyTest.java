@@ -0,0 +1,134 @@
+package com.netflix.eureka.registry;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.netflix.appinfo.DataCenterInfo;
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.appinfo.InstanceInfo.InstanceStatus;
+import com.netflix.appinfo.LeaseInfo;
+import com.netflix.appinfo.MyDataCenterInfo;
+import com.netflix.discovery.DefaultEurekaClientConfig;
+import com.netflix.discovery.EurekaClient;
+import com.netflix.eureka.AbstractTester;
+import com.netflix.eureka.DefaultEurekaServerConfig;
+import com.netflix.eureka.EurekaServerConfig;
+import com.netflix.eureka.cluster.PeerEurekaNode;
+import com.netflix.eureka.cluster.protocol.InstanceDigest;
+import com.netflix.eureka.cluster.protocol.RegistryDigest;
+import com.netflix.eureka.resources.DefaultServerCodecs;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RegistryAntiEntropyTest extends AbstractTester {
+
+    private static final String APP_NAME = "APP";
+    private static final long LAST_DIRTY_TIMESTAMP = 1500000000000L;
+
+    private PeerAwareInstanceRegistryImpl peerRegistry;
+
+    @Override
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        EurekaServerConfig peerServerConfig = new DefaultEurekaServerConfig();
+        peerRegistry = new PeerAwareInstanceRegistryImpl(
+                peerServerConfig,
+                new DefaultEurekaClientConfig(),
+                new DefaultServerCodecs(peerServerConfig),
+                mock(EurekaClient.class)
+        );
+        peerRegistry.init(serverContext.getPeerEurekaNodes());
+    }
+
+    @Override
+    @After
+    public void tearDown() throws Exception {
+        peerRegistry.shutdown();
+        super.tearDown();
+    }
+
+    @Test
+    public void testSameRegistriesDoNotDiverge() throws Exception {
+        registerBoth(newInstance("i-1", InstanceStatus.UP, LAST_DIRTY_TIMESTAMP));
+        registerBoth(newInstance("i-2", InstanceStatus.UP, LAST_DIRTY_TIMESTAMP));
+
+        assertThat(registry.getRegistryDigest(), is(equalTo(peerRegistry.getRegistryDigest())));
+        RegistryDigest peerDigest = peerRegistry.compareRegistryDigest(registry.getRegistryDigest());
+        assertThat(peerDigest.getDivergentApplications().isEmpty(), is(true));
+    }
+
+    @Test
+    public void testMoreRecentInstanceIsReplicatedByItsOwnerOnly() throws Exception {
+        registerBoth(newInstance("i-1", InstanceStatus.UP, LAST_DIRTY_TIMESTAMP));
+        registry.register(newInstance("i-1", InstanceStatus.DOWN, LAST_DIRTY_TIMESTAMP + 1), 90, true);
+
+        RegistryDigest peerDigest = peerRegistry.compareRegistryDigest(registry.getRegistryDigest());
+        assertThat(peerDigest.getDivergentApplications().get(APP_NAME), is(equalTo(Collections.singletonList(
+                new InstanceDigest("i-1", InstanceStatus.UP, LAST_DIRTY_TIMESTAMP)))));
+
+        List<InstanceInfo> newerInstances = registry.getInstancesNewerThan(peerDigest);
+        assertThat(newerInstances.size(), is(equalTo(1)));
+        assertThat(newerInstances.get(0).getStatus(), is(equalTo(InstanceStatus.DOWN)));
+
+        RegistryDigest digest = registry.compareRegistryDigest(peerRegistry.getRegistryDigest());
+        assertThat(peerRegistry.getInstancesNewerThan(digest).isEmpty(), is(true));
+    }
+
+    @Test
+    public void testMissingInstanceIsReplicatedOnlyIfRenewed() throws Exception {
+        registerBoth(newInstance("i-1", InstanceStatus.UP, LAST_DIRTY_TIMESTAMP));
+        registry.register(newInstance("i-2", InstanceStatus.UP, LAST_DIRTY_TIMESTAMP), 90, true);
+
+        RegistryDigest peerDigest = peerRegistry.compareRegistryDigest(registry.getRegistryDigest());
+        assertThat(registry.getInstancesNewerThan(peerDigest).isEmpty(), is(true));
+
+        registry.renew(APP_NAME, "i-2", true);
+        List<InstanceInfo> newerInstances = registry.getInstancesNewerThan(peerDigest);
+        assertThat(newerInstances.size(), is(equalTo(1)));
+        assertThat(newerInstances.get(0).getId(), is(equalTo("i-2")));
+    }
+
+    @Test
+    public void testReconcileWithPeersReplicatesNewerInstances() throws Exception {
+        registerBoth(newInstance("i-1", InstanceStatus.UP, LAST_DIRTY_TIMESTAMP));
+        InstanceInfo newerInstance = newInstance("i-1", InstanceStatus.OUT_OF_SERVICE, LAST_DIRTY_TIMESTAMP + 1);
+        registry.register(newerInstance, 90, true);
+
+        PeerEurekaNode node = mock(PeerEurekaNode.class);
+        doReturn(peerRegistry.compareRegistryDigest(registry.getRegistryDigest()))
+                .when(node).compareRegistryDigest(any(RegistryDigest.class));
+        when(serverContext.getPeerEurekaNodes().getPeerEurekaNodes()).thenReturn(Collections.singletonList(node));
+
+        assertThat(registry.reconcileWithPeers(), is(equalTo(1)));
+        verify(node).register(newerInstance);
+    }
+
+    private void registerBoth(InstanceInfo instance) {
+        registry.register(instance, 90, true);
+        peerRegistry.register(new InstanceInfo(instance), 90, true);
+    }
+
+    private static InstanceInfo newInstance(String id, InstanceStatus status, long lastDirtyTimestamp) {
+        return InstanceInfo.Builder.newBuilder()
+                .setInstanceId(id)
+                .setAppName(APP_NAME)
+                .setHostName(id + ".local")
+                .setIPAddr("10.10.101.1")
+                .setDataCenterInfo(new MyDataCenterInfo(DataCenterInfo.Name.MyOwn))
+                .setLeaseInfo(LeaseInfo.Builder.newBuilder().build())
+                .setStatus(status)
+                .setLastDirtyTimestamp(lastDirtyTimestamp)
+                .build();
+    }
+}
@@ -0,0 +1,87 @@
+package com.netflix.eureka.registry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.util.InstanceInfoGenerator;
+import com.netflix.eureka.lease.Lease;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class RegistryChangeLogTest {
+
+    private static final long INITIAL_VERSION = 100;
+
+    private final RegistryChangeLog changeLog = new RegistryChangeLog(1024, INITIAL_VERSION);
+
+    @Test
+    public void testReadsChangesSinceVersion() throws Exception {
+        Lease<InstanceInfo> first = newLease();
+        Lease<InstanceInfo> second = newLease();
+        changeLog.append(101, first);
+        // Version 102 changed the registry without anything to put in the deltas
+        changeLog.append(103, second);
+
+        List<Lease<InstanceInfo>> changes = new ArrayList<>();
+        RegistryChangeLog.ReadResult result = changeLog.read(INITIAL_VERSION, 103, 0, changes);
+        assertThat(result.isComplete(), is(true));
+        assertThat(changes.size(), is(equalTo(2)));
+        assertThat(changes.get(0), is(first));
+        assertThat(changes.get(1), is(second));
+
+        changes.clear();
+        result = changeLog.read(101, 103, 0, changes);
+        assertThat(result.isComplete(), is(true));
+        assertThat(changes.size(), is(equalTo(1)));
+        assertThat(changes.get(0), is(second));
+    }
+
+    @Test
+    public void testUnknownVersionsAreIncomplete() throws Exception {
+        changeLog.append(101, newLease());
+        changeLog.truncate(101);
+
+        List<Lease<InstanceInfo>> changes = new ArrayList<>();
+        assertThat(changeLog.read(INITIAL_VERSION, 101, 0, changes).isComplete(), is(false));
+        assertThat(changeLog.read(102, 101, 0, changes).isComplete(), is(false));
+        assertThat(changes.isEmpty(), is(true));
+    }
+
+    @Test
+    public void testExpiredChangesAreSkippedAndTruncated() throws Exception {
+        changeLog.append(101, newLease());
+        Thread.sleep(5);
+        long minTimestamp = System.currentTimeMillis();
+        Lease<InstanceInfo> recent = newLease();
+        changeLog.append(102, recent);
+
+        List<Lease<InstanceInfo>> changes = new ArrayList<>();
+        RegistryChangeLog.ReadResult result = changeLog.read(changeLog.getTruncatedVersion(), 102, minTimestamp, changes);
+        assertThat(changes.size(), is(equalTo(1)));
+        assertThat(changes.get(0), is(recent));
+        assertThat(result.isOverflow(), is(false));
+        assertThat(result.getExpiredUntilVersion(), is(equalTo(101L)));
+    }
+
+    @Test
+    public void testOverflowIsReported() throws Exception {
+        long version = INITIAL_VERSION;
+        for (int i = 0; i < changeLog.getCapacity() + 10; i++) {
+            changeLog.append(++version, newLease());
+        }
+
+        List<Lease<InstanceInfo>> changes = new ArrayList<>();
+        RegistryChangeLog.ReadResult result = changeLog.read(INITIAL_VERSION, version, 0, changes);
+        assertThat(result.isComplete(), is(false));
+        assertThat(result.isOverflow(), is(true));
+        assertThat(changes.size(), is(equalTo(changeLog.getCapacity())));
+    }
+
+    private static Lease<InstanceInfo> newLease() {
+        return new Lease<>(InstanceInfoGenerator.takeOne(), 90);
+    }
+}
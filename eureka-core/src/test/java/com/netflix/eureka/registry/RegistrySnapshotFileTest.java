@@ -0,0 +1,104 @@
+package com.netflix.eureka.registry;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.appinfo.InstanceInfo.InstanceStatus;
+import com.netflix.discovery.converters.wrappers.CodecWrapper;
+import com.netflix.discovery.converters.wrappers.CodecWrappers;
+import com.netflix.discovery.util.InstanceInfoGenerator;
+import com.netflix.eureka.lease.Lease;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class RegistrySnapshotFileTest {
+
+    private static final long REGISTRY_VERSION = 123456789L;
+
+    private static final CodecWrapper CODEC = CodecWrappers.getCodec(CodecWrappers.JacksonJson.class);
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final List<Lease<InstanceInfo>> leases = new ArrayList<>();
+    private final Map<String, InstanceStatus> overriddenStatuses = Collections.singletonMap("i-1", InstanceStatus.OUT_OF_SERVICE);
+
+    private Path file;
+
+    @Before
+    public void setUp() throws Exception {
+        file = temporaryFolder.getRoot().toPath().resolve("registry.snapshot");
+        long now = System.currentTimeMillis();
+        Iterator<InstanceInfo> instances = InstanceInfoGenerator.newBuilder(20, 4).withMetaData(true).build().serviceIterator();
+        for (int i = 0; instances.hasNext(); i++) {
+            leases.add(new Lease<>(instances.next(), 90 * 1000, now - 1000 * i, now - 10 * i, now - 100 * i));
+        }
+    }
+
+    @Test
+    public void testSnapshotIsReadBack() throws Exception {
+        RegistrySnapshotFile.write(file, REGISTRY_VERSION, leases, overriddenStatuses, CODEC);
+        RegistrySnapshotFile snapshot = RegistrySnapshotFile.read(file, CODEC);
+
+        assertThat(snapshot.getRegistryVersion(), is(equalTo(REGISTRY_VERSION)));
+        assertThat(snapshot.getOverriddenStatuses(), is(equalTo(overriddenStatuses)));
+        assertThat(snapshot.getLeases().size(), is(equalTo(leases.size())));
+        for (int i = 0; i < leases.size(); i++) {
+            Lease<InstanceInfo> expected = leases.get(i);
+            Lease<InstanceInfo> actual = snapshot.getLeases().get(i);
+            assertThat(actual.getHolder(), is(equalTo(expected.getHolder())));
+            assertThat(actual.getHolder().getMetadata(), is(equalTo(expected.getHolder().getMetadata())));
+            assertThat(actual.getDuration(), is(equalTo(expected.getDuration())));
+            assertThat(actual.getRegistrationTimestamp(), is(equalTo(expected.getRegistrationTimestamp())));
+            assertThat(actual.getLastRenewalTimestamp(), is(equalTo(expected.getLastRenewalTimestamp())));
+            assertThat(actual.getServiceUpTimestamp(), is(equalTo(expected.getServiceUpTimestamp())));
+        }
+    }
+
+    @Test
+    public void testSnapshotReplacesPreviousOne() throws Exception {
+        RegistrySnapshotFile.write(file, REGISTRY_VERSION, leases, overriddenStatuses, CODEC);
+        RegistrySnapshotFile.write(file, REGISTRY_VERSION + 1, leases.subList(0, 1), overriddenStatuses, CODEC);
+        RegistrySnapshotFile snapshot = RegistrySnapshotFile.read(file, CODEC);
+
+        assertThat(snapshot.getRegistryVersion(), is(equalTo(REGISTRY_VERSION + 1)));
+        assertThat(snapshot.getLeases().size(), is(equalTo(1)));
+        assertThat(temporaryFolder.getRoot().list().length, is(equalTo(1)));
+    }
+
+    @Test(expected = IOException.class)
+    public void testCorruptedSnapshotIsRejected() throws Exception {
+        RegistrySnapshotFile.write(file, REGISTRY_VERSION, leases, overriddenStatuses, CODEC);
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            long position = raf.length() / 2;
+            raf.seek(position);
+            int value = raf.read();
+            raf.seek(position);
+            raf.write(value ^ 0xFF);
+        }
+        RegistrySnapshotFile.read(file, CODEC);
+    }
+
+    @Test(expected = IOException.class)
+    public void testTruncatedSnapshotIsRejected() throws Exception {
+        RegistrySnapshotFile.write(file, REGISTRY_VERSION, leases, overriddenStatuses, CODEC);
+        byte[] content = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(content, content.length - 16));
+        RegistrySnapshotFile.read(file, CODEC);
+    }
+}
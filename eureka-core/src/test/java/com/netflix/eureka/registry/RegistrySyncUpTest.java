@@ -0,0 +1,145 @@
+package com.netflix.eureka.registry;
+
+import com.netflix.appinfo.DataCenterInfo;
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.appinfo.InstanceInfo.InstanceStatus;
+import com.netflix.appinfo.LeaseInfo;
+import com.netflix.appinfo.MyDataCenterInfo;
+import com.netflix.discovery.DefaultEurekaClientConfig;
+import com.netflix.discovery.EurekaClient;
+import com.netflix.discovery.shared.Application;
+import com.netflix.discovery.shared.Applications;
+import com.netflix.eureka.AbstractTester;
+import com.netflix.eureka.DefaultEurekaServerConfig;
+import com.netflix.eureka.EurekaServerConfig;
+import com.netflix.eureka.resources.DefaultServerCodecs;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
+
+public class RegistrySyncUpTest extends AbstractTester {
+
+    private static final long LAST_DIRTY_TIMESTAMP = 1500000000000L;
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final EurekaClient peerClient = mock(EurekaClient.class);
+
+    private EurekaServerConfig syncedServerConfig;
+    private PeerAwareInstanceRegistryImpl syncedRegistry;
+
+    @Override
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        syncedServerConfig = spy(new DefaultEurekaServerConfig());
+        doReturn(1).when(syncedServerConfig).getRegistrySyncRetries();
+        doReturn(4).when(syncedServerConfig).getRegistrySyncParallelism();
+        doReturn(temporaryFolder.getRoot().getPath() + "/registry.snapshot").when(syncedServerConfig).getRegistrySnapshotFile();
+
+        syncedRegistry = newSyncedRegistry();
+    }
+
+    private PeerAwareInstanceRegistryImpl newSyncedRegistry() throws Exception {
+        PeerAwareInstanceRegistryImpl syncedRegistry = new PeerAwareInstanceRegistryImpl(
+                syncedServerConfig,
+                new DefaultEurekaClientConfig(),
+                new DefaultServerCodecs(syncedServerConfig),
+                peerClient
+        );
+        syncedRegistry.init(serverContext.getPeerEurekaNodes());
+        return syncedRegistry;
+    }
+
+    @Override
+    @After
+    public void tearDown() throws Exception {
+        syncedRegistry.shutdown();
+        super.tearDown();
+    }
+
+    @Test
+    public void testSyncUpRegistersAllApplications() throws Exception {
+        Applications apps = new Applications();
+        for (int i = 0; i < 10; i++) {
+            Application app = new Application("APP" + i);
+            for (int j = 0; j < 20; j++) {
+                app.addInstance(newInstance("APP" + i, "i-" + i + '-' + j, InstanceStatus.UP, LAST_DIRTY_TIMESTAMP));
+            }
+            apps.addApplication(app);
+        }
+        when(peerClient.getApplications()).thenReturn(apps);
+
+        assertThat(syncedRegistry.syncUp(), is(equalTo(200)));
+        for (int i = 0; i < 10; i++) {
+            assertThat(syncedRegistry.getApplication("APP" + i).getInstances().size(), is(equalTo(20)));
+        }
+    }
+
+    @Test
+    public void testSyncUpRestoresRegistrySnapshot() throws Exception {
+        syncedRegistry.register(newInstance("APP", "i-1", InstanceStatus.UP, LAST_DIRTY_TIMESTAMP), false);
+        syncedRegistry.register(newInstance("APP", "i-2", InstanceStatus.UP, LAST_DIRTY_TIMESTAMP), false);
+        syncedRegistry.statusUpdate("APP", "i-2", InstanceStatus.OUT_OF_SERVICE, String.valueOf(LAST_DIRTY_TIMESTAMP), false);
+        syncedRegistry.saveRegistrySnapshot();
+
+        // The peer knows of an instance registered while the server was down
+        Applications apps = new Applications();
+        Application app = new Application("APP");
+        app.addInstance(newInstance("APP", "i-3", InstanceStatus.UP, LAST_DIRTY_TIMESTAMP));
+        apps.addApplication(app);
+        when(peerClient.getApplications()).thenReturn(apps);
+
+        PeerAwareInstanceRegistryImpl restartedRegistry = newSyncedRegistry();
+        try {
+            assertThat(restartedRegistry.syncUp(), is(equalTo(3)));
+            assertThat(restartedRegistry.getInstanceByAppAndId("APP", "i-1").getStatus(), is(equalTo(InstanceStatus.UP)));
+            assertThat(restartedRegistry.getInstanceByAppAndId("APP", "i-2").getStatus(), is(equalTo(InstanceStatus.OUT_OF_SERVICE)));
+            assertThat(restartedRegistry.getInstanceByAppAndId("APP", "i-3").getStatus(), is(equalTo(InstanceStatus.UP)));
+            assertThat(restartedRegistry.overriddenInstanceStatusesSnapshot().get("i-2"), is(equalTo(InstanceStatus.OUT_OF_SERVICE)));
+        } finally {
+            restartedRegistry.shutdown();
+        }
+    }
+
+    @Test
+    public void testSyncUpIgnoresOutdatedRegistrySnapshot() throws Exception {
+        syncedRegistry.register(newInstance("APP", "i-1", InstanceStatus.UP, LAST_DIRTY_TIMESTAMP), false);
+        syncedRegistry.saveRegistrySnapshot();
+        doReturn(-1L).when(syncedServerConfig).getRegistrySnapshotMaxAgeMs();
+        when(peerClient.getApplications()).thenReturn(new Applications());
+
+        PeerAwareInstanceRegistryImpl restartedRegistry = newSyncedRegistry();
+        try {
+            assertThat(restartedRegistry.syncUp(), is(equalTo(0)));
+            assertThat(restartedRegistry.getLocalRegistrySize(), is(equalTo(0L)));
+        } finally {
+            restartedRegistry.shutdown();
+        }
+    }
+
+    private static InstanceInfo newInstance(String appName, String id, InstanceStatus status, long lastDirtyTimestamp) {
+        return InstanceInfo.Builder.newBuilder()
+                .setInstanceId(id)
+                .setAppName(appName)
+                .setHostName(id + ".local")
+                .setIPAddr("10.10.101.1")
+                .setVIPAddress(appName.toLowerCase() + ".vip")
+                .setDataCenterInfo(new MyDataCenterInfo(DataCenterInfo.Name.MyOwn))
+                .setLeaseInfo(LeaseInfo.Builder.newBuilder().build())
+                .setStatus(status)
+                .setLastDirtyTimestamp(lastDirtyTimestamp)
+                .build();
+    }
+}
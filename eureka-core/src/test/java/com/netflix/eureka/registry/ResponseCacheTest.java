@@ -1,7 +1,15 @@
 package com.netflix.eureka.registry;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
 import com.netflix.appinfo.EurekaAccept;
+import com.netflix.appinfo.InstanceInfo;
 import com.netflix.discovery.DefaultEurekaClientConfig;
+import com.netflix.discovery.shared.Application;
+import com.netflix.discovery.util.InstanceInfoGenerator;
 import com.netflix.eureka.AbstractTester;
 import com.netflix.eureka.DefaultEurekaServerConfig;
 import com.netflix.eureka.EurekaServerConfig;
@@ -91,4 +99,60 @@ public class ResponseCacheTest extends AbstractTester {
         Assert.assertNull("Cache after invalidate did not return null.", cache.get(key1, true));
         Assert.assertNull("Cache after invalidate did not return null.", cache.get(key2, true));
     }
+
+    @Test
+    public void testCompressedPayloadIsBuiltOnceFromRawBytes() throws Exception {
+        ResponseCacheImpl cache = (ResponseCacheImpl) testRegistry.getResponseCache();
+        Key key = new Key(Key.EntityType.Application, ResponseCacheImpl.ALL_APPS,
+                Key.KeyType.JSON, Version.V2, EurekaAccept.full);
+
+        ResponseCacheImpl.Value value = cache.getValue(key, false);
+        byte[] raw = value.getRawBytes();
+        Assert.assertEquals(value.getPayload(), new String(raw, StandardCharsets.UTF_8));
+
+        byte[] gzipped = value.getGzipped();
+        Assert.assertSame("Compressed payload built more than once", gzipped, value.getGzipped());
+        ByteArrayOutputStream uncompressed = new ByteArrayOutputStream();
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped))) {
+            byte[] buffer = new byte[4096];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                uncompressed.write(buffer, 0, n);
+            }
+        }
+        Assert.assertArrayEquals(raw, uncompressed.toByteArray());
+    }
+
+    @Test
+    public void testPayloadAssembledFromFragmentsMatchesWholeRegistryEncoding() throws Exception {
+        for (Application application : InstanceInfoGenerator.newBuilder(10, 3).build().toApplications().getRegisteredApplications()) {
+            for (InstanceInfo instanceInfo : application.getInstances()) {
+                registry.register(instanceInfo, false);
+            }
+        }
+        ResponseCacheImpl fragmentCache = newResponseCache(true);
+        ResponseCacheImpl wholeCache = newResponseCache(false);
+        try {
+            for (Key.KeyType keyType : Key.KeyType.values()) {
+                for (String[] regions : new String[][]{null, {REMOTE_REGION_NAME}}) {
+                    Key key = new Key(Key.EntityType.Application, ResponseCacheImpl.ALL_APPS,
+                            keyType, Version.V2, EurekaAccept.full, regions);
+                    String expected = wholeCache.get(key, false);
+                    if (regions != null) {
+                        Assert.assertTrue("Remote region application missing", expected.contains(REMOTE_REGION_APP_NAME));
+                    }
+                    Assert.assertEquals(key.toStringCompact(), expected, fragmentCache.get(key, false));
+                }
+            }
+        } finally {
+            fragmentCache.stop();
+            wholeCache.stop();
+        }
+    }
+
+    private ResponseCacheImpl newResponseCache(boolean useApplicationPayloadFragments) {
+        EurekaServerConfig serverConfig = spy(new DefaultEurekaServerConfig());
+        doReturn(useApplicationPayloadFragments).when(serverConfig).shouldUseApplicationPayloadFragments();
+        return new ResponseCacheImpl(serverConfig, new DefaultServerCodecs(serverConfig), registry);
+    }
 }
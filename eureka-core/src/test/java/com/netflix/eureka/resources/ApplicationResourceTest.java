@@ -18,6 +18,7 @@ import org.junit.Test;
 
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import java.nio.charset.StandardCharsets;
 
 import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.CoreMatchers.is;
@@ -54,7 +55,7 @@ public class ApplicationResourceTest extends AbstractTester {
                 EurekaAccept.full.name()
         );
 
-        String json = String.valueOf(response.getEntity());
+        String json = new String((byte[]) response.getEntity(), StandardCharsets.UTF_8);
         DecoderWrapper decoder = CodecWrappers.getDecoder(CodecWrappers.LegacyJacksonJson.class);
 
         Application decodedApp = decoder.decode(json, Application.class);
@@ -69,7 +70,7 @@ public class ApplicationResourceTest extends AbstractTester {
                 EurekaAccept.compact.name()
         );
 
-        String json = String.valueOf(response.getEntity());
+        String json = new String((byte[]) response.getEntity(), StandardCharsets.UTF_8);
         DecoderWrapper decoder = CodecWrappers.getDecoder(CodecWrappers.LegacyJacksonJson.class);
 
         Application decodedApp = decoder.decode(json, Application.class);
@@ -2,11 +2,13 @@ package com.netflix.eureka.resources;
 
 import com.netflix.appinfo.EurekaAccept;
 import com.netflix.appinfo.InstanceInfo;
+import com.netflix.config.ConfigurationManager;
 import com.netflix.discovery.util.EurekaEntityComparators;
 import com.netflix.discovery.converters.wrappers.CodecWrappers;
 import com.netflix.discovery.converters.wrappers.DecoderWrapper;
 import com.netflix.discovery.shared.Application;
 import com.netflix.discovery.shared.Applications;
+import com.netflix.discovery.shared.transport.EurekaHttpResponse;
 import com.netflix.discovery.util.InstanceInfoGenerator;
 import com.netflix.eureka.AbstractTester;
 import com.netflix.eureka.Version;
@@ -15,6 +17,7 @@ import org.junit.Test;
 
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import java.nio.charset.StandardCharsets;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -53,7 +56,7 @@ public class ApplicationsResourceTest extends AbstractTester {
                 null  // remote regions
         );
 
-        String json = String.valueOf(response.getEntity());
+        String json = new String((byte[]) response.getEntity(), StandardCharsets.UTF_8);
         DecoderWrapper decoder = CodecWrappers.getDecoder(CodecWrappers.LegacyJacksonJson.class);
 
         Applications decoded = decoder.decode(json, Applications.class);
@@ -105,7 +108,7 @@ public class ApplicationsResourceTest extends AbstractTester {
                 null  // remote regions
         );
 
-        String json = String.valueOf(response.getEntity());
+        String json = new String((byte[]) response.getEntity(), StandardCharsets.UTF_8);
         DecoderWrapper decoder = CodecWrappers.getDecoder(CodecWrappers.LegacyJacksonJson.class);
 
         Applications decoded = decoder.decode(json, Applications.class);
@@ -126,4 +129,167 @@ public class ApplicationsResourceTest extends AbstractTester {
             }
         }
     }
+
+    @Test
+    public void testFullAppsGetNotModified() throws Exception {
+        Response response = applicationsResource.getContainers(
+                Version.V2.name(),
+                MediaType.APPLICATION_JSON,
+                null, // encoding
+                EurekaAccept.full.name(),
+                null,  // uriInfo
+                null  // remote regions
+        );
+        assertThat(response.getStatus(), is(200));
+        Object eTag = response.getMetadata().getFirst("ETag");
+        assertThat(eTag != null, is(true));
+
+        Response notModified = applicationsResource.getContainers(
+                Version.V2.name(),
+                MediaType.APPLICATION_JSON,
+                "gzip", // encoding
+                EurekaAccept.full.name(),
+                eTag.toString(),  // if-none-match
+                null,  // uriInfo
+                null  // remote regions
+        );
+        assertThat(notModified.getStatus(), is(304));
+        assertThat(notModified.getEntity() == null, is(true));
+
+        Response modified = applicationsResource.getContainers(
+                Version.V2.name(),
+                MediaType.APPLICATION_JSON,
+                null, // encoding
+                EurekaAccept.full.name(),
+                "\"outdated\"",  // if-none-match
+                null,  // uriInfo
+                null  // remote regions
+        );
+        assertThat(modified.getStatus(), is(200));
+        assertThat(modified.getMetadata().getFirst("ETag").toString(), is(eTag.toString()));
+    }
+
+    @Test
+    public void testDeltaGetNotModified() throws Exception {
+        Response response = applicationsResource.getContainerDifferential(
+                Version.V2.name(),
+                MediaType.APPLICATION_JSON,
+                null, // encoding
+                EurekaAccept.full.name(),
+                null,  // uriInfo
+                null  // remote regions
+        );
+        assertThat(response.getStatus(), is(200));
+        Object eTag = response.getMetadata().getFirst("ETag");
+        assertThat(eTag != null, is(true));
+
+        Response notModified = applicationsResource.getContainerDifferential(
+                Version.V2.name(),
+                MediaType.APPLICATION_JSON,
+                null, // encoding
+                EurekaAccept.full.name(),
+                eTag.toString(),  // if-none-match
+                null,  // uriInfo
+                null  // remote regions
+        );
+        assertThat(notModified.getStatus(), is(304));
+    }
+
+    @Test
+    public void testWatchNotModifiedWhenRegistryDoesNotChange() throws Exception {
+        long registryVersion = getDeltaRegistryVersion();
+
+        Response response = applicationsResource.watchContainerDifferential(
+                Version.V2.name(),
+                MediaType.APPLICATION_JSON,
+                null, // encoding
+                EurekaAccept.full.name(),
+                registryVersion,
+                1,  // timeout in seconds
+                null,  // uriInfo
+                null  // remote regions
+        );
+        assertThat(response.getStatus(), is(304));
+        assertThat(response.getMetadata().getFirst(EurekaHttpResponse.HEADER_REGISTRY_VERSION).toString(),
+                is(Long.toString(registryVersion)));
+    }
+
+    @Test
+    public void testWatchReturnsDeltaOnRegistryChange() throws Exception {
+        long registryVersion = getDeltaRegistryVersion();
+        final InstanceInfo newInstance = InstanceInfoGenerator.takeOne();
+        Thread registration = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                registry.register(newInstance, false);
+            }
+        });
+        registration.start();
+
+        Response response = applicationsResource.watchContainerDifferential(
+                Version.V2.name(),
+                MediaType.APPLICATION_JSON,
+                null, // encoding
+                EurekaAccept.full.name(),
+                registryVersion,
+                10,  // timeout in seconds
+                null,  // uriInfo
+                null  // remote regions
+        );
+        registration.join();
+        assertThat(response.getStatus(), is(200));
+        long newVersion = Long.parseLong(
+                response.getMetadata().getFirst(EurekaHttpResponse.HEADER_REGISTRY_VERSION).toString());
+        assertThat(newVersion > registryVersion, is(true));
+
+        String json = new String((byte[]) response.getEntity(), StandardCharsets.UTF_8);
+        DecoderWrapper decoder = CodecWrappers.getDecoder(CodecWrappers.LegacyJacksonJson.class);
+        Applications delta = decoder.decode(json, Applications.class);
+        Application decodedApp = delta.getRegisteredApplications(newInstance.getAppName());
+        assertThat(decodedApp.getByInstanceId(newInstance.getId()) != null, is(true));
+    }
+
+    @Test
+    public void testWatchOverLimitReturnsDeltaWithoutRegistryVersion() throws Exception {
+        long registryVersion = getDeltaRegistryVersion();
+        ConfigurationManager.getConfigInstance().setProperty("eureka.maxRegistryWatchers", 0);
+        try {
+            Response response = applicationsResource.watchContainerDifferential(
+                    Version.V2.name(),
+                    MediaType.APPLICATION_JSON,
+                    null, // encoding
+                    EurekaAccept.full.name(),
+                    registryVersion,
+                    10,  // timeout in seconds
+                    null,  // uriInfo
+                    null  // remote regions
+            );
+            assertThat(response.getStatus(), is(200));
+            // Without it, the client polls rather than watching again right away
+            assertThat(response.getMetadata().containsKey(EurekaHttpResponse.HEADER_REGISTRY_VERSION), is(false));
+
+            String json = new String((byte[]) response.getEntity(), StandardCharsets.UTF_8);
+            DecoderWrapper decoder = CodecWrappers.getDecoder(CodecWrappers.LegacyJacksonJson.class);
+            assertThat(decoder.decode(json, Applications.class) != null, is(true));
+        } finally {
+            ConfigurationManager.getConfigInstance().clearProperty("eureka.maxRegistryWatchers");
+        }
+    }
+
+    private long getDeltaRegistryVersion() {
+        Response response = applicationsResource.getContainerDifferential(
+                Version.V2.name(),
+                MediaType.APPLICATION_JSON,
+                null, // encoding
+                EurekaAccept.full.name(),
+                null,  // uriInfo
+                null  // remote regions
+        );
+        return Long.parseLong(response.getMetadata().getFirst(EurekaHttpResponse.HEADER_REGISTRY_VERSION).toString());
+    }
 }
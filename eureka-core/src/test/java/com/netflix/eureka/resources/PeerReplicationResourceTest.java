@@ -1,27 +1,51 @@
 package com.netflix.eureka.resources;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import javax.ws.rs.core.Response;
-import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
 
 import com.netflix.appinfo.InstanceInfo;
+import com.netflix.appinfo.InstanceInfo.InstanceStatus;
+import com.netflix.discovery.converters.wrappers.CodecWrapper;
+import com.netflix.discovery.converters.wrappers.CodecWrappers;
+import com.netflix.discovery.converters.wrappers.CodecWrappers.LegacyJacksonJson;
 import com.netflix.discovery.shared.transport.ClusterSampleData;
 import com.netflix.eureka.EurekaServerConfig;
 import com.netflix.eureka.EurekaServerContext;
 import com.netflix.eureka.registry.PeerAwareInstanceRegistryImpl.Action;
+import com.netflix.eureka.cluster.PeerEurekaNode;
+import com.netflix.eureka.cluster.PeerEurekaNodes;
+import com.netflix.eureka.cluster.protocol.LeaseVector;
+import com.netflix.eureka.cluster.protocol.PeerReplicationStatus;
+import com.netflix.eureka.cluster.protocol.RegistryDigest;
 import com.netflix.eureka.cluster.protocol.ReplicationInstance;
+import com.netflix.eureka.cluster.protocol.ReplicationInstance.ReplicationInstanceBuilder;
 import com.netflix.eureka.cluster.protocol.ReplicationInstanceResponse;
 import com.netflix.eureka.cluster.protocol.ReplicationList;
 import com.netflix.eureka.cluster.protocol.ReplicationListResponse;
+import com.netflix.eureka.cluster.protocol.ReplicationStatus;
+import com.netflix.eureka.registry.PeerAwareInstanceRegistry;
 import org.junit.Before;
 import org.junit.Test;
 
 import static com.netflix.discovery.shared.transport.ClusterSampleData.newReplicationInstanceOf;
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -31,10 +55,12 @@ import static org.mockito.Mockito.when;
  */
 public class PeerReplicationResourceTest {
 
-    private final ApplicationResource applicationResource = mock(ApplicationResource.class);
-    private final InstanceResource instanceResource = mock(InstanceResource.class);
+    private static final String JSON = "application/json";
+
+    private final PeerAwareInstanceRegistry registry = mock(PeerAwareInstanceRegistry.class);
 
     private EurekaServerContext serverContext;
+    private EurekaServerConfig serverConfig;
     private PeerReplicationResource peerReplicationResource;
 
     private final InstanceInfo instanceInfo = ClusterSampleData.newInstanceInfo(0);
@@ -42,62 +68,97 @@ public class PeerReplicationResourceTest {
     @Before
     public void setUp() {
         serverContext = mock(EurekaServerContext.class);
-        when(serverContext.getServerConfig()).thenReturn(mock(EurekaServerConfig.class));
-        peerReplicationResource = new PeerReplicationResource(serverContext) {
-            @Override
-            ApplicationResource createApplicationResource(ReplicationInstance instanceInfo) {
-                return applicationResource;
-            }
-
-            @Override
-            InstanceResource createInstanceResource(ReplicationInstance instanceInfo, ApplicationResource applicationResource) {
-                return instanceResource;
-            }
-        };
+        serverConfig = mock(EurekaServerConfig.class);
+        when(serverContext.getServerConfig()).thenReturn(serverConfig);
+        when(serverContext.getRegistry()).thenReturn(registry);
+        when(serverContext.getServerCodecs()).thenReturn(DefaultServerCodecs.builder()
+                .withFullJsonCodec(CodecWrappers.getCodec(LegacyJacksonJson.class))
+                .build());
+        peerReplicationResource = new PeerReplicationResource(serverContext);
     }
 
     @Test
     public void testRegisterBatching() throws Exception {
         ReplicationList replicationList = new ReplicationList(newReplicationInstanceOf(Action.Register, instanceInfo));
-        Response response = peerReplicationResource.batchReplication(replicationList);
+        Response response = peerReplicationResource.batchReplication(replicationList, null);
 
         assertStatusOkReply(response);
-        verify(applicationResource, times(1)).addInstance(instanceInfo, "true");
+        verify(registry, times(1)).register(instanceInfo, true);
+    }
+
+    @Test
+    public void testInvalidRegistrationIsRejected() throws Exception {
+        ReplicationList replicationList = new ReplicationList(ReplicationInstanceBuilder.aReplicationInstance()
+                .withAction(Action.Register)
+                .withAppName("OTHER_APP")
+                .withId(instanceInfo.getId())
+                .withInstanceInfo(instanceInfo)
+                .build());
+        Response response = peerReplicationResource.batchReplication(replicationList, null);
+
+        assertStatus(response, 400);
+        verify(registry, never()).register(any(InstanceInfo.class), anyBoolean());
     }
 
     @Test
     public void testCancelBatching() throws Exception {
-        when(instanceResource.cancelLease(anyString())).thenReturn(Response.ok().build());
+        when(registry.cancel(anyString(), anyString(), anyBoolean())).thenReturn(true);
 
         ReplicationList replicationList = new ReplicationList(newReplicationInstanceOf(Action.Cancel, instanceInfo));
-        Response response = peerReplicationResource.batchReplication(replicationList);
+        Response response = peerReplicationResource.batchReplication(replicationList, null);
 
         assertStatusOkReply(response);
-        verify(instanceResource, times(1)).cancelLease("true");
+        verify(registry, times(1)).cancel(instanceInfo.getAppName(), instanceInfo.getId(), true);
     }
 
     @Test
     public void testHeartbeat() throws Exception {
-        when(instanceResource.renewLease(anyString(), anyString(), anyString(), anyString())).thenReturn(Response.ok().build());
+        when(registry.renew(anyString(), anyString(), anyBoolean())).thenReturn(true);
 
         ReplicationInstance replicationInstance = newReplicationInstanceOf(Action.Heartbeat, instanceInfo);
-        Response response = peerReplicationResource.batchReplication(new ReplicationList(replicationInstance));
+        Response response = peerReplicationResource.batchReplication(new ReplicationList(replicationInstance), null);
 
         assertStatusOkReply(response);
-        verify(instanceResource, times(1)).renewLease(
-                "true",
-                replicationInstance.getOverriddenStatus(),
-                instanceInfo.getStatus().name(),
-                Long.toString(replicationInstance.getLastDirtyTimestamp())
+        verify(registry, times(1)).renew(instanceInfo.getAppName(), instanceInfo.getId(), true);
+    }
+
+    @Test
+    public void testHeartbeatOfUnknownInstanceIsNotFound() throws Exception {
+        ReplicationInstance replicationInstance = newReplicationInstanceOf(Action.Heartbeat, instanceInfo);
+        Response response = peerReplicationResource.batchReplication(new ReplicationList(replicationInstance), null);
+
+        assertStatus(response, 404);
+    }
+
+    @Test
+    public void testHeartbeatMoreRecentThanRegistryStoresOverriddenStatus() throws Exception {
+        when(registry.renew(anyString(), anyString(), anyBoolean())).thenReturn(true);
+        when(serverConfig.shouldSyncWhenTimestampDiffers()).thenReturn(true);
+        ReplicationInstance replicationInstance = newReplicationInstanceOf(Action.Heartbeat, instanceInfo);
+        InstanceInfo registered = new InstanceInfo.Builder(instanceInfo)
+                .setLastDirtyTimestamp(replicationInstance.getLastDirtyTimestamp() - 1)
+                .build();
+        when(registry.getInstanceByAppAndId(instanceInfo.getAppName(), instanceInfo.getId(), false)).thenReturn(registered);
+
+        Response response = peerReplicationResource.batchReplication(new ReplicationList(replicationInstance), null);
+
+        assertStatus(response, 404);
+        verify(registry, times(1)).storeOverriddenStatusIfRequired(
+                instanceInfo.getAppName(), instanceInfo.getId(), InstanceStatus.valueOf(replicationInstance.getOverriddenStatus())
         );
     }
-    
+
     @Test
     public void testConflictResponseReturnsTheInstanceInfoInTheResponseEntity() throws Exception {
-        when(instanceResource.renewLease(anyString(), anyString(), anyString(), anyString())).thenReturn(Response.status(Status.CONFLICT).entity(instanceInfo).build());
-
+        when(registry.renew(anyString(), anyString(), anyBoolean())).thenReturn(true);
+        when(serverConfig.shouldSyncWhenTimestampDiffers()).thenReturn(true);
         ReplicationInstance replicationInstance = newReplicationInstanceOf(Action.Heartbeat, instanceInfo);
-        Response response = peerReplicationResource.batchReplication(new ReplicationList(replicationInstance));
+        InstanceInfo registered = new InstanceInfo.Builder(instanceInfo)
+                .setLastDirtyTimestamp(replicationInstance.getLastDirtyTimestamp() + 1)
+                .build();
+        when(registry.getInstanceByAppAndId(instanceInfo.getAppName(), instanceInfo.getId(), false)).thenReturn(registered);
+
+        Response response = peerReplicationResource.batchReplication(new ReplicationList(replicationInstance), null);
 
         assertStatusIsConflict(response);
         assertResponseEntityExist(response);
@@ -105,34 +166,176 @@ public class PeerReplicationResourceTest {
 
     @Test
     public void testStatusUpdate() throws Exception {
-        when(instanceResource.statusUpdate(anyString(), anyString(), anyString())).thenReturn(Response.ok().build());
+        when(registry.getInstanceByAppAndId(anyString(), anyString())).thenReturn(instanceInfo);
+        when(registry.statusUpdate(anyString(), anyString(), any(InstanceStatus.class), anyString(), anyBoolean())).thenReturn(true);
 
-        ReplicationInstance replicationInstance = newReplicationInstanceOf(Action.StatusUpdate, instanceInfo);
-        Response response = peerReplicationResource.batchReplication(new ReplicationList(replicationInstance));
+        ReplicationInstance replicationInstance = ReplicationInstanceBuilder.aReplicationInstance()
+                .withAction(Action.StatusUpdate)
+                .withAppName(instanceInfo.getAppName())
+                .withId(instanceInfo.getId())
+                .withStatus(InstanceStatus.OUT_OF_SERVICE.name())
+                .withLastDirtyTimestamp(instanceInfo.getLastDirtyTimestamp())
+                .build();
+        Response response = peerReplicationResource.batchReplication(new ReplicationList(replicationInstance), null);
 
         assertStatusOkReply(response);
-        verify(instanceResource, times(1)).statusUpdate(
-                replicationInstance.getStatus(),
-                "true",
-                Long.toString(replicationInstance.getLastDirtyTimestamp())
+        verify(registry, times(1)).statusUpdate(
+                instanceInfo.getAppName(),
+                instanceInfo.getId(),
+                InstanceStatus.OUT_OF_SERVICE,
+                Long.toString(replicationInstance.getLastDirtyTimestamp()),
+                true
         );
     }
 
     @Test
     public void testDeleteStatusOverride() throws Exception {
-        when(instanceResource.deleteStatusUpdate(anyString(), anyString(), anyString())).thenReturn(Response.ok().build());
+        when(registry.getInstanceByAppAndId(anyString(), anyString())).thenReturn(instanceInfo);
+        when(registry.deleteStatusOverride(anyString(), anyString(), any(InstanceStatus.class), anyString(), anyBoolean())).thenReturn(true);
 
         ReplicationInstance replicationInstance = newReplicationInstanceOf(Action.DeleteStatusOverride, instanceInfo);
-        Response response = peerReplicationResource.batchReplication(new ReplicationList(replicationInstance));
+        Response response = peerReplicationResource.batchReplication(new ReplicationList(replicationInstance), null);
 
         assertStatusOkReply(response);
-        verify(instanceResource, times(1)).deleteStatusUpdate(
-                "true",
-                replicationInstance.getStatus(),
-                Long.toString(replicationInstance.getLastDirtyTimestamp())
+        verify(registry, times(1)).deleteStatusOverride(
+                instanceInfo.getAppName(),
+                instanceInfo.getId(),
+                InstanceStatus.UNKNOWN,
+                Long.toString(replicationInstance.getLastDirtyTimestamp()),
+                true
         );
     }
 
+    @Test
+    public void testParallelBatchKeepsResponseOrder() throws Exception {
+        when(serverConfig.getPeerReplicationBatchParallelism()).thenReturn(4);
+        // Even instances are known, odd ones are not
+        for (int i = 0; i < 100; i++) {
+            when(registry.cancel(instanceInfo.getAppName(), Integer.toString(i), true)).thenReturn(i % 2 == 0);
+        }
+        ReplicationList replicationList = newCancelBatch(100);
+
+        Response response = peerReplicationResource.batchReplication(replicationList, null);
+
+        List<ReplicationInstanceResponse> responses = ((ReplicationListResponse) response.getEntity()).getResponseList();
+        assertThat(responses.size(), is(equalTo(100)));
+        for (int i = 0; i < 100; i++) {
+            assertThat(responses.get(i).getStatusCode(), is(equalTo(i % 2 == 0 ? 200 : 404)));
+        }
+    }
+
+    @Test
+    public void testJsonResponseIsStreamedInBatchOrder() throws Exception {
+        when(serverConfig.getPeerReplicationBatchParallelism()).thenReturn(4);
+        for (int i = 0; i < 100; i++) {
+            when(registry.cancel(instanceInfo.getAppName(), Integer.toString(i), true)).thenReturn(i % 2 == 0);
+        }
+        ReplicationList replicationList = newCancelBatch(100);
+
+        Response response = peerReplicationResource.batchReplication(replicationList, JSON);
+
+        assertThat(response.getStatus(), is(equalTo(200)));
+        assertThat(response.getEntity(), is(instanceOf(StreamingOutput.class)));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ((StreamingOutput) response.getEntity()).write(output);
+        ReplicationListResponse decoded = CodecWrappers.getCodec(LegacyJacksonJson.class)
+                .decode(new ByteArrayInputStream(output.toByteArray()), ReplicationListResponse.class);
+        assertThat(decoded.getResponseList().size(), is(equalTo(100)));
+        for (int i = 0; i < 100; i++) {
+            assertThat(decoded.getResponseList().get(i).getStatusCode(), is(equalTo(i % 2 == 0 ? 200 : 404)));
+        }
+    }
+
+    @Test
+    public void testStreamedJsonResponseMatchesTheEncodedEntity() throws Exception {
+        when(registry.renew(anyString(), anyString(), anyBoolean())).thenReturn(true);
+        when(serverConfig.shouldSyncWhenTimestampDiffers()).thenReturn(true);
+        ReplicationInstance replicationInstance = newReplicationInstanceOf(Action.Heartbeat, instanceInfo);
+        InstanceInfo registered = new InstanceInfo.Builder(instanceInfo)
+                .setLastDirtyTimestamp(replicationInstance.getLastDirtyTimestamp() + 1)
+                .build();
+        when(registry.getInstanceByAppAndId(instanceInfo.getAppName(), instanceInfo.getId(), false)).thenReturn(registered);
+        ReplicationList replicationList = new ReplicationList(replicationInstance);
+
+        Response entityResponse = peerReplicationResource.batchReplication(replicationList, null);
+        Response streamedResponse = peerReplicationResource.batchReplication(replicationList, JSON);
+
+        CodecWrapper codec = CodecWrappers.getCodec(LegacyJacksonJson.class);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ((StreamingOutput) streamedResponse.getEntity()).write(output);
+        assertThat(new String(output.toByteArray(), StandardCharsets.UTF_8), is(equalTo(codec.encode(entityResponse.getEntity()))));
+    }
+
+    private ReplicationList newCancelBatch(int size) {
+        ReplicationList replicationList = new ReplicationList();
+        for (int i = 0; i < size; i++) {
+            replicationList.addReplicationInstance(ReplicationInstanceBuilder.aReplicationInstance()
+                    .withAction(Action.Cancel)
+                    .withAppName(instanceInfo.getAppName())
+                    .withId(Integer.toString(i))
+                    .build());
+        }
+        return replicationList;
+    }
+
+    @Test
+    public void testLeaseVectorRenewsLeasesAndReturnsTheMissingOnes() throws Exception {
+        long now = System.currentTimeMillis();
+        Map<String, Long> appLeases = new HashMap<>();
+        appLeases.put("id1", now);
+        appLeases.put("id2", now);
+        appLeases.put("id3", now - 10 * 60 * 1000);
+        when(registry.renew("APP", "id1", true)).thenReturn(true);
+
+        Response response = peerReplicationResource.renewLeases(new LeaseVector(Collections.singletonMap("app", appLeases)));
+
+        assertThat(response.getStatus(), is(equalTo(200)));
+        LeaseVector missingLeases = (LeaseVector) response.getEntity();
+        assertThat(missingLeases.getLeases(), is(equalTo(
+                Collections.singletonMap("app", Collections.singletonMap("id2", now)))));
+        // A renewal older than the lease duration is ignored
+        verify(registry, never()).renew("APP", "id3", true);
+    }
+
+    @Test
+    public void testRegistryDigestComparison() throws Exception {
+        RegistryDigest peerDigest = new RegistryDigest(Collections.singletonMap("APP", 1L), null);
+        RegistryDigest divergentDigest = new RegistryDigest(null, null);
+        when(registry.compareRegistryDigest(peerDigest)).thenReturn(divergentDigest);
+
+        Response response = peerReplicationResource.compareRegistryDigest(peerDigest);
+
+        assertThat(response.getStatus(), is(equalTo(200)));
+        assertThat(response.getEntity(), is(equalTo((Object) divergentDigest)));
+    }
+
+    @Test
+    public void testUnsupportedRegistryDigestIsNotFound() throws Exception {
+        RegistryDigest peerDigest = new RegistryDigest(Collections.singletonMap("APP", 1L), null);
+        when(registry.compareRegistryDigest(peerDigest)).thenReturn(RegistryDigest.UNSUPPORTED);
+
+        Response response = peerReplicationResource.compareRegistryDigest(peerDigest);
+
+        assertThat(response.getStatus(), is(equalTo(404)));
+    }
+
+    @Test
+    public void testReplicationStatus() throws Exception {
+        PeerReplicationStatus peerStatus = new PeerReplicationStatus("http://peer1.host.com", 10, 5, 100,
+                Collections.singletonMap(Action.Heartbeat.name(), 2L), 4096);
+        PeerEurekaNode peerEurekaNode = mock(PeerEurekaNode.class);
+        when(peerEurekaNode.getReplicationStatus()).thenReturn(peerStatus);
+        PeerEurekaNodes peerEurekaNodes = mock(PeerEurekaNodes.class);
+        when(peerEurekaNodes.getPeerEurekaNodes()).thenReturn(Collections.singletonList(peerEurekaNode));
+        when(serverContext.getPeerEurekaNodes()).thenReturn(peerEurekaNodes);
+
+        Response response = new PeerReplicationResource(serverContext).getReplicationStatus();
+
+        assertThat(response.getStatus(), is(equalTo(200)));
+        ReplicationStatus replicationStatus = (ReplicationStatus) response.getEntity();
+        assertThat(replicationStatus.getPeerStatuses(), is(equalTo(Collections.singletonList(peerStatus))));
+    }
+
     private static void assertStatusOkReply(Response httpResponse) {
         assertStatus(httpResponse, 200);
     }
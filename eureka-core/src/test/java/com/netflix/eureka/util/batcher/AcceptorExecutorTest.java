@@ -130,9 +130,41 @@ public class AcceptorExecutorTest {
         assertThat(taskHolders.size(), is(equalTo(2)));
     }
 
+    @Test
+    public void testExpiredTasksAreReportedToTaskProcessor() throws Exception {
+        RecordingProcessor processor = new RecordingProcessor();
+        AcceptorExecutor<Integer, ProcessingResult> reportingExecutor = new AcceptorExecutor<>(
+                "TEST_EXPIRY", MAX_BUFFER_SIZE, new BatchingPolicy(WORK_LOAD_SIZE, MAX_BATCHING_DELAY_MS),
+                SERVER_UNAVAILABLE_SLEEP_TIME_MS, RETRY_SLEEP_TIME_MS, processor
+        );
+        try {
+            reportingExecutor.process(1, ProcessingResult.PermanentError, System.currentTimeMillis() - 1);
+            reportingExecutor.process(2, ProcessingResult.Success, System.currentTimeMillis() + 60 * 1000);
+
+            TaskHolder<Integer, ProcessingResult> taskHolder = reportingExecutor.requestWorkItem().poll(5, TimeUnit.SECONDS);
+            assertThat(taskHolder.getId(), is(equalTo(2)));
+            assertThat(processor.expiredTasks.poll(), is(equalTo(ProcessingResult.PermanentError)));
+            assertThat(processor.expiredTasks.isEmpty(), is(true));
+        } finally {
+            reportingExecutor.shutdown();
+        }
+    }
+
+    @Test
+    public void testOldestTaskAgeIsReported() throws Exception {
+        acceptorExecutor.process(1, "Task1", System.currentTimeMillis() + 60 * 1000);
+        Thread.sleep(100);
+        assertThat(acceptorExecutor.getOldestTaskAge() >= 100, is(true));
+
+        TaskHolder<Integer, String> taskHolder = acceptorExecutor.requestWorkItem().poll(5, TimeUnit.SECONDS);
+        verifyTaskHolder(taskHolder, 1, "Task1");
+        Thread.sleep(100);
+        assertThat(acceptorExecutor.getOldestTaskAge(), is(equalTo(0L)));
+    }
+
     private static void verifyTaskHolder(TaskHolder<Integer, String> taskHolder, int id, String task) {
         assertThat(taskHolder, is(notNullValue()));
         assertThat(taskHolder.getId(), is(equalTo(id)));
         assertThat(taskHolder.getTask(), is(equalTo(task)));
     }
-}
\ No newline at end of file
+}
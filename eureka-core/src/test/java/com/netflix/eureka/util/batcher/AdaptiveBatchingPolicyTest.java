@@ -0,0 +1,112 @@
+package com.netflix.eureka.util.batcher;
+
+import com.netflix.eureka.util.batcher.TaskProcessor.ProcessingResult;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class AdaptiveBatchingPolicyTest {
+
+    private static final int MAX_BATCHING_SIZE = 100;
+    private static final long MAX_BATCHING_DELAY_MS = 500;
+    private static final int MAX_BATCHES_IN_FLIGHT = 8;
+    private static final long TARGET_LATENCY_MS = 200;
+
+    private final AdaptiveBatchingPolicy policy = new AdaptiveBatchingPolicy(
+            "TEST", MAX_BATCHING_SIZE, MAX_BATCHING_DELAY_MS, MAX_BATCHES_IN_FLIGHT, TARGET_LATENCY_MS
+    );
+
+    @After
+    public void tearDown() throws Exception {
+        policy.shutdown();
+    }
+
+    @Test
+    public void testStartsAtConfiguredLimits() throws Exception {
+        assertThat(policy.getBatchingSize(), is(equalTo(MAX_BATCHING_SIZE)));
+        assertThat(policy.getBatchingDelay(), is(equalTo(MAX_BATCHING_DELAY_MS)));
+        assertThat(policy.getBatchesInFlightLimit(), is(equalTo(MAX_BATCHES_IN_FLIGHT)));
+    }
+
+    @Test
+    public void testBatchesInFlightAreLimited() throws Exception {
+        for (int i = 0; i < MAX_BATCHES_IN_FLIGHT; i++) {
+            assertThat(policy.canStartBatch(), is(true));
+            policy.batchStarted();
+        }
+        assertThat(policy.canStartBatch(), is(false));
+
+        policy.batchCompleted(ProcessingResult.Success, MAX_BATCHING_SIZE, 10);
+        assertThat(policy.canStartBatch(), is(true));
+    }
+
+    @Test
+    public void testFullBatchIsReadyBeforeBatchingDelay() throws Exception {
+        assertThat(policy.isBatchReady(MAX_BATCHING_SIZE - 1, 0), is(false));
+        assertThat(policy.isBatchReady(MAX_BATCHING_SIZE, 0), is(true));
+        assertThat(policy.isBatchReady(1, MAX_BATCHING_DELAY_MS), is(true));
+    }
+
+    @Test
+    public void testFastBatchesShortenBatchingDelay() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            completeBatch(ProcessingResult.Success, TARGET_LATENCY_MS);
+        }
+        assertThat(policy.getBatchingDelay(), is(equalTo(0L)));
+        assertThat(policy.getBatchingSize(), is(equalTo(MAX_BATCHING_SIZE)));
+        assertThat(policy.getBatchesInFlightLimit(), is(equalTo(MAX_BATCHES_IN_FLIGHT)));
+    }
+
+    @Test
+    public void testCongestionHalvesLimitsAndFastBatchesRestoreThem() throws Exception {
+        completeBatch(ProcessingResult.Success, 10);
+        completeBatch(ProcessingResult.Congestion, 10);
+
+        assertThat(policy.getBatchesInFlightLimit(), is(equalTo(MAX_BATCHES_IN_FLIGHT / 2)));
+        assertThat(policy.getBatchingSize(), is(equalTo(MAX_BATCHING_SIZE / 2)));
+        assertThat(policy.getBatchingDelay(), is(equalTo(MAX_BATCHING_DELAY_MS)));
+
+        // One more batch in flight after each round of batches in flight
+        for (int i = 0; i < MAX_BATCHES_IN_FLIGHT / 2; i++) {
+            completeBatch(ProcessingResult.Success, 10);
+        }
+        assertThat(policy.getBatchesInFlightLimit(), is(equalTo(MAX_BATCHES_IN_FLIGHT / 2 + 1)));
+        assertThat(policy.getBatchingSize(), is(equalTo(MAX_BATCHING_SIZE / 2 + MAX_BATCHES_IN_FLIGHT / 2 * MAX_BATCHING_SIZE / 10)));
+    }
+
+    @Test
+    public void testSlowBatchesReduceBatchesInFlightOnly() throws Exception {
+        completeBatch(ProcessingResult.Success, TARGET_LATENCY_MS + 1);
+
+        assertThat(policy.getBatchesInFlightLimit(), is(equalTo(MAX_BATCHES_IN_FLIGHT * 3 / 4)));
+        assertThat(policy.getBatchingSize(), is(equalTo(MAX_BATCHING_SIZE)));
+        assertThat(policy.getBatchingDelay(), is(equalTo(MAX_BATCHING_DELAY_MS)));
+    }
+
+    @Test
+    public void testBatchesStartedBeforeLastDecreaseDoNotDecreaseAgain() throws Exception {
+        completeBatch(ProcessingResult.TransientError, 0);
+        completeBatch(ProcessingResult.TransientError, 60 * 1000);
+
+        assertThat(policy.getBatchesInFlightLimit(), is(equalTo(MAX_BATCHES_IN_FLIGHT / 2)));
+        assertThat(policy.getBatchingSize(), is(equalTo(MAX_BATCHING_SIZE / 2)));
+    }
+
+    @Test
+    public void testLimitsDoNotGoBelowOne() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            completeBatch(ProcessingResult.Congestion, 0);
+        }
+        assertThat(policy.getBatchesInFlightLimit(), is(equalTo(1)));
+        assertThat(policy.getBatchingSize(), is(equalTo(1)));
+        assertThat(policy.canStartBatch(), is(true));
+    }
+
+    private void completeBatch(ProcessingResult result, long latencyMs) {
+        policy.batchStarted();
+        policy.batchCompleted(result, MAX_BATCHING_SIZE, latencyMs);
+    }
+}
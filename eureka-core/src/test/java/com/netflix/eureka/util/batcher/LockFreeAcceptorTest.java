@@ -0,0 +1,201 @@
+package com.netflix.eureka.util.batcher;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import com.netflix.eureka.util.batcher.TaskProcessor.ProcessingResult;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class LockFreeAcceptorTest {
+
+    private static final long SERVER_UNAVAILABLE_SLEEP_TIME_MS = 1000;
+    private static final long RETRY_SLEEP_TIME_MS = 100;
+    private static final long MAX_BATCHING_DELAY_MS = 10;
+
+    private static final int MAX_BUFFER_SIZE = 3;
+    private static final int WORK_LOAD_SIZE = 2;
+
+    private LockFreeAcceptor<Integer, String> acceptor;
+
+    @Before
+    public void setUp() throws Exception {
+        acceptor = new LockFreeAcceptor<>(
+                "TEST", MAX_BUFFER_SIZE, WORK_LOAD_SIZE, MAX_BATCHING_DELAY_MS,
+                SERVER_UNAVAILABLE_SLEEP_TIME_MS, RETRY_SLEEP_TIME_MS
+        );
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        acceptor.shutdown();
+    }
+
+    @Test
+    public void testBatchSizeIsConstrainedByConfiguredMaxSize() throws Exception {
+        for (int i = 0; i < MAX_BUFFER_SIZE; i++) {
+            acceptor.process(i, "Task" + i, System.currentTimeMillis() + 60 * 1000);
+        }
+
+        List<TaskHolder<Integer, String>> taskHolders = acceptor.pollBatch(5, TimeUnit.SECONDS);
+        assertThat(taskHolders.size(), is(equalTo(WORK_LOAD_SIZE)));
+        verifyTaskHolder(taskHolders.get(0), 0, "Task0");
+        verifyTaskHolder(taskHolders.get(1), 1, "Task1");
+    }
+
+    @Test
+    public void testNewTaskOverridesOldOne() throws Exception {
+        acceptor.process(1, "Task1", System.currentTimeMillis() + 60 * 1000);
+        acceptor.process(1, "Task1.1", System.currentTimeMillis() + 60 * 1000);
+
+        List<TaskHolder<Integer, String>> taskHolders = acceptor.pollBatch(5, TimeUnit.SECONDS);
+        assertThat(taskHolders.size(), is(equalTo(1)));
+        verifyTaskHolder(taskHolders.get(0), 1, "Task1.1");
+    }
+
+    @Test
+    public void testRepublishedTaskIsHandledFirst() throws Exception {
+        acceptor.process(1, "Task1", System.currentTimeMillis() + 60 * 1000);
+
+        List<TaskHolder<Integer, String>> firstBatch = acceptor.pollBatch(5, TimeUnit.SECONDS);
+        verifyTaskHolder(firstBatch.get(0), 1, "Task1");
+
+        acceptor.process(2, "Task2", System.currentTimeMillis() + 60 * 1000);
+        acceptor.reprocess(firstBatch, ProcessingResult.TransientError);
+
+        List<TaskHolder<Integer, String>> secondBatch = acceptor.pollBatch(5, TimeUnit.SECONDS);
+        assertThat(secondBatch.size(), is(equalTo(2)));
+        verifyTaskHolder(secondBatch.get(0), 1, "Task1");
+        verifyTaskHolder(secondBatch.get(1), 2, "Task2");
+    }
+
+    @Test
+    public void testWhenBufferOverflowsOldestTasksAreRemoved() throws Exception {
+        for (int i = 0; i <= MAX_BUFFER_SIZE; i++) {
+            acceptor.process(i, "Task" + i, System.currentTimeMillis() + 60 * 1000);
+        }
+
+        // Task 0 should be dropped out
+        List<TaskHolder<Integer, String>> taskHolders = acceptor.pollBatch(5, TimeUnit.SECONDS);
+        verifyTaskHolder(taskHolders.get(0), 1, "Task1");
+    }
+
+    @Test
+    public void testExpiredTasksAreDropped() throws Exception {
+        acceptor.process(1, "Task1", System.currentTimeMillis() - 1);
+
+        assertThat(acceptor.pollBatch(100, TimeUnit.MILLISECONDS), is(nullValue()));
+    }
+
+    @Test
+    public void testExpiredTasksAreReportedToTaskProcessor() throws Exception {
+        RecordingProcessor processor = new RecordingProcessor();
+        LockFreeAcceptor<Integer, ProcessingResult> reportingAcceptor = new LockFreeAcceptor<>(
+                "TEST_EXPIRY", MAX_BUFFER_SIZE, new BatchingPolicy(WORK_LOAD_SIZE, MAX_BATCHING_DELAY_MS),
+                SERVER_UNAVAILABLE_SLEEP_TIME_MS, RETRY_SLEEP_TIME_MS, processor
+        );
+        try {
+            reportingAcceptor.process(1, ProcessingResult.PermanentError, System.currentTimeMillis() - 1);
+
+            assertThat(reportingAcceptor.pollBatch(100, TimeUnit.MILLISECONDS), is(nullValue()));
+            assertThat(processor.expiredTasks.poll(), is(equalTo(ProcessingResult.PermanentError)));
+        } finally {
+            reportingAcceptor.shutdown();
+        }
+    }
+
+    @Test
+    public void testOldestTaskAgeIsReported() throws Exception {
+        for (int i = 0; i < MAX_BUFFER_SIZE; i++) {
+            acceptor.process(i, "Task" + i, System.currentTimeMillis() + 60 * 1000);
+        }
+        Thread.sleep(100);
+
+        // The task left behind by the batch is the oldest one
+        assertThat(acceptor.pollBatch(1, TimeUnit.MILLISECONDS).size(), is(equalTo(WORK_LOAD_SIZE)));
+        assertThat(acceptor.getOldestTaskAge() >= 100, is(true));
+    }
+
+    @Test
+    public void testTasksAreDelayToMaximizeBatchSize() throws Exception {
+        acceptor.process(1, "Task1", System.currentTimeMillis() + 60 * 1000);
+        Thread.sleep(MAX_BATCHING_DELAY_MS / 2);
+        acceptor.process(2, "Task2", System.currentTimeMillis() + 60 * 1000);
+
+        List<TaskHolder<Integer, String>> taskHolders = acceptor.pollBatch(5, TimeUnit.SECONDS);
+
+        assertThat(taskHolders.size(), is(equalTo(2)));
+    }
+
+    @Test
+    public void testConcurrentProducersAndWorkers() throws Exception {
+        LockFreeAcceptor<Integer, String> largeAcceptor = new LockFreeAcceptor<>(
+                "TEST_LARGE", 100000, 100, 0, SERVER_UNAVAILABLE_SLEEP_TIME_MS, RETRY_SLEEP_TIME_MS
+        );
+        int producerCount = 4;
+        int tasksPerProducer = 10000;
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < producerCount; p++) {
+            final int firstId = p * tasksPerProducer;
+            Thread producer = new Thread(() -> {
+                for (int i = 0; i < tasksPerProducer; i++) {
+                    largeAcceptor.process(firstId + i, "Task", System.currentTimeMillis() + 60 * 1000);
+                }
+            });
+            producers.add(producer);
+            producer.start();
+        }
+
+        final int taskCount = producerCount * tasksPerProducer;
+        final long deadline = System.currentTimeMillis() + 30 * 1000;
+        final Set<Integer> processedIds = Collections.synchronizedSet(new HashSet<Integer>());
+        List<Thread> workers = new ArrayList<>();
+        for (int w = 0; w < 2; w++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    while (processedIds.size() < taskCount && System.currentTimeMillis() < deadline) {
+                        List<TaskHolder<Integer, String>> batch = largeAcceptor.pollBatch(100, TimeUnit.MILLISECONDS);
+                        if (batch != null) {
+                            for (TaskHolder<Integer, String> holder : batch) {
+                                processedIds.add(holder.getId());
+                            }
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    // Ignore
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        try {
+            for (Thread thread : producers) {
+                thread.join();
+            }
+            for (Thread thread : workers) {
+                thread.join();
+            }
+        } finally {
+            largeAcceptor.shutdown();
+        }
+
+        assertThat(processedIds.size(), is(equalTo(taskCount)));
+    }
+
+    private static void verifyTaskHolder(TaskHolder<Integer, String> taskHolder, int id, String task) {
+        assertThat(taskHolder, is(notNullValue()));
+        assertThat(taskHolder.getId(), is(equalTo(id)));
+        assertThat(taskHolder.getTask(), is(equalTo(task)));
+    }
+}
@@ -35,6 +35,7 @@ class RecordingProcessor implements TaskProcessor<ProcessingResult> {
     final BlockingDeque<ProcessingResult> completedTasks = new LinkedBlockingDeque<>();
     final BlockingDeque<ProcessingResult> transientErrorTasks = new LinkedBlockingDeque<>();
     final BlockingDeque<ProcessingResult> permanentErrorTasks = new LinkedBlockingDeque<>();
+    final BlockingDeque<ProcessingResult> expiredTasks = new LinkedBlockingDeque<>();
 
     @Override
     public ProcessingResult process(ProcessingResult task) {
@@ -60,6 +61,11 @@ class RecordingProcessor implements TaskProcessor<ProcessingResult> {
         return tasks.get(0);
     }
 
+    @Override
+    public void expired(ProcessingResult task) {
+        expiredTasks.add(task);
+    }
+
     public static TaskHolder<Integer, ProcessingResult> successfulTaskHolder(int id) {
         return new TaskHolder<>(id, ProcessingResult.Success, System.currentTimeMillis() + 60 * 1000);
     }
@@ -91,6 +91,53 @@ public class TaskDispatchersTest {
         processor.expectSuccesses(2);
     }
 
+    @Test
+    public void testLockFreeBatchingDispatcher() throws Exception {
+        dispatcher = TaskDispatchers.createBatchingTaskDispatcher(
+                "TEST",
+                MAX_BUFFER_SIZE,
+                WORK_LOAD_SIZE,
+                1,
+                MAX_BATCHING_DELAY_MS,
+                SERVER_UNAVAILABLE_SLEEP_TIME_MS,
+                RETRY_SLEEP_TIME_MS,
+                processor,
+                true
+        );
+
+        dispatcher.process(1, ProcessingResult.Success, System.currentTimeMillis() + 60 * 1000);
+        dispatcher.process(2, ProcessingResult.Success, System.currentTimeMillis() + 60 * 1000);
+        dispatcher.process(3, ProcessingResult.PermanentError, System.currentTimeMillis() + 60 * 1000);
+
+        processor.expectSuccesses(2);
+        processor.expectPermanentErrors(1);
+    }
+
+    @Test
+    public void testAdaptiveBatchingDispatcher() throws Exception {
+        dispatcher = TaskDispatchers.createAdaptiveBatchingTaskDispatcher(
+                "TEST",
+                MAX_BUFFER_SIZE,
+                WORK_LOAD_SIZE,
+                2,
+                MAX_BATCHING_DELAY_MS,
+                1000,
+                SERVER_UNAVAILABLE_SLEEP_TIME_MS,
+                RETRY_SLEEP_TIME_MS,
+                processor,
+                false,
+                false
+        );
+
+        for (int i = 0; i < 10; i++) {
+            dispatcher.process(i, ProcessingResult.Success, System.currentTimeMillis() + 60 * 1000);
+        }
+        dispatcher.process(10, ProcessingResult.PermanentError, System.currentTimeMillis() + 60 * 1000);
+
+        processor.expectSuccesses(10);
+        processor.expectPermanentErrors(1);
+    }
+
     @Test
     public void testTasksAreDistributedAcrossAllWorkerThreads() throws Exception {
         int threadCount = 3;
@@ -121,4 +121,23 @@ public class TaskExecutorsTest {
         processor.expectPermanentErrors(2);
         verify(acceptorExecutor, never()).reprocess(taskHolderBatch, ProcessingResult.TransientError);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testSingleItemProcessingOnVirtualThreads() throws Exception {
+        // Falls back to platform threads on the Java runtimes without virtual threads
+        taskExecutors = TaskExecutors.singleItemExecutors("TEST", 1, processor, acceptorExecutor, true);
+        taskQueue.add(successfulTaskHolder(1));
+        processor.expectSuccesses(1);
+    }
+
+    @Test
+    public void testBatchProcessingOnVirtualThreads() throws Exception {
+        taskExecutors = TaskExecutors.batchExecutors("TEST", 2, processor, acceptorExecutor, true);
+
+        List<TaskHolder<Integer, ProcessingResult>> taskHolderBatch = asList(transientErrorTaskHolder(1), transientErrorTaskHolder(2));
+        taskBatchQueue.add(taskHolderBatch);
+
+        processor.expectTransientErrors(2);
+        verify(acceptorExecutor, timeout(500).times(1)).reprocess(taskHolderBatch, ProcessingResult.TransientError);
+    }
+}